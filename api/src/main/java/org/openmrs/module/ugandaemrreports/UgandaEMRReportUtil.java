@@ -6,6 +6,7 @@ import org.openmrs.module.reporting.evaluation.parameter.ParameterizableUtil;
 import org.openmrs.module.reporting.report.ReportDesign;
 import org.openmrs.module.reporting.report.definition.ReportDefinition;
 import org.openmrs.module.reporting.report.manager.ReportManagerUtil;
+import org.openmrs.module.ugandaemrreports.reporting.renderer.LineListReportRenderer;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -95,4 +96,23 @@ public class UgandaEMRReportUtil {
         return design;
     }
 
+    /**
+     * @param format {@link LineListReportRenderer#CSV}, {@link LineListReportRenderer#NDJSON} or
+     * {@link LineListReportRenderer#XLSX}
+     * @return a new ReportDesign that streams the rows of the report as a gzip compressed line list, or a workbook
+     */
+    public static ReportDesign createLineListDesign(String reportDesignUuid, ReportDefinition reportDefinition, String format) {
+        ReportDesign design = new ReportDesign();
+        design.setUuid(reportDesignUuid);
+        if (LineListReportRenderer.XLSX.equals(format)) {
+            design.setName("Excel (line list)");
+        } else {
+            design.setName(LineListReportRenderer.NDJSON.equals(format) ? "JSON Lines (gzip)" : "CSV (gzip)");
+        }
+        design.setReportDefinition(reportDefinition);
+        design.setRendererType(LineListReportRenderer.class);
+        design.addPropertyValue(LineListReportRenderer.FORMAT_PROPERTY, format);
+        design.addPropertyValue(LineListReportRenderer.GZIP_PROPERTY, "true");
+        return design;
+    }
 }
@@ -18,6 +18,11 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.api.AdministrationService;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.ugandaemrreports.common.ConnectionPool;
+import org.openmrs.module.ugandaemrreports.common.ParallelRowBuilder;
+import org.openmrs.module.ugandaemrreports.reporting.dataset.ConcurrentDataSets;
+import org.openmrs.module.ugandaemrreports.reporting.execution.ReportExecutor;
+import org.openmrs.module.ugandaemrreports.reporting.facts.ArtFacts;
 import org.openmrs.module.ugandaemrreports.reports.UgandaEMRReportManager;
 import org.openmrs.module.reporting.ReportingConstants;
 import org.openmrs.module.reporting.common.ObjectUtil;
@@ -36,7 +41,10 @@ public class ReportInitializer implements Initializer {
 	 */
 	@Override
 	public synchronized void started() {
+		ConnectionPool.startInstance();
 		ReportManagerUtil.setupAllReports(UgandaEMRReportManager.class);
+		ArtFacts.start();
+		// patient data is batched by DataEvaluationBatchingAdvice, sized from the heap or ugandaemrreports.dataEvaluation.batchSize
 		ReportUtil.updateGlobalProperty(ReportingConstants.GLOBAL_PROPERTY_DATA_EVALUATION_BATCH_SIZE, "-1");
 	}
 
@@ -45,5 +53,11 @@ public class ReportInitializer implements Initializer {
 	 */
 	@Override
 	public void stopped() {
+		// stop everything that checks out connections before the pool is closed
+		ReportExecutor.shutdown();
+		ConcurrentDataSets.shutdown();
+		ParallelRowBuilder.shutdown();
+		ArtFacts.stop();
+		ConnectionPool.shutdownInstance();
 	}
 }
\ No newline at end of file
@@ -19,14 +19,22 @@ import java.util.List;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.module.BaseModuleActivator;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.DaemonTokenAware;
+import org.openmrs.module.ugandaemrreports.common.UserContexts;
 
 /**
  * This class contains the logic that is run every time this module is either started or stopped.
  */
-public class UgandaEMRReportsActivator extends BaseModuleActivator {
+public class UgandaEMRReportsActivator extends BaseModuleActivator implements DaemonTokenAware {
 	
 	protected Log log = LogFactory.getLog(getClass());
 
+	@Override
+	public void setDaemonToken(DaemonToken token) {
+		UserContexts.setDaemonToken(token);
+	}
+
 	public List<Initializer> getInitializers() {
 		List<Initializer> l = new ArrayList<Initializer>();
 		l.add(new AppConfigInitializer());
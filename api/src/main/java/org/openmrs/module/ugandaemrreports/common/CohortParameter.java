@@ -0,0 +1,112 @@
+package org.openmrs.module.ugandaemrreports.common;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Multimap;
+
+import java.util.*;
+
+/**
+ * Passes a cohort to raw SQL in fixed size batches of comma separated ids instead of one IN list holding the whole
+ * cohort, which for big facilities produces statements of several megabytes and can exceed max_allowed_packet.
+ * Ids are sorted before batching so the same cohort always produces the same statements.
+ * Only use it for queries whose rows each belong to one patient of the batch, the batch results are concatenated.
+ */
+public class CohortParameter {
+
+    public static final String GP_BATCH_SIZE = "ugandaemrreports.cohortBatchSize";
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * A query run once per batch with the ids of the batch joined by commas
+     */
+    public interface BatchQuery<T, E extends Exception> {
+        T run(String ids) throws E;
+    }
+
+    /**
+     * A query run once per batch with the ids of the batch, for queries that bind them, see {@link NamedQuery}
+     */
+    public interface BoundBatchQuery<T, E extends Exception> {
+        T run(List<Integer> ids) throws E;
+    }
+
+    public static int getBatchSize() {
+        int size = Helper.getIntegerGlobalProperty(GP_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+        return size > 0 ? size : DEFAULT_BATCH_SIZE;
+    }
+
+    /**
+     * @return the ids split into comma separated batches, empty when there are no ids
+     */
+    public static List<String> batches(Collection<Integer> ids) {
+        return batches(ids, getBatchSize());
+    }
+
+    public static List<String> batches(Collection<Integer> ids, int size) {
+        List<String> batches = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return batches;
+        }
+        for (List<Integer> batch : Iterables.partition(new TreeSet<>(ids), size)) {
+            batches.add(Joiner.on(",").join(batch));
+        }
+        return batches;
+    }
+
+    /**
+     * @return the ids sorted and split into batches of the batch size, empty when there are no ids
+     */
+    public static List<List<Integer>> partitions(Collection<Integer> ids) {
+        List<List<Integer>> partitions = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return partitions;
+        }
+        for (List<Integer> batch : Iterables.partition(new TreeSet<>(ids), getBatchSize())) {
+            partitions.add(batch);
+        }
+        return partitions;
+    }
+
+    public static <T, E extends Exception> List<T> boundList(Collection<Integer> ids, BoundBatchQuery<? extends Collection<T>, E> query) throws E {
+        List<T> result = new ArrayList<>();
+        for (List<Integer> batch : partitions(ids)) {
+            result.addAll(query.run(batch));
+        }
+        return result;
+    }
+
+    public static <K, V, E extends Exception> Map<K, V> boundMap(Collection<Integer> ids, BoundBatchQuery<? extends Map<K, V>, E> query) throws E {
+        Map<K, V> result = new HashMap<>();
+        for (List<Integer> batch : partitions(ids)) {
+            result.putAll(query.run(batch));
+        }
+        return result;
+    }
+
+    public static <T, E extends Exception> List<T> list(Collection<Integer> ids, BatchQuery<? extends Collection<T>, E> query) throws E {
+        List<T> result = new ArrayList<>();
+        for (String batch : batches(ids)) {
+            result.addAll(query.run(batch));
+        }
+        return result;
+    }
+
+    public static <K, V, E extends Exception> Map<K, V> map(Collection<Integer> ids, BatchQuery<? extends Map<K, V>, E> query) throws E {
+        Map<K, V> result = new HashMap<>();
+        for (String batch : batches(ids)) {
+            result.putAll(query.run(batch));
+        }
+        return result;
+    }
+
+    public static <K, V, E extends Exception> Multimap<K, V> multimap(Collection<Integer> ids, BatchQuery<? extends Multimap<K, V>, E> query) throws E {
+        Multimap<K, V> result = ArrayListMultimap.create();
+        for (String batch : batches(ids)) {
+            result.putAll(query.run(batch));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,490 @@
+package org.openmrs.module.ugandaemrreports.common;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Context;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of raw JDBC connections used by the evaluators that bypass hibernate.
+ * Connections handed out are proxies whose close() returns the physical connection to the pool,
+ * so evaluators should check one out per report run and close it in a try-with-resources block.
+ * Statements prepared with {@link #prepareCached(Connection, String)}, which {@link NamedQuery} uses, are prepared on
+ * the server and kept per physical connection, then handed out again the next time the same text is prepared on it, so
+ * a named query is parsed by the server once per connection rather than once per execution. Closing such a statement
+ * returns it to the connection's cache. Every other statement is an ordinary client side prepared statement, so the
+ * queries still built with their values in the text neither pay a server prepare nor push the named queries out of
+ * the cache.
+ */
+public class ConnectionPool {
+
+    protected static final Log log = LogFactory.getLog(ConnectionPool.class);
+
+    public static final String GP_MAX_SIZE = "ugandaemrreports.connectionPool.maxSize";
+    public static final String GP_CHECKOUT_TIMEOUT = "ugandaemrreports.connectionPool.checkoutTimeoutSeconds";
+    public static final String GP_LEAK_THRESHOLD = "ugandaemrreports.connectionPool.leakThresholdSeconds";
+
+    private static final int DEFAULT_MAX_SIZE = 8;
+    private static final int DEFAULT_CHECKOUT_TIMEOUT = 60;
+    private static final int DEFAULT_LEAK_THRESHOLD = 1800;
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
+    private static volatile ConnectionPool instance;
+    private static volatile boolean shutDown = false;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maxSize;
+    private final long checkoutTimeoutMillis;
+    private final long leakThresholdMillis;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+    private final Map<Connection, Checkout> checkedOut = new ConcurrentHashMap<>();
+    private final Map<Connection, StatementCache> statements = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+    private final AtomicLong statementsPrepared = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+
+    public ConnectionPool(String url, String username, String password, int maxSize, int checkoutTimeoutSeconds,
+                          int leakThresholdSeconds) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.checkoutTimeoutMillis = TimeUnit.SECONDS.toMillis(checkoutTimeoutSeconds);
+        this.leakThresholdMillis = TimeUnit.SECONDS.toMillis(leakThresholdSeconds);
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * @return the module wide pool, created from the OpenMRS runtime properties on first use
+     * @throws IllegalStateException once the pool has been shut down with the module, rather than creating a pool
+     * nothing would close
+     */
+    public static ConnectionPool getInstance() {
+        if (instance == null) {
+            synchronized (ConnectionPool.class) {
+                if (shutDown) {
+                    throw new IllegalStateException("Reports connection pool has been shut down with the module");
+                }
+                if (instance == null) {
+                    try {
+                        Class.forName("com.mysql.jdbc.Driver");
+                    } catch (ClassNotFoundException e) {
+                        log.warn("MySQL driver not found on the module classpath, relying on DriverManager", e);
+                    }
+                    Properties props = Context.getRuntimeProperties();
+                    instance = new ConnectionPool(props.getProperty("connection.url"),
+                            props.getProperty("connection.username"), props.getProperty("connection.password"),
+                            Helper.getIntegerGlobalProperty(GP_MAX_SIZE, DEFAULT_MAX_SIZE),
+                            Helper.getIntegerGlobalProperty(GP_CHECKOUT_TIMEOUT, DEFAULT_CHECKOUT_TIMEOUT),
+                            Helper.getIntegerGlobalProperty(GP_LEAK_THRESHOLD, DEFAULT_LEAK_THRESHOLD));
+                    log.info("Created reports connection pool with max size " + instance.maxSize);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Allows the module wide pool to be created again after a shutdown. Called when the module is started.
+     */
+    public static void startInstance() {
+        synchronized (ConnectionPool.class) {
+            shutDown = false;
+        }
+    }
+
+    /**
+     * Closes the module wide pool if it was ever created. Called when the module is stopped, after everything that
+     * checks connections out has been stopped.
+     */
+    public static void shutdownInstance() {
+        synchronized (ConnectionPool.class) {
+            shutDown = true;
+            if (instance != null) {
+                log.info("Closing reports connection pool " + instance.getMetrics());
+                log.info("Named query statistics " + NamedQuery.getStatistics());
+                instance.shutdown();
+                instance = null;
+            }
+        }
+    }
+
+    /**
+     * Checks out a connection for the given owner, waiting at most the configured checkout timeout
+     *
+     * @param owner a label (normally the report or dataset name) used in leak reports
+     * @return a connection whose close() hands it back to the pool
+     */
+    public Connection checkout(String owner) throws SQLException {
+        if (closed) {
+            throw new SQLException("Reports connection pool is closed");
+        }
+        reportLeaks();
+
+        long start = System.currentTimeMillis();
+        try {
+            if (!permits.tryAcquire(checkoutTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Timed out after " + checkoutTimeoutMillis + "ms waiting for a reports connection, "
+                        + checkedOut.size() + " in use by " + describeCheckouts());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a reports connection", e);
+        }
+        totalWaitMillis.addAndGet(System.currentTimeMillis() - start);
+
+        try {
+            Connection physical = takeIdle();
+            if (physical == null) {
+                physical = DriverManager.getConnection(url, connectionProperties());
+                created.incrementAndGet();
+            } else {
+                reused.incrementAndGet();
+            }
+            checkouts.incrementAndGet();
+            checkedOut.put(physical, new Checkout(owner, new Exception("Connection checked out by " + owner)));
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Properties connectionProperties() {
+        Properties properties = new Properties();
+        if (username != null) {
+            properties.setProperty("user", username);
+        }
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        return properties;
+    }
+
+    private Connection takeIdle() {
+        Connection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            try {
+                if (!connection.isClosed() && connection.isValid(2)) {
+                    return connection;
+                }
+            } catch (SQLException e) {
+                log.debug("Discarding broken pooled connection", e);
+            }
+            discard(connection);
+        }
+        return null;
+    }
+
+    private void release(Connection physical) {
+        if (checkedOut.remove(physical) == null) {
+            return;
+        }
+        try {
+            if (closed || physical.isClosed()) {
+                discard(physical);
+            } else {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                idle.offerFirst(physical);
+            }
+        } catch (SQLException e) {
+            log.debug("Discarding pooled connection that could not be reset", e);
+            discard(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(Connection physical) {
+        discarded.incrementAndGet();
+        StatementCache cache = statements.remove(physical);
+        if (cache != null) {
+            cache.close();
+        }
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            log.debug("Error closing pooled connection", e);
+        }
+    }
+
+    /**
+     * Logs every connection that has been held longer than the leak threshold, once per checkout
+     */
+    public void reportLeaks() {
+        long now = System.currentTimeMillis();
+        for (Checkout checkout : checkedOut.values()) {
+            if (!checkout.reported && now - checkout.time > leakThresholdMillis) {
+                checkout.reported = true;
+                leaks.incrementAndGet();
+                log.warn("Reports connection held by " + checkout.owner + " for " + (now - checkout.time)
+                        + "ms, possible leak", checkout.trace);
+            }
+        }
+    }
+
+    public void shutdown() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            discard(connection);
+        }
+        if (!checkedOut.isEmpty()) {
+            log.warn("Reports connection pool closed with connections still in use by " + describeCheckouts());
+        }
+    }
+
+    private String describeCheckouts() {
+        Set<String> owners = new TreeSet<>();
+        for (Checkout checkout : checkedOut.values()) {
+            owners.add(checkout.owner);
+        }
+        return StringUtils.join(owners, ", ");
+    }
+
+    /**
+     * @return a snapshot of the pool counters
+     */
+    public Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("maxSize", (long) maxSize);
+        metrics.put("active", (long) checkedOut.size());
+        metrics.put("idle", (long) idle.size());
+        metrics.put("created", created.get());
+        metrics.put("reused", reused.get());
+        metrics.put("checkouts", checkouts.get());
+        metrics.put("timeouts", timeouts.get());
+        metrics.put("leaks", leaks.get());
+        metrics.put("discarded", discarded.get());
+        metrics.put("totalWaitMillis", totalWaitMillis.get());
+        metrics.put("statementsPrepared", statementsPrepared.get());
+        metrics.put("statementCacheHits", statementCacheHits.get());
+        return metrics;
+    }
+
+    /**
+     * @return the counters of the module wide pool, empty when no report has needed it yet; does not create the pool
+     */
+    public static Map<String, Long> getInstanceMetrics() {
+        ConnectionPool pool = instance;
+        return pool == null ? new LinkedHashMap<String, Long>() : pool.getMetrics();
+    }
+
+    /**
+     * Prepares a statement whose text does not change from one run to the next. On a pooled connection it is prepared
+     * on the server and taken from, and returned to, the connection's statement cache; on any other connection it is
+     * an ordinary prepared statement.
+     */
+    public static PreparedStatement prepareCached(Connection connection, String sql) throws SQLException {
+        if (Proxy.isProxyClass(connection.getClass()) && Proxy.getInvocationHandler(connection) instanceof PooledConnection) {
+            return ((PooledConnection) Proxy.getInvocationHandler(connection)).prepareCached(connection, sql);
+        }
+        return connection.prepareStatement(sql);
+    }
+
+    private Connection wrap(final Connection physical) {
+        return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                new Class[]{Connection.class}, new PooledConnection(physical));
+    }
+
+    private class PooledConnection implements InvocationHandler {
+        private final Connection physical;
+        private boolean returned = false;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        PreparedStatement prepareCached(Connection proxy, String sql) throws SQLException {
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            return statements.computeIfAbsent(physical, c -> new StatementCache()).checkout(physical, proxy, sql);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                if (!returned) {
+                    returned = true;
+                    release(physical);
+                }
+                return null;
+            } else if ("isClosed".equals(name)) {
+                return returned || physical.isClosed();
+            } else if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * @return a statement prepared on the server, through the MySQL driver's serverPrepareStatement when it has one
+     */
+    private static PreparedStatement serverPrepare(Connection physical, String sql) throws SQLException {
+        Method method;
+        try {
+            method = physical.getClass().getMethod("serverPrepareStatement", String.class);
+        } catch (NoSuchMethodException e) {
+            return physical.prepareStatement(sql);
+        }
+        try {
+            return (PreparedStatement) method.invoke(physical, sql);
+        } catch (IllegalAccessException e) {
+            return physical.prepareStatement(sql);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Unable to prepare statement on the server", e.getCause());
+        }
+    }
+
+    /**
+     * The statements prepared on one physical connection, least recently used first
+     */
+    private class StatementCache {
+        private final Map<String, PreparedStatement> idleStatements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > STATEMENT_CACHE_SIZE) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        private boolean closed = false;
+
+        /**
+         * @return the cached statement for the text, or a new one when it is not cached or already in use
+         */
+        synchronized PreparedStatement checkout(Connection physical, Connection proxy, String sql) throws SQLException {
+            PreparedStatement statement = idleStatements.remove(sql);
+            if (statement != null && !statement.isClosed()) {
+                statementCacheHits.incrementAndGet();
+            } else {
+                statement = serverPrepare(physical, sql);
+                statementsPrepared.incrementAndGet();
+            }
+            return wrap(statement, proxy, sql);
+        }
+
+        synchronized void checkin(String sql, PreparedStatement statement) {
+            if (closed || idleStatements.containsKey(sql)) {
+                closeQuietly(statement);
+                return;
+            }
+            try {
+                ResultSet rs = statement.getResultSet();
+                if (rs != null) {
+                    rs.close();
+                }
+                statement.clearParameters();
+                statement.setFetchSize(0);
+                idleStatements.put(sql, statement);
+            } catch (SQLException e) {
+                log.debug("Discarding cached statement that could not be reset", e);
+                closeQuietly(statement);
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            for (PreparedStatement statement : idleStatements.values()) {
+                closeQuietly(statement);
+            }
+            idleStatements.clear();
+        }
+
+        private PreparedStatement wrap(final PreparedStatement statement, final Connection proxy, final String sql) {
+            InvocationHandler handler = new InvocationHandler() {
+                private boolean returned = false;
+
+                @Override
+                public Object invoke(Object statementProxy, Method method, Object[] args) throws Throwable {
+                    String name = method.getName();
+                    if ("close".equals(name)) {
+                        if (!returned) {
+                            returned = true;
+                            checkin(sql, statement);
+                        }
+                        return null;
+                    } else if ("isClosed".equals(name)) {
+                        return returned || statement.isClosed();
+                    } else if ("getConnection".equals(name)) {
+                        return proxy;
+                    } else if (returned) {
+                        throw new SQLException("Statement has already been closed");
+                    }
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            };
+            return (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class[]{PreparedStatement.class}, handler);
+        }
+
+        private void closeQuietly(PreparedStatement statement) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                log.debug("Error closing cached statement", e);
+            }
+        }
+    }
+
+    private static class Checkout {
+        private final String owner;
+        private final Exception trace;
+        private final long time = System.currentTimeMillis();
+        private volatile boolean reported = false;
+
+        Checkout(String owner, Exception trace) {
+            this.owner = owner;
+            this.trace = trace;
+        }
+    }
+}
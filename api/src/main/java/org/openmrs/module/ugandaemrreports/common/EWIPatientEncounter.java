@@ -1,5 +1,9 @@
 package org.openmrs.module.ugandaemrreports.common;
 
+/**
+ * An encounter row of the early warning indicator queries. Dates arrive as yyyy-MM-dd strings, their month keys
+ * are parsed once when set so period checks can compare ints.
+ */
 public class EWIPatientEncounter {
     private Integer personId;
     private Integer encounterId;
@@ -8,13 +12,16 @@ public class EWIPatientEncounter {
     private String baselinePickupDate;
     private Integer numberOfDaysPickedUpAtBaeline;
     private String pickup1Date;
+    private int encounterMonth;
+    private int nextVisitMonth;
+    private int baselinePickupMonth;
 
     public EWIPatientEncounter() {
     }
 
     public EWIPatientEncounter(Integer personId, String baselinePickupDate) {
         this.personId = personId;
-        this.baselinePickupDate = baselinePickupDate;
+        setBaselinePickupDate(baselinePickupDate);
     }
 
     public EWIPatientEncounter(Integer personId, Integer numberOfDaysPickedUpAtBaeline) {
@@ -25,8 +32,8 @@ public class EWIPatientEncounter {
     public EWIPatientEncounter(Integer personId, Integer encounterId, String encounterDate, String nextVisitDate) {
         this.personId = personId;
         this.encounterId = encounterId;
-        this.encounterDate = encounterDate;
-        this.nextVisitDate = nextVisitDate;
+        setEncounterDate(encounterDate);
+        setNextVisitDate(nextVisitDate);
     }
 
 
@@ -34,9 +41,9 @@ public class EWIPatientEncounter {
                                String baselinePickupDate, Integer numberOfDaysPickedUpAtBaeline, String pickup1Date) {
         this.personId = personId;
         this.encounterId = encounterId;
-        this.encounterDate = encounterDate;
-        this.nextVisitDate = nextVisitDate;
-        this.baselinePickupDate = baselinePickupDate;
+        setEncounterDate(encounterDate);
+        setNextVisitDate(nextVisitDate);
+        setBaselinePickupDate(baselinePickupDate);
         this.numberOfDaysPickedUpAtBaeline = numberOfDaysPickedUpAtBaeline;
         this.pickup1Date = pickup1Date;
     }
@@ -65,6 +72,11 @@ public class EWIPatientEncounter {
 
     public void setEncounterDate(String encounterDate) {
         this.encounterDate = encounterDate;
+        this.encounterMonth = PeriodKeys.yearMonth(encounterDate);
+    }
+
+    public int getEncounterMonth() {
+        return encounterMonth;
     }
 
     public String getNextVisitDate() {
@@ -73,6 +85,11 @@ public class EWIPatientEncounter {
 
     public void setNextVisitDate(String nextVisitDate) {
         this.nextVisitDate = nextVisitDate;
+        this.nextVisitMonth = PeriodKeys.yearMonth(nextVisitDate);
+    }
+
+    public int getNextVisitMonth() {
+        return nextVisitMonth;
     }
 
     public String getBaselinePickupDate() {
@@ -81,6 +98,14 @@ public class EWIPatientEncounter {
 
     public void setBaselinePickupDate(String baselinePickupDate) {
         this.baselinePickupDate = baselinePickupDate;
+        this.baselinePickupMonth = PeriodKeys.yearMonth(baselinePickupDate);
+    }
+
+    /**
+     * @return month key (yyyyMM) of the first baseline pickup, 0 if there is none
+     */
+    public int getBaselinePickupMonth() {
+        return baselinePickupMonth;
     }
 
     public Integer getNumberOfDaysPickedUpAtBaseline() {
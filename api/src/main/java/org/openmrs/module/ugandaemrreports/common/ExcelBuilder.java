@@ -2,6 +2,8 @@ package org.openmrs.module.ugandaemrreports.common;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
@@ -16,6 +18,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.poifs.crypt.EncryptionInfo;
 import org.apache.poi.poifs.crypt.EncryptionMode;
 import org.apache.poi.poifs.crypt.Encryptor;
@@ -25,6 +28,9 @@ import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.openmrs.Cohort;
 import org.openmrs.module.reporting.common.ExcelUtil;
@@ -34,13 +40,31 @@ import org.openmrs.module.reporting.indicator.dimension.CohortIndicatorAndDimens
 
 /**
  * Excel Helper class that facilitates creating rows and columns in a workbook
+ * In streaming mode only the last rows of each sheet are kept in memory, older rows are flushed to a temporary file
+ * and the workbook can be written once. Rows of a template that is being filled in stay in memory and can still be
+ * reached with {@link #goToPosition(Properties)}, rows after them are streamed and must be added in order.
  */
 public class ExcelBuilder {
 
 	protected static Log log = LogFactory.getLog(ExcelBuilder.class);
 
+	/**
+	 * Rows kept in memory per sheet in streaming mode
+	 */
+	public static final int DEFAULT_ROW_WINDOW = 100;
+
+	/**
+	 * Expected row count above which {@link #forExpectedRows(int)} streams the workbook
+	 */
+	public static final int STREAMING_THRESHOLD = 5000;
+
 	private Workbook workbook;
 
+	/**
+	 * Rows kept in memory per sheet, 0 when the whole workbook is kept in memory
+	 */
+	private final int rowWindow;
+
 	private Sheet currentSheet = null;
 
 	private List<String> sheetNames = new ArrayList<String>();
@@ -54,7 +78,26 @@ public class ExcelBuilder {
 	private Map<String, CellStyle> styleCache = new HashMap<String, CellStyle>();
 
 	public ExcelBuilder() {
-		workbook = new XSSFWorkbook();
+		this(0);
+	}
+
+	/**
+	 * @param rowWindow the rows kept in memory per sheet, 0 to keep the whole workbook in memory
+	 */
+	public ExcelBuilder(int rowWindow) {
+		this.rowWindow = rowWindow;
+		setWorkbook(new XSSFWorkbook());
+	}
+
+	/**
+	 * @return a builder that streams the workbook when the rows expected are too many to keep in memory
+	 */
+	public static ExcelBuilder forExpectedRows(int expectedRows) {
+		return new ExcelBuilder(expectedRows > STREAMING_THRESHOLD ? DEFAULT_ROW_WINDOW : 0);
+	}
+
+	public boolean isStreaming() {
+		return workbook instanceof SXSSFWorkbook;
 	}
 
 	/**
@@ -99,7 +142,7 @@ public class ExcelBuilder {
 			newSheet();
 		}
 		if (currentRow == null) {
-			currentRow = currentSheet.createRow(currentRowNum);
+			currentRow = createRow();
 		}
 		Cell cell;
 		if (cellValue == null) {
@@ -136,6 +179,20 @@ public class ExcelBuilder {
 		return this;
 	}
 
+	/**
+	 * Rows of the template of a streamed workbook are created on the template sheet, the streamed sheet only knows
+	 * the rows after them
+	 */
+	private Row createRow() {
+		if (isStreaming()) {
+			XSSFSheet templateSheet = ((SXSSFWorkbook) workbook).getXSSFWorkbook().getSheetAt(workbook.getSheetIndex(currentSheet));
+			if (templateSheet.getPhysicalNumberOfRows() > 0 && currentRowNum <= templateSheet.getLastRowNum()) {
+				return templateSheet.createRow(currentRowNum);
+			}
+		}
+		return currentSheet.createRow(currentRowNum);
+	}
+
 	/**
 	 * Moves to the next row.
 	 */
@@ -158,8 +215,21 @@ public class ExcelBuilder {
 	 * See: http://poi.apache.org/encryption.html
 	 */
 	public void write(OutputStream out, String password) throws IOException {
+		try {
+			writeWorkbook(out, password);
+		}
+		finally {
+			if (isStreaming()) {
+				((SXSSFWorkbook) workbook).dispose();
+			}
+		}
+	}
+
+	private void writeWorkbook(OutputStream out, String password) throws IOException {
 		if (StringUtils.isBlank(password)) {
 			workbook.write(out);
+		} else if (isStreaming()) {
+			writeEncrypted(out, password);
 		} else {
 			POIFSFileSystem fs = new POIFSFileSystem();
 			EncryptionInfo info = new EncryptionInfo(EncryptionMode.agile);
@@ -191,12 +261,55 @@ public class ExcelBuilder {
 		}
 	}
 	
+	/**
+	 * A streamed workbook is too big to copy in memory, so the package is written to a temporary file and
+	 * encrypted from there
+	 */
+	private void writeEncrypted(OutputStream out, String password) throws IOException {
+		File file = TempFile.createTempFile("ugandaemrreports", ".xlsx");
+		try {
+			try (OutputStream fileOut = new FileOutputStream(file)) {
+				workbook.write(fileOut);
+			}
+
+			POIFSFileSystem fs = new POIFSFileSystem();
+			EncryptionInfo info = new EncryptionInfo(EncryptionMode.agile);
+			Encryptor enc = info.getEncryptor();
+			enc.confirmPassword(password);
+
+			try {
+				OPCPackage opc = OPCPackage.open(file, PackageAccess.READ_WRITE);
+				OutputStream os = enc.getDataStream(fs);
+				opc.save(os);
+				opc.revert();
+			}
+			catch (Exception e) {
+				throw new IllegalStateException("Error writing encrypted Excel document", e);
+			}
+
+			fs.writeFilesystem(out);
+		}
+		finally {
+			if (!file.delete()) {
+				file.deleteOnExit();
+			}
+		}
+	}
+
 	public Workbook getWorkbook() {
 		return workbook;
 	}
 
+	/**
+	 * In streaming mode an XSSFWorkbook, such as a template, is wrapped so the rows added after its own are streamed
+	 */
 	public void setWorkbook(Workbook workbook) {
+		if (rowWindow > 0 && workbook instanceof XSSFWorkbook) {
+			workbook = new SXSSFWorkbook((XSSFWorkbook) workbook, rowWindow, true);
+		}
 		this.workbook = workbook;
+		// styles belong to the workbook they were created in
+		styleCache.clear();
 	}
 
 	public Sheet getCurrentSheet() {
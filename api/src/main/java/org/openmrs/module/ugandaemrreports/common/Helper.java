@@ -2,6 +2,8 @@ package org.openmrs.module.ugandaemrreports.common;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.joda.time.LocalDate;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.reporting.definition.service.SerializedDefinitionService;
@@ -25,6 +27,8 @@ import java.util.regex.Pattern;
  */
 public class Helper {
 
+    private static final Log log = LogFactory.getLog(Helper.class);
+
     public static void purgeReportDefinition(String name) {
         ReportDefinitionService rds = Context.getService(ReportDefinitionService.class);
         try {
@@ -143,6 +147,36 @@ public class Helper {
         return design;
     }
 
+    /**
+     * @return the integer value of the global property, or the default when it is missing or not a number
+     */
+    public static int getIntegerGlobalProperty(String property, int defaultValue) {
+        try {
+            String value = Context.getAdministrationService().getGlobalProperty(property);
+            if (StringUtils.isNotBlank(value)) {
+                return Integer.parseInt(value.trim());
+            }
+        } catch (Exception e) {
+            log.warn("Invalid value for " + property + ", using " + defaultValue, e);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * @return the boolean value of the global property, or the default when it is missing
+     */
+    public static boolean getBooleanGlobalProperty(String property, boolean defaultValue) {
+        try {
+            String value = Context.getAdministrationService().getGlobalProperty(property);
+            if (StringUtils.isNotBlank(value)) {
+                return Boolean.parseBoolean(value.trim());
+            }
+        } catch (Exception e) {
+            log.warn("Unable to read " + property + ", using " + defaultValue, e);
+        }
+        return defaultValue;
+    }
+
     public static <T> List<T> slice(List<T> list, int index, int count) {
         List<T> result = new ArrayList<T>();
         if (index >= 0 && index < list.size()) {
@@ -199,57 +233,7 @@ public class Helper {
     }
 
     public static String getString(String concept) {
-        HashMap<String, String> map = new HashMap<String, String>();
-        //Arvs
-        map.put("99015", "1a");
-        map.put("99016", "1b");
-        map.put("99005", "1c");
-        map.put("99006", "1d");
-        map.put("99039", "1e");
-        map.put("99040", "1f");
-        map.put("99041", "1g");
-        map.put("99042", "1h");
-        map.put("99007", "2a2");
-        map.put("99008", "2a4");
-        map.put("99044", "2b");
-        map.put("99043", "2c");
-        map.put("99282", "2d2");
-        map.put("99283", "2d4");
-        map.put("99046", "2e");
-        map.put("99017", "5a");
-        map.put("99018", "5b");
-        map.put("99045", "5f");
-        map.put("99284", "5g");
-        map.put("99285", "5h");
-        map.put("99286", "5j");
-        map.put("90002", "othr");
-
-        // Nutritional Status
-        map.put("99271", "MAM");
-        map.put("99272", "SAM");
-        map.put("99273", "SAMO");
-        map.put("99473", "PWG/PA");
-
-        //TB Status
-        map.put("90079", "1");
-        map.put("90073", "2");
-        map.put("90078", "3");
-        map.put("90071", "4");
-
-        //Functional Status
-        map.put("90037", "A");
-        map.put("90038", "W");
-        map.put("90039", "B");
-
-        //Adherence
-        map.put("90156", "G");
-        map.put("90157", "F");
-        map.put("90158", "P");
-
-        if (StringUtils.isNotBlank(concept)) {
-            return map.get(concept);
-        }
-        return "";
+        return RegisterCodes.getString(concept);
     }
 
     public static List<Date> getDates(LocalDate beginning, Enums.Period period, Enums.PeriodInterval periodInterval, Integer periodDifference) {
@@ -0,0 +1,324 @@
+package org.openmrs.module.ugandaemrreports.common;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+
+import java.io.IOException;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A report query kept as a classpath resource, org/openmrs/module/ugandaemrreports/sql/&lt;name&gt;.sql, and run as a
+ * prepared statement with bound parameters instead of values formatted into the text. The text of a query therefore
+ * stays the same from one run to the next, so the database parses and plans it once per pooled connection, see the
+ * statement cache of {@link ConnectionPool}.
+ * Parameters are written :name in the resource and given typed values with {@link Parameters}. A collection of ids
+ * becomes one placeholder per id, so batches of the same size share a statement; keywords (interval units) are the
+ * only values written into the text and are restricted to enum constants.
+ * Lines starting with -- are comments and dropped when the resource is loaded.
+ */
+public class NamedQuery {
+
+    private static final String RESOURCE_PATH = "/org/openmrs/module/ugandaemrreports/sql/";
+
+    private static final ConcurrentMap<String, NamedQuery> CATALOG = new ConcurrentHashMap<>();
+
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    public interface RowHandler {
+        void handle(ResultSet rs) throws SQLException;
+    }
+
+    private final String name;
+    /**
+     * The text around the parameters, one more than there are parameters
+     */
+    private final List<String> segments = new ArrayList<>();
+    private final List<String> parameterNames = new ArrayList<>();
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong prepareNanos = new AtomicLong();
+    private final AtomicLong executeNanos = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+
+    NamedQuery(String name, String sql) {
+        this.name = name;
+        parse(sql);
+    }
+
+    /**
+     * @return the query stored in the resource of that name, loaded on first use
+     * @throws IllegalArgumentException if there is no such resource
+     */
+    public static NamedQuery get(String name) {
+        return CATALOG.computeIfAbsent(name, NamedQuery::load);
+    }
+
+    public static Parameters parameters() {
+        return new Parameters();
+    }
+
+    private static NamedQuery load(String name) {
+        URL resource = NamedQuery.class.getResource(RESOURCE_PATH + name + ".sql");
+        if (resource == null) {
+            throw new IllegalArgumentException("No query named " + name + " in " + RESOURCE_PATH);
+        }
+        try {
+            StringBuilder sql = new StringBuilder();
+            for (String line : Resources.readLines(resource, Charsets.UTF_8)) {
+                if (!line.trim().startsWith("--")) {
+                    sql.append(line).append('\n');
+                }
+            }
+            String text = sql.toString().trim();
+            // a trailing semicolon is a syntax error in a server side prepared statement
+            while (text.endsWith(";")) {
+                text = text.substring(0, text.length() - 1).trim();
+            }
+            return new NamedQuery(name, text);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to read query " + name, e);
+        }
+    }
+
+    private void parse(String sql) {
+        StringBuilder segment = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && c == ':' && i + 1 < sql.length() && Character.isLetter(sql.charAt(i + 1))
+                    && (i == 0 || sql.charAt(i - 1) != ':')) {
+                int end = i + 1;
+                while (end < sql.length() && Character.isLetterOrDigit(sql.charAt(end))) {
+                    end++;
+                }
+                segments.add(segment.toString());
+                segment.setLength(0);
+                parameterNames.add(sql.substring(i + 1, end));
+                i = end;
+                continue;
+            }
+            segment.append(c);
+            i++;
+        }
+        segments.add(segment.toString());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the statement text for the values, placeholders expanded for collections and keywords written in
+     */
+    String sql(Parameters parameters) {
+        StringBuilder sql = new StringBuilder(segments.get(0));
+        for (int i = 0; i < parameterNames.size(); i++) {
+            String parameter = parameterNames.get(i);
+            if (parameters.keywords.containsKey(parameter)) {
+                sql.append(parameters.keywords.get(parameter));
+            } else if (!parameters.values.containsKey(parameter)) {
+                throw new IllegalArgumentException("No value for parameter " + parameter + " of query " + name);
+            } else if (parameters.values.get(parameter) instanceof Collection) {
+                Collection<?> values = (Collection<?>) parameters.values.get(parameter);
+                if (values.isEmpty()) {
+                    sql.append("NULL");
+                }
+                for (int j = 0; j < values.size(); j++) {
+                    sql.append(j == 0 ? "?" : ",?");
+                }
+            } else {
+                sql.append('?');
+            }
+            sql.append(segments.get(i + 1));
+        }
+        return sql.toString();
+    }
+
+    /**
+     * @return the statement with the values bound, close it when done so the connection can reuse it
+     */
+    public PreparedStatement prepare(Connection connection, Parameters parameters) throws SQLException {
+        String sql = sql(parameters);
+        long start = System.nanoTime();
+        PreparedStatement statement = ConnectionPool.prepareCached(connection, sql);
+        prepareNanos.addAndGet(System.nanoTime() - start);
+        try {
+            int index = 1;
+            for (String parameter : parameterNames) {
+                if (parameters.keywords.containsKey(parameter)) {
+                    continue;
+                }
+                Object value = parameters.values.get(parameter);
+                if (value instanceof Collection) {
+                    for (Object element : (Collection<?>) value) {
+                        statement.setObject(index++, element);
+                    }
+                } else {
+                    statement.setObject(index++, value);
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            statement.close();
+            throw e;
+        }
+        return statement;
+    }
+
+    public <T> List<T> list(Connection connection, Parameters parameters, RowMapper<T> mapper) throws SQLException {
+        List<T> result = new ArrayList<>();
+        forEach(connection, parameters, rs -> result.add(mapper.map(rs)));
+        return result;
+    }
+
+    /**
+     * Streams the rows to the handler without holding them, for results too big to collect
+     */
+    public void forEach(Connection connection, Parameters parameters, RowHandler handler) throws SQLException {
+        try (PreparedStatement statement = prepare(connection, parameters)) {
+            statement.setFetchSize(Integer.MIN_VALUE);
+            long start = System.nanoTime();
+            long count = 0;
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(rs);
+                    count++;
+                }
+            } finally {
+                executions.incrementAndGet();
+                executeNanos.addAndGet(System.nanoTime() - start);
+                rows.addAndGet(count);
+            }
+        }
+    }
+
+    /**
+     * @return the integers in the first column, normally patient ids
+     */
+    public List<Integer> ids(Connection connection, Parameters parameters) throws SQLException {
+        return list(connection, parameters, rs -> rs.getInt(1));
+    }
+
+    /**
+     * @return every column of every row, like EvaluationService.evaluateToList does for a SQL query
+     */
+    public List<Object[]> rows(Connection connection, Parameters parameters) throws SQLException {
+        return list(connection, parameters, rs -> {
+            Object[] row = new Object[rs.getMetaData().getColumnCount()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rs.getObject(i + 1);
+            }
+            return row;
+        });
+    }
+
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    public long getPrepareMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(prepareNanos.get());
+    }
+
+    public long getExecuteMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(executeNanos.get());
+    }
+
+    public long getRows() {
+        return rows.get();
+    }
+
+    /**
+     * @return executions, time spent preparing (parsing) and executing, and rows read, per query used since startup
+     */
+    public static Map<String, Map<String, Long>> getStatistics() {
+        Map<String, Map<String, Long>> statistics = new TreeMap<>();
+        for (NamedQuery query : CATALOG.values()) {
+            Map<String, Long> counters = new LinkedHashMap<>();
+            counters.put("executions", query.getExecutions());
+            counters.put("prepareMillis", query.getPrepareMillis());
+            counters.put("executeMillis", query.getExecuteMillis());
+            counters.put("rows", query.getRows());
+            statistics.put(query.name, counters);
+        }
+        return statistics;
+    }
+
+    /**
+     * The values of the parameters of one execution
+     */
+    public static class Parameters {
+        private final Map<String, Object> values = new HashMap<>();
+        private final Map<String, String> keywords = new HashMap<>();
+
+        private Parameters() {
+        }
+
+        /**
+         * Bound as a day, the time of day is dropped like the yyyy-MM-dd literals the queries used to be formatted with
+         */
+        public Parameters date(String name, Date value) {
+            values.put(name, value == null ? null : new java.sql.Date(value.getTime()));
+            return this;
+        }
+
+        public Parameters integer(String name, Integer value) {
+            values.put(name, value);
+            return this;
+        }
+
+        public Parameters string(String name, String value) {
+            values.put(name, value);
+            return this;
+        }
+
+        /**
+         * Bound as one placeholder per id, sorted so the same ids always bind the same way
+         */
+        public Parameters ids(String name, Collection<Integer> ids) {
+            List<Integer> sorted = new ArrayList<>(ids);
+            Collections.sort(sorted);
+            values.put(name, sorted);
+            return this;
+        }
+
+        /**
+         * Bound as one placeholder per value, like {@link #ids}
+         */
+        public Parameters strings(String name, Collection<String> strings) {
+            List<String> sorted = new ArrayList<>(strings);
+            Collections.sort(sorted);
+            values.put(name, sorted);
+            return this;
+        }
+
+        /**
+         * Written into the text, for the parts of a statement that cannot be bound such as interval units
+         */
+        public Parameters keyword(String name, Enum<?> value) {
+            keywords.put(name, value.toString());
+            return this;
+        }
+    }
+}
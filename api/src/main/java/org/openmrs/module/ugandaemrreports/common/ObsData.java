@@ -12,14 +12,16 @@ public class ObsData {
     private Date encounterDate;
     private String val;
     private String reportName;
+    private int yearMonth;
+    private int yearQuarter;
 
     public ObsData(Integer patientId, String conceptId, Integer encounterId, Date encounterDate, String val, String reportName) {
         this.patientId = patientId;
         this.conceptId = conceptId;
         this.encounterId = encounterId;
-        this.encounterDate = encounterDate;
         this.val = val;
         this.reportName = reportName;
+        setEncounterDate(encounterDate);
     }
 
     public Integer getPatientId() {
@@ -44,6 +46,22 @@ public class ObsData {
 
     public void setEncounterDate(Date encounterDate) {
         this.encounterDate = encounterDate;
+        this.yearMonth = PeriodKeys.yearMonth(encounterDate);
+        this.yearQuarter = PeriodKeys.quarterOf(yearMonth);
+    }
+
+    /**
+     * @return the encounter month as yyyyMM, 0 when the obs has no encounter date
+     */
+    public int getYearMonth() {
+        return yearMonth;
+    }
+
+    /**
+     * @return the encounter quarter as yyyyQ, 0 when the obs has no encounter date
+     */
+    public int getYearQuarter() {
+        return yearQuarter;
     }
 
     public String getVal() {
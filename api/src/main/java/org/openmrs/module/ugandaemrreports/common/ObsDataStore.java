@@ -0,0 +1,58 @@
+package org.openmrs.module.ugandaemrreports.common;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Obs of a cohort indexed patient -> concept -> year-month, built in a single pass over a result set whose columns
+ * are patient id, concept id, encounter id, encounter date, value and report name.
+ */
+public class ObsDataStore {
+
+    private static final PatientObsStore EMPTY = new PatientObsStore(null);
+
+    private final Map<Integer, PatientObsStore> patients = new HashMap<>();
+
+    public static ObsDataStore load(ResultSet rs) throws SQLException {
+        ObsDataStore store = new ObsDataStore();
+        while (rs.next()) {
+            Integer patientId = rs.getInt(1);
+            String conceptId = rs.getString(2);
+            Integer encounterId = rs.getInt(3);
+            Date encounterDate = rs.getDate(4);
+            String val = rs.getString(5);
+            String reportName = rs.getString(6);
+            store.add(new ObsData(patientId, conceptId, encounterId, encounterDate, val, reportName));
+        }
+        for (PatientObsStore patient : store.patients.values()) {
+            patient.sort();
+        }
+        return store;
+    }
+
+    public void add(ObsData obs) {
+        patients.computeIfAbsent(obs.getPatientId(), PatientObsStore::new).add(obs);
+    }
+
+    /**
+     * Adds the patients of a store loaded for another batch of the same cohort
+     */
+    public void addAll(ObsDataStore other) {
+        patients.putAll(other.patients);
+    }
+
+    /**
+     * @return the obs of the patient, an empty store if the patient has none
+     */
+    public PatientObsStore get(Integer patientId) {
+        PatientObsStore patient = patients.get(patientId);
+        return patient == null ? EMPTY : patient;
+    }
+
+    public int size() {
+        return patients.size();
+    }
+}
@@ -0,0 +1,120 @@
+package org.openmrs.module.ugandaemrreports.common;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.module.reporting.dataset.DataSetRow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Builds data set rows on a shared fork-join pool whose size is capped by a global property.
+ * Rows come back in the order of the input, so callers sort their patients first (e.g. by ART start date).
+ * Row functions run on pool threads that have neither the hibernate session nor the user context, so they must only
+ * read data that was fully loaded before the call.
+ */
+public class ParallelRowBuilder {
+
+    protected static final Log log = LogFactory.getLog(ParallelRowBuilder.class);
+
+    public static final String GP_PARALLELISM = "ugandaemrreports.rowBuilder.parallelism";
+
+    /**
+     * Smallest number of rows given to one task, below it the rows are built on the calling thread
+     */
+    private static final int MIN_TASK_SIZE = 64;
+
+    public interface RowFunction<T> {
+        DataSetRow build(T item);
+    }
+
+    private static ForkJoinPool pool;
+
+    /**
+     * @return number of threads used to build rows, 1 builds them on the calling thread
+     */
+    public static int getParallelism() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int parallelism = Helper.getIntegerGlobalProperty(GP_PARALLELISM, processors);
+        return parallelism > 0 ? parallelism : processors;
+    }
+
+    public static <T> List<DataSetRow> build(List<T> items, RowFunction<T> function) {
+        List<T> list = items instanceof RandomAccess ? items : new ArrayList<>(items);
+        DataSetRow[] rows = new DataSetRow[list.size()];
+        int parallelism = getParallelism();
+        long start = System.currentTimeMillis();
+        if (parallelism <= 1 || list.size() <= MIN_TASK_SIZE) {
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = function.build(list.get(i));
+            }
+        } else {
+            int taskSize = Math.max(MIN_TASK_SIZE, list.size() / (parallelism * 4));
+            getPool(parallelism).invoke(new RowTask<>(list, function, rows, 0, rows.length, taskSize));
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Built " + rows.length + " rows on " + parallelism + " threads in " + (System.currentTimeMillis() - start) + "ms");
+        }
+        return Arrays.asList(rows);
+    }
+
+    private static synchronized ForkJoinPool getPool(int parallelism) {
+        if (pool == null || pool.getParallelism() != parallelism) {
+            if (pool != null) {
+                // tasks already submitted still run to completion
+                pool.shutdown();
+            }
+            final ClassLoader classLoader = ParallelRowBuilder.class.getClassLoader();
+            pool = new ForkJoinPool(parallelism, p -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                thread.setName("ugandaemrreports-rows-" + thread.getPoolIndex());
+                thread.setContextClassLoader(classLoader);
+                return thread;
+            }, null, false);
+        }
+        return pool;
+    }
+
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+    }
+
+    private static class RowTask<T> extends RecursiveAction {
+        private final List<T> items;
+        private final RowFunction<T> function;
+        private final DataSetRow[] rows;
+        private final int from;
+        private final int to;
+        private final int taskSize;
+
+        RowTask(List<T> items, RowFunction<T> function, DataSetRow[] rows, int from, int to, int taskSize) {
+            this.items = items;
+            this.function = function;
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.taskSize = taskSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= taskSize) {
+                for (int i = from; i < to; i++) {
+                    rows[i] = function.build(items.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RowTask<>(items, function, rows, from, middle, taskSize),
+                    new RowTask<>(items, function, rows, middle, to, taskSize));
+        }
+    }
+}
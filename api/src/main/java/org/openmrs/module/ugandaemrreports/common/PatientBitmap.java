@@ -0,0 +1,483 @@
+package org.openmrs.module.ugandaemrreports.common;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A set of patient ids kept as a compressed bitmap. Ids are split in chunks of 65536 by their high 16 bits and each
+ * chunk stores the low 16 bits as a sorted array while it holds at most 4096 ids, as a 65536 bit bitmap above that.
+ * Intersections and their cardinality are worked out chunk by chunk without boxing a single id, which is what the
+ * indicator x dimension cells of the aggregate reports spend their time on.
+ */
+public class PatientBitmap {
+
+    static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+
+    private char[] keys;
+    private Chunk[] chunks;
+    private int size;
+
+    public PatientBitmap() {
+        this(4);
+    }
+
+    private PatientBitmap(int capacity) {
+        keys = new char[Math.max(capacity, 1)];
+        chunks = new Chunk[Math.max(capacity, 1)];
+    }
+
+    public static PatientBitmap of(Collection<Integer> patientIds) {
+        PatientBitmap bitmap = new PatientBitmap();
+        if (patientIds != null) {
+            for (Integer patientId : patientIds) {
+                if (patientId != null) {
+                    bitmap.add(patientId);
+                }
+            }
+        }
+        return bitmap;
+    }
+
+    public static PatientBitmap of(int... patientIds) {
+        PatientBitmap bitmap = new PatientBitmap();
+        for (int patientId : patientIds) {
+            bitmap.add(patientId);
+        }
+        return bitmap;
+    }
+
+    public void add(int patientId) {
+        if (patientId < 0) {
+            throw new IllegalArgumentException("Patient ids cannot be negative: " + patientId);
+        }
+        char key = (char) (patientId >>> 16);
+        char low = (char) patientId;
+        int index = indexOf(key);
+        if (index >= 0) {
+            chunks[index] = chunks[index].add(low);
+        } else {
+            insert(-index - 1, key, new ArrayChunk().add(low));
+        }
+    }
+
+    public boolean contains(int patientId) {
+        if (patientId < 0) {
+            return false;
+        }
+        int index = indexOf((char) (patientId >>> 16));
+        return index >= 0 && chunks[index].contains((char) patientId);
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += chunks[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public PatientBitmap and(PatientBitmap other) {
+        PatientBitmap result = new PatientBitmap(Math.min(size, other.size));
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Chunk chunk = chunks[i].and(other.chunks[j]);
+                if (chunk.cardinality > 0) {
+                    result.append(keys[i], chunk);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of patients in both bitmaps, without building their intersection
+     */
+    public int andCardinality(PatientBitmap other) {
+        int cardinality = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                cardinality += chunks[i].andCardinality(other.chunks[j]);
+                i++;
+                j++;
+            }
+        }
+        return cardinality;
+    }
+
+    public PatientBitmap or(PatientBitmap other) {
+        PatientBitmap result = new PatientBitmap(size + other.size);
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.append(keys[i], chunks[i].copy());
+                i++;
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.append(other.keys[j], other.chunks[j].copy());
+                j++;
+            } else {
+                result.append(keys[i], chunks[i].or(other.chunks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the patient ids in ascending order
+     */
+    public int[] toArray() {
+        int[] ids = new int[cardinality()];
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            position = chunks[i].copyTo(keys[i] << 16, ids, position);
+        }
+        return ids;
+    }
+
+    public Set<Integer> toSet() {
+        int[] ids = toArray();
+        Set<Integer> set = new HashSet<Integer>(Math.max(16, (int) (ids.length / .75f) + 1));
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    private int indexOf(char key) {
+        if (size > 0 && keys[size - 1] == key) {
+            // ids mostly arrive in ascending order
+            return size - 1;
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void append(char key, Chunk chunk) {
+        insert(size, key, chunk);
+    }
+
+    private void insert(int index, char key, Chunk chunk) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            chunks = Arrays.copyOf(chunks, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(chunks, index, chunks, index + 1, size - index);
+        keys[index] = key;
+        chunks[index] = chunk;
+        size++;
+    }
+
+    private static abstract class Chunk {
+
+        int cardinality;
+
+        abstract Chunk add(char low);
+
+        abstract boolean contains(char low);
+
+        abstract Chunk and(Chunk other);
+
+        abstract int andCardinality(Chunk other);
+
+        abstract Chunk or(Chunk other);
+
+        abstract Chunk copy();
+
+        abstract int copyTo(int high, int[] ids, int position);
+    }
+
+    private static final class ArrayChunk extends Chunk {
+
+        char[] values;
+
+        ArrayChunk() {
+            values = new char[4];
+        }
+
+        ArrayChunk(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Chunk add(char low) {
+            if (cardinality > 0 && values[cardinality - 1] < low) {
+                return append(low);
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, low);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(low);
+            }
+            index = -index - 1;
+            grow();
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = low;
+            cardinality++;
+            return this;
+        }
+
+        private Chunk append(char low) {
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(low);
+            }
+            grow();
+            values[cardinality++] = low;
+            return this;
+        }
+
+        private void grow() {
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, values.length * 2));
+            }
+        }
+
+        BitmapChunk toBitmap() {
+            BitmapChunk bitmap = new BitmapChunk();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        @Override
+        Chunk and(Chunk other) {
+            char[] result = new char[Math.min(cardinality, other.cardinality)];
+            int count = 0;
+            if (other instanceof BitmapChunk) {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            } else {
+                char[] others = ((ArrayChunk) other).values;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < other.cardinality) {
+                    if (values[i] < others[j]) {
+                        i++;
+                    } else if (values[i] > others[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            return new ArrayChunk(result, count);
+        }
+
+        @Override
+        int andCardinality(Chunk other) {
+            int count = 0;
+            if (other instanceof BitmapChunk) {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        count++;
+                    }
+                }
+            } else {
+                char[] others = ((ArrayChunk) other).values;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < other.cardinality) {
+                    if (values[i] < others[j]) {
+                        i++;
+                    } else if (values[i] > others[j]) {
+                        j++;
+                    } else {
+                        count++;
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        @Override
+        Chunk or(Chunk other) {
+            if (other instanceof BitmapChunk) {
+                return other.or(this);
+            }
+            ArrayChunk array = (ArrayChunk) other;
+            if (cardinality + array.cardinality > ARRAY_MAX) {
+                return toBitmap().or(array);
+            }
+            char[] result = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j == array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+                    result[count++] = values[i++];
+                } else if (i == cardinality || values[i] > array.values[j]) {
+                    result[count++] = array.values[j++];
+                } else {
+                    result[count++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new ArrayChunk(result, count);
+        }
+
+        @Override
+        Chunk copy() {
+            return new ArrayChunk(Arrays.copyOf(values, Math.max(cardinality, 1)), cardinality);
+        }
+
+        @Override
+        int copyTo(int high, int[] ids, int position) {
+            for (int i = 0; i < cardinality; i++) {
+                ids[position++] = high | values[i];
+            }
+            return position;
+        }
+    }
+
+    private static final class BitmapChunk extends Chunk {
+
+        final long[] words;
+
+        BitmapChunk() {
+            words = new long[WORDS];
+        }
+
+        private BitmapChunk(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Chunk add(char low) {
+            int index = low >>> 6;
+            long bit = 1L << low;
+            if ((words[index] & bit) == 0) {
+                words[index] |= bit;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        Chunk and(Chunk other) {
+            if (other instanceof ArrayChunk) {
+                return other.and(this);
+            }
+            long[] others = ((BitmapChunk) other).words;
+            long[] result = new long[WORDS];
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                result[i] = words[i] & others[i];
+                count += Long.bitCount(result[i]);
+            }
+            BitmapChunk bitmap = new BitmapChunk(result, count);
+            return count > ARRAY_MAX ? bitmap : bitmap.toArray();
+        }
+
+        @Override
+        int andCardinality(Chunk other) {
+            if (other instanceof ArrayChunk) {
+                return other.andCardinality(this);
+            }
+            long[] others = ((BitmapChunk) other).words;
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                count += Long.bitCount(words[i] & others[i]);
+            }
+            return count;
+        }
+
+        @Override
+        Chunk or(Chunk other) {
+            BitmapChunk result = (BitmapChunk) copy();
+            if (other instanceof ArrayChunk) {
+                ArrayChunk array = (ArrayChunk) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    result.add(array.values[i]);
+                }
+                return result;
+            }
+            long[] others = ((BitmapChunk) other).words;
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                result.words[i] |= others[i];
+                count += Long.bitCount(result.words[i]);
+            }
+            result.cardinality = count;
+            return result;
+        }
+
+        ArrayChunk toArray() {
+            char[] values = new char[Math.max(cardinality, 1)];
+            copyTo(values);
+            return new ArrayChunk(values, cardinality);
+        }
+
+        private void copyTo(char[] values) {
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[count++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        Chunk copy() {
+            return new BitmapChunk(words.clone(), cardinality);
+        }
+
+        @Override
+        int copyTo(int high, int[] ids, int position) {
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    ids[position++] = high | ((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return position;
+        }
+    }
+}
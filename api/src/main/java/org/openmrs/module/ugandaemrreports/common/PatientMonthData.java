@@ -1,17 +1,20 @@
 package org.openmrs.module.ugandaemrreports.common;
 
 
+/**
+ * A patient event positioned by its month offset, month and type are primitives so the cohort filters compare ints
+ */
 public class PatientMonthData {
     private Integer patientId;
-    private Integer month;
-    private Integer dataType;
+    private int month;
+    private int dataType;
 
-    public PatientMonthData(Integer patientId, Integer month) {
+    public PatientMonthData(Integer patientId, int month) {
         this.patientId = patientId;
         this.month = month;
     }
 
-    public PatientMonthData(Integer patientId, Integer month, Integer dataType) {
+    public PatientMonthData(Integer patientId, int month, int dataType) {
         this.patientId = patientId;
         this.month = month;
         this.dataType = dataType;
@@ -25,19 +28,19 @@ public class PatientMonthData {
         this.patientId = patientId;
     }
 
-    public Integer getMonth() {
+    public int getMonth() {
         return this.month;
     }
 
-    public void setMonth(Integer month) {
+    public void setMonth(int month) {
         this.month = month;
     }
 
-    public Integer getDataType() {
+    public int getDataType() {
         return this.dataType;
     }
 
-    public void setDataType(Integer dataType) {
+    public void setDataType(int dataType) {
         this.dataType = dataType;
     }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package org.openmrs.module.ugandaemrreports.common;
+
+import java.util.*;
+
+import static java.util.Comparator.comparing;
+
+/**
+ * Observations of a single patient indexed by concept and then by year-month (yyyyMM as an int).
+ * Obs within a concept are kept in chronological order of encounter date, ties broken by encounter id.
+ */
+public class PatientObsStore {
+
+    private static final Comparator<ObsData> BY_ENCOUNTER = comparing(ObsData::getEncounterDate, Comparator.nullsLast(Comparator.<Date>naturalOrder()))
+            .thenComparing(ObsData::getEncounterId, Comparator.nullsLast(Comparator.<Integer>naturalOrder()));
+
+    private final Integer patientId;
+    private final Map<String, TreeMap<Integer, List<ObsData>>> concepts = new HashMap<>();
+    private final Set<Integer> periods = new HashSet<>();
+
+    public PatientObsStore(Integer patientId) {
+        this.patientId = patientId;
+    }
+
+    public Integer getPatientId() {
+        return patientId;
+    }
+
+    public void add(ObsData obs) {
+        Integer yearMonth = obs.getYearMonth();
+        concepts.computeIfAbsent(obs.getConceptId(), k -> new TreeMap<>())
+                .computeIfAbsent(yearMonth, k -> new ArrayList<>())
+                .add(obs);
+        periods.add(yearMonth);
+    }
+
+    /**
+     * Orders the obs inside every month by encounter date and then encounter id, called once after loading
+     */
+    void sort() {
+        for (TreeMap<Integer, List<ObsData>> months : concepts.values()) {
+            for (List<ObsData> obs : months.values()) {
+                if (obs.size() > 1) {
+                    obs.sort(BY_ENCOUNTER);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the patient has any obs, for any concept, in the given month
+     */
+    public boolean hasData(Integer yearMonth) {
+        return periods.contains(yearMonth);
+    }
+
+    public ObsData get(String concept, Integer yearMonth) {
+        TreeMap<Integer, List<ObsData>> months = concepts.get(concept);
+        if (months == null) {
+            return null;
+        }
+        List<ObsData> obs = months.get(yearMonth);
+        return obs == null ? null : obs.get(0);
+    }
+
+    public ObsData getFirst(String concept) {
+        TreeMap<Integer, List<ObsData>> months = concepts.get(concept);
+        if (months == null || months.isEmpty()) {
+            return null;
+        }
+        return months.firstEntry().getValue().get(0);
+    }
+
+    public ObsData getLast(String concept) {
+        TreeMap<Integer, List<ObsData>> months = concepts.get(concept);
+        if (months == null || months.isEmpty()) {
+            return null;
+        }
+        List<ObsData> obs = months.lastEntry().getValue();
+        return obs.get(obs.size() - 1);
+    }
+
+    /**
+     * @return the earliest month in which the concept was recorded, or null
+     */
+    public Integer getFirstPeriod(String concept) {
+        TreeMap<Integer, List<ObsData>> months = concepts.get(concept);
+        if (months == null || months.isEmpty()) {
+            return null;
+        }
+        return months.firstKey();
+    }
+
+    public List<ObsData> getAll(String concept) {
+        TreeMap<Integer, List<ObsData>> months = concepts.get(concept);
+        if (months == null) {
+            return new ArrayList<>();
+        }
+        List<ObsData> result = new ArrayList<>();
+        for (List<ObsData> obs : months.values()) {
+            result.addAll(obs);
+        }
+        return result;
+    }
+
+    /**
+     * @return obs of the concept recorded between the two months, both inclusive
+     */
+    public List<ObsData> getAll(String concept, Integer fromYearMonth, Integer toYearMonth) {
+        TreeMap<Integer, List<ObsData>> months = concepts.get(concept);
+        if (months == null) {
+            return new ArrayList<>();
+        }
+        List<ObsData> result = new ArrayList<>();
+        for (List<ObsData> obs : months.subMap(fromYearMonth, true, toYearMonth, true).values()) {
+            result.addAll(obs);
+        }
+        return result;
+    }
+}
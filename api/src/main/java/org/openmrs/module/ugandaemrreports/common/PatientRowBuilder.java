@@ -0,0 +1,19 @@
+package org.openmrs.module.ugandaemrreports.common;
+
+import org.openmrs.module.reporting.dataset.DataSetRow;
+
+import java.util.Date;
+
+/**
+ * Builds the register row of one patient from the patient's demographics and obs
+ */
+public interface PatientRowBuilder {
+
+    /**
+     * @param patientId    the patient
+     * @param date         the date the patient is listed by, ART start or enrollment
+     * @param demographics the patient's demographics, empty if none were found
+     * @param obs          the patient's obs
+     */
+    DataSetRow build(Integer patientId, Date date, PersonDemographics demographics, PatientObsStore obs);
+}
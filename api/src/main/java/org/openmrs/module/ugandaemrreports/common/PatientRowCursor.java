@@ -0,0 +1,91 @@
+package org.openmrs.module.ugandaemrreports.common;
+
+import com.google.common.base.Joiner;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.reporting.dataset.DataSetRow;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.openmrs.module.ugandaemrreports.reports.Helper.getObsDataStore;
+import static org.openmrs.module.ugandaemrreports.reports.Helper.getPatientDemographics;
+
+/**
+ * Streams register rows patient by patient. The patients are read in pages of the cohort batch size: for each page the
+ * demographics and the obs are loaded into stores keyed by patient, so only one page is held in memory at a time and
+ * the obs query may return its rows in any order. A pooled connection is held only while a page loads, so a renderer
+ * that stops reading early or never closes the cursor does not keep a pool permit.
+ */
+public class PatientRowCursor implements StreamingDataSet.RowCursor {
+
+    public static final String GP_STREAMING = "ugandaemrreports.registers.streaming";
+
+    private final List<Map.Entry<Integer, Date>> patients;
+    private final String obsQuery;
+    private final PatientRowBuilder builder;
+    private final String owner;
+    private final int pageSize;
+
+    private ObsDataStore obs = new ObsDataStore();
+    private Map<Integer, List<PersonDemographics>> demographics = new HashMap<>();
+    private int index = 0;
+
+    /**
+     * @param obsQuery obs query with a %1$s placeholder for the ids of a page of patients
+     */
+    public PatientRowCursor(String owner, List<Map.Entry<Integer, Date>> patients, String obsQuery,
+                            PatientRowBuilder builder) {
+        this.patients = patients;
+        this.obsQuery = obsQuery;
+        this.builder = builder;
+        this.pageSize = CohortParameter.getBatchSize();
+        this.owner = owner;
+    }
+
+    /**
+     * @return true when the registers should be streamed to the renderer rather than built in memory
+     */
+    public static boolean isEnabled() {
+        String value = Context.getAdministrationService().getGlobalProperty(GP_STREAMING);
+        return value != null && Boolean.parseBoolean(value.trim());
+    }
+
+    @Override
+    public DataSetRow next() throws SQLException {
+        if (index >= patients.size()) {
+            return null;
+        }
+        if (index % pageSize == 0) {
+            loadPage(index);
+        }
+        Map.Entry<Integer, Date> patient = patients.get(index++);
+        Integer patientId = patient.getKey();
+        List<PersonDemographics> personDemographics = demographics.get(patientId);
+        PersonDemographics personDemos = personDemographics != null && personDemographics.size() > 0 ? personDemographics.get(0) : new PersonDemographics();
+        return builder.build(patientId, patient.getValue(), personDemos, obs.get(patientId));
+    }
+
+    private void loadPage(int from) throws SQLException {
+        List<Integer> page = new ArrayList<>();
+        for (Map.Entry<Integer, Date> patient : patients.subList(from, Math.min(from + pageSize, patients.size()))) {
+            page.add(patient.getKey());
+        }
+        String ids = Joiner.on(",").join(page);
+        try (Connection connection = ConnectionPool.getInstance().checkout(owner)) {
+            demographics = getPatientDemographics(connection, ids);
+            obs = getObsDataStore(connection, String.format(obsQuery, ids));
+        }
+    }
+
+    @Override
+    public void close() {
+        index = patients.size();
+        obs = new ObsDataStore();
+        demographics = new HashMap<>();
+    }
+}
@@ -0,0 +1,83 @@
+package org.openmrs.module.ugandaemrreports.common;
+
+import org.joda.time.LocalDate;
+
+import java.util.Date;
+
+/**
+ * Integer keys for months (yyyyMM) and quarters (yyyyQ, e.g. 20173 for 2017Q3).
+ * Both sort the same way as the strings produced by Helper.getObsPeriod so they can replace them in comparisons.
+ */
+public class PeriodKeys {
+
+    public static final int NONE = 0;
+
+    public static int yearMonth(LocalDate date) {
+        return date.getYear() * 100 + date.getMonthOfYear();
+    }
+
+    public static int yearMonth(Date date) {
+        return date == null ? NONE : yearMonth(new LocalDate(date));
+    }
+
+    /**
+     * @param date a date formatted as yyyy-MM-dd, optionally followed by a time
+     * @return the month key or NONE if the date is blank or malformed
+     */
+    public static int yearMonth(String date) {
+        if (date == null || date.length() < 7 || date.charAt(4) != '-') {
+            return NONE;
+        }
+        try {
+            return Integer.parseInt(date.substring(0, 4)) * 100 + Integer.parseInt(date.substring(5, 7));
+        } catch (NumberFormatException e) {
+            return NONE;
+        }
+    }
+
+    public static int yearQuarter(LocalDate date) {
+        return date.getYear() * 10 + ((date.getMonthOfYear() - 1) / 3) + 1;
+    }
+
+    public static int yearQuarter(Date date) {
+        return date == null ? NONE : yearQuarter(new LocalDate(date));
+    }
+
+    public static int yearQuarter(String date) {
+        return quarterOf(yearMonth(date));
+    }
+
+    /**
+     * @return the quarter key containing the given month key
+     */
+    public static int quarterOf(int yearMonth) {
+        if (yearMonth == NONE) {
+            return NONE;
+        }
+        return (yearMonth / 100) * 10 + ((yearMonth % 100) - 1) / 3 + 1;
+    }
+
+    /**
+     * @return keys of the months starting with the month of the given date, computed once per evaluation
+     */
+    public static int[] monthKeys(LocalDate start, int count) {
+        int[] keys = new int[count];
+        LocalDate month = Periods.monthStartFor(start);
+        for (int i = 0; i < count; i++) {
+            keys[i] = yearMonth(month.plusMonths(i));
+        }
+        return keys;
+    }
+
+    /**
+     * @return keys of the quarters starting with the quarter of the given date, computed once per evaluation
+     */
+    public static int[] quarterKeys(LocalDate start, int count) {
+        int[] keys = new int[count];
+        LocalDate quarter = Periods.quarterStartFor(start);
+        for (int i = 0; i < count; i++) {
+            keys[i] = yearQuarter(quarter.plusMonths(i * 3));
+        }
+        return keys;
+    }
+}
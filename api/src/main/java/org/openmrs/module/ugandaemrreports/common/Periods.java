@@ -18,6 +18,16 @@ public class Periods {
         return date.withDayOfMonth(1).withMonthOfYear((((date.getMonthOfYear() - 1) / 3) * 3) + 1);
     }
 
+    /**
+     * @return the date as yyyyMMdd, so the difference of two of them divided by 10000 is the number of completed years
+     * between the dates
+     */
+    public static int yearMonthDay(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        return calendar.get(Calendar.YEAR) * 10000 + (calendar.get(Calendar.MONTH) + 1) * 100 + calendar.get(Calendar.DAY_OF_MONTH);
+    }
+
     public static LocalDate monthStartFor(LocalDate date) {
         return date.withDayOfMonth(1);
     }
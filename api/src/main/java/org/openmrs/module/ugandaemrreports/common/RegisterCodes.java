@@ -0,0 +1,217 @@
+package org.openmrs.module.ugandaemrreports.common;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.lang.StringUtils;
+import org.joda.time.LocalDate;
+import org.joda.time.Years;
+
+import java.util.Map;
+
+/**
+ * Codes written on the registers for coded answers, keyed by the answer's concept id.
+ * The tables are built once and never change, so they are shared by every report run and row building thread.
+ */
+public class RegisterCodes {
+
+    /**
+     * Patients up to this age get the paediatric code of regimens that have one
+     */
+    public static final int PAEDIATRIC_MAX_AGE = 10;
+
+    private static final Map<String, String> SUMMARY_CODES = new ImmutableMap.Builder<String, String>()
+            //Arvs
+            .put("99015", "1a")
+            .put("99016", "1b")
+            .put("99005", "1c")
+            .put("99006", "1d")
+            .put("99039", "1e")
+            .put("99040", "1f")
+            .put("99041", "1g")
+            .put("99042", "1h")
+            .put("99007", "2a2")
+            .put("99008", "2a4")
+            .put("99044", "2b")
+            .put("99043", "2c")
+            .put("99282", "2d2")
+            .put("99283", "2d4")
+            .put("99046", "2e")
+            .put("99017", "5a")
+            .put("99018", "5b")
+            .put("99045", "5f")
+            .put("99284", "5g")
+            .put("99285", "5h")
+            .put("99286", "5j")
+            .put("90002", "othr")
+            // Nutritional Status
+            .put("99271", "MAM")
+            .put("99272", "SAM")
+            .put("99273", "SAMO")
+            .put("99473", "PWG/PA")
+            //TB Status
+            .put("90079", "1")
+            .put("90073", "2")
+            .put("90078", "3")
+            .put("90071", "4")
+            //Functional Status
+            .put("90037", "A")
+            .put("90038", "W")
+            .put("90039", "B")
+            //Adherence
+            .put("90156", "G")
+            .put("90157", "F")
+            .put("90158", "P")
+            .build();
+
+    private static final Map<String, String> EID_CODES = new ImmutableMap.Builder<String, String>()
+            // Entry point
+            .put("90012", "eMTCT")
+            .put("90016", "TB")
+            .put("99593", "YCC")
+            .put("90019", "Outreach")
+            .put("90013", "Out Patient")
+            .put("90015", "STI")
+            .put("90018", "Inpatient")
+            .put("90002", "Other")
+            // TB status
+            .put("90079", "1")
+            .put("90073", "2")
+            .put("90078", "3")
+            .put("90071", "4")
+            // Infant feeding status
+            .put("5526", "EBF")
+            .put("99089", "RF")
+            .put("6046", "MF")
+            .put("99791", "CF")
+            .put("99792", "W")
+            .put("99793", "NLB")
+            // Infant ARVs for eMTCT @TODO Requires revision
+            .put("163013", "2")
+            .put("162966", "2")
+            .put("99789", "2")
+            .put("99790", "3")
+            .put("99788", "1")
+            .put("1067", "5")
+            .put("163009", "5")
+            .put("163010", "5")
+            .build();
+
+    private static final Map<String, String> ART_ADULT_REGIMENS = new ImmutableMap.Builder<String, String>()
+            .put("99015", "1a")
+            .put("99016", "1b")
+            .put("99005", "1c")
+            .put("99006", "1d")
+            .put("99039", "1e")
+            .put("99040", "1f")
+            .put("99044", "2b")
+            .put("99046", "2e")
+            .put("99286", "2c")
+            .build();
+
+    private static final Map<String, String> ART_PAEDIATRIC_REGIMENS = new ImmutableMap.Builder<String, String>()
+            .put("99015", "4a")
+            .put("99016", "4b")
+            .put("99005", "4c")
+            .put("99006", "4d")
+            .put("99039", "4j")
+            .put("99040", "4i")
+            .put("99044", "5d")
+            .put("99046", "5l")
+            .put("99286", "5l")
+            .build();
+
+    private static final Map<String, String> ART_CODES = new ImmutableMap.Builder<String, String>()
+            // regimens
+            .put("99041", "1g")
+            .put("99042", "1h")
+            .put("99007", "2a2")
+            .put("99008", "2a4")
+            .put("99043", "2c")
+            .put("99282", "2d2")
+            .put("99283", "2d4")
+            .put("99017", "5a")
+            .put("99018", "5b")
+            .put("99045", "5f")
+            .put("99284", "5g")
+            .put("99285", "5h")
+            .put("99884", "4e")
+            .put("99885", "4f")
+            .put("99888", "2h")
+            .put("163017", "2g")
+            .put("90002", "othr")
+            // clinical stage
+            .put("90033", "1").put("90079", "1").put("1204", "1")
+            .put("90034", "2").put("90073", "2").put("1205", "2")
+            .put("90035", "3").put("90078", "3").put("1206", "3")
+            .put("90036", "4").put("90071", "4").put("1207", "4")
+            .put("90293", "T1")
+            .put("90294", "T2")
+            .put("90295", "T3")
+            // adherence
+            .put("90156", "G")
+            .put("90157", "F")
+            .put("90158", "P")
+            .put("90003", "Y")
+            .build();
+
+    /**
+     * @return the summary code of the answer, null if it has none
+     */
+    public static String getString(String concept) {
+        if (StringUtils.isNotBlank(concept)) {
+            return SUMMARY_CODES.get(concept);
+        }
+        return "";
+    }
+
+    /**
+     * @return the EID register code of the answer, null if it has none
+     */
+    public static String convert(String concept) {
+        return concept == null ? null : EID_CODES.get(concept);
+    }
+
+    /**
+     * @param age age of the patient when the answer was recorded, null if unknown
+     * @return the ART register code of the answer, empty if it has none
+     */
+    public static String artCode(String valueCoded, Integer age) {
+        if (valueCoded == null) {
+            return "";
+        }
+        if (ART_ADULT_REGIMENS.containsKey(valueCoded)) {
+            if (age == null) {
+                return "";
+            }
+            return age > PAEDIATRIC_MAX_AGE ? ART_ADULT_REGIMENS.get(valueCoded) : ART_PAEDIATRIC_REGIMENS.get(valueCoded);
+        }
+        String code = ART_CODES.get(valueCoded);
+        return code == null ? "" : code;
+    }
+
+    /**
+     * @param birthDate birth date formatted as yyyy-MM-dd, blank if unknown
+     * @return the ART register codes of one patient
+     */
+    public static ArtCodes art(String birthDate) {
+        return new ArtCodes(StringUtils.isBlank(birthDate) ? null : StubDate.dateOf(birthDate));
+    }
+
+    /**
+     * ART register codes of one patient, the birth date is parsed once and reused for every obs
+     */
+    public static class ArtCodes {
+        private final LocalDate birthDate;
+
+        private ArtCodes(LocalDate birthDate) {
+            this.birthDate = birthDate;
+        }
+
+        public String code(ObsData obs) {
+            Integer age = null;
+            if (birthDate != null && obs.getEncounterDate() != null) {
+                age = Years.yearsBetween(birthDate, new LocalDate(obs.getEncounterDate())).getYears();
+            }
+            return artCode(obs.getVal(), age);
+        }
+    }
+}
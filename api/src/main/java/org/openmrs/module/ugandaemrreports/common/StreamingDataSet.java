@@ -0,0 +1,121 @@
+package org.openmrs.module.ugandaemrreports.common;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.module.reporting.dataset.DataSet;
+import org.openmrs.module.reporting.dataset.DataSetColumn;
+import org.openmrs.module.reporting.dataset.DataSetMetaData;
+import org.openmrs.module.reporting.dataset.DataSetRow;
+import org.openmrs.module.reporting.dataset.definition.DataSetDefinition;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A data set whose rows are built while the renderer iterates over it instead of being held in memory.
+ * Every call to iterator() opens a fresh cursor, so renderers that walk the rows more than once re-read the database.
+ */
+public class StreamingDataSet implements DataSet {
+
+    protected static final Log log = LogFactory.getLog(StreamingDataSet.class);
+
+    /**
+     * Produces the rows of one pass over the data set
+     */
+    public interface RowCursor extends AutoCloseable {
+
+        /**
+         * @return the next row or null when there are no more rows
+         */
+        DataSetRow next() throws Exception;
+    }
+
+    public interface RowSource {
+        RowCursor open() throws Exception;
+    }
+
+    private final DataSetDefinition definition;
+    private final EvaluationContext context;
+    private final DataSetMetaData metaData = new DataSetMetaData();
+    private final RowSource source;
+
+    /**
+     * @param template a row holding every column of the data set, used for the meta data before any row is read
+     */
+    public StreamingDataSet(DataSetDefinition definition, EvaluationContext context, DataSetRow template, RowSource source) {
+        this.definition = definition;
+        this.context = context;
+        this.source = source;
+        for (DataSetColumn column : template.getColumnValues().keySet()) {
+            metaData.addColumn(column);
+        }
+    }
+
+    @Override
+    public DataSetMetaData getMetaData() {
+        return metaData;
+    }
+
+    @Override
+    public EvaluationContext getContext() {
+        return context;
+    }
+
+    @Override
+    public DataSetDefinition getDefinition() {
+        return definition;
+    }
+
+    @Override
+    public Iterator<DataSetRow> iterator() {
+        final RowCursor cursor;
+        try {
+            cursor = source.open();
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to open rows of " + definition.getName(), e);
+        }
+        return new Iterator<DataSetRow>() {
+            private DataSetRow next = advance();
+
+            private DataSetRow advance() {
+                if (cursor == null) {
+                    return null;
+                }
+                try {
+                    DataSetRow row = cursor.next();
+                    if (row == null) {
+                        cursor.close();
+                    }
+                    return row;
+                } catch (Exception e) {
+                    close();
+                    throw new IllegalStateException("Unable to read rows of " + definition.getName(), e);
+                }
+            }
+
+            private void close() {
+                try {
+                    cursor.close();
+                } catch (Exception e) {
+                    log.warn("Error closing rows of " + definition.getName(), e);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public DataSetRow next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                DataSetRow row = next;
+                next = advance();
+                return row;
+            }
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package org.openmrs.module.ugandaemrreports.common;
+
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
+import org.openmrs.api.context.UserContext;
+import org.openmrs.module.DaemonToken;
+
+/**
+ * Builds the user contexts the module's threads evaluate reports with. Such a thread gets a context of its own,
+ * authenticated as the user it works for from a daemon thread of the module, instead of sharing the context of the
+ * web session or the thread it was handed the work by: that context is cleared when the user logs out and is not
+ * made to be used by several threads at once.
+ */
+public class UserContexts {
+
+    private static volatile DaemonToken daemonToken;
+
+    private UserContexts() {
+    }
+
+    /**
+     * Set by the activator when the module starts
+     */
+    public static void setDaemonToken(DaemonToken token) {
+        daemonToken = token;
+    }
+
+    /**
+     * @return the system id of the user of the current thread, null when no user is authenticated
+     */
+    public static String currentUser() {
+        return Context.isAuthenticated() ? Context.getAuthenticatedUser().getSystemId() : null;
+    }
+
+    /**
+     * @param systemId the user to authenticate the context as, null for an unauthenticated context
+     * @param fallback used when the module has no daemon token, only outside a running module (e.g. in tests)
+     * @return a new context authenticated as the user
+     */
+    public static UserContext forUser(final String systemId, UserContext fallback) throws InterruptedException {
+        DaemonToken token = daemonToken;
+        if (token == null) {
+            return fallback;
+        }
+        final UserContext[] built = new UserContext[1];
+        final RuntimeException[] failure = new RuntimeException[1];
+        Thread thread = Daemon.runInDaemonThread(() -> {
+            // the daemon user may become any user; the context is the one opened for this thread, dropped once it ends
+            try {
+                if (systemId != null) {
+                    Context.becomeUser(systemId);
+                }
+                built[0] = Context.getUserContext();
+            } catch (RuntimeException e) {
+                failure[0] = e;
+            }
+        }, token);
+        thread.join();
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        if (built[0] == null) {
+            throw new IllegalStateException("Unable to build a user context for " + systemId);
+        }
+        return built[0];
+    }
+}
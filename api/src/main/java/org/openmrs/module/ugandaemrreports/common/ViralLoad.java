@@ -1,17 +1,20 @@
 package org.openmrs.module.ugandaemrreports.common;
 
 
+/**
+ * A viral load result with its month offsets held as primitives so the cohort filters compare ints without unboxing
+ */
 public class ViralLoad {
     private Integer patientId;
-    private Integer monthsBetweenReportDateAndArt;
-    private Integer monthsBetweenArtAndViralLoad;
-    private Integer valueCoded;
-    private Double valueNumeric;
+    private int monthsBetweenReportDateAndArt;
+    private int monthsBetweenArtAndViralLoad;
+    private int valueCoded;
+    private double valueNumeric;
 
     public ViralLoad() {
     }
 
-    public ViralLoad(Integer patientId, Integer monthsBetweenReportDateAndArt, Integer monthsBetweenArtAndViralLoad, Integer valueCoded, Double valueNumeric) {
+    public ViralLoad(Integer patientId, int monthsBetweenReportDateAndArt, int monthsBetweenArtAndViralLoad, int valueCoded, double valueNumeric) {
         this.patientId = patientId;
         this.monthsBetweenReportDateAndArt = monthsBetweenReportDateAndArt;
         this.monthsBetweenArtAndViralLoad = monthsBetweenArtAndViralLoad;
@@ -27,35 +30,35 @@ public class ViralLoad {
         this.patientId = patientId;
     }
 
-    public Integer getMonthsBetweenReportDateAndArt() {
+    public int getMonthsBetweenReportDateAndArt() {
         return monthsBetweenReportDateAndArt;
     }
 
-    public void setMonthsBetweenReportDateAndArt(Integer monthsBetweenReportDateAndArt) {
+    public void setMonthsBetweenReportDateAndArt(int monthsBetweenReportDateAndArt) {
         this.monthsBetweenReportDateAndArt = monthsBetweenReportDateAndArt;
     }
 
-    public Integer getMonthsBetweenArtAndViralLoad() {
+    public int getMonthsBetweenArtAndViralLoad() {
         return monthsBetweenArtAndViralLoad;
     }
 
-    public void setMonthsBetweenArtAndViralLoad(Integer monthsBetweenArtAndViralLoad) {
+    public void setMonthsBetweenArtAndViralLoad(int monthsBetweenArtAndViralLoad) {
         this.monthsBetweenArtAndViralLoad = monthsBetweenArtAndViralLoad;
     }
 
-    public Integer getValueCoded() {
+    public int getValueCoded() {
         return this.valueCoded;
     }
 
-    public void setValueCoded(Integer valueCoded) {
+    public void setValueCoded(int valueCoded) {
         this.valueCoded = valueCoded;
     }
 
-    public Double getValueNumeric() {
+    public double getValueNumeric() {
         return this.valueNumeric;
     }
 
-    public void setValueNumeric(Double valueNumeric) {
+    public void setValueNumeric(double valueNumeric) {
         this.valueNumeric = valueNumeric;
     }
 }
\ No newline at end of file
@@ -14,49 +14,22 @@
 
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Concept;
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  */
-public class ARVsDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
-        Concept arvResultsConcept = ((Obs) obj).getValueCoded();
-
-        if(arvResultsConcept != null && arvResultsConcept.equals(Dictionary.getConcept("026e31b7-4a26-44d0-8398-9a41c40ff7d3"))){
-            return "ART";
-        }
-        else  if(arvResultsConcept != null && arvResultsConcept.equals(Dictionary.getConcept("2aa7d442-6cbb-4609-9dd3-bc2ad6f05016"))){
-            return "ARTK";
-        }
-
-        else  if(arvResultsConcept != null && arvResultsConcept.equals(Dictionary.getConcept("2c000b41-f9d7-40c1-8de0-bce91dbae932"))){
-            return "=CONCATENATE(\"ART\",UNICHAR(8730))";
-        }
-        else  if(arvResultsConcept != null && arvResultsConcept.equals(Dictionary.getConcept("bbc63761-0741-4583-9396-a34d3a18601c"))){
-            return "=CONCATENATE(\"ARTK\",UNICHAR(8730))";
-        }
-        else  if(arvResultsConcept != null && arvResultsConcept.equals(Dictionary.getConcept("dc9b0596-30ab-102d-86b0-7a5022ba4115"))){
-            return "NA";
-        }
+public class ARVsDataConverter extends CodedLookupConverter {
 
-        return null;
-    }
-
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("026e31b7-4a26-44d0-8398-9a41c40ff7d3", "ART")
+            .put("2aa7d442-6cbb-4609-9dd3-bc2ad6f05016", "ARTK")
+            .put("2c000b41-f9d7-40c1-8de0-bce91dbae932", "=CONCATENATE(\"ART\",UNICHAR(8730))")
+            .put("bbc63761-0741-4583-9396-a34d3a18601c", "=CONCATENATE(\"ARTK\",UNICHAR(8730))")
+            .put("dc9b0596-30ab-102d-86b0-7a5022ba4115", "NA")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
 }
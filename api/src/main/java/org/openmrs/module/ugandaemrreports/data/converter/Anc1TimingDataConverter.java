@@ -13,40 +13,22 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
 import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
 
+import java.util.Map;
+
 /**
  */
-public class Anc1TimingDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
+public class Anc1TimingDataConverter extends CodedLookupConverter {
 
-        if (obj == null) {
-            return "";
-        }
-        Obs obs = ((Obs) obj);
-
-        if (obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept(Dictionary.YES_CIEL))) {
-            return "=UNICHAR(8730)";
-        }
-        else if (obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("1066AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "x";
-        }
-        else if (obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("dc9b0596-30ab-102d-86b0-7a5022ba4115"))) {
-            return "NA";
-        }
-        return null;
-    }
-
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put(Dictionary.YES_CIEL, "=UNICHAR(8730)")
+            .put("1066AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "x")
+            .put("dc9b0596-30ab-102d-86b0-7a5022ba4115", "NA")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
 }
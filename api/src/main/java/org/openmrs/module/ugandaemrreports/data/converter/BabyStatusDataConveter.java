@@ -13,41 +13,20 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Concept;
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  */
-public class BabyStatusDataConveter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
-        Concept concept = ((Obs) obj).getValueCoded();
-
-        if(concept != null && concept.equals(Dictionary.getConcept("9d9e6b5a-8b5d-4b8c-8ab7-9fdabb279493"))){
-            return "AL";
-        }
-        else if(concept != null && concept.equals(Dictionary.getConcept("811ff634-8d81-454f-9b9d-2850345796d6"))){
-            return "NND7";
-        }
-        else if(concept != null && concept.equals(Dictionary.getConcept("95121db8-6c2a-48e0-b281-cf2dc8229dd1"))){
-            return "NND28";
-        }
-        return null;
-    }
+public class BabyStatusDataConveter extends CodedLookupConverter {
 
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("9d9e6b5a-8b5d-4b8c-8ab7-9fdabb279493", "AL")
+            .put("811ff634-8d81-454f-9b9d-2850345796d6", "NND7")
+            .put("95121db8-6c2a-48e0-b281-cf2dc8229dd1", "NND28")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
-}
\ No newline at end of file
+}
@@ -1,36 +1,16 @@
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Concept;
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
-public class BreastFeedingDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
-        Concept value = ((Obs)obj).getValueCoded();
-        if(value != null && value.equals(Dictionary.getConcept("1065AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "Yes";
-        }
-        else if(value != null && value.equals(Dictionary.getConcept("1066AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "No";
-        }
+public class BreastFeedingDataConverter extends CodedLookupConverter {
 
-        return null;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("1065AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "Yes")
+            .put("1066AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "No")
+            .build();
 
     @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
-
-    @Override
-    public Class<?> getDataType() {
-        return String.class;
-    }
-
 }
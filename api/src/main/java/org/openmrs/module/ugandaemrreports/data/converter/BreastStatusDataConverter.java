@@ -13,40 +13,19 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Concept;
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  */
-public class BreastStatusDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
-
-        Concept concept = ((Obs) obj).getValueCoded();
-
-        if(concept != null && concept.equals(Dictionary.getConcept("e4c6b70d-aaa6-490b-8edc-01c44d982cb2"))) {
-            return "FOM";
-        }
-        else if(concept != null && concept.equals(Dictionary.getConcept("5e416f86-aaf1-4ae4-96f0-30226b9fdd5f"))) {
-            return "SS";
-        }
+public class BreastStatusDataConverter extends CodedLookupConverter {
 
-        return null;
-    }
-
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("e4c6b70d-aaa6-490b-8edc-01c44d982cb2", "FOM")
+            .put("5e416f86-aaf1-4ae4-96f0-30226b9fdd5f", "SS")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
-}
\ No newline at end of file
+}
@@ -13,39 +13,19 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Concept;
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  */
-public class CervixStatusDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
+public class CervixStatusDataConverter extends CodedLookupConverter {
 
-        Concept concept = ((Obs) obj).getValueCoded();
-
-        if(concept != null && concept.equals(Dictionary.getConcept("14556e6e-9ee4-439c-98ac-079e12fc98fa"))) {
-            return "FOM";
-        }
-        else if(concept != null && concept.equals(Dictionary.getConcept("ec3a0208-0261-450a-a13b-b524e160b8fd"))) {
-            return "SS";
-        }
-        return null;
-    }
-
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("14556e6e-9ee4-439c-98ac-079e12fc98fa", "FOM")
+            .put("ec3a0208-0261-450a-a13b-b524e160b8fd", "SS")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.ugandaemrreports.data.converter;
+
+import com.google.common.collect.ImmutableMap;
+import org.openmrs.Concept;
+import org.openmrs.Obs;
+import org.openmrs.module.reporting.data.converter.DataConverter;
+import org.openmrs.module.ugandaemrreports.reporting.metadata.ConceptCache;
+import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts the coded value of an obs using a table of answer identifier to output.
+ * The identifiers are resolved to concept ids the first time a value is converted, after that every conversion is a
+ * single map read on the id of the value. The ids are resolved again when the dictionary concept cache is cleared.
+ */
+public abstract class CodedLookupConverter implements DataConverter {
+
+    private transient volatile Resolved resolved;
+
+    /**
+     * @return answer identifiers, as accepted by {@link Dictionary#getConcept(String)}, mapped to their output.
+     * When two identifiers resolve to the same concept the first one wins
+     */
+    protected abstract Map<String, Object> getTable();
+
+    /**
+     * @return the output when there is no obs
+     */
+    protected Object getMissingValue() {
+        return "";
+    }
+
+    /**
+     * @return the output when the value is not in the table
+     */
+    protected Object getDefaultValue() {
+        return null;
+    }
+
+    protected static ImmutableMap.Builder<String, Object> table() {
+        return new ImmutableMap.Builder<>();
+    }
+
+    @Override
+    public Object convert(Object obj) {
+        if (obj == null) {
+            return getMissingValue();
+        }
+        Concept value = obj instanceof Obs ? ((Obs) obj).getValueCoded() : (Concept) obj;
+        if (value == null || value.getConceptId() == null) {
+            return getDefaultValue();
+        }
+        Object output = getOutputs().get(value.getConceptId());
+        return output == null ? getDefaultValue() : output;
+    }
+
+    private Map<Integer, Object> getOutputs() {
+        int generation = ConceptCache.DICTIONARY.getGeneration();
+        Resolved current = resolved;
+        if (current == null || current.generation != generation) {
+            Map<Integer, Object> outputs = new HashMap<>();
+            for (Map.Entry<String, Object> entry : getTable().entrySet()) {
+                Integer conceptId = Dictionary.getConceptId(entry.getKey());
+                if (conceptId != null && !outputs.containsKey(conceptId)) {
+                    outputs.put(conceptId, entry.getValue());
+                }
+            }
+            current = new Resolved(generation, outputs);
+            resolved = current;
+        }
+        return current.outputs;
+    }
+
+    @Override
+    public Class<?> getInputDataType() {
+        return Obs.class;
+    }
+
+    @Override
+    public Class<?> getDataType() {
+        return String.class;
+    }
+
+    private static class Resolved {
+        private final int generation;
+        private final Map<Integer, Object> outputs;
+
+        Resolved(int generation, Map<Integer, Object> outputs) {
+            this.generation = generation;
+            this.outputs = outputs;
+        }
+    }
+}
@@ -1,34 +1,16 @@
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Concept;
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
-public class CounsellingAtdisChargeDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
-        Concept value = ((Obs) obj).getValueCoded();
-        if (value != null && value.equals(Dictionary.getConcept("162936"))) {
-            return "Counselled";
-        } else if (value != null && value.equals(Dictionary.getConcept("162937"))) {
-            return "Not Counselled";
-        }
+public class CounsellingAtdisChargeDataConverter extends CodedLookupConverter {
 
-        return null;
-    }
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("162936", "Counselled")
+            .put("162937", "Not Counselled")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
-
 }
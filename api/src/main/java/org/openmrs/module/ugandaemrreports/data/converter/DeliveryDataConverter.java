@@ -1,34 +1,16 @@
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Concept;
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
-public class DeliveryDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
-        Concept value = ((Obs) obj).getValueCoded();
-        if (value != null && value.equals(Dictionary.getConcept("1395AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "Term";
-        } else if (value != null && value.equals(Dictionary.getConcept("129218AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "Preterm";
-        }
+public class DeliveryDataConverter extends CodedLookupConverter {
 
-        return null;
-    }
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("1395AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "Term")
+            .put("129218AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "Preterm")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
-
 }
@@ -13,43 +13,21 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  * 
  */
-public class DuringSurgeryDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
-
-        Obs obs = ((Obs) obj);
-        if(obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("58da0526-00d2-49f8-98e7-4ed0cb6bd672"))){
-            return "5";
-        }
-        else if(obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("d99b872e-8116-4697-941d-fc14e98d5612"))){
-            return "2";
-        }
-        else if(obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("dcd68a88-30ab-102d-86b0-7a5022ba4115"))){
-            return "6";
-        }
-
+public class DuringSurgeryDataConverter extends CodedLookupConverter {
 
-        return null;
-    }
-
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("58da0526-00d2-49f8-98e7-4ed0cb6bd672", "5")
+            .put("d99b872e-8116-4697-941d-fc14e98d5612", "2")
+            .put("dcd68a88-30ab-102d-86b0-7a5022ba4115", "6")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
-}
\ No newline at end of file
+}
@@ -13,41 +13,20 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Concept;
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  */
-public class FaciltyAndOutReachDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
-        Concept concept = ((Obs) obj).getValueCoded();
-        if(concept != null && concept.equals(Dictionary.getConcept("f2aa1852-fcfe-484b-a6ef-1613bd3a1a7f"))){
-            return "F";
-        }
-        else if(concept != null && concept.equals(Dictionary.getConcept("03596df2-09bc-4d1f-94fd-484411ac9012"))){
-            return "OR";
-        }
-        else if(concept != null && concept.equals(Dictionary.getConcept("63e5387f-74f6-4a92-a71f-7b5dd3ed8432"))){
-            return "CAMP";
-        }
-
-        return null;
-    }
+public class FaciltyAndOutReachDataConverter extends CodedLookupConverter {
 
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("f2aa1852-fcfe-484b-a6ef-1613bd3a1a7f", "F")
+            .put("03596df2-09bc-4d1f-94fd-484411ac9012", "OR")
+            .put("63e5387f-74f6-4a92-a71f-7b5dd3ed8432", "CAMP")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
-}
\ No newline at end of file
+}
@@ -1,110 +1,40 @@
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Concept;
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
-public class FinalDiagnosisDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
-        Concept value = ((Obs) obj).getValueCoded();
-        if (value != null && value.equals(Dictionary.getConcept("164917"))) {
-            return "Abortion due to other causes";
-        } else if (value != null && value.equals(Dictionary.getConcept("120295"))) {
-            return "Complete";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("112416"))) {
-            return "Threatening";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("164918"))) {
-            return "Uknown cause of abortion";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("dc69f6f5-30ab-102d-86b0-7a5022ba4115"))) {
-            return "APH";
-        }
-
-        else if (value != null && value.equals(Dictionary.getConcept("130108"))) {
-            return "Placental abruption";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("114127"))) {
-            return "Placenta praevia";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("130123"))) {
-            return "Placenta  percreta";
-        }
-
-        else if (value != null && value.equals(Dictionary.getConcept("dc650021-30ab-102d-86b0-7a5022ba4115"))) {
-            return "PPH";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("126877"))) {
-            return "Secondary";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("dc55064a-30ab-102d-86b0-7a5022ba4115"))) {
-            return "High blood pressure in pregnancy";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("118744"))) {
-            return "Eclampsia";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("129251"))) {
-            return "Pre-eclampsia";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("113006"))) {
-            return "Severe pre-eclampsia";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("dc6504d3-30ab-102d-86b0-7a5022ba4115"))) {
-            return "Abortions";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("113006"))) {
-            return "Severe pre-eclampsia";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("135361AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "Malaria in pregnancy";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("115036AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "Obstructed Labour";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("130AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "Puerperal sepsis";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("dc69ec17-30ab-102d-86b0-7a5022ba4115"))) {
-            return "Sepsis related to pregnancy";
-        }
+public class FinalDiagnosisDataConverter extends CodedLookupConverter {
 
-        else if (value != null && value.equals(Dictionary.getConcept("148834AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "Anaemia in pregnancy";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("127259AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "Ruptured uterus";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("dc550257-30ab-102d-86b0-7a5022ba4115"))) {
-            return "Ectopic pregnancy";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("164916"))) {
-            return "Abortion due to Gender based Violence";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("129211"))) {
-            return "Premature rapture of Membranes";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("142478AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "Pregnancy induced diabetes melitus";
-        }
-        else if (value != null && value.equals(Dictionary.getConcept("5622AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "Other";
-        }
-        return null;
-    }
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("164917", "Abortion due to other causes")
+            .put("120295", "Complete")
+            .put("112416", "Threatening")
+            .put("164918", "Uknown cause of abortion")
+            .put("dc69f6f5-30ab-102d-86b0-7a5022ba4115", "APH")
+            .put("130108", "Placental abruption")
+            .put("114127", "Placenta praevia")
+            .put("130123", "Placenta percreta")
+            .put("dc650021-30ab-102d-86b0-7a5022ba4115", "PPH")
+            .put("126877", "Secondary")
+            .put("dc55064a-30ab-102d-86b0-7a5022ba4115", "High blood pressure in pregnancy")
+            .put("118744", "Eclampsia")
+            .put("129251", "Pre-eclampsia")
+            .put("113006", "Severe pre-eclampsia")
+            .put("dc6504d3-30ab-102d-86b0-7a5022ba4115", "Abortions")
+            .put("135361AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "Malaria in pregnancy")
+            .put("115036AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "Obstructed Labour")
+            .put("130AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "Puerperal sepsis")
+            .put("dc69ec17-30ab-102d-86b0-7a5022ba4115", "Sepsis related to pregnancy")
+            .put("148834AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "Anaemia in pregnancy")
+            .put("127259AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "Ruptured uterus")
+            .put("dc550257-30ab-102d-86b0-7a5022ba4115", "Ectopic pregnancy")
+            .put("164916", "Abortion due to Gender based Violence")
+            .put("129211", "Premature rapture of Membranes")
+            .put("142478AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "Pregnancy induced diabetes melitus")
+            .put("5622AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "Other")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
 }
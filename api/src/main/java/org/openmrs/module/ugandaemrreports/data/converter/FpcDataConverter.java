@@ -13,39 +13,19 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  */
-public class FpcDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
-
-        Obs obs = ((Obs) obj);
-
-        if (obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("cd054f0f-314e-4e0a-9ea8-c3fd1e685ea8"))) {
-            return "C";
-        }
+public class FpcDataConverter extends CodedLookupConverter {
 
-        else if (obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("d142bc94-9ed9-4b99-bd88-30a022b60b3b"))) {
-            return "C/D";
-        }
-        return null;
-    }
-
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("cd054f0f-314e-4e0a-9ea8-c3fd1e685ea8", "C")
+            .put("d142bc94-9ed9-4b99-bd88-30a022b60b3b", "C/D")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
 }
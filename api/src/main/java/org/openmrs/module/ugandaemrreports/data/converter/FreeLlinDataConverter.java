@@ -13,37 +13,21 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
 import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
 
+import java.util.Map;
+
 /**
  */
-public class FreeLlinDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
+public class FreeLlinDataConverter extends CodedLookupConverter {
 
-        if (obj == null) {
-            return "";
-        }
-        Obs obs = ((Obs) obj);
-
-        if (obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept(Dictionary.YES_CIEL))) {
-            return "Y";
-        }
-        else if (obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("1066AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "N";
-        }
-        return null;
-    }
-
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put(Dictionary.YES_CIEL, "Y")
+            .put("1066AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "N")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
 }
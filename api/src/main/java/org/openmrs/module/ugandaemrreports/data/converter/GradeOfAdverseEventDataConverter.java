@@ -13,38 +13,20 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  * 
  */
-public class GradeOfAdverseEventDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
-        Obs obs = ((Obs) obj);
-        if(obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("ba7ae66b-8108-45b6-a34d-e842cf31c623"))) {
-            return "M";
-        }
-        else if(obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("44f95fcb-1054-466f-906d-45a41ef07297"))) {
-            return "S";
-        }
-
-        return null;
-    }
+public class GradeOfAdverseEventDataConverter extends CodedLookupConverter {
 
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("ba7ae66b-8108-45b6-a34d-e842cf31c623", "M")
+            .put("44f95fcb-1054-466f-906d-45a41ef07297", "S")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
-}
\ No newline at end of file
+}
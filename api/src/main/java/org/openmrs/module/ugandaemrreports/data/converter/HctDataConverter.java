@@ -13,39 +13,20 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  * 
  */
-public class HctDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
+public class HctDataConverter extends CodedLookupConverter {
 
-        Obs obs = ((Obs) obj);
-        if(obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("dc866728-30ab-102d-86b0-7a5022ba4115"))) {
-            return "+ve";
-        }
-        else if(obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("dc85aa72-30ab-102d-86b0-7a5022ba4115"))) {
-            return "-ve";
-        }
-
-        return null;
-    }
-
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("dc866728-30ab-102d-86b0-7a5022ba4115", "+ve")
+            .put("dc85aa72-30ab-102d-86b0-7a5022ba4115", "-ve")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
-}
\ No newline at end of file
+}
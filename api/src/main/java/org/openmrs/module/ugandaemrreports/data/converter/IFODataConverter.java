@@ -13,40 +13,20 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Concept;
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  */
-public class IFODataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-        if (obj == null) {
-            return "";
-        }
-        Concept iyoConceptAns = ((Obs) obj).getValueCoded();
-        if(iyoConceptAns != null && iyoConceptAns.equals(Dictionary.getConcept("dcbd637e-30ab-102d-86b0-7a5022ba4115"))) {
-            return "EBF";
-        }
-        else if(iyoConceptAns != null && iyoConceptAns.equals(Dictionary.getConcept("40fdb5b6-e8ac-424d-988c-f2f2937348db"))) {
-            return "RF";
-        }
-
-        else if(iyoConceptAns != null && iyoConceptAns.equals(Dictionary.getConcept("dcd5487d-30ab-102d-86b0-7a5022ba4115"))) {
-            return "MF";
-        }
-        return null;
-    }
+public class IFODataConverter extends CodedLookupConverter {
 
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("dcbd637e-30ab-102d-86b0-7a5022ba4115", "EBF")
+            .put("40fdb5b6-e8ac-424d-988c-f2f2937348db", "RF")
+            .put("dcd5487d-30ab-102d-86b0-7a5022ba4115", "MF")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
-}
\ No newline at end of file
+}
@@ -13,47 +13,22 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Concept;
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  */
-public class ImmunizationDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
-        Concept concept = ((Obs) obj).getValueCoded();
-        if(concept != null && concept.equals(Dictionary.getConcept("dc8e1be9-30ab-102d-86b0-7a5022ba4115"))){
-            return "✔";
-        }
-        else if(concept != null && concept.equals(Dictionary.getConcept("dc883964-30ab-102d-86b0-7a5022ba4115"))){
-            return "✔";
-        }
-        else if(concept != null && concept.equals(Dictionary.getConcept("782AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))){
-            return "✔";
-        }
-        else if(concept != null && concept.equals(Dictionary.getConcept("680f7f8d-eac6-44b4-8899-101fa2c4f873"))){
-            return "✔";
-        }
-        else if(concept != null && concept.equals(Dictionary.getConcept("62d87122-0a08-4e04-b57c-7e1b2f821854"))){
-            return "✔";
-        }
-
-        return null;
-    }
+public class ImmunizationDataConverter extends CodedLookupConverter {
 
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("dc8e1be9-30ab-102d-86b0-7a5022ba4115", "✔")
+            .put("dc883964-30ab-102d-86b0-7a5022ba4115", "✔")
+            .put("782AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "✔")
+            .put("680f7f8d-eac6-44b4-8899-101fa2c4f873", "✔")
+            .put("62d87122-0a08-4e04-b57c-7e1b2f821854", "✔")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
-}
\ No newline at end of file
+}
@@ -13,40 +13,20 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Concept;
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  */
-public class MUACDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
-        Concept value = ((Obs)obj).getValueCoded();
-        if(value != null && value.equals(Dictionary.getConcept("a3b1734c-4743-4b9d-8e71-08d0459d29b9"))) {
-            return "Y";
-        }
-        else if(value != null && value.equals(Dictionary.getConcept("de330d01-5586-4eed-a645-e04b6bd13701"))) {
-            return "R";
-        }
-        else if(value != null && value.equals(Dictionary.getConcept("8846c03f-67bf-4aeb-8ca7-39bf79b4ebf3"))) {
-            return "G";
-        }
-        return null;
-    }
+public class MUACDataConverter extends CodedLookupConverter {
 
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("a3b1734c-4743-4b9d-8e71-08d0459d29b9", "Y")
+            .put("de330d01-5586-4eed-a645-e04b6bd13701", "R")
+            .put("8846c03f-67bf-4aeb-8ca7-39bf79b4ebf3", "G")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
 }
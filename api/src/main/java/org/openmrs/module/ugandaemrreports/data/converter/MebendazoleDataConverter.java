@@ -13,43 +13,21 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  */
-public class MebendazoleDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
-        Obs obs = ((Obs) obj);
-
-        if (obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("a7a9d632-b266-4085-9a5e-57fc8dd56f0c"))) {
-            return "=UNICHAR(8730)";
-        }
-        else if (obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("0134c1d3-a255-46b2-ac77-38c0edcd9e53"))) {
-            return "x";
-        }
-        else if (obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("beb5523f-ec5a-46fe-a7c9-f3270a05f4b4"))) {
-            return "ND";
-        }
-        else if (obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("dca06bae-30ab-102d-86b0-7a5022ba4115"))) {
-            return "C";
-        }
-        return null;
-    }
+public class MebendazoleDataConverter extends CodedLookupConverter {
 
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("a7a9d632-b266-4085-9a5e-57fc8dd56f0c", "=UNICHAR(8730)")
+            .put("0134c1d3-a255-46b2-ac77-38c0edcd9e53", "x")
+            .put("beb5523f-ec5a-46fe-a7c9-f3270a05f4b4", "ND")
+            .put("dca06bae-30ab-102d-86b0-7a5022ba4115", "C")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
 }
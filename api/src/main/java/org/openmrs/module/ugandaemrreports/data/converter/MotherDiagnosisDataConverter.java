@@ -13,35 +13,22 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Concept;
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  */
-public class MotherDiagnosisDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
+public class MotherDiagnosisDataConverter extends CodedLookupConverter {
 
-        if(obj == null){
-            return "";
-        }
+    private static final Map<String, Object> TABLE = table()
+            .put("132678AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "Normal pregnancy")
+            .put("116128AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "Malaria")
+            .put("dc55064a-30ab-102d-86b0-7a5022ba4115", "High blood pressure")
+            .put("5622AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "Other")
+            .build();
 
-        Concept concept = ((Obs) obj).getValueCoded();
-        if(concept != null && concept.equals(Dictionary.getConcept("132678AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))){
-            return "Normal pregnancy";
-        }
-        else if(concept != null && concept.equals(Dictionary.getConcept("116128AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))){
-            return "Malaria";
-        }
-        else if(concept != null && concept.equals(Dictionary.getConcept("dc55064a-30ab-102d-86b0-7a5022ba4115"))){
-            return "High blood pressure";
-        }
-        else if(concept != null && concept.equals(Dictionary.getConcept("5622AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))){
-            return "Other";
-        }
-        return null;
+    @Override
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
 
     @Override
@@ -53,4 +40,4 @@ public class MotherDiagnosisDataConverter implements DataConverter {
     public Class<?> getDataType() {
         return null;
     }
-}
\ No newline at end of file
+}
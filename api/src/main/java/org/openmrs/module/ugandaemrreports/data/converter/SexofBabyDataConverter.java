@@ -1,34 +1,16 @@
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Concept;
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
-public class SexofBabyDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
+public class SexofBabyDataConverter extends CodedLookupConverter {
 
-        if (obj == null) {
-            return "";
-        }
-        Concept value = ((Obs) obj).getValueCoded();
-        if (value != null && value.equals(Dictionary.getConcept("1535AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "Female";
-        } else if (value != null && value.equals(Dictionary.getConcept("1534AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "Male";
-        }
-        return null;
-    }
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("1535AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "Female")
+            .put("1534AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "Male")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
-
-
 }
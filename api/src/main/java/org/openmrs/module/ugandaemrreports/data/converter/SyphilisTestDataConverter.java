@@ -13,46 +13,21 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Concept;
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  */
-public class SyphilisTestDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
+public class SyphilisTestDataConverter extends CodedLookupConverter {
 
-        //get the obs value
-        Concept value = ((Obs)obj).getValueCoded();
-        if(value != null && value.equals(Dictionary.getConcept("db3b19b2-e5f0-48c5-9ab4-dd9e4ad519dd"))){
-            return "Rx";
-        }
-        else if(value != null && value.equals(Dictionary.getConcept("fe247560-8db6-4664-a6bc-e3b873b9b10a"))){
-            return "+ve";
-        }
-        else if(value != null && value.equals(Dictionary.getConcept("0d323507-97ff-4146-917c-11119546c051"))){
-            return "NR";
-        }
-        else if(value != null && value.equals(Dictionary.getConcept("451f794b-2f67-4ac5-bfb6-39cdae7bf4fc"))){
-            return "NT";
-        }
-
-        return null;
-    }
-
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("db3b19b2-e5f0-48c5-9ab4-dd9e4ad519dd", "Rx")
+            .put("fe247560-8db6-4664-a6bc-e3b873b9b10a", "+ve")
+            .put("0d323507-97ff-4146-917c-11119546c051", "NR")
+            .put("451f794b-2f67-4ac5-bfb6-39cdae7bf4fc", "NT")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
 }
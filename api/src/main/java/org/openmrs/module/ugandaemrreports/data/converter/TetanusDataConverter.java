@@ -13,55 +13,23 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  */
-public class TetanusDataConverter implements DataConverter {
+public class TetanusDataConverter extends CodedLookupConverter {
 
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
-
-        Obs obs = ((Obs) obj);
-
-        if (obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("0192ca59-b647-4f88-b07e-8fda991ba6d6"))) {
-            return "1st";
-        }
-
-        else if (obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("f1d5afce-8dfe-4d2d-b24b-051815d61848"))) {
-            return "2nd";
-        }
-
-        else if (obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("a5497b5a-7da1-42d2-9985-b5ec695b4199"))) {
-            return "3rd";
-        }
-
-        else if (obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("da40fa2a-074f-4d90-a875-5bb8316bc753"))) {
-            return "4th";
-        }
-
-        else if (obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("18f11bf4-c986-4cdd-b31c-fb189ea39333"))) {
-            return "5th";
-        }
-        else if (obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("dca06bae-30ab-102d-86b0-7a5022ba4115"))) {
-            return "C";
-        }
-        return null;
-    }
-
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("0192ca59-b647-4f88-b07e-8fda991ba6d6", "1st")
+            .put("f1d5afce-8dfe-4d2d-b24b-051815d61848", "2nd")
+            .put("a5497b5a-7da1-42d2-9985-b5ec695b4199", "3rd")
+            .put("da40fa2a-074f-4d90-a875-5bb8316bc753", "4th")
+            .put("18f11bf4-c986-4cdd-b31c-fb189ea39333", "5th")
+            .put("dca06bae-30ab-102d-86b0-7a5022ba4115", "C")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
 }
@@ -13,44 +13,21 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Concept;
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  */
-public class TimingForPNCDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-        //1822AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA,1072AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA,1073AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA,1074AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA
-        if (obj == null) {
-            return "";
-        }
-        Concept concept = ((Obs) obj).getValueCoded();
-        if(concept != null && concept.equals(Dictionary.getConcept("1822AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "✔";
-        }
-        else if(concept != null && concept.equals(Dictionary.getConcept("1072AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "✔";
-        }
-        else if(concept != null && concept.equals(Dictionary.getConcept("1073AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "✔";
-        }
-        else if(concept != null && concept.equals(Dictionary.getConcept("1074AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"))) {
-            return "✔";
-        }
-
-        return null;
-    }
+public class TimingForPNCDataConverter extends CodedLookupConverter {
 
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("1822AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "✔")
+            .put("1072AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "✔")
+            .put("1073AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "✔")
+            .put("1074AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "✔")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
-}
\ No newline at end of file
+}
@@ -13,43 +13,22 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  * 
  */
-public class TypeOfAdverseEventDataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
-        Obs obs = ((Obs) obj);
-        if(obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("ff40414d-a295-42a1-b643-1d25396c0b7f"))){
-            return "3";
-        }
-        else if(obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("86a23810-2d39-4ab7-b3b3-303e0a7e6261"))){
-            return "4";
-        }
-        else if(obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("dcd68a88-30ab-102d-86b0-7a5022ba4115"))){
-            return "6";
-        }
-        else if(obs.getValueCoded() != null && obs.getValueCoded().equals(Dictionary.getConcept("d99b872e-8116-4697-941d-fc14e98d5612"))){
-            return "2";
-        }
-        return null;
-    }
+public class TypeOfAdverseEventDataConverter extends CodedLookupConverter {
 
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+    private static final Map<String, Object> TABLE = table()
+            .put("ff40414d-a295-42a1-b643-1d25396c0b7f", "3")
+            .put("86a23810-2d39-4ab7-b3b3-303e0a7e6261", "4")
+            .put("dcd68a88-30ab-102d-86b0-7a5022ba4115", "6")
+            .put("d99b872e-8116-4697-941d-fc14e98d5612", "2")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
-}
\ No newline at end of file
+}
@@ -13,58 +13,25 @@
  */
 package org.openmrs.module.ugandaemrreports.data.converter;
 
-import org.openmrs.Concept;
-import org.openmrs.Obs;
-import org.openmrs.module.reporting.data.converter.DataConverter;
-import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
+import java.util.Map;
 
 /**
  */
-public class WHODataConverter implements DataConverter {
-    @Override
-    public Object convert(Object obj) {
-
-        if (obj == null) {
-            return "";
-        }
-        Concept whoResultsConcept = ((Obs) obj).getValueCoded();
-
-        if(whoResultsConcept != null && whoResultsConcept.equals(Dictionary.getConcept("dcda2bc2-30ab-102d-86b0-7a5022ba4115"))) {
-            return "1";
-        }
-        else if(whoResultsConcept != null && whoResultsConcept.equals(Dictionary.getConcept("dcda3251-30ab-102d-86b0-7a5022ba4115"))) {
-            return "2";
-        }
-        else if(whoResultsConcept != null && whoResultsConcept.equals(Dictionary.getConcept("dcda3663-30ab-102d-86b0-7a5022ba4115"))) {
-            return "3";
-        }
-        else if(whoResultsConcept != null && whoResultsConcept.equals(Dictionary.getConcept("dcda3a80-30ab-102d-86b0-7a5022ba4115"))) {
-            return "4";
-        }
-        else if(whoResultsConcept != null && whoResultsConcept.equals(Dictionary.getConcept("dd25e735-30ab-102d-86b0-7a5022ba4115"))) {
-            return "T1";
-        }
-        else if(whoResultsConcept != null && whoResultsConcept.equals(Dictionary.getConcept("dd2666a5-30ab-102d-86b0-7a5022ba4115"))) {
-            return "T2";
-        }
-
-        else if(whoResultsConcept != null && whoResultsConcept.equals(Dictionary.getConcept("dd266d64-30ab-102d-86b0-7a5022ba4115"))) {
-            return "T3";
-        }
-        else if(whoResultsConcept != null && whoResultsConcept.equals(Dictionary.getConcept("dd269c18-30ab-102d-86b0-7a5022ba4115"))) {
-            return "T4";
-        }
-
-        return null;
-    }
-
-    @Override
-    public Class<?> getInputDataType() {
-        return Obs.class;
-    }
+public class WHODataConverter extends CodedLookupConverter {
+
+    private static final Map<String, Object> TABLE = table()
+            .put("dcda2bc2-30ab-102d-86b0-7a5022ba4115", "1")
+            .put("dcda3251-30ab-102d-86b0-7a5022ba4115", "2")
+            .put("dcda3663-30ab-102d-86b0-7a5022ba4115", "3")
+            .put("dcda3a80-30ab-102d-86b0-7a5022ba4115", "4")
+            .put("dd25e735-30ab-102d-86b0-7a5022ba4115", "T1")
+            .put("dd2666a5-30ab-102d-86b0-7a5022ba4115", "T2")
+            .put("dd266d64-30ab-102d-86b0-7a5022ba4115", "T3")
+            .put("dd269c18-30ab-102d-86b0-7a5022ba4115", "T4")
+            .build();
 
     @Override
-    public Class<?> getDataType() {
-        return String.class;
+    protected Map<String, Object> getTable() {
+        return TABLE;
     }
 }
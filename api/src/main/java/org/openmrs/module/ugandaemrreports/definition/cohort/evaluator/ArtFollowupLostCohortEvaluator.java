@@ -1,22 +1,28 @@
 package org.openmrs.module.ugandaemrreports.definition.cohort.evaluator;
 
+import org.joda.time.Days;
 import org.joda.time.LocalDate;
 import org.openmrs.annotation.Handler;
 import org.openmrs.module.reporting.cohort.EvaluatedCohort;
 import org.openmrs.module.reporting.cohort.definition.CohortDefinition;
 import org.openmrs.module.reporting.cohort.definition.evaluator.CohortDefinitionEvaluator;
-import org.openmrs.module.reporting.common.DateUtil;
 import org.openmrs.module.reporting.evaluation.EvaluationContext;
 import org.openmrs.module.reporting.evaluation.EvaluationException;
-import org.openmrs.module.reporting.evaluation.querybuilder.SqlQueryBuilder;
-import org.openmrs.module.reporting.evaluation.service.EvaluationService;
+import org.openmrs.module.ugandaemrreports.common.ConnectionPool;
+import org.openmrs.module.ugandaemrreports.common.Enums;
+import org.openmrs.module.ugandaemrreports.common.NamedQuery;
 import org.openmrs.module.ugandaemrreports.common.StubDate;
 import org.openmrs.module.ugandaemrreports.definition.cohort.definition.ArtFollowupLostCohortDefinition;
 import org.openmrs.module.ugandaemrreports.metadata.HIVMetadata;
+import org.openmrs.module.ugandaemrreports.reporting.appointments.AppointmentTimeline;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.openmrs.module.ugandaemrreports.common.Helper.getDates;
 
@@ -25,9 +31,6 @@ import static org.openmrs.module.ugandaemrreports.common.Helper.getDates;
 @Handler(supports = {ArtFollowupLostCohortDefinition.class})
 public class ArtFollowupLostCohortEvaluator implements CohortDefinitionEvaluator {
 
-    @Autowired
-    EvaluationService evaluationService;
-
     @Autowired
     HIVMetadata hivMetadata;
 
@@ -42,70 +45,70 @@ public class ArtFollowupLostCohortEvaluator implements CohortDefinitionEvaluator
 
         List<Date> dates = getDates(beginningDate, cd.getPeriod(), cd.getPeriodInterval(), cd.getPeriodDifference());
 
-        String startDate = "";
-        String endDate = "";
+        Date startDate = null;
+        Date endDate = null;
 
         if (dates.size() == 1) {
-            startDate = DateUtil.formatDate(dates.get(0), "yyyy-MM-dd");
+            startDate = dates.get(0);
             endDate = startDate;
         } else if (dates.size() > 1) {
-            startDate = DateUtil.formatDate(dates.get(0), "yyyy-MM-dd");
-            endDate = DateUtil.formatDate(dates.get(1), "yyyy-MM-dd");
+            startDate = dates.get(0);
+            endDate = dates.get(1);
         }
 
-        String query = "SELECT\n" +
-                "  C.person_id\n" +
-                "FROM\n" +
-                "  (SELECT\n" +
-                "     A.person_id,\n" +
-                "     MAX(B.value_datetime) AS dt,\n" +
-                "     A.value_datetime\n" +
-                "   FROM (SELECT\n" +
-                "           person_id,\n" +
-                "           value_datetime\n" +
-                "         FROM obs\n" +
-                String.format("         WHERE concept_id = 99161 AND value_datetime BETWEEN '%s' AND '%s') A\n", startDate, endDate) +
-                "     INNER JOIN\n" +
-                "     (SELECT\n" +
-                "        person_id,\n" +
-                "        value_datetime\n" +
-                "      FROM obs\n" +
-                "      WHERE concept_id = 5096) B\n" +
-                String.format("       ON (B.person_id = A.person_id AND B.value_datetime <= DATE_ADD(A.value_datetime, INTERVAL %s %s))\n", cd.getPeriodDifference(), cd.getPeriod()) +
-                "   GROUP BY A.person_id) C INNER JOIN (SELECT\n" +
-                "                                         D.person_id,\n" +
-                "                                         MAX(E.encounter_datetime) AS max_encounter\n" +
-                "                                       FROM (SELECT\n" +
-                "                                               person_id,\n" +
-                "                                               value_datetime\n" +
-                "                                             FROM obs\n" +
-                "                                             WHERE concept_id = 99161 AND\n" +
-                String.format("                                                   value_datetime BETWEEN '%s' AND '%s') D\n", startDate, endDate) +
-                "                                         INNER JOIN\n" +
-                "                                         (SELECT\n" +
-                "                                            patient_id,\n" +
-                "                                            encounter_datetime\n" +
-                "                                          FROM encounter) E\n" +
-                "                                           ON (E.patient_id = D.person_id AND\n" +
-                "                                               E.encounter_datetime <= DATE_ADD(D.value_datetime, INTERVAL 1 QUARTER))\n" +
-                "                                       GROUP BY D.person_id) F\n";
-        if (cd.getLostToFollowup()) {
-            query = query + "    ON (F.person_id = C.person_id AND datediff(F.max_encounter, C.dt) >= 90)";
-        } else {
-            query = query + "    ON (F.person_id = C.person_id AND datediff(F.max_encounter, C.dt) BETWEEN 7 AND 89 )";
-
+        NamedQuery.Parameters parameters = NamedQuery.parameters()
+                .date("startDate", startDate)
+                .date("endDate", endDate);
+        int minDays = cd.getLostToFollowup() ? 90 : 7;
+        int maxDays = cd.getLostToFollowup() ? Integer.MAX_VALUE : 89;
+
+        Map<Integer, Date> artStartDates = new HashMap<Integer, Date>();
+        try (Connection connection = ConnectionPool.getInstance().checkout(cd.getName())) {
+            for (Object[] row : NamedQuery.get("art-start-between").list(connection, parameters, rs -> new Object[]{rs.getInt(1), rs.getDate(2)})) {
+                Date artStartDate = (Date) row[1];
+                if (!artStartDates.containsKey(row[0]) || artStartDate.before(artStartDates.get(row[0]))) {
+                    artStartDates.put((Integer) row[0], artStartDate);
+                }
+            }
+        } catch (SQLException e) {
+            throw new EvaluationException("ART followup lost cohort", e);
         }
 
-        SqlQueryBuilder q = new SqlQueryBuilder(query);
-        List<Object[]> results = evaluationService.evaluateToList(q, context);
-
-        for (Object[] row : results) {
-            Integer pId = (Integer) row[0];
-            ret.addMember(pId);
+        AppointmentTimeline timeline;
+        try {
+            timeline = AppointmentTimeline.forRun(context);
+        } catch (SQLException e) {
+            throw new EvaluationException("appointment timeline", e);
+        }
+        // days between the last appointment set within the period of starting and the last visit in the first quarter
+        for (Map.Entry<Integer, Date> artStart : artStartDates.entrySet()) {
+            LocalDate artStartDate = StubDate.dateOf(artStart.getValue());
+            Date appointment = timeline.lastAppointmentOnOrBefore(artStart.getKey(), plus(artStartDate, cd.getPeriod(), cd.getPeriodDifference()).toDate());
+            Date lastVisit = timeline.lastVisitOnOrBefore(artStart.getKey(), artStartDate.plusMonths(3).toDate());
+            if (appointment != null && lastVisit != null) {
+                int days = Days.daysBetween(StubDate.dateOf(appointment), StubDate.dateOf(lastVisit)).getDays();
+                if (days >= minDays && days <= maxDays) {
+                    ret.addMember(artStart.getKey());
+                }
+            }
         }
 
         return ret;
     }
 
+    private LocalDate plus(LocalDate date, Enums.Period period, Integer difference) {
+        int n = difference == null ? 0 : difference;
+        switch (period) {
+            case WEEKLY:
+                return date.plusWeeks(n);
+            case QUARTERLY:
+                return date.plusMonths(3 * n);
+            case YEARLY:
+                return date.plusYears(n);
+            default:
+                return date.plusMonths(n);
+        }
+    }
+
 
 }
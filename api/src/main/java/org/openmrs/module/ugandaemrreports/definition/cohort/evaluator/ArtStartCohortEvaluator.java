@@ -6,19 +6,21 @@ import org.openmrs.annotation.Handler;
 import org.openmrs.module.reporting.cohort.EvaluatedCohort;
 import org.openmrs.module.reporting.cohort.definition.CohortDefinition;
 import org.openmrs.module.reporting.cohort.definition.evaluator.CohortDefinitionEvaluator;
-import org.openmrs.module.reporting.common.DateUtil;
 import org.openmrs.module.reporting.evaluation.EvaluationContext;
 import org.openmrs.module.reporting.evaluation.EvaluationException;
 import org.openmrs.module.reporting.evaluation.querybuilder.HqlQueryBuilder;
-import org.openmrs.module.reporting.evaluation.querybuilder.SqlQueryBuilder;
 import org.openmrs.module.reporting.evaluation.service.EvaluationService;
+import org.openmrs.module.ugandaemrreports.common.ConnectionPool;
 import org.openmrs.module.ugandaemrreports.common.Enums;
+import org.openmrs.module.ugandaemrreports.common.NamedQuery;
 import org.openmrs.module.ugandaemrreports.common.Periods;
 import org.openmrs.module.ugandaemrreports.common.StubDate;
 import org.openmrs.module.ugandaemrreports.definition.cohort.definition.ArtStartCohortDefinition;
 import org.openmrs.module.ugandaemrreports.metadata.HIVMetadata;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -50,8 +52,6 @@ public class ArtStartCohortEvaluator implements CohortDefinitionEvaluator {
         Date artDate = cd.getStartDate();
         LocalDate beginningDate = StubDate.dateOf(artDate);
 
-        String startDate = DateUtil.formatDate(cd.getStartDate(), "yyyy-MM-dd");
-
         List<Date> dates = getDates(beginningDate, cd.getPeriod(), cd.getPeriodInterval(), cd.getPeriodDifference());
 
         HqlQueryBuilder obsQuery = new HqlQueryBuilder();
@@ -66,20 +66,20 @@ public class ArtStartCohortEvaluator implements CohortDefinitionEvaluator {
         }
         obsQuery.whereEqual("o.person.personVoided", false);
 
+        if (cd.getPeriodDifference() != null && cd.getStartDate() != null) {
 //        period on art  query
-        String sql =String.format("select person_id from obs o  where timestampdiff(month ,value_datetime,'%s') >= '%d' and concept_id = \n",startDate,cd.getPeriodDifference()) +
-                "(select concept_id from concept where concept.uuid='ab505422-26d9-41f1-a079-c3d222000440') and o.voided= 0 group by person_id ";
-
-        SqlQueryBuilder q = new SqlQueryBuilder();
-        q.append(sql);
-
-        if(cd.getPeriodDifference()!=null && cd.getStartDate()!=null){
-            List<Integer> patients=this.evaluationService.evaluateToList(q, Integer.class, context);
-            ret.getMemberIds().addAll(patients);
-        }else{
-
-        List<Integer> pIds = this.evaluationService.evaluateToList(obsQuery, Integer.class, context);
-        ret.getMemberIds().addAll(pIds);}
+            NamedQuery.Parameters parameters = NamedQuery.parameters()
+                    .date("startDate", cd.getStartDate())
+                    .integer("months", cd.getPeriodDifference());
+            try (Connection connection = ConnectionPool.getInstance().checkout(cd.getName())) {
+                ret.getMemberIds().addAll(NamedQuery.get("art-duration").ids(connection, parameters));
+            } catch (SQLException e) {
+                throw new EvaluationException("ART duration cohort", e);
+            }
+        } else {
+            List<Integer> pIds = this.evaluationService.evaluateToList(obsQuery, Integer.class, context);
+            ret.getMemberIds().addAll(pIds);
+        }
         return ret;
     }
 }
@@ -7,16 +7,17 @@ import org.openmrs.annotation.Handler;
 import org.openmrs.module.reporting.cohort.EvaluatedCohort;
 import org.openmrs.module.reporting.cohort.definition.CohortDefinition;
 import org.openmrs.module.reporting.cohort.definition.evaluator.CohortDefinitionEvaluator;
-import org.openmrs.module.reporting.common.DateUtil;
 import org.openmrs.module.reporting.evaluation.EvaluationContext;
 import org.openmrs.module.reporting.evaluation.EvaluationException;
-import org.openmrs.module.reporting.evaluation.querybuilder.SqlQueryBuilder;
-import org.openmrs.module.reporting.evaluation.service.EvaluationService;
+import org.openmrs.module.ugandaemrreports.common.ConnectionPool;
+import org.openmrs.module.ugandaemrreports.common.NamedQuery;
 import org.openmrs.module.ugandaemrreports.definition.cohort.definition.DSDMAdherenceCohortDefinition;
 import org.openmrs.module.ugandaemrreports.definition.cohort.definition.DSDMCohortDefinition;
 import org.openmrs.module.ugandaemrreports.metadata.HIVMetadata;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -27,9 +28,6 @@ import java.util.List;
 @Handler(supports = {DSDMAdherenceCohortDefinition.class})
 public class DSDMAdherenceCohortDefinitionEvaluator implements CohortDefinitionEvaluator {
 
-    @Autowired
-    EvaluationService evaluationService;
-
     @Autowired
     HIVMetadata hivMetadata;
 
@@ -38,21 +36,16 @@ public class DSDMAdherenceCohortDefinitionEvaluator implements CohortDefinitionE
         EvaluatedCohort ret = new EvaluatedCohort(cohortDefinition, context);
         DSDMAdherenceCohortDefinition cd = (DSDMAdherenceCohortDefinition) cohortDefinition;
 
-        String startDate = "";
-        String endDate = "";
-
-        startDate = DateUtil.formatDate(cd.getStartDate(), "yyyy-MM-dd");
-        endDate = DateUtil.formatDate(cd.getEndDate(), "yyyy-MM-dd");
+        NamedQuery.Parameters parameters = NamedQuery.parameters()
+                .date("startDate", cd.getStartDate());
 
+        List<Object[]> results;
+        try (Connection connection = ConnectionPool.getInstance().checkout(cd.getName())) {
+            results = NamedQuery.get("dsdm-adherence").list(connection, parameters, rs -> new Object[]{rs.getInt(1), rs.getString(2)});
+        } catch (SQLException e) {
+            throw new EvaluationException("DSDM adherence cohort", e);
+        }
 
-        String sql = "select person_id,group_concat(value_coded separator ',') as value_coded from obs where concept_id= \n" +
-                "            (select concept_id from concept where concept.uuid='dce03b2f-30ab-102d-86b0-7a5022ba4115') and \n" +
-                        String.format(   "     obs_datetime >= date_sub('%s', interval 6 month)  and obs_datetime < '%s' and voided=0 group by person_id",startDate,startDate);
-
-        SqlQueryBuilder q = new SqlQueryBuilder();
-        q.append(sql);
-
-        List<Object[]> results = evaluationService.evaluateToList(q, context);
         HashSet<Integer> detectedSet = new HashSet<Integer>();
         for (Object[] row : results) {
             Integer pId = (Integer) row[0];
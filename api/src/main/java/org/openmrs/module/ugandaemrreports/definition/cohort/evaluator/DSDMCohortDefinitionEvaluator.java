@@ -4,26 +4,23 @@ import org.openmrs.annotation.Handler;
 import org.openmrs.module.reporting.cohort.EvaluatedCohort;
 import org.openmrs.module.reporting.cohort.definition.CohortDefinition;
 import org.openmrs.module.reporting.cohort.definition.evaluator.CohortDefinitionEvaluator;
-import org.openmrs.module.reporting.common.DateUtil;
 import org.openmrs.module.reporting.evaluation.EvaluationContext;
 import org.openmrs.module.reporting.evaluation.EvaluationException;
-import org.openmrs.module.reporting.evaluation.querybuilder.SqlQueryBuilder;
-import org.openmrs.module.reporting.evaluation.service.EvaluationService;
+import org.openmrs.module.ugandaemrreports.common.ConnectionPool;
+import org.openmrs.module.ugandaemrreports.common.NamedQuery;
 import org.openmrs.module.ugandaemrreports.definition.cohort.definition.DSDMCohortDefinition;
 import org.openmrs.module.ugandaemrreports.metadata.HIVMetadata;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.HashSet;
-import java.util.List;
 
 /**
  */
 @Handler(supports = {DSDMCohortDefinition.class})
 public class DSDMCohortDefinitionEvaluator implements CohortDefinitionEvaluator {
 
-    @Autowired
-    EvaluationService evaluationService;
-
     @Autowired
     HIVMetadata hivMetadata;
 
@@ -32,20 +29,16 @@ public class DSDMCohortDefinitionEvaluator implements CohortDefinitionEvaluator
         EvaluatedCohort ret = new EvaluatedCohort(cohortDefinition, context);
         DSDMCohortDefinition cd = (DSDMCohortDefinition) cohortDefinition;
 
-        String startDate = "";
-        String endDate = "";
-
-        startDate = DateUtil.formatDate(cd.getStartDate(), "yyyy-MM-dd");
-        endDate = DateUtil.formatDate(cd.getEndDate(), "yyyy-MM-dd");
-
 //         total numbers enrolled on a program
-        String query = "SELECT p.patient_id FROM patient a inner join  patient_program p on a.patient_id = p.patient_id  " + " " + String.format("   WHERE  p.date_enrolled between '%s' AND '%s' AND p.date_completed IS NULL GROUP BY p.patient_id  \n", startDate, endDate);
-
-        SqlQueryBuilder q = new SqlQueryBuilder();
-        q.append(query);
-        List<Integer> results = evaluationService.evaluateToList(q, Integer.class, context);
-        HashSet<Integer> detectedSet = new HashSet<Integer>(results);
-        ret.setMemberIds(detectedSet);
+        NamedQuery.Parameters parameters = NamedQuery.parameters()
+                .date("startDate", cd.getStartDate())
+                .date("endDate", cd.getEndDate());
+
+        try (Connection connection = ConnectionPool.getInstance().checkout(cd.getName())) {
+            ret.setMemberIds(new HashSet<Integer>(NamedQuery.get("dsdm-enrolled").ids(connection, parameters)));
+        } catch (SQLException e) {
+            throw new EvaluationException("DSDM cohort", e);
+        }
         return ret;
     }
 }
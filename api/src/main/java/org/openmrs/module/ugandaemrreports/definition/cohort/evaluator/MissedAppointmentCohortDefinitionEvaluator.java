@@ -1,49 +1,68 @@
 package org.openmrs.module.ugandaemrreports.definition.cohort.evaluator;
 
-import org.apache.commons.collections.CollectionUtils;
+import org.joda.time.LocalDate;
 import org.openmrs.annotation.Handler;
 import org.openmrs.module.reporting.cohort.EvaluatedCohort;
 import org.openmrs.module.reporting.cohort.definition.CohortDefinition;
 import org.openmrs.module.reporting.cohort.definition.evaluator.CohortDefinitionEvaluator;
 import org.openmrs.module.reporting.evaluation.EvaluationContext;
 import org.openmrs.module.reporting.evaluation.EvaluationException;
-import org.openmrs.module.reporting.evaluation.querybuilder.SqlQueryBuilder;
-import org.openmrs.module.reporting.evaluation.service.EvaluationService;
+import org.openmrs.module.ugandaemrreports.common.ConnectionPool;
+import org.openmrs.module.ugandaemrreports.common.NamedQuery;
+import org.openmrs.module.ugandaemrreports.common.StubDate;
 import org.openmrs.module.ugandaemrreports.definition.cohort.definition.MissedAppointmentCohortDefinition;
-import org.openmrs.module.ugandaemrreports.metadata.HIVMetadata;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.openmrs.module.ugandaemrreports.reporting.appointments.AppointmentTimeline;
+import org.openmrs.module.ugandaemrreports.reporting.facts.ArtFacts;
 
-import java.util.Collection;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Date;
 import java.util.List;
 
 /**
+ * Patients followed for at least a year after starting ART whose visits in that first year were all scheduled visits
  */
 @Handler(supports = {MissedAppointmentCohortDefinition.class})
 public class MissedAppointmentCohortDefinitionEvaluator implements CohortDefinitionEvaluator {
 
-    @Autowired
-    EvaluationService evaluationService;
-
     @Override
     public EvaluatedCohort evaluate(CohortDefinition cohortDefinition, EvaluationContext context) throws EvaluationException {
         EvaluatedCohort ret = new EvaluatedCohort(cohortDefinition, context);
         MissedAppointmentCohortDefinition cd = (MissedAppointmentCohortDefinition) cohortDefinition;
 
-        SqlQueryBuilder atLeastOneMissedAppointment = new SqlQueryBuilder();
-
-        atLeastOneMissedAppointment.append("select e.patient_id from encounter e inner join obs oi on(oi.concept_id = 99161 and oi.person_id = e.patient_id and e.encounter_datetime  BETWEEN oi.value_datetime and DATE_ADD(oi.value_datetime, INTERVAL 1 YEAR)) inner join (select patient_id,MAX(encounter_datetime) as max_date from encounter group by patient_id) eo on(eo.patient_id = e.patient_id and DATEDIFF(eo.max_date, oi.value_datetime) >= 365) where e.encounter_id not in (select o.encounter_id from obs o where o.concept_id = 90069 group by o.encounter_id ) group by e.patient_id");
-
-        SqlQueryBuilder atLeastOneScheduledAppointment = new SqlQueryBuilder();
-
-        atLeastOneScheduledAppointment.append("select e.patient_id from encounter e inner join obs oi on(oi.concept_id = 99161 and oi.person_id = e.patient_id and e.encounter_datetime  BETWEEN oi.value_datetime and DATE_ADD(oi.value_datetime, INTERVAL 1 YEAR)) inner join (select patient_id,MAX(encounter_datetime) as max_date from encounter group by patient_id) eo on(eo.patient_id = e.patient_id and DATEDIFF(eo.max_date, oi.value_datetime) >= 365) where e.encounter_id in (select o.encounter_id from obs o where o.concept_id = 90069 group by o.encounter_id ) group by e.patient_id");
-
-        List<Integer> atLeastOneMissedAppointmentResult = evaluationService.evaluateToList(atLeastOneMissedAppointment, Integer.class, context);
-        List<Integer> atLeastOneScheduledAppointmentResult = evaluationService.evaluateToList(atLeastOneScheduledAppointment, Integer.class, context);
-
-        Collection<Integer> aMinusB = CollectionUtils.subtract(atLeastOneScheduledAppointmentResult, atLeastOneMissedAppointmentResult);
+        List<Object[]> artStartDates;
+        try (Connection connection = ConnectionPool.getInstance().checkout("missed appointments")) {
+            artStartDates = NamedQuery.get(ArtFacts.isReady() ? "art-start-facts" : "art-start").list(connection, NamedQuery.parameters(),
+                    rs -> new Object[]{rs.getInt(1), rs.getDate(2)});
+        } catch (SQLException e) {
+            throw new EvaluationException("missed appointment cohort", e);
+        }
+        AppointmentTimeline timeline;
+        try {
+            timeline = AppointmentTimeline.forRun(context);
+        } catch (SQLException e) {
+            throw new EvaluationException("appointment timeline", e);
+        }
 
-        for (Integer person_id : aMinusB) {
-            ret.addMember(person_id);
+        for (Object[] row : artStartDates) {
+            Integer patientId = (Integer) row[0];
+            LocalDate artStartDate = StubDate.dateOf((Date) row[1]);
+            Date endOfFirstYear = artStartDate.plusYears(1).toDate();
+            List<AppointmentTimeline.Visit> visits = timeline.visits(patientId);
+            if (visits.isEmpty() || visits.get(visits.size() - 1).getDate().before(artStartDate.plusDays(365).toDate())) {
+                continue;
+            }
+            boolean scheduled = false;
+            boolean missed = false;
+            for (AppointmentTimeline.Visit visit : visits) {
+                if (!visit.getDate().before(artStartDate.toDate()) && !visit.getDate().after(endOfFirstYear)) {
+                    scheduled |= visit.isScheduled();
+                    missed |= !visit.isScheduled();
+                }
+            }
+            if (scheduled && !missed) {
+                ret.addMember(patientId);
+            }
         }
 
         return ret;
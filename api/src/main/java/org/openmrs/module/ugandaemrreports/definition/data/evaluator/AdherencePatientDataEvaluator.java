@@ -12,9 +12,9 @@ import org.openmrs.module.reporting.data.patient.evaluator.SqlPatientDataEvaluat
 import org.openmrs.module.reporting.data.patient.service.PatientDataService;
 import org.openmrs.module.reporting.evaluation.EvaluationContext;
 import org.openmrs.module.reporting.evaluation.EvaluationException;
-import org.openmrs.module.reporting.evaluation.querybuilder.SqlQueryBuilder;
-import org.openmrs.module.reporting.evaluation.service.EvaluationService;
 import org.openmrs.module.ugandaemrreports.common.Adherence;
+import org.openmrs.module.ugandaemrreports.common.ConnectionPool;
+import org.openmrs.module.ugandaemrreports.common.NamedQuery;
 import org.openmrs.module.ugandaemrreports.common.StubDate;
 import org.openmrs.module.ugandaemrreports.definition.data.definition.AdherencePatientDataDefinition;
 import org.openmrs.module.ugandaemrreports.definition.data.definition.FUStatusPatientDataDefinition;
@@ -22,6 +22,8 @@ import org.openmrs.module.ugandaemrreports.library.HIVPatientDataLibrary;
 import org.openmrs.module.ugandaemrreports.metadata.HIVMetadata;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.*;
 
 import static java.util.stream.Collectors.groupingBy;
@@ -38,9 +40,6 @@ public class AdherencePatientDataEvaluator implements PatientDataEvaluator {
     @Autowired
     private PatientDataService patientDataService;
 
-    @Autowired
-    private EvaluationService evaluationService;
-
     @Autowired
     private SqlPatientDataEvaluator sqlPatientDataEvaluator;
 
@@ -63,17 +62,16 @@ public class AdherencePatientDataEvaluator implements PatientDataEvaluator {
         LocalDate workingDate = StubDate.dateOf(DateUtil.formatDate(def.getStartDate(), "yyyy-MM-dd"));
 
 
-        String startDate = DateUtil.formatDate(def.getStartDate(), "yyyy-MM-dd");
-        String endDate = DateUtil.formatDate(def.getEndDate(), "yyyy-MM-dd");
-
-        String query = String.format("select o.person_id,cn.name,o.obs_datetime  from obs o\n" +
-                "inner join  (concept_name cn) on o.value_coded = cn.concept_id \n" +
-                "where o.concept_id = 90221 and obs_datetime >= date_sub('%s', interval 6 month) and cn.concept_name_type='FULLY_SPECIFIED' and obs_datetime < '%s';", startDate, startDate);
+        NamedQuery.Parameters parameters = NamedQuery.parameters()
+                .date("startDate", def.getStartDate());
 
-
-        SqlQueryBuilder q = new SqlQueryBuilder(query);
-
-        List<Object[]> results = evaluationService.evaluateToList(q, context);
+        List<Object[]> results;
+        try (Connection connection = ConnectionPool.getInstance().checkout(def.getName())) {
+            results = NamedQuery.get("adherence-ratings").list(connection, parameters,
+                    rs -> new Object[]{rs.getObject(1), rs.getObject(2), rs.getObject(3)});
+        } catch (SQLException e) {
+            throw new EvaluationException("Adherence data", e);
+        }
 
 
         List<Adherence> adherences = new ArrayList<>();
@@ -1,23 +1,23 @@
 package org.openmrs.module.ugandaemrreports.definition.data.evaluator;
 
-import com.google.common.base.Joiner;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.joda.time.LocalDate;
 import org.openmrs.annotation.Handler;
 import org.openmrs.module.reporting.data.patient.EvaluatedPatientData;
 import org.openmrs.module.reporting.data.patient.definition.PatientDataDefinition;
 import org.openmrs.module.reporting.data.patient.evaluator.PatientDataEvaluator;
 import org.openmrs.module.reporting.evaluation.EvaluationContext;
 import org.openmrs.module.reporting.evaluation.EvaluationException;
-import org.openmrs.module.reporting.evaluation.querybuilder.SqlQueryBuilder;
-import org.openmrs.module.reporting.evaluation.service.EvaluationService;
+import org.openmrs.module.ugandaemrreports.common.CohortParameter;
+import org.openmrs.module.ugandaemrreports.common.ConnectionPool;
+import org.openmrs.module.ugandaemrreports.common.NamedQuery;
 import org.openmrs.module.ugandaemrreports.common.PatientARV;
-import org.openmrs.module.ugandaemrreports.common.StubDate;
 import org.openmrs.module.ugandaemrreports.definition.data.definition.CBSPatientARVDataDefinition;
 import org.openmrs.module.ugandaemrreports.metadata.HIVMetadata;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Set;
 
@@ -26,8 +26,6 @@ public class CBSPatientARVDataEvaluator
         implements PatientDataEvaluator {
     protected static final Log log = LogFactory.getLog(CBSPatientARVDataEvaluator.class);
 
-    @Autowired
-    private EvaluationService evaluationService;
     @Autowired
     private HIVMetadata hivMetadata;
 
@@ -41,24 +39,25 @@ public class CBSPatientARVDataEvaluator
             return c;
         }
 
-        LocalDate workingDate = StubDate.dateOf(def.getStartDate());
-
-        String startDateString = workingDate.toString("yyyy-MM-dd");
-
         Set<Integer> members = def.getCohort().getMemberIds();
 
-        String membersString = Joiner.on(",").join(members);
-
         Integer encounter = this.hivMetadata.getARTEncounterEncounterType().getEncounterTypeId();
         Integer summary = this.hivMetadata.getARTSummaryEncounter().getEncounterTypeId();
 
-        String query = "SELECT\n  p.person_id,\n  TIMESTAMPDIFF(YEAR, p.birthdate, B.encounter_datetime)                 AS age,\n  TIMESTAMPDIFF(MONTH, summary.encounter_datetime, B.encounter_datetime) AS dt,\n  B.value_coded\nFROM encounter summary INNER JOIN\n  (SELECT\n     e.patient_id,\n     e.encounter_id,\n     e.encounter_datetime,\n     o.value_coded\n   FROM encounter e INNER JOIN obs o\n       ON (\n" + String.format("       o.concept_id = 90315 AND e.patient_id IN (%s) AND o.person_id = e.patient_id AND\n", new Object[]{membersString}) + String.format("       e.encounter_id = o.encounter_id AND encounter_type = %s\n", new Object[]{encounter}) + String.format("       AND encounter_datetime BETWEEN DATE_ADD('%s', INTERVAL 6 MONTH) AND\n", new Object[]{startDateString}) + String.format("       DATE_ADD('%s', INTERVAL 75 MONTH) - INTERVAL 1 DAY)) B\n", new Object[]{startDateString}) + String.format("    ON (summary.patient_id = B.patient_id AND summary.encounter_type = %s AND\n", new Object[]{summary}) + "        TIMESTAMPDIFF(MONTH, summary.encounter_datetime, B.encounter_datetime) BETWEEN 6 AND 72)\n" + "  INNER JOIN person p ON (summary.patient_id = p.person_id)";
+        final NamedQuery query = NamedQuery.get("cbs-patient-arvs");
 
         Integer begin;
 
         if (members.size() != 0) {
-            SqlQueryBuilder q = new SqlQueryBuilder(query);
-            List<Object[]> results = this.evaluationService.evaluateToList(q, context);
+            List<Object[]> results;
+            try (Connection connection = ConnectionPool.getInstance().checkout("CBS patient ARV data")) {
+                results = CohortParameter.boundList(members, batch -> query.list(connection,
+                        NamedQuery.parameters().date("startDate", def.getStartDate()).integer("encounterType", encounter)
+                                .integer("summaryType", summary).ids("patientIds", batch),
+                        rs -> new Object[]{rs.getObject(1), rs.getObject(2), rs.getObject(3), rs.getObject(4)}));
+            } catch (SQLException e) {
+                throw new EvaluationException("CBS patient ARV data", e);
+            }
             begin = Integer.valueOf(1);
             for (Object[] row : results) {
                 Integer patientId = Integer.valueOf(String.valueOf(row[0]));
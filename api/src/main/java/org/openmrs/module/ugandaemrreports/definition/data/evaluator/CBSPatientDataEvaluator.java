@@ -1,23 +1,22 @@
 package org.openmrs.module.ugandaemrreports.definition.data.evaluator;
 
- import com.google.common.base.Joiner;
+ import java.sql.Connection;
+ import java.sql.SQLException;
  import java.util.List;
  import org.apache.commons.logging.Log;
  import org.apache.commons.logging.LogFactory;
- import org.joda.time.LocalDate;
  import org.openmrs.Cohort;
  import org.openmrs.EncounterType;
  import org.openmrs.annotation.Handler;
- import org.openmrs.module.reporting.common.ObjectUtil;
  import org.openmrs.module.reporting.data.patient.EvaluatedPatientData;
  import org.openmrs.module.reporting.data.patient.definition.PatientDataDefinition;
  import org.openmrs.module.reporting.data.patient.evaluator.PatientDataEvaluator;
  import org.openmrs.module.reporting.evaluation.EvaluationContext;
  import org.openmrs.module.reporting.evaluation.EvaluationException;
- import org.openmrs.module.reporting.evaluation.querybuilder.SqlQueryBuilder;
- import org.openmrs.module.reporting.evaluation.service.EvaluationService;
+ import org.openmrs.module.ugandaemrreports.common.CohortParameter;
+ import org.openmrs.module.ugandaemrreports.common.ConnectionPool;
+ import org.openmrs.module.ugandaemrreports.common.NamedQuery;
  import org.openmrs.module.ugandaemrreports.common.PatientMonthData;
- import org.openmrs.module.ugandaemrreports.common.StubDate;
  import org.openmrs.module.ugandaemrreports.definition.data.definition.CBSPatientDataDefinition;
  import org.openmrs.module.ugandaemrreports.metadata.HIVMetadata;
  import org.springframework.beans.factory.annotation.Autowired;
@@ -28,8 +27,6 @@ package org.openmrs.module.ugandaemrreports.definition.data.evaluator;
  {
    protected static final Log log = LogFactory.getLog(CBSPatientDataEvaluator.class);
 
-   @Autowired
-   private EvaluationService evaluationService;
    @Autowired
    private HIVMetadata hivMetadata;
 
@@ -40,25 +37,21 @@ package org.openmrs.module.ugandaemrreports.definition.data.evaluator;
 
      EvaluatedPatientData c = new EvaluatedPatientData(def, evaluationContext);
 
-     LocalDate workingDate = StubDate.dateOf(def.getStartDate());
-
-     String startDateString = workingDate.toString("yyyy-MM-dd");
-
-     String membersString = Joiner.on(",").join(def.getCohort().getMemberIds());
-
-     evaluationContext = (EvaluationContext)ObjectUtil.nvl(evaluationContext, new EvaluationContext());
-
      Integer encounter = this.hivMetadata.getARTEncounterEncounterType().getEncounterTypeId();
      Integer summary = this.hivMetadata.getARTSummaryEncounter().getEncounterTypeId();
 
-
-     String query = "SELECT\n  patient_id,\n" + String.format("  TIMESTAMPDIFF(MONTH, encounter_datetime, DATE_ADD('%s', INTERVAL 75 MONTH) - INTERVAL 1 DAY) AS art_start,\n", new Object[] { startDateString }) + "  1                                                                                                    AS other\n" + "FROM encounter\n" + String.format("WHERE patient_id IN (%s) AND encounter_type = %s AND\n", new Object[] { membersString, encounter }) + String.format("      encounter_datetime BETWEEN DATE_ADD('%s', INTERVAL 6 MONTH) AND\n", new Object[] { startDateString }) + String.format("      DATE_ADD('%s', INTERVAL 75 MONTH) - INTERVAL 1 DAY\n", new Object[] { startDateString }) + "UNION ALL\n" + "SELECT\n" + "  person_id,\n" + String.format("  TIMESTAMPDIFF(MONTH, value_datetime, DATE_ADD('%s', INTERVAL 75 MONTH) - INTERVAL 1 DAY) AS art_start,\n", new Object[] { startDateString }) + "  2                                                                                                AS other\n" + "FROM obs\n" + "WHERE\n" + String.format("  person_id IN (%s) AND concept_id = 5096 AND value_datetime BETWEEN DATE_ADD('%s', INTERVAL 6 MONTH) AND\n", new Object[] { membersString, startDateString }) + String.format("  DATE_ADD('%s', INTERVAL 75 MONTH) - INTERVAL 1 DAY\n", new Object[] { startDateString }) + "UNION ALL\n" + "SELECT\n" + "  person_id,\n" + String.format("  TIMESTAMPDIFF(MONTH, death_date, DATE_ADD('%s', INTERVAL 75 MONTH) - INTERVAL 1 DAY) AS art_start,\n", new Object[] { startDateString }) + "  3                                                                                            AS other\n" + "FROM person\n" + String.format("WHERE person_id IN (%s) AND death_date BETWEEN DATE_ADD('%s', INTERVAL 6 MONTH) AND\n", new Object[] { membersString, startDateString }) + String.format("DATE_ADD('%s', INTERVAL 75 MONTH) - INTERVAL 1 DAY", new Object[] { startDateString });
+     final NamedQuery query = NamedQuery.get("cbs-patient-months");
 
      Integer begin;
      if (def.getCohort().size() != 0) {
-       SqlQueryBuilder q = new SqlQueryBuilder(query);
-
-       List<Object[]> results = this.evaluationService.evaluateToList(q, evaluationContext);
+       List<Object[]> results;
+       try (Connection connection = ConnectionPool.getInstance().checkout("CBS patient data")) {
+         results = CohortParameter.boundList(def.getCohort().getMemberIds(), batch -> query.list(connection,
+                 NamedQuery.parameters().date("startDate", def.getStartDate()).integer("encounterType", encounter).ids("patientIds", batch),
+                 rs -> new Object[] { rs.getObject(1), rs.getObject(2), rs.getObject(3) }));
+       } catch (SQLException e) {
+         throw new EvaluationException("CBS patient data", e);
+       }
        begin = Integer.valueOf(1);
        for (Object[] row : results) {
          Integer patientId = Integer.valueOf(String.valueOf(row[0]));
@@ -3,7 +3,6 @@ package org.openmrs.module.ugandaemrreports.definition.data.evaluator;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.annotation.Handler;
-import org.openmrs.module.reporting.common.DateUtil;
 import org.openmrs.module.reporting.data.patient.EvaluatedPatientData;
 import org.openmrs.module.reporting.data.patient.definition.PatientDataDefinition;
 import org.openmrs.module.reporting.data.patient.evaluator.PatientDataEvaluator;
@@ -11,15 +10,17 @@ import org.openmrs.module.reporting.data.patient.evaluator.SqlPatientDataEvaluat
 import org.openmrs.module.reporting.data.patient.service.PatientDataService;
 import org.openmrs.module.reporting.evaluation.EvaluationContext;
 import org.openmrs.module.reporting.evaluation.EvaluationException;
-import org.openmrs.module.reporting.evaluation.querybuilder.SqlQueryBuilder;
-import org.openmrs.module.reporting.evaluation.service.EvaluationService;
+import org.openmrs.module.ugandaemrreports.common.ConnectionPool;
 import org.openmrs.module.ugandaemrreports.common.DSDMModel;
+import org.openmrs.module.ugandaemrreports.common.NamedQuery;
 import org.openmrs.module.ugandaemrreports.definition.data.definition.DSDMModelDataDefinition;
 import org.openmrs.module.ugandaemrreports.definition.data.definition.FUStatusPatientDataDefinition;
 import org.openmrs.module.ugandaemrreports.library.HIVPatientDataLibrary;
 import org.openmrs.module.ugandaemrreports.metadata.HIVMetadata;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.Date;
 import java.util.List;
 
@@ -35,9 +36,6 @@ public class DSDMModelDataDefinitionEvaluator implements PatientDataEvaluator {
     @Autowired
     private PatientDataService patientDataService;
 
-    @Autowired
-    private EvaluationService evaluationService;
-
     @Autowired
     private SqlPatientDataEvaluator sqlPatientDataEvaluator;
 
@@ -53,17 +51,14 @@ public class DSDMModelDataDefinitionEvaluator implements PatientDataEvaluator {
             return c;
         }
 
-        String endDate = DateUtil.formatDate(def.getEndDate(), "yyyy-MM-dd");
-
-        String query = "Select pg.patient_id, p.name,pg.date_enrolled,pg.date_completed\n" +
-                "             from patient_program as pg\n" +
-                "             Inner join program p on p.program_id=pg.program_id\n" +
-                "where ((pg.date_completed > '"+endDate+"') OR date_completed IS NULL)  group by pg.patient_id";
+        NamedQuery.Parameters parameters = NamedQuery.parameters().date("endDate", def.getEndDate());
 
-
-        SqlQueryBuilder q = new SqlQueryBuilder(query);
-
-        List<Object[]> results = evaluationService.evaluateToList(q, context);
+        List<Object[]> results;
+        try (Connection connection = ConnectionPool.getInstance().checkout(def.getName())) {
+            results = NamedQuery.get("dsdm-programs").rows(connection, parameters);
+        } catch (SQLException e) {
+            throw new EvaluationException("DSDM model", e);
+        }
 
 
         for (Object[] row : results) {
@@ -0,0 +1,15 @@
+package org.openmrs.module.ugandaemrreports.definition.dataset.definition;
+
+import org.openmrs.module.reporting.dataset.definition.CohortIndicatorDataSetDefinition;
+
+/**
+ * A cohort indicator data set of the MOH 105 reports. It is configured exactly like a
+ * {@link CohortIndicatorDataSetDefinition}, its own type only routes it to the evaluator that answers the encounter
+ * and obs indicators from one scan of the period instead of a set of queries per indicator.
+ */
+public class Moh105DataSetDefinition extends CohortIndicatorDataSetDefinition {
+
+    public Moh105DataSetDefinition() {
+        super();
+    }
+}
@@ -14,7 +14,6 @@ import org.openmrs.module.reporting.cohort.definition.BaseObsCohortDefinition;
 import org.openmrs.module.reporting.cohort.definition.CohortDefinition;
 import org.openmrs.module.reporting.cohort.definition.DateObsCohortDefinition;
 import org.openmrs.module.reporting.cohort.definition.service.CohortDefinitionService;
-import org.openmrs.module.reporting.common.DateUtil;
 import org.openmrs.module.reporting.common.ObjectUtil;
 import org.openmrs.module.reporting.data.encounter.EvaluatedEncounterData;
 import org.openmrs.module.reporting.data.encounter.definition.ObsForEncounterDataDefinition;
@@ -25,8 +24,8 @@ import org.openmrs.module.reporting.dataset.definition.DataSetDefinition;
 import org.openmrs.module.reporting.dataset.definition.evaluator.DataSetEvaluator;
 import org.openmrs.module.reporting.evaluation.EvaluationContext;
 import org.openmrs.module.reporting.evaluation.EvaluationException;
-import org.openmrs.module.reporting.evaluation.querybuilder.SqlQueryBuilder;
-import org.openmrs.module.reporting.evaluation.service.EvaluationService;
+import org.openmrs.module.ugandaemrreports.common.ConnectionPool;
+import org.openmrs.module.ugandaemrreports.common.NamedQuery;
 import org.openmrs.module.ugandaemrreports.common.PatientDataHelper;
 import org.openmrs.module.ugandaemrreports.common.Periods;
 import org.openmrs.module.ugandaemrreports.common.StubDate;
@@ -38,6 +37,8 @@ import org.openmrs.module.ugandaemrreports.library.HIVCohortDefinitionLibrary;
 import org.openmrs.module.ugandaemrreports.metadata.HIVMetadata;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.text.DecimalFormat;
 import java.util.*;
 
@@ -47,9 +48,6 @@ import java.util.*;
 @Handler(supports = {AdherenceDataSetDefinition.class})
 public class AdherenceDataSetEvaluator implements DataSetEvaluator {
 
-    @Autowired
-    private EvaluationService evaluationService;
-
     @Autowired
     private LocationService locationService;
 
@@ -59,13 +57,16 @@ public class AdherenceDataSetEvaluator implements DataSetEvaluator {
         MapDataSet dataSet = new MapDataSet(dataSetDefinition, evaluationContext);
         AdherenceDataSetDefinition definition = (AdherenceDataSetDefinition) dataSetDefinition;
 
-        String startDate = DateUtil.formatDate(definition.getStartDate(), "yyyy-MM-dd");
-        String endDate = DateUtil.formatDate(definition.getEndDate(), "yyyy-MM-dd");
+        NamedQuery.Parameters parameters = NamedQuery.parameters()
+                .date("startDate", definition.getStartDate())
+                .date("endDate", definition.getEndDate());
 
-        String q = String.format("SELECT person_id,value_coded FROM obs WHERE concept_id = 90221 " +
-                "AND obs_datetime BETWEEN '%s' AND '%s' AND voided = 0", startDate, endDate);
-        SqlQueryBuilder query = new SqlQueryBuilder(q);
-        List<Object[]> results = evaluationService.evaluateToList(query, evaluationContext);
+        List<Object[]> results;
+        try (Connection connection = ConnectionPool.getInstance().checkout(definition.getName())) {
+            results = NamedQuery.get("adherence-codes").rows(connection, parameters);
+        } catch (SQLException e) {
+            throw new EvaluationException("Adherence", e);
+        }
 
         Multimap<Integer, Integer> allClients = ArrayListMultimap.create();
 
@@ -0,0 +1,48 @@
+package org.openmrs.module.ugandaemrreports.definition.dataset.evaluator;
+
+import org.openmrs.annotation.Handler;
+import org.openmrs.module.reporting.dataset.DataSet;
+import org.openmrs.module.reporting.dataset.definition.CohortIndicatorDataSetDefinition;
+import org.openmrs.module.reporting.dataset.definition.DataSetDefinition;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.evaluation.EvaluationException;
+import org.openmrs.module.reporting.evaluation.parameter.Mapped;
+import org.openmrs.module.reporting.indicator.CohortIndicator;
+import org.openmrs.module.reporting.indicator.dimension.CohortDefinitionDimension;
+import org.openmrs.module.ugandaemrreports.common.Helper;
+import org.openmrs.module.ugandaemrreports.definition.dimension.definition.AgeGenderDimension;
+
+/**
+ * Evaluates the cohort indicator data sets disaggregated by an {@link AgeGenderDimension} with bitmap intersections.
+ * Data sets without an age/gender dimension or with LOGIC indicators are left to the reporting module's evaluator.
+ */
+@Handler(supports = {CohortIndicatorDataSetDefinition.class}, order = 50)
+public class AgeGenderIndicatorDataSetEvaluator extends BitmapIndicatorDataSetEvaluator {
+
+    public static final String GP_ENABLED = "ugandaemrreports.ageGenderIndicators.enabled";
+
+    @Override
+    public DataSet evaluate(DataSetDefinition dataSetDefinition, EvaluationContext context) throws EvaluationException {
+        CohortIndicatorDataSetDefinition dsd = (CohortIndicatorDataSetDefinition) dataSetDefinition;
+        if (!handles(dsd) || !Helper.getBooleanGlobalProperty(GP_ENABLED, true)) {
+            return delegate(dsd).evaluate(dsd, context);
+        }
+        return evaluateCells(dsd, context == null ? new EvaluationContext() : context);
+    }
+
+    private boolean handles(CohortIndicatorDataSetDefinition dsd) {
+        boolean ageGender = false;
+        for (Mapped<CohortDefinitionDimension> dimension : dsd.getDimensions().values()) {
+            ageGender |= dimension.getParameterizable() instanceof AgeGenderDimension;
+        }
+        if (!ageGender) {
+            return false;
+        }
+        for (CohortIndicatorDataSetDefinition.CohortIndicatorAndDimensionColumn column : dsd.getColumns()) {
+            if (column.getIndicator().getParameterizable().getType() == CohortIndicator.IndicatorType.LOGIC) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
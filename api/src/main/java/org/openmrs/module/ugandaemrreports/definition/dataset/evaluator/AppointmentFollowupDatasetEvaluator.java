@@ -2,7 +2,6 @@ package org.openmrs.module.ugandaemrreports.definition.dataset.evaluator;
 
 import org.openmrs.annotation.Handler;
 import org.openmrs.api.context.Context;
-import org.openmrs.module.reporting.common.DateUtil;
 import org.openmrs.module.reporting.data.patient.EvaluatedPatientData;
 import org.openmrs.module.reporting.data.patient.service.PatientDataService;
 import org.openmrs.module.reporting.dataset.DataSet;
@@ -12,15 +11,17 @@ import org.openmrs.module.reporting.dataset.definition.DataSetDefinition;
 import org.openmrs.module.reporting.dataset.definition.evaluator.DataSetEvaluator;
 import org.openmrs.module.reporting.evaluation.EvaluationContext;
 import org.openmrs.module.reporting.evaluation.EvaluationException;
-import org.openmrs.module.reporting.evaluation.querybuilder.SqlQueryBuilder;
-import org.openmrs.module.reporting.evaluation.service.EvaluationService;
+import org.openmrs.module.ugandaemrreports.common.ConnectionPool;
+import org.openmrs.module.ugandaemrreports.common.NamedQuery;
+import org.openmrs.module.ugandaemrreports.common.ParallelRowBuilder;
 import org.openmrs.module.ugandaemrreports.common.PatientDataHelper;
 import org.openmrs.module.ugandaemrreports.definition.data.definition.EncounterObsDataDefinition;
 import org.openmrs.module.ugandaemrreports.definition.dataset.definition.AppointmentFollowupDatasetDefinition;
 import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
 import org.openmrs.module.ugandaemrreports.reporting.metadata.Metadata;
-import org.springframework.beans.factory.annotation.Autowired;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -32,9 +33,6 @@ import static org.openmrs.module.ugandaemrreports.reports.Helper.processString3;
 @Handler(supports = {AppointmentFollowupDatasetDefinition.class})
 public class AppointmentFollowupDatasetEvaluator implements DataSetEvaluator {
 
-    @Autowired
-    private EvaluationService evaluationService;
-
     @Override
     public DataSet evaluate(DataSetDefinition dataSetDefinition, EvaluationContext context) throws EvaluationException {
         SimpleDataSet dataSet = new SimpleDataSet(dataSetDefinition, context);
@@ -64,61 +62,20 @@ public class AppointmentFollowupDatasetEvaluator implements DataSetEvaluator {
         answers.put("165115", "Try to followup patient again on");
         answers.put("165103", "Home visit on");
 
-        String sqlQuery = "SELECT\n" +
-                "  e.patient_id,\n" +
-                "  e.encounter_id,\n" +
-                "  DATE(e.encounter_datetime),\n" +
-                "  (SELECT GROUP_CONCAT(CONCAT_WS(':', COALESCE(pit.uuid, ''), COALESCE(identifier, '')))\n" +
-                "   FROM patient_identifier pi INNER JOIN patient_identifier_type pit\n" +
-                "       ON (pi.identifier_type = pit.patient_identifier_type_id)\n" +
-                "   WHERE pi.patient_id = e.patient_id)                                                         AS 'identifiers',\n" +
-                "  (SELECT GROUP_CONCAT(CONCAT_WS(':', COALESCE(pat.uuid, ''), COALESCE(value, '')))\n" +
-                "   FROM person_attribute pa INNER JOIN person_attribute_type pat\n" +
-                "       ON (pa.person_attribute_type_id = pat.person_attribute_type_id)\n" +
-                "   WHERE e.patient_id =\n" +
-                "         pa.person_id)                                                                         AS 'attributes',\n" +
-                "  (SELECT GROUP_CONCAT(CONCAT_WS(' ', COALESCE(given_name, ''), COALESCE(middle_name, ''), COALESCE(family_name, '')))\n" +
-                "   FROM person_name pn\n" +
-                "   WHERE e.patient_id = pn.person_id)                                                          AS 'names',\n" +
-                "  (SELECT group_concat(\n" +
-                "      concat_ws(':', o.concept_id, o.value_numeric, o.value_coded, DATE(o.value_datetime), o.value_text))\n" +
-                "   FROM obs o\n" +
-                "   WHERE o.encounter_id = e.encounter_id AND o.voided = 0)                                     AS obs,\n" +
-                "  (SELECT COUNT(DISTINCT ex.encounter_id)\n" +
-                "   FROM encounter ex\n" +
-                "   WHERE ex.patient_id = e.patient_id AND ex.voided = 0 AND ex.encounter_datetime < e.encounter_datetime AND\n" +
-                "         ex.encounter_type NOT IN (SELECT et.encounter_type_id\n" +
-                "                                   FROM encounter_type et\n" +
-                "                                   WHERE et.uuid IN ('dc551efc-024d-4c40-aeb8-2147c4033778'))) AS visits,\n" +
-                "(SELECT DATE(MAX(o.value_datetime))\n" +
-                "   FROM obs o\n" +
-                "   WHERE o.voided = 0 AND o.person_id = e.patient_id AND o.value_datetime < e.encounter_datetime\n" +
-                "         AND o.concept_id = 5096)                                                   AS appointment\n" +
-                "FROM encounter e\n" +
-                "WHERE e.voided = 0\n" +
-                "      AND e.encounter_type IN (SELECT et.encounter_type_id\n" +
-                "                               FROM encounter_type et\n" +
-                "                               WHERE et.uuid IN ('dc551efc-024d-4c40-aeb8-2147c4033778'))\n";
-        if (startDate != null && endDate != null) {
-            String d1 = DateUtil.formatDate(startDate, "yyyy-MM-dd");
-            String d2 = DateUtil.formatDate(endDate, "yyyy-MM-dd");
-            sqlQuery += String.format("      AND e.encounter_datetime BETWEEN '%s' AND '%s';", d1, d2);
-        } else if (startDate != null) {
-            String d1 = DateUtil.formatDate(startDate, "yyyy-MM-dd");
-            sqlQuery += String.format("      AND e.encounter_datetime >= '%s';", d1);
-        } else if (endDate != null) {
-            String d1 = DateUtil.formatDate(endDate, "yyyy-MM-dd");
-            sqlQuery += String.format("      AND e.encounter_datetime <= '%s';", d1);
-        }
-
-        SqlQueryBuilder q = new SqlQueryBuilder(sqlQuery);
+        NamedQuery.Parameters parameters = NamedQuery.parameters()
+                .date("startDate", startDate)
+                .date("endDate", endDate);
 
-
-        List<Object[]> results = evaluationService.evaluateToList(q, context);
+        List<Object[]> results;
+        try (Connection connection = ConnectionPool.getInstance().checkout(definition.getName())) {
+            results = NamedQuery.get("appointment-followup").rows(connection, parameters);
+        } catch (SQLException e) {
+            throw new EvaluationException("Appointment followup", e);
+        }
 
         PatientDataHelper pdh = new PatientDataHelper();
 
-        for (Object[] r : results) {
+        List<DataSetRow> rows = ParallelRowBuilder.build(results, r -> {
             DataSetRow row = new DataSetRow();
 
             String patientId = String.valueOf(r[0]);
@@ -153,6 +110,9 @@ public class AppointmentFollowupDatasetEvaluator implements DataSetEvaluator {
             pdh.addCol(row, "Appointment Date", appointment);
             pdh.addCol(row, "Followup Date", nextFollowupDate);
 
+            return row;
+        });
+        for (DataSetRow row : rows) {
             dataSet.addRow(row);
         }
         return dataSet;
@@ -0,0 +1,58 @@
+package org.openmrs.module.ugandaemrreports.definition.dataset.evaluator;
+
+import org.openmrs.Cohort;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.indicator.dimension.CohortIndicatorAndDimensionResult;
+import org.openmrs.module.ugandaemrreports.common.PatientBitmap;
+
+/**
+ * One indicator x dimension options cell counted from bitmaps. It is the same type the reporting module puts in its
+ * cohort indicator data sets, so renderers and drill-downs read it as usual; the cell cohorts are built on demand.
+ */
+public class BitmapIndicatorCellResult extends CohortIndicatorAndDimensionResult {
+
+    private final BitmapIndicatorResult indicatorResult;
+    private final PatientBitmap filter;
+    private Number value;
+    private Cohort cohort;
+    private Cohort denominator;
+
+    /**
+     * @param filter the patients in all the dimension options of the cell, null when the cell has none
+     */
+    public BitmapIndicatorCellResult(BitmapIndicatorResult indicatorResult, EvaluationContext context, PatientBitmap filter) {
+        super(indicatorResult, context);
+        this.indicatorResult = indicatorResult;
+        this.filter = filter;
+    }
+
+    @Override
+    public synchronized Number getValue() {
+        if (value == null) {
+            value = BitmapIndicatorResult.value(indicatorResult.getDefinition(), indicatorResult.getNumerator(),
+                    indicatorResult.getDenominator(), filter);
+        }
+        return value;
+    }
+
+    @Override
+    public synchronized Cohort getCohortIndicatorAndDimensionCohort() {
+        if (cohort == null) {
+            cohort = new Cohort(BitmapIndicatorResult.and(indicatorResult.getNumerator(), filter).toSet());
+        }
+        return cohort;
+    }
+
+    @Override
+    public synchronized Cohort getCohortIndicatorAndDimensionDenominator() {
+        if (denominator == null && indicatorResult.getDenominator() != null) {
+            denominator = new Cohort(BitmapIndicatorResult.and(indicatorResult.getDenominator(), filter).toSet());
+        }
+        return denominator;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(getValue());
+    }
+}
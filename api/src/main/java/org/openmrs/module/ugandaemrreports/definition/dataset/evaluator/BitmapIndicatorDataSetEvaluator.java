@@ -0,0 +1,141 @@
+package org.openmrs.module.ugandaemrreports.definition.dataset.evaluator;
+
+import org.openmrs.Cohort;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.reporting.dataset.MapDataSet;
+import org.openmrs.module.reporting.dataset.definition.CohortIndicatorDataSetDefinition;
+import org.openmrs.module.reporting.dataset.definition.evaluator.DataSetEvaluator;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.evaluation.EvaluationException;
+import org.openmrs.module.reporting.evaluation.parameter.Mapped;
+import org.openmrs.module.reporting.indicator.CohortIndicator;
+import org.openmrs.module.reporting.indicator.CohortIndicatorResult;
+import org.openmrs.module.reporting.indicator.dimension.CohortDefinitionDimension;
+import org.openmrs.module.reporting.indicator.dimension.CohortDimensionResult;
+import org.openmrs.module.reporting.indicator.dimension.service.DimensionService;
+import org.openmrs.module.reporting.indicator.service.IndicatorService;
+import org.openmrs.module.ugandaemrreports.common.PatientBitmap;
+import org.openmrs.module.ugandaemrreports.definition.dimension.evaluator.AgeGenderDimensionResult;
+import org.openmrs.util.HandlerUtil;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counts the cells of cohort indicator data sets with {@link PatientBitmap}s. Each distinct indicator and dimension
+ * option becomes a bitmap once, every indicator x dimension cell is then the cardinality of their intersection.
+ */
+public abstract class BitmapIndicatorDataSetEvaluator implements DataSetEvaluator {
+
+    protected MapDataSet evaluateCells(CohortIndicatorDataSetDefinition dsd, EvaluationContext context) throws EvaluationException {
+        return evaluateCells(dsd, context, new IdentityHashMap<Mapped<? extends CohortIndicator>, BitmapIndicatorResult>());
+    }
+
+    /**
+     * Every cell is a {@link BitmapIndicatorCellResult}, the same cohort indicator and dimension result the reporting
+     * module would have put in the data set.
+     *
+     * @param indicators the indicators already evaluated by the caller, the others are evaluated by the indicator
+     *                   service and added
+     */
+    protected MapDataSet evaluateCells(CohortIndicatorDataSetDefinition dsd, EvaluationContext context,
+                                       Map<Mapped<? extends CohortIndicator>, BitmapIndicatorResult> indicators) throws EvaluationException {
+        MapDataSet dataSet = new MapDataSet(dsd, context);
+
+        Map<String, PatientBitmap> filters = new HashMap<String, PatientBitmap>();
+        Map<String, CohortDimensionResult> dimensions = new HashMap<String, CohortDimensionResult>();
+
+        for (CohortIndicatorDataSetDefinition.CohortIndicatorAndDimensionColumn column : dsd.getColumns()) {
+            BitmapIndicatorResult result = indicators.get(column.getIndicator());
+            if (result == null) {
+                result = evaluateIndicator(column.getIndicator(), context);
+                indicators.put(column.getIndicator(), result);
+            }
+            PatientBitmap filter = filter(dsd, column.getDimensionOptions(), context, filters, dimensions);
+
+            BitmapIndicatorCellResult cell = new BitmapIndicatorCellResult(result, context, filter);
+            if (column.getDimensionOptions() != null) {
+                for (Map.Entry<String, String> option : column.getDimensionOptions().entrySet()) {
+                    cell.addDimensionResult(dimensions.get(option.getKey()), option.getValue());
+                }
+            }
+            dataSet.addData(column, cell);
+        }
+        return dataSet;
+    }
+
+    private BitmapIndicatorResult evaluateIndicator(Mapped<? extends CohortIndicator> indicator, EvaluationContext context) throws EvaluationException {
+        CohortIndicatorResult result = (CohortIndicatorResult) Context.getService(IndicatorService.class).evaluate(indicator, context);
+        PatientBitmap denominator = result.getDenominatorCohort() == null ? null : bitmap(result.getDenominatorCohort());
+        return new BitmapIndicatorResult(indicator.getParameterizable(),
+                result.getContext() == null ? context : result.getContext(), bitmap(result.getCohort()), denominator);
+    }
+
+    /**
+     * @return the patients in all the dimension options of a column, null when the column has none
+     */
+    private PatientBitmap filter(CohortIndicatorDataSetDefinition dsd, Map<String, String> dimensionOptions, EvaluationContext context,
+                                 Map<String, PatientBitmap> filters, Map<String, CohortDimensionResult> dimensions) throws EvaluationException {
+        if (dimensionOptions == null || dimensionOptions.isEmpty()) {
+            return null;
+        }
+        String key = new TreeMap<String, String>(dimensionOptions).toString();
+        PatientBitmap filter = filters.get(key);
+        if (filter != null) {
+            return filter;
+        }
+        for (Map.Entry<String, String> option : dimensionOptions.entrySet()) {
+            PatientBitmap patients = option(dsd, option.getKey(), option.getValue(), context, filters, dimensions);
+            filter = filter == null ? patients : filter.and(patients);
+        }
+        filters.put(key, filter);
+        return filter;
+    }
+
+    private PatientBitmap option(CohortIndicatorDataSetDefinition dsd, String dimensionName, String option, EvaluationContext context,
+                                 Map<String, PatientBitmap> filters, Map<String, CohortDimensionResult> dimensions) throws EvaluationException {
+        String key = "{" + dimensionName + "=" + option + "}";
+        PatientBitmap patients = filters.get(key);
+        if (patients != null) {
+            return patients;
+        }
+        CohortDimensionResult dimension = dimensions.get(dimensionName);
+        if (dimension == null) {
+            Mapped<CohortDefinitionDimension> mapped = dsd.getDimensions().get(dimensionName);
+            if (mapped == null) {
+                throw new IllegalArgumentException("No dimension " + dimensionName + " in " + dsd.getName());
+            }
+            dimension = (CohortDimensionResult) Context.getService(DimensionService.class).evaluate(mapped, context);
+            dimensions.put(dimensionName, dimension);
+        }
+        if (dimension instanceof AgeGenderDimensionResult) {
+            patients = ((AgeGenderDimensionResult) dimension).getBitmap(option);
+        } else {
+            Cohort cohort = dimension.getCohort(option);
+            patients = cohort == null ? null : PatientBitmap.of(cohort.getMemberIds());
+        }
+        if (patients == null) {
+            throw new IllegalArgumentException("No option " + option + " in dimension " + dimensionName + " of " + dsd.getName());
+        }
+        filters.put(key, patients);
+        return patients;
+    }
+
+    protected static PatientBitmap bitmap(Cohort cohort) {
+        return cohort == null ? new PatientBitmap() : PatientBitmap.of(cohort.getMemberIds());
+    }
+
+    /**
+     * @return the evaluator the reporting module would have used for the data set
+     */
+    protected DataSetEvaluator delegate(CohortIndicatorDataSetDefinition dsd) {
+        for (DataSetEvaluator evaluator : HandlerUtil.getHandlersForType(DataSetEvaluator.class, dsd.getClass())) {
+            if (!(evaluator instanceof BitmapIndicatorDataSetEvaluator)) {
+                return evaluator;
+            }
+        }
+        throw new IllegalStateException("No evaluator found for " + dsd.getClass());
+    }
+}
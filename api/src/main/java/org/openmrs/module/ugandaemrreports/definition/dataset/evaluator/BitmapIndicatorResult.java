@@ -0,0 +1,79 @@
+package org.openmrs.module.ugandaemrreports.definition.dataset.evaluator;
+
+import org.openmrs.Cohort;
+import org.openmrs.module.reporting.common.Fraction;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.indicator.CohortIndicator;
+import org.openmrs.module.reporting.indicator.CohortIndicatorResult;
+import org.openmrs.module.ugandaemrreports.common.PatientBitmap;
+
+/**
+ * The result of a count or fraction indicator whose patients are held as {@link PatientBitmap}s. The cohorts are only
+ * built when a caller, like a drill-down, asks for them.
+ */
+public class BitmapIndicatorResult extends CohortIndicatorResult {
+
+    private final PatientBitmap numerator;
+    private final PatientBitmap denominator;
+    private Cohort numeratorCohort;
+    private Cohort denominatorCohort;
+
+    public BitmapIndicatorResult(CohortIndicator definition, EvaluationContext context, PatientBitmap numerator, PatientBitmap denominator) {
+        setDefinition(definition);
+        setContext(context);
+        this.numerator = numerator == null ? new PatientBitmap() : numerator;
+        this.denominator = denominator;
+    }
+
+    public PatientBitmap getNumerator() {
+        return numerator;
+    }
+
+    /**
+     * @return the patients of the denominator, null when the indicator is not a fraction
+     */
+    public PatientBitmap getDenominator() {
+        return denominator;
+    }
+
+    @Override
+    public synchronized Cohort getCohort() {
+        if (numeratorCohort == null) {
+            numeratorCohort = new Cohort(numerator.toSet());
+        }
+        return numeratorCohort;
+    }
+
+    @Override
+    public synchronized Cohort getDenominatorCohort() {
+        if (denominatorCohort == null && denominator != null) {
+            denominatorCohort = new Cohort(denominator.toSet());
+        }
+        return denominatorCohort;
+    }
+
+    @Override
+    public Number getValue() {
+        return value(getDefinition(), numerator, denominator, null);
+    }
+
+    /**
+     * @param filter the patients of the dimension options of a cell, null for the whole indicator
+     * @return the count of the numerator in the filter, or the fraction when the indicator is a fraction
+     */
+    static Number value(CohortIndicator definition, PatientBitmap numerator, PatientBitmap denominator, PatientBitmap filter) {
+        int count = count(numerator, filter);
+        if (definition != null && definition.getType() == CohortIndicator.IndicatorType.FRACTION) {
+            return new Fraction(count, denominator == null ? 0 : count(denominator, filter));
+        }
+        return count;
+    }
+
+    static PatientBitmap and(PatientBitmap patients, PatientBitmap filter) {
+        return filter == null ? patients : patients.and(filter);
+    }
+
+    private static int count(PatientBitmap patients, PatientBitmap filter) {
+        return filter == null ? patients.cardinality() : patients.andCardinality(filter);
+    }
+}
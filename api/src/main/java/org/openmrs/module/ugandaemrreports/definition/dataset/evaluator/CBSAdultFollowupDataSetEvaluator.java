@@ -133,30 +133,14 @@ public class CBSAdultFollowupDataSetEvaluator implements org.openmrs.module.repo
             Collection<Integer> thirdLineDrugs = CollectionUtils.collect(CBSAdultFollowupDataSetEvaluator.this.hivMetadata.getThirdLineDrugs(), TransformerUtils.invokerTransformer("getConceptId"));
 
 
-            Cohort diedDuring = getPatientData(Collections2.filter(patientData, new PatientMonthDataFilter(i, 3)));
-            Cohort onArtDuring = getPatientARVs(Collections2.filter(patientARVs, new PatientARVFilter(i)));
-
-            Cohort secondLineDuring = getPatientARVs(Collections2.filter(patientARVs, new PatientSecondLineARVFilter(i, secondLineDrugsChildren, secondLineDrugsAdults)));
-            Cohort thirdLineDuring = getPatientARVs(Collections2.filter(patientARVs, new PatientThirdLineARVFilter(i, thirdLineDrugs)));
-
-            Cohort failedDuring = getPatientViral(Collections2.filter(viralLoads, new ViralLoadFailedFilter(i)));
-
-            Cohort hadAVisit = getPatientData(Collections2.filter(patientData, new PatientMonthDataFilter(i, 2)));
-            Cohort hadAnEncounter = getPatientData(Collections2.filter(patientData, new PatientMonthDataFilter(i, 1)));
-
-            Set<Integer> difference = new HashSet(CollectionUtils.subtract(hadAVisit.getMemberIds(), hadAnEncounter.getMemberIds()));
-
-            Set<Integer> failedSecondLine = new HashSet(CollectionUtils.subtract(secondLineDuring.getMemberIds(), failedDuring.getMemberIds()));
-            Set<Integer> failedThirdLine = new HashSet(CollectionUtils.subtract(thirdLineDuring.getMemberIds(), failedDuring.getMemberIds()));
-
-            Cohort lost = new Cohort();
-            lost.setMemberIds(difference);
-
-            Cohort secondLineFailed = new Cohort();
-            secondLineFailed.setMemberIds(failedSecondLine);
-
-            Cohort thirdLineFailed = new Cohort();
-            thirdLineFailed.setMemberIds(failedThirdLine);
+            Milestone milestone = new Milestone(i, patientData, patientARVs, viralLoads, secondLineDrugsChildren, secondLineDrugsAdults, thirdLineDrugs);
+            Cohort diedDuring = milestone.died;
+            Cohort onArtDuring = milestone.onArt;
+            Cohort secondLineDuring = milestone.secondLine;
+            Cohort thirdLineDuring = milestone.thirdLine;
+            Cohort lost = milestone.lost;
+            Cohort secondLineFailed = milestone.secondLineFailed;
+            Cohort thirdLineFailed = milestone.thirdLineFailed;
 
             diedCohort.put("numerator", diedDuring);
             diedCohort.put("denominator", enrolledThisQuarter);
@@ -248,7 +232,43 @@ public class CBSAdultFollowupDataSetEvaluator implements org.openmrs.module.repo
         return patientMonthData;
     }
 
-    private Cohort getPatientData(Collection<PatientMonthData> results) {
+    /**
+     * The cohorts of one milestone, the number of months after enrollment, from the data already loaded
+     */
+    static class Milestone {
+        final Cohort died;
+        final Cohort onArt;
+        final Cohort secondLine;
+        final Cohort thirdLine;
+        final Cohort lost;
+        final Cohort secondLineFailed;
+        final Cohort thirdLineFailed;
+
+        Milestone(Integer i, Collection<PatientMonthData> patientData, Collection<PatientARV> patientARVs, Collection<ViralLoad> viralLoads,
+                  Collection<Integer> secondLineDrugsChildren, Collection<Integer> secondLineDrugsAdults, Collection<Integer> thirdLineDrugs) {
+            died = getPatientData(Collections2.filter(patientData, new PatientMonthDataFilter(i, 3)));
+            onArt = getPatientARVs(Collections2.filter(patientARVs, new PatientARVFilter(i)));
+
+            secondLine = getPatientARVs(Collections2.filter(patientARVs, new PatientSecondLineARVFilter(i, secondLineDrugsChildren, secondLineDrugsAdults)));
+            thirdLine = getPatientARVs(Collections2.filter(patientARVs, new PatientThirdLineARVFilter(i, thirdLineDrugs)));
+
+            Cohort failedDuring = getPatientViral(Collections2.filter(viralLoads, new ViralLoadFailedFilter(i)));
+
+            Cohort hadAVisit = getPatientData(Collections2.filter(patientData, new PatientMonthDataFilter(i, 2)));
+            Cohort hadAnEncounter = getPatientData(Collections2.filter(patientData, new PatientMonthDataFilter(i, 1)));
+
+            lost = new Cohort();
+            lost.setMemberIds(new HashSet(CollectionUtils.subtract(hadAVisit.getMemberIds(), hadAnEncounter.getMemberIds())));
+
+            secondLineFailed = new Cohort();
+            secondLineFailed.setMemberIds(new HashSet(CollectionUtils.subtract(secondLine.getMemberIds(), failedDuring.getMemberIds())));
+
+            thirdLineFailed = new Cohort();
+            thirdLineFailed.setMemberIds(new HashSet(CollectionUtils.subtract(thirdLine.getMemberIds(), failedDuring.getMemberIds())));
+        }
+    }
+
+    private static Cohort getPatientData(Collection<PatientMonthData> results) {
         Cohort result = new Cohort();
         Set<Integer> patients = new HashSet<Integer>();
         for (PatientMonthData r : results) {
@@ -258,7 +278,7 @@ public class CBSAdultFollowupDataSetEvaluator implements org.openmrs.module.repo
         return result;
     }
 
-    private Cohort getPatientARVs(Collection<PatientARV> results) {
+    private static Cohort getPatientARVs(Collection<PatientARV> results) {
         Cohort result = new Cohort();
         Set<Integer> patients = new HashSet<Integer>();
         for (PatientARV r : results) {
@@ -268,7 +288,7 @@ public class CBSAdultFollowupDataSetEvaluator implements org.openmrs.module.repo
         return result;
     }
 
-    private Cohort getPatientViral(Collection<ViralLoad> results) {
+    private static Cohort getPatientViral(Collection<ViralLoad> results) {
         Cohort result = new Cohort();
         Set<Integer> patients = new HashSet<Integer>();
         for (ViralLoad r : results) {
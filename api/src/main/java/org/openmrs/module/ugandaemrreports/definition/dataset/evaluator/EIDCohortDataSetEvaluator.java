@@ -14,10 +14,14 @@ import org.openmrs.module.reporting.evaluation.EvaluationContext;
 import org.openmrs.module.reporting.evaluation.EvaluationException;
 import org.openmrs.module.reporting.evaluation.querybuilder.SqlQueryBuilder;
 import org.openmrs.module.reporting.evaluation.service.EvaluationService;
+import org.openmrs.module.ugandaemrreports.common.ConnectionPool;
+import org.openmrs.module.ugandaemrreports.common.NamedQuery;
 import org.openmrs.module.ugandaemrreports.common.StubDate;
 import org.openmrs.module.ugandaemrreports.definition.dataset.definition.EIDCohortDataSetDefinition;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.*;
 
 import static org.openmrs.module.ugandaemrreports.common.Periods.monthStartFor;
@@ -86,25 +90,16 @@ public class EIDCohortDataSetEvaluator implements DataSetEvaluator {
         MapDataSet dataSet = new MapDataSet(dataSetDefinition, context);
         EIDCohortDataSetDefinition definition = (EIDCohortDataSetDefinition) dataSetDefinition;
 
-        String date = DateUtil.formatDate(definition.getStartDate(), "yyyy-MM-dd");
         String year = DateUtil.formatDate(definition.getStartDate(), "yyyy");
         int totalMonths = 12;
 
         List<String> months;
 
-        String baseSql = "SELECT\n" +
-                "  p.person_id,\n" +
-                "  p.birthdate,\n" +
-                "  EXTRACT(YEAR_MONTH FROM p.birthdate)          AS birthmonth,\n" +
-                "  e.encounter_datetime        AS date_chart_opened,\n" +
-                "  MONTH(e.encounter_datetime) AS month_chart_opened,\n" +
-                "  p.death_date\n" +
-                "FROM person p INNER JOIN encounter e ON (e.patient_id = p.person_id AND e.encounter_type = (SELECT encounter_type_id\n" +
-                "                                                                                            FROM encounter_type\n" +
-                "                                                                                            WHERE uuid =\n" +
-                "                                                                                                  '9fcfcc91-ad60-4d84-9710-11cc25258719')\n";
+        String query;
+        NamedQuery.Parameters parameters = NamedQuery.parameters();
         if (definition.getYearly()) {
-            baseSql += String.format("                                         AND YEAR('%s') = YEAR(p.birthdate))", date);
+            query = "eid-cohort-year";
+            parameters.date("date", definition.getStartDate());
             months = Arrays.asList(year + "00", year + "01", year + "02", year + "03", year + "04", year + "05", year + "06", year + "07", year + "08", year + "09", year + "100", year + "11", year + "12");
             dataSet.addData(new DataSetColumn("Y", "Y", Integer.class), Integer.valueOf(year));
         } else {
@@ -118,11 +113,10 @@ public class EIDCohortDataSetEvaluator implements DataSetEvaluator {
             String date1 = DateUtil.formatDate(localDate1.toDate(), "yyyyMM");
             String date2 = DateUtil.formatDate(localDate2.toDate(), "yyyyMM");
 
-            String allDates = date1 + "," + date2;
-
             months = Arrays.asList("0", date1, date2);
 
-            baseSql += String.format("                                         AND EXTRACT(YEAR_MONTH FROM p.birthdate) IN(%s))", allDates);
+            query = "eid-cohort-months";
+            parameters.ids("birthMonths", Arrays.asList(Integer.valueOf(date1), Integer.valueOf(date2)));
             totalMonths = 2;
 
 
@@ -133,8 +127,12 @@ public class EIDCohortDataSetEvaluator implements DataSetEvaluator {
 
         }
 
-        SqlQueryBuilder q = new SqlQueryBuilder(baseSql);
-        List<Object[]> results = evaluationService.evaluateToList(q, context);
+        List<Object[]> results;
+        try (Connection connection = ConnectionPool.getInstance().checkout(definition.getName())) {
+            results = NamedQuery.get(query).rows(connection, parameters);
+        } catch (SQLException e) {
+            throw new EvaluationException("EID cohort", e);
+        }
 
         Multimap<String, Integer> allClients = ArrayListMultimap.create();
 
@@ -0,0 +1,599 @@
+package org.openmrs.module.ugandaemrreports.definition.dataset.evaluator;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.Cohort;
+import org.openmrs.Concept;
+import org.openmrs.EncounterType;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.reporting.cohort.definition.CodedObsCohortDefinition;
+import org.openmrs.module.reporting.cohort.definition.CohortDefinition;
+import org.openmrs.module.reporting.cohort.definition.CompositionCohortDefinition;
+import org.openmrs.module.reporting.cohort.definition.EncounterCohortDefinition;
+import org.openmrs.module.reporting.cohort.definition.NumericObsCohortDefinition;
+import org.openmrs.module.reporting.cohort.definition.service.CohortDefinitionService;
+import org.openmrs.module.reporting.common.DateUtil;
+import org.openmrs.module.reporting.common.RangeComparator;
+import org.openmrs.module.reporting.definition.DefinitionUtil;
+import org.openmrs.module.reporting.definition.configuration.Property;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.evaluation.EvaluationException;
+import org.openmrs.module.reporting.evaluation.parameter.Mapped;
+import org.openmrs.module.reporting.evaluation.parameter.Parameter;
+import org.openmrs.module.reporting.evaluation.parameter.Parameterizable;
+import org.openmrs.module.reporting.evaluation.querybuilder.SqlQueryBuilder;
+import org.openmrs.module.reporting.evaluation.service.EvaluationService;
+import org.openmrs.module.ugandaemrreports.common.PatientBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Answers the encounter and obs cohorts of a set of indicators from one read of the period's encounters and one read
+ * of the period's obs. The cohort definitions of every indicator are planned first: encounter, coded obs and numeric
+ * obs definitions evaluated with the ANY time modifier become leaves matched against the rows, compositions of them
+ * are combined in memory and anything else is left to the cohort definition service. {@link #load()} then reads the
+ * rows once and every leaf collects the patients of the rows it matches.
+ */
+class EncounterObsScan {
+
+    private static final Log log = LogFactory.getLog(EncounterObsScan.class);
+
+    private static final String ANY = "ANY";
+
+    interface Node {
+        PatientBitmap evaluate() throws EvaluationException;
+    }
+
+    private final EvaluationService evaluationService;
+    private final EvaluationContext context;
+
+    private final Map<String, Leaf> leaves = new LinkedHashMap<String, Leaf>();
+    private final Map<Integer, List<Leaf>> leavesByEncounterType = new HashMap<Integer, List<Leaf>>();
+    private final List<Leaf> anyEncounterTypeLeaves = new ArrayList<Leaf>();
+    private final Map<Integer, List<Leaf>> leavesByConcept = new HashMap<Integer, List<Leaf>>();
+
+    private PatientBitmap allPatients;
+    private boolean loaded;
+    private int encounterRows;
+    private int obsRows;
+    private int serviceNodes;
+
+    EncounterObsScan(EvaluationService evaluationService, EvaluationContext context) {
+        this.evaluationService = evaluationService;
+        this.context = context;
+    }
+
+    /**
+     * @return the context a mapped definition is evaluated with, null when its parameters cannot be resolved
+     */
+    static EvaluationContext childContext(EvaluationContext parent, Mapped<? extends Parameterizable> mapped) {
+        try {
+            return EvaluationContext.cloneForChild(parent, mapped);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param parent the context the mapped definition would be evaluated with by the cohort definition service
+     */
+    Node plan(Mapped<? extends CohortDefinition> mapped, EvaluationContext parent) {
+        if (loaded) {
+            throw new IllegalStateException("The rows are already read");
+        }
+        CohortDefinition definition = mapped.getParameterizable();
+        EvaluationContext child = childContext(parent, mapped);
+        Node node = null;
+        if (child != null && definition instanceof CompositionCohortDefinition) {
+            node = planComposition((CompositionCohortDefinition) definition, child);
+        } else if (child != null) {
+            Leaf leaf = leaf(definition, properties(definition, child));
+            // without a start date the rows would be every encounter or obs ever recorded, the service reads less
+            if (leaf != null && leaf.from != Long.MIN_VALUE) {
+                node = register(leaf);
+            }
+        }
+        if (node == null) {
+            serviceNodes++;
+            node = new ServiceNode(mapped, parent);
+        }
+        return node;
+    }
+
+    /**
+     * Reads the encounters and obs of the planned leaves and fills them in
+     */
+    void load() throws EvaluationException {
+        loaded = true;
+        List<Leaf> encounterLeaves = new ArrayList<Leaf>();
+        List<Leaf> obsLeaves = new ArrayList<Leaf>();
+        for (Leaf leaf : leaves.values()) {
+            (leaf.conceptId == null ? encounterLeaves : obsLeaves).add(leaf);
+        }
+        if (!encounterLeaves.isEmpty()) {
+            loadEncounters(encounterLeaves);
+        }
+        if (!obsLeaves.isEmpty()) {
+            loadObs(obsLeaves);
+        }
+        log.debug("Scanned " + encounterRows + " encounters and " + obsRows + " obs for " + leaves.size()
+                + " cohorts, " + serviceNodes + " cohorts left to the cohort definition service");
+    }
+
+    private void loadEncounters(List<Leaf> encounterLeaves) throws EvaluationException {
+        SqlQueryBuilder sql = new SqlQueryBuilder();
+        sql.append("SELECT e.patient_id, e.encounter_type, e.encounter_datetime\n");
+        sql.append("FROM encounter e INNER JOIN patient p ON (p.patient_id = e.patient_id)\n");
+        sql.append("WHERE e.voided = 0 AND p.voided = 0");
+        TreeSet<Integer> encounterTypes = new TreeSet<Integer>();
+        for (Leaf leaf : encounterLeaves) {
+            if (leaf.encounterTypes == null) {
+                encounterTypes = null;
+                break;
+            }
+            encounterTypes.addAll(leaf.encounterTypes);
+        }
+        if (encounterTypes != null) {
+            sql.append(" AND e.encounter_type IN (" + join(encounterTypes) + ")");
+        }
+        appendWindow(sql, "e.encounter_datetime", encounterLeaves);
+        sql.append("\nORDER BY e.encounter_datetime");
+
+        for (Object[] row : query(sql)) {
+            encounterRows++;
+            int patientId = ((Number) row[0]).intValue();
+            Integer encounterType = ((Number) row[1]).intValue();
+            long encounterDatetime = ((Date) row[2]).getTime();
+            List<Leaf> byType = leavesByEncounterType.get(encounterType);
+            if (byType != null) {
+                for (Leaf leaf : byType) {
+                    leaf.match(patientId, encounterType, encounterDatetime, null, Double.NaN);
+                }
+            }
+            for (Leaf leaf : anyEncounterTypeLeaves) {
+                leaf.match(patientId, encounterType, encounterDatetime, null, Double.NaN);
+            }
+        }
+    }
+
+    private void loadObs(List<Leaf> obsLeaves) throws EvaluationException {
+        SqlQueryBuilder sql = new SqlQueryBuilder();
+        sql.append("SELECT o.person_id, o.concept_id, o.value_coded, o.value_numeric, o.obs_datetime, e.encounter_type\n");
+        sql.append("FROM obs o INNER JOIN patient p ON (p.patient_id = o.person_id)\n");
+        sql.append("  LEFT JOIN encounter e ON (e.encounter_id = o.encounter_id)\n");
+        sql.append("WHERE o.voided = 0 AND p.voided = 0 AND o.concept_id IN (" + join(new TreeSet<Integer>(leavesByConcept.keySet())) + ")");
+        appendWindow(sql, "o.obs_datetime", obsLeaves);
+        sql.append("\nORDER BY o.obs_datetime");
+
+        for (Object[] row : query(sql)) {
+            obsRows++;
+            int personId = ((Number) row[0]).intValue();
+            List<Leaf> byConcept = leavesByConcept.get(((Number) row[1]).intValue());
+            Integer valueCoded = row[2] == null ? null : ((Number) row[2]).intValue();
+            double valueNumeric = row[3] == null ? Double.NaN : ((Number) row[3]).doubleValue();
+            long obsDatetime = ((Date) row[4]).getTime();
+            Integer encounterType = row[5] == null ? null : ((Number) row[5]).intValue();
+            for (Leaf leaf : byConcept) {
+                leaf.match(personId, encounterType, obsDatetime, valueCoded, valueNumeric);
+            }
+        }
+    }
+
+    private List<Object[]> query(SqlQueryBuilder sql) throws EvaluationException {
+        return evaluationService.evaluateToList(sql, context);
+    }
+
+    /**
+     * Restricts the rows to the window covering the windows of all the leaves, every leaf having a start date
+     */
+    private void appendWindow(SqlQueryBuilder sql, String column, List<Leaf> window) {
+        long from = Long.MAX_VALUE;
+        long to = Long.MIN_VALUE;
+        for (Leaf leaf : window) {
+            from = Math.min(from, leaf.from);
+            to = Math.max(to, leaf.to);
+        }
+        sql.append(" AND " + column + " >= :onOrAfter");
+        sql.addParameter("onOrAfter", new Date(from));
+        if (to != Long.MAX_VALUE) {
+            sql.append(" AND " + column + " <= :onOrBefore");
+            sql.addParameter("onOrBefore", new Date(to));
+        }
+    }
+
+    private PatientBitmap allPatients() throws EvaluationException {
+        if (allPatients == null) {
+            allPatients = new PatientBitmap();
+            SqlQueryBuilder q = new SqlQueryBuilder();
+            q.append("SELECT patient_id FROM patient WHERE voided = 0");
+            for (Integer patientId : evaluationService.evaluateToList(q, Integer.class, context)) {
+                allPatients.add(patientId);
+            }
+        }
+        return allPatients;
+    }
+
+    private Node register(Leaf leaf) {
+        Leaf registered = leaves.get(leaf.key);
+        if (registered != null) {
+            return registered;
+        }
+        leaves.put(leaf.key, leaf);
+        if (leaf.conceptId != null) {
+            add(leavesByConcept, leaf.conceptId, leaf);
+        } else if (leaf.encounterTypes == null) {
+            anyEncounterTypeLeaves.add(leaf);
+        } else {
+            for (Integer encounterType : leaf.encounterTypes) {
+                add(leavesByEncounterType, encounterType, leaf);
+            }
+        }
+        return leaf;
+    }
+
+    private static void add(Map<Integer, List<Leaf>> index, Integer key, Leaf leaf) {
+        List<Leaf> list = index.get(key);
+        if (list == null) {
+            list = new ArrayList<Leaf>();
+            index.put(key, list);
+        }
+        list.add(leaf);
+    }
+
+    /**
+     * @return the configuration properties of the definition with the parameter values of the context applied
+     */
+    private static Map<String, Object> properties(CohortDefinition definition, EvaluationContext context) {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        for (Property property : DefinitionUtil.getConfigurationProperties(definition)) {
+            properties.put(property.getField().getName(), property.getValue());
+        }
+        for (Parameter parameter : definition.getParameters()) {
+            if (context.containsParameter(parameter.getName())) {
+                properties.put(parameter.getName(), context.getParameterValue(parameter.getName()));
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * @return the leaf answering the definition, null when the definition uses anything a leaf does not support
+     */
+    private Leaf leaf(CohortDefinition definition, Map<String, Object> properties) {
+        if (definition.getClass() == EncounterCohortDefinition.class) {
+            if (!onlySet(properties, "timeQualifier", "onOrAfter", "onOrBefore", "encounterTypeList")
+                    || !isAny(properties.get("timeQualifier"))) {
+                return null;
+            }
+            return new Leaf(null, encounterTypes(properties), null, null, null, null, null,
+                    (Date) properties.get("onOrAfter"), (Date) properties.get("onOrBefore"));
+        }
+        if (definition.getClass() == CodedObsCohortDefinition.class) {
+            Object operator = properties.get("operator");
+            if (!onlySet(properties, "timeModifier", "question", "operator", "valueList", "onOrAfter", "onOrBefore", "encounterTypeList")
+                    || !isAny(properties.get("timeModifier")) || properties.get("question") == null
+                    || (operator != null && !"IN".equals(operator.toString()))) {
+                return null;
+            }
+            Collection<?> valueList = (Collection<?>) properties.get("valueList");
+            TreeSet<Integer> codedValues = null;
+            if (valueList != null && !valueList.isEmpty()) {
+                codedValues = new TreeSet<Integer>();
+                for (Object value : valueList) {
+                    codedValues.add(((Concept) value).getConceptId());
+                }
+            }
+            return new Leaf(((Concept) properties.get("question")).getConceptId(), encounterTypes(properties), codedValues,
+                    null, null, null, null, (Date) properties.get("onOrAfter"), (Date) properties.get("onOrBefore"));
+        }
+        if (definition.getClass() == NumericObsCohortDefinition.class) {
+            RangeComparator operator1 = (RangeComparator) properties.get("operator1");
+            RangeComparator operator2 = (RangeComparator) properties.get("operator2");
+            if (!onlySet(properties, "timeModifier", "question", "operator1", "value1", "operator2", "value2", "onOrAfter", "onOrBefore", "encounterTypeList")
+                    || !isAny(properties.get("timeModifier")) || properties.get("question") == null
+                    || !supported(operator1, properties.get("value1")) || !supported(operator2, properties.get("value2"))) {
+                return null;
+            }
+            return new Leaf(((Concept) properties.get("question")).getConceptId(), encounterTypes(properties), null,
+                    operator1, (Double) properties.get("value1"), operator2, (Double) properties.get("value2"),
+                    (Date) properties.get("onOrAfter"), (Date) properties.get("onOrBefore"));
+        }
+        return null;
+    }
+
+    /**
+     * @return true if no property other than the allowed ones restricts the definition
+     */
+    private static boolean onlySet(Map<String, Object> properties, String... allowed) {
+        List<String> names = Arrays.asList(allowed);
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            Object value = property.getValue();
+            boolean unset = value == null || Boolean.FALSE.equals(value)
+                    || (value instanceof Collection && ((Collection<?>) value).isEmpty());
+            if (!unset && !names.contains(property.getKey())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAny(Object timeModifier) {
+        return timeModifier == null || ANY.equals(timeModifier.toString());
+    }
+
+    private static boolean supported(RangeComparator operator, Object value) {
+        if (operator == null || value == null) {
+            return operator == null && value == null;
+        }
+        switch (operator) {
+            case LESS_THAN:
+            case LESS_EQUAL:
+            case EQUAL:
+            case GREATER_EQUAL:
+            case GREATER_THAN:
+                return value instanceof Double;
+            default:
+                return false;
+        }
+    }
+
+    private static TreeSet<Integer> encounterTypes(Map<String, Object> properties) {
+        Collection<?> encounterTypeList = (Collection<?>) properties.get("encounterTypeList");
+        if (encounterTypeList == null || encounterTypeList.isEmpty()) {
+            return null;
+        }
+        TreeSet<Integer> encounterTypes = new TreeSet<Integer>();
+        for (Object encounterType : encounterTypeList) {
+            encounterTypes.add(((EncounterType) encounterType).getEncounterTypeId());
+        }
+        return encounterTypes;
+    }
+
+    private static String join(Collection<Integer> ids) {
+        StringBuilder joined = new StringBuilder();
+        for (Integer id : ids) {
+            if (joined.length() > 0) {
+                joined.append(",");
+            }
+            joined.append(id);
+        }
+        return joined.toString();
+    }
+
+    private Node planComposition(CompositionCohortDefinition definition, EvaluationContext child) {
+        List<String> tokens = tokenize(definition.getCompositionString());
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        int[] position = {0};
+        Node node = parseExpression(tokens, position, definition.getSearches(), child);
+        return position[0] == tokens.size() ? node : null;
+    }
+
+    private static List<String> tokenize(String compositionString) {
+        List<String> tokens = new ArrayList<String>();
+        if (compositionString == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (char c : compositionString.toCharArray()) {
+            if (c == '(' || c == ')' || Character.isWhitespace(c)) {
+                if (token.length() > 0) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                }
+                if (!Character.isWhitespace(c)) {
+                    tokens.add(String.valueOf(c));
+                }
+            } else {
+                token.append(c);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * expression := term ((AND | OR) term)*, the same operator throughout since a mix needs the reporting module's
+     * precedence rules
+     */
+    private Node parseExpression(List<String> tokens, int[] position, Map<String, Mapped<CohortDefinition>> searches, EvaluationContext child) {
+        List<Node> operands = new ArrayList<Node>();
+        String operator = null;
+        Node operand = parseTerm(tokens, position, searches, child);
+        if (operand == null) {
+            return null;
+        }
+        operands.add(operand);
+        while (position[0] < tokens.size() && !")".equals(tokens.get(position[0]))) {
+            String next = tokens.get(position[0]).toUpperCase();
+            if (!"AND".equals(next) && !"OR".equals(next) || (operator != null && !operator.equals(next))) {
+                return null;
+            }
+            operator = next;
+            position[0]++;
+            operand = parseTerm(tokens, position, searches, child);
+            if (operand == null) {
+                return null;
+            }
+            operands.add(operand);
+        }
+        return operands.size() == 1 ? operands.get(0) : new CombinationNode(operands, "OR".equals(operator));
+    }
+
+    /**
+     * term := NOT term | ( expression ) | search key
+     */
+    private Node parseTerm(List<String> tokens, int[] position, Map<String, Mapped<CohortDefinition>> searches, EvaluationContext child) {
+        if (position[0] >= tokens.size()) {
+            return null;
+        }
+        String token = tokens.get(position[0]++);
+        if ("NOT".equalsIgnoreCase(token)) {
+            Node negated = parseTerm(tokens, position, searches, child);
+            return negated == null ? null : new NotNode(negated);
+        }
+        if ("(".equals(token)) {
+            Node nested = parseExpression(tokens, position, searches, child);
+            if (nested == null || position[0] >= tokens.size() || !")".equals(tokens.get(position[0]))) {
+                return null;
+            }
+            position[0]++;
+            return nested;
+        }
+        Mapped<CohortDefinition> search = searches.get(token);
+        return search == null ? null : plan(search, child);
+    }
+
+    /**
+     * Patients with at least one encounter or obs matching all the restrictions
+     */
+    class Leaf implements Node {
+
+        private final String key;
+        private final Integer conceptId;
+        private final TreeSet<Integer> encounterTypes;
+        private final TreeSet<Integer> codedValues;
+        private final RangeComparator operator1;
+        private final Double value1;
+        private final RangeComparator operator2;
+        private final Double value2;
+        private final long from;
+        private final long to;
+        private final PatientBitmap patients = new PatientBitmap();
+
+        Leaf(Integer conceptId, TreeSet<Integer> encounterTypes, TreeSet<Integer> codedValues, RangeComparator operator1,
+             Double value1, RangeComparator operator2, Double value2, Date onOrAfter, Date onOrBefore) {
+            this.conceptId = conceptId;
+            this.encounterTypes = encounterTypes;
+            this.codedValues = codedValues;
+            this.operator1 = operator1;
+            this.value1 = value1;
+            this.operator2 = operator2;
+            this.value2 = value2;
+            this.from = onOrAfter == null ? Long.MIN_VALUE : onOrAfter.getTime();
+            this.to = onOrBefore == null ? Long.MAX_VALUE : DateUtil.getEndOfDayIfTimeExcluded(onOrBefore).getTime();
+            this.key = (conceptId == null ? "encounter" : "obs:" + conceptId) + "|types=" + encounterTypes
+                    + "|values=" + codedValues + "|" + operator1 + value1 + "|" + operator2 + value2 + "|" + from + "-" + to;
+        }
+
+        void match(int patientId, Integer encounterType, long datetime, Integer valueCoded, double valueNumeric) {
+            if (datetime < from || datetime > to) {
+                return;
+            }
+            if (encounterTypes != null && (encounterType == null || !encounterTypes.contains(encounterType))) {
+                return;
+            }
+            if (codedValues != null && (valueCoded == null || !codedValues.contains(valueCoded))) {
+                return;
+            }
+            if (operator1 != null || operator2 != null) {
+                if (Double.isNaN(valueNumeric) || !compare(valueNumeric, operator1, value1) || !compare(valueNumeric, operator2, value2)) {
+                    return;
+                }
+            }
+            patients.add(patientId);
+        }
+
+        private boolean compare(double value, RangeComparator operator, Double bound) {
+            if (operator == null) {
+                return true;
+            }
+            switch (operator) {
+                case LESS_THAN:
+                    return value < bound;
+                case LESS_EQUAL:
+                    return value <= bound;
+                case EQUAL:
+                    return value == bound;
+                case GREATER_EQUAL:
+                    return value >= bound;
+                default:
+                    return value > bound;
+            }
+        }
+
+        @Override
+        public PatientBitmap evaluate() {
+            if (!loaded) {
+                throw new IllegalStateException("The rows are not read yet");
+            }
+            return patients;
+        }
+    }
+
+    static class CombinationNode implements Node {
+
+        private final List<Node> operands;
+        private final boolean or;
+
+        CombinationNode(List<Node> operands, boolean or) {
+            this.operands = operands;
+            this.or = or;
+        }
+
+        @Override
+        public PatientBitmap evaluate() throws EvaluationException {
+            PatientBitmap patients = operands.get(0).evaluate();
+            for (int i = 1; i < operands.size(); i++) {
+                patients = or ? patients.or(operands.get(i).evaluate()) : patients.and(operands.get(i).evaluate());
+            }
+            return patients;
+        }
+    }
+
+    class NotNode implements Node {
+
+        private final Node negated;
+
+        NotNode(Node negated) {
+            this.negated = negated;
+        }
+
+        @Override
+        public PatientBitmap evaluate() throws EvaluationException {
+            PatientBitmap excluded = negated.evaluate();
+            PatientBitmap patients = new PatientBitmap();
+            for (int patientId : allPatients().toArray()) {
+                if (!excluded.contains(patientId)) {
+                    patients.add(patientId);
+                }
+            }
+            return patients;
+        }
+    }
+
+    /**
+     * A definition the scan cannot answer, evaluated by the cohort definition service with the run's cohort cache
+     */
+    static class ServiceNode implements Node {
+
+        private final Mapped<? extends CohortDefinition> mapped;
+        private final EvaluationContext parent;
+        private PatientBitmap patients;
+
+        ServiceNode(Mapped<? extends CohortDefinition> mapped, EvaluationContext parent) {
+            this.mapped = mapped;
+            this.parent = parent;
+        }
+
+        @Override
+        public PatientBitmap evaluate() throws EvaluationException {
+            if (patients == null) {
+                Cohort cohort = Context.getService(CohortDefinitionService.class).evaluate(mapped, parent);
+                patients = cohort == null ? new PatientBitmap() : PatientBitmap.of(cohort.getMemberIds());
+            }
+            return patients;
+        }
+    }
+}
@@ -16,6 +16,7 @@ import org.openmrs.module.ugandaemrreports.common.PatientEncounterObs;
 import org.openmrs.module.ugandaemrreports.definition.dataset.definition.HCTDataExportDatasetDefinition;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
@@ -44,8 +45,8 @@ public class HCTDataExportDatasetEvaluator implements DataSetEvaluator {
         PatientDataHelper pdh = new PatientDataHelper();
 
 
-        try {
-            List<PatientEncounterObs> patientEncounterObs = getEncounterObs(sqlConnection(), "264daIZd-f80e-48fe-nba9-P37f2W1905Pv", null, startDate, endDate);
+        try (Connection connection = sqlConnection(definition.getName())) {
+            List<PatientEncounterObs> patientEncounterObs = getEncounterObs(connection, "264daIZd-f80e-48fe-nba9-P37f2W1905Pv", null, startDate, endDate);
 
             for (PatientEncounterObs data : patientEncounterObs) {
                 DataSetRow row = new DataSetRow();
@@ -246,7 +247,7 @@ public class HCTDataExportDatasetEvaluator implements DataSetEvaluator {
                 dataSet.addRow(row);
 
             }
-        } catch (SQLException | ClassNotFoundException e) {
+        } catch (SQLException e) {
             e.printStackTrace();
         }
         return dataSet;
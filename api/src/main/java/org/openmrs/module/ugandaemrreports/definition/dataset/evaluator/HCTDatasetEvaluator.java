@@ -16,6 +16,7 @@ import org.openmrs.module.ugandaemrreports.common.PatientEncounterObs;
 import org.openmrs.module.ugandaemrreports.definition.dataset.definition.HCTDatasetDefinition;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Date;
 import java.util.HashMap;
@@ -42,8 +43,8 @@ public class HCTDatasetEvaluator implements DataSetEvaluator {
         PatientDataHelper pdh = new PatientDataHelper();
 
 
-        try {
-            List<PatientEncounterObs> patientEncounterObs = getEncounterObs(sqlConnection(), "264daIZd-f80e-48fe-nba9-P37f2W1905Pv", null, startDate, endDate);
+        try (Connection connection = sqlConnection(definition.getName())) {
+            List<PatientEncounterObs> patientEncounterObs = getEncounterObs(connection, "264daIZd-f80e-48fe-nba9-P37f2W1905Pv", null, startDate, endDate);
 
             for (PatientEncounterObs data : patientEncounterObs) {
                 DataSetRow row = new DataSetRow();
@@ -231,7 +232,7 @@ public class HCTDatasetEvaluator implements DataSetEvaluator {
                 dataSet.addRow(row);
 
             }
-        } catch (SQLException | ClassNotFoundException e) {
+        } catch (SQLException e) {
             e.printStackTrace();
         }
         return dataSet;
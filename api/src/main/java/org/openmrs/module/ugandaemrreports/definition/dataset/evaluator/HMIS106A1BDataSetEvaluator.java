@@ -1,9 +1,7 @@
 package org.openmrs.module.ugandaemrreports.definition.dataset.evaluator;
 
-import com.google.common.base.Joiner;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.math3.stat.StatUtils;
 import org.joda.time.LocalDate;
 import org.openmrs.Cohort;
@@ -15,8 +13,6 @@ import org.openmrs.module.reporting.cohort.definition.DateObsCohortDefinition;
 import org.openmrs.module.reporting.cohort.definition.service.CohortDefinitionService;
 import org.openmrs.module.reporting.common.DateUtil;
 import org.openmrs.module.reporting.common.ObjectUtil;
-import org.openmrs.module.reporting.data.patient.definition.SqlPatientDataDefinition;
-import org.openmrs.module.reporting.data.patient.service.PatientDataService;
 import org.openmrs.module.reporting.dataset.DataSet;
 import org.openmrs.module.reporting.dataset.DataSetRow;
 import org.openmrs.module.reporting.dataset.SimpleDataSet;
@@ -26,6 +22,9 @@ import org.openmrs.module.reporting.evaluation.EvaluationContext;
 import org.openmrs.module.reporting.evaluation.EvaluationException;
 import org.openmrs.module.reporting.evaluation.querybuilder.SqlQueryBuilder;
 import org.openmrs.module.reporting.evaluation.service.EvaluationService;
+import org.openmrs.module.ugandaemrreports.common.CohortParameter;
+import org.openmrs.module.ugandaemrreports.common.ConnectionPool;
+import org.openmrs.module.ugandaemrreports.common.NamedQuery;
 import org.openmrs.module.ugandaemrreports.common.PatientDataHelper;
 import org.openmrs.module.ugandaemrreports.common.Periods;
 import org.openmrs.module.ugandaemrreports.common.StubDate;
@@ -33,8 +32,12 @@ import org.openmrs.module.ugandaemrreports.definition.dataset.definition.HMIS106
 import org.openmrs.module.ugandaemrreports.library.DataFactory;
 import org.openmrs.module.ugandaemrreports.library.HIVCohortDefinitionLibrary;
 import org.openmrs.module.ugandaemrreports.metadata.HIVMetadata;
+import org.openmrs.module.ugandaemrreports.reporting.appointments.AppointmentTimeline;
+import org.openmrs.module.ugandaemrreports.reporting.facts.ArtFacts;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.text.DecimalFormat;
 import java.util.*;
 
@@ -52,8 +55,6 @@ public class HMIS106A1BDataSetEvaluator implements DataSetEvaluator {
     private CohortDefinitionService cohortDefinitionService;
     @Autowired
     private HIVMetadata hivMetadata;
-    @Autowired
-    private PatientDataService patientDataService;
 
     @Override
     public DataSet evaluate(DataSetDefinition dataSetDefinition, EvaluationContext evaluationContext) throws EvaluationException {
@@ -61,9 +62,6 @@ public class HMIS106A1BDataSetEvaluator implements DataSetEvaluator {
         SimpleDataSet dataSet = new SimpleDataSet(dataSetDefinition, evaluationContext);
         HMIS106A1BDataSetDefinition definition = (HMIS106A1BDataSetDefinition) dataSetDefinition;
 
-        String startDate = DateUtil.formatDate(definition.getStartDate(), "yyyy-MM-dd");
-        String endDate = DateUtil.formatDate(definition.getEndDate(), "yyyy-MM-dd");
-
         evaluationContext = ObjectUtil.nvl(evaluationContext, new EvaluationContext());
 
         PatientDataHelper pdh = new PatientDataHelper();
@@ -97,15 +95,13 @@ public class HMIS106A1BDataSetEvaluator implements DataSetEvaluator {
         quarters.add(String.valueOf(q6.get(0).getYear()) + "Q" + String.valueOf(((q6.get(1).getMonthOfYear() - 1) / 3) + 1));
         quarters.add(String.valueOf(q7.get(0).getYear()) + "Q" + String.valueOf(((q7.get(1).getMonthOfYear() - 1) / 3) + 1));
 
-        String query = "SELECT\n" +
-                "     person_id,\n" +
-                "     CONCAT_WS('', YEAR(value_datetime), 'Q', quarter(value_datetime)) AS q\n" +
-                "   FROM obs\n" +
-                "   WHERE concept_id = 99161 and voided = 0";
-        SqlQueryBuilder q = new SqlQueryBuilder();
-        q.append(query);
-
-        List<Object[]> results = evaluationService.evaluateToList(q, evaluationContext);
+        List<Object[]> results;
+        try (Connection connection = ConnectionPool.getInstance().checkout(definition.getName())) {
+            results = NamedQuery.get(ArtFacts.isReady() ? "art-start-quarter-facts" : "art-start-quarter").list(connection,
+                    NamedQuery.parameters(), rs -> new Object[]{rs.getInt(1), rs.getString(2)});
+        } catch (SQLException e) {
+            throw new EvaluationException("ART start quarters", e);
+        }
         Multimap<String, Integer> finalData = convert(results);
 
         List<Integer> enrolledViaPMTCT = getPregnantAtArtStart(evaluationContext);
@@ -121,12 +117,19 @@ public class HMIS106A1BDataSetEvaluator implements DataSetEvaluator {
 
         Cohort transferInPatients = Context.getService(CohortDefinitionService.class).evaluate(artTransferIn, null);
 
-        Map<Integer, Object> baselineCD4 = new HashMap<Integer, Object>();
-        Map<Integer, Object> baselineCD4Mothers = new HashMap<Integer, Object>();
-
+        List<Set<Integer>> started = new ArrayList<Set<Integer>>();
+        Set<Integer> allPatients = new HashSet<Integer>();
+        for (int i = 0; i < periods.size(); i++) {
+            Set<Integer> allStarted = new HashSet<Integer>(finalData.get(quarters.get(i)));
+            started.add(allStarted);
+            allPatients.addAll(allStarted);
+        }
+        // the mothers are a subset of the same patients, so one snapshot answers both rows of every period
+        OutcomeSnapshot outcomes = getOutcomes(allPatients, definition.getEndDate(), evaluationContext);
+        Set<Integer> transferIns = new HashSet<Integer>(transferInPatients.getMemberIds());
+        Set<Integer> mothers = new HashSet<Integer>(enrolledViaPMTCT);
 
         int months = 6;
-        DecimalFormat df = new DecimalFormat("###.##");
 
         for (int i = 0; i < periods.size(); i++) {
             if (i > 0) {
@@ -134,11 +137,8 @@ public class HMIS106A1BDataSetEvaluator implements DataSetEvaluator {
             }
             DataSetRow all = new DataSetRow();
             DataSetRow eMTCT = new DataSetRow();
-            Set<Integer> allStarted = new HashSet<Integer>(finalData.get(quarters.get(i)));
-
-
-            Collection allMothers = CollectionUtils.intersection(allStarted, enrolledViaPMTCT);
-
+            Set<Integer> allStarted = started.get(i);
+            Set<Integer> allMothers = intersection(allStarted, mothers);
 
             pdh.addCol(all, "patients", "All patients " + String.valueOf(months) + " months");
             pdh.addCol(eMTCT, "patients", "eMTCT Mothers " + String.valueOf(months) + " months");
@@ -146,186 +146,144 @@ public class HMIS106A1BDataSetEvaluator implements DataSetEvaluator {
             pdh.addCol(all, "when", periods.get(i));
             pdh.addCol(eMTCT, "when", periods.get(i));
 
-            if (allStarted.size() > 0) {
-                Collection startedArt = CollectionUtils.subtract(allStarted, transferInPatients.getMemberIds());
-                Collection transferIn = CollectionUtils.intersection(allStarted, transferInPatients.getMemberIds());
-
-                Map<Integer, Object> cD4L500 = new HashMap<Integer, Object>();
-                Map<Integer, Object> transferOut = new HashMap<Integer, Object>();
-                Map<Integer, Object> dead = new HashMap<Integer, Object>();
-                Map<String, Cohort> lost = new HashMap<String, Cohort>();
-                Set<Integer> stopped = new HashSet<Integer>();
-                Map<Integer, Object> cCD4 = new HashMap<Integer, Object>();
-                Map<Integer, Object> pCD4L500 = new HashMap<Integer, Object>();
-
-
-                if (startedArt.size() > 0) {
-                    baselineCD4 = getPatientBaselineCD4Data(Joiner.on(",").join(startedArt));
-                    cD4L500 = getPatientBaselineCD4DataLS500(baselineCD4);
-                    transferOut = getPatientTransferredOut(Joiner.on(",").join(startedArt), endDate);
-
-                }
-
-                Collection net = CollectionUtils.subtract(allStarted, transferOut.keySet());
-
-                if (net.size() > 0) {
-                    lost = getLostPatients(Joiner.on(",").join(net), endDate);
-                    stopped = getPatientStopped(Joiner.on(",").join(net), endDate);
-                    dead = getDeadPatients(Joiner.on(",").join(net), endDate);
-                }
-
-
-                Cohort patientsLost = lost.get("lost");
-                Cohort patientsDropped = lost.get("dropped");
-
-                Collection allLostAndDied = CollectionUtils.union(CollectionUtils.union(stopped, dead.keySet()), CollectionUtils.union(patientsLost.getMemberIds(), patientsDropped.getMemberIds()));
-
-                Collection alive = CollectionUtils.subtract(net, allLostAndDied);
-
-                if (alive.size() > 0) {
-                    cCD4 = getPatientWithRecentCD4(Joiner.on(",").join(alive), endDate);
-                    pCD4L500 = getPatientBaselineCD4DataLS500(cCD4);
-                }
-
-                pdh.addCol(all, "enrolled", startedArt.size());
-                pdh.addCol(all, "transferIn", transferIn.size());
-
-                pdh.addCol(all, "baseFraction", df.format(((double) cD4L500.size()) / baselineCD4.size()));
-                pdh.addCol(all, "baseMedian", getMedianCD4(cD4L500));
-                pdh.addCol(all, "transferOut", getPatientTransferredOut(Joiner.on(",").join(startedArt), endDate).size());
-                pdh.addCol(all, "netCohort", net.size());
-                pdh.addCol(all, "stopped", stopped.size());
-                pdh.addCol(all, "died", dead.size());
-                pdh.addCol(all, "lost", patientsLost.getSize());
-                pdh.addCol(all, "dropped", patientsDropped.getSize());
-                pdh.addCol(all, "alive", alive.size());
-                pdh.addCol(all, "percentageAlive", df.format((alive.size() * 100.00) / net.size()));
-                pdh.addCol(all, "fraction", df.format(((double) pCD4L500.size()) / cCD4.size()));
-                pdh.addCol(all, "median", getMedianCD4(pCD4L500));
-
-            } else {
-                pdh.addCol(all, "enrolled", 0);
-                pdh.addCol(all, "transferIn", 0);
-                pdh.addCol(all, "baseFraction", "-");
-                pdh.addCol(all, "baseMedian", "-");
-                pdh.addCol(all, "transferOut", 0);
-                pdh.addCol(all, "netCohort", 0);
-                pdh.addCol(all, "stopped", 0);
-                pdh.addCol(all, "died", 0);
-                pdh.addCol(all, "lost", 0);
-                pdh.addCol(all, "dropped", 0);
-                pdh.addCol(all, "alive", 0);
-                pdh.addCol(all, "percentageAlive", 0);
-                pdh.addCol(all, "fraction", "-");
-                pdh.addCol(all, "median", "-");
-            }
-
-            if (allMothers.size() > 0) {
-                Collection allMotherStarted = CollectionUtils.subtract(allMothers, transferInPatients.getMemberIds());
-                Collection mothersTransferIn = CollectionUtils.intersection(allMothers, transferInPatients.getMemberIds());
-
-
-                Map<Integer, Object> mothersCD4L500 = new HashMap<Integer, Object>();
-                Map<Integer, Object> transferOutMothers = new HashMap<Integer, Object>();
-                Map<Integer, Object> deadMothers = new HashMap<Integer, Object>();
-                Map<String, Cohort> lostMothers = new HashMap<String, Cohort>();
-                Set<Integer> stoppedMothers = new HashSet<Integer>();
-                Map<Integer, Object> cCD4W = new HashMap<Integer, Object>();
-                Map<Integer, Object> pCD4L500W = new HashMap<Integer, Object>();
+            addOutcomes(pdh, all, allStarted, transferIns, outcomes, 0);
+            addOutcomes(pdh, eMTCT, allMothers, transferIns, outcomes, 0.0);
 
+            dataSet.addRow(all);
+            dataSet.addRow(eMTCT);
+        }
 
-                if (allMotherStarted.size() > 0) {
-                    baselineCD4Mothers = getPatientBaselineCD4Data(Joiner.on(",").join(allMotherStarted));
-                    mothersCD4L500 = getPatientBaselineCD4DataLS500(baselineCD4Mothers);
-                    transferOutMothers = getPatientTransferredOut(Joiner.on(",").join(allMotherStarted), endDate);
-
-                }
-                Collection netMothers = CollectionUtils.subtract(allMothers, transferOutMothers.keySet());
-
-                if (netMothers.size() > 0) {
-                    lostMothers = getLostPatients(Joiner.on(",").join(netMothers), endDate);
-                    stoppedMothers = getPatientStopped(Joiner.on(",").join(netMothers), endDate);
-                    deadMothers = getDeadPatients(Joiner.on(",").join(netMothers), endDate);
-                }
-
+        return dataSet;
+    }
 
-                Cohort patientsLost = lostMothers.get("lost");
-                Cohort patientsDropped = lostMothers.get("dropped");
+    /**
+     * Adds the outcome columns of the patients who started ART in a period, from the snapshot of all the periods
+     *
+     * @param noPercentage the percentage alive shown when no patient started ART in the period
+     */
+    private void addOutcomes(PatientDataHelper pdh, DataSetRow row, Set<Integer> allStarted, Set<Integer> transferIns,
+                             OutcomeSnapshot outcomes, Object noPercentage) {
+        if (allStarted.isEmpty()) {
+            pdh.addCol(row, "enrolled", 0);
+            pdh.addCol(row, "transferIn", 0);
+            pdh.addCol(row, "baseFraction", "-");
+            pdh.addCol(row, "baseMedian", "-");
+            pdh.addCol(row, "transferOut", 0);
+            pdh.addCol(row, "netCohort", 0);
+            pdh.addCol(row, "stopped", 0);
+            pdh.addCol(row, "died", 0);
+            pdh.addCol(row, "lost", 0);
+            pdh.addCol(row, "dropped", 0);
+            pdh.addCol(row, "alive", 0);
+            pdh.addCol(row, "percentageAlive", noPercentage);
+            pdh.addCol(row, "fraction", "-");
+            pdh.addCol(row, "median", "-");
+            return;
+        }
+        DecimalFormat df = new DecimalFormat("###.##");
 
-                Collection allLostAndDied = CollectionUtils.union(CollectionUtils.union(stoppedMothers, deadMothers.keySet()), CollectionUtils.union(patientsLost.getMemberIds(), patientsDropped.getMemberIds()));
+        Set<Integer> startedArt = subtract(allStarted, transferIns);
+        Set<Integer> transferIn = intersection(allStarted, transferIns);
+
+        Map<Integer, Object> baselineCD4 = restrict(outcomes.baselineCD4, startedArt);
+        Map<Integer, Object> cD4L500 = getPatientBaselineCD4DataLS500(baselineCD4);
+        Set<Integer> transferOut = intersection(startedArt, outcomes.transferredOut);
+
+        Set<Integer> net = subtract(allStarted, transferOut);
+        Set<Integer> stopped = intersection(net, outcomes.stopped);
+        Set<Integer> dead = intersection(net, outcomes.dead);
+        Set<Integer> lost = intersection(net, outcomes.lost);
+        Set<Integer> dropped = intersection(net, outcomes.dropped);
+
+        Set<Integer> alive = subtract(subtract(subtract(subtract(net, stopped), dead), lost), dropped);
+        Map<Integer, Object> cCD4 = restrict(outcomes.recentCD4, alive);
+        Map<Integer, Object> pCD4L500 = getPatientBaselineCD4DataLS500(cCD4);
+
+        pdh.addCol(row, "enrolled", startedArt.size());
+        pdh.addCol(row, "transferIn", transferIn.size());
+        pdh.addCol(row, "baseFraction", df.format(((double) cD4L500.size()) / baselineCD4.size()));
+        pdh.addCol(row, "baseMedian", getMedianCD4(cD4L500));
+        pdh.addCol(row, "transferOut", transferOut.size());
+        pdh.addCol(row, "netCohort", net.size());
+        pdh.addCol(row, "stopped", stopped.size());
+        pdh.addCol(row, "died", dead.size());
+        pdh.addCol(row, "lost", lost.size());
+        pdh.addCol(row, "dropped", dropped.size());
+        pdh.addCol(row, "alive", alive.size());
+        pdh.addCol(row, "percentageAlive", df.format((alive.size() * 100.00) / net.size()));
+        pdh.addCol(row, "fraction", df.format(((double) pCD4L500.size()) / cCD4.size()));
+        pdh.addCol(row, "median", getMedianCD4(pCD4L500));
+    }
 
-                Collection alive = CollectionUtils.subtract(netMothers, allLostAndDied);
+    /**
+     * The outcomes on the end date of every patient who started ART in one of the periods, each one read with a
+     * single query (batched by {@link CohortParameter}) however many periods and rows use it
+     */
+    private static class OutcomeSnapshot {
+        private Map<Integer, Object> baselineCD4 = new HashMap<Integer, Object>();
+        private Map<Integer, Object> recentCD4 = new HashMap<Integer, Object>();
+        private Set<Integer> transferredOut = new HashSet<Integer>();
+        private Set<Integer> stopped = new HashSet<Integer>();
+        private Set<Integer> dead = new HashSet<Integer>();
+        private Set<Integer> lost = new HashSet<Integer>();
+        private Set<Integer> dropped = new HashSet<Integer>();
+    }
 
-                if (alive.size() > 0) {
-                    cCD4W = getPatientWithRecentCD4(Joiner.on(",").join(alive), endDate);
-                    pCD4L500W = getPatientBaselineCD4DataLS500(cCD4W);
-                }
+    private OutcomeSnapshot getOutcomes(Set<Integer> patients, Date end, EvaluationContext context) throws EvaluationException {
+        OutcomeSnapshot outcomes = new OutcomeSnapshot();
+        if (patients.isEmpty()) {
+            return outcomes;
+        }
+        outcomes.baselineCD4 = getPatientBaselineCD4Data(patients);
+        outcomes.recentCD4 = getPatientWithRecentCD4(patients, end);
+        outcomes.transferredOut = getPatientTransferredOut(patients, end).keySet();
+        outcomes.stopped = getPatientStopped(patients, end);
+        outcomes.dead = getDeadPatients(patients, end).keySet();
+        AppointmentTimeline timeline;
+        try {
+            timeline = AppointmentTimeline.forRun(context);
+        } catch (SQLException e) {
+            throw new EvaluationException("appointment timeline", e);
+        }
+        outcomes.lost = timeline.withStatus(patients, AppointmentTimeline.Status.LOST, end,
+                AppointmentTimeline.HMIS_LOST_DAYS, AppointmentTimeline.DROPPED_DAYS);
+        outcomes.dropped = timeline.withStatus(patients, AppointmentTimeline.Status.DROPPED, end,
+                AppointmentTimeline.HMIS_LOST_DAYS, AppointmentTimeline.DROPPED_DAYS);
+        return outcomes;
+    }
 
-                pdh.addCol(eMTCT, "enrolled", allMotherStarted.size());
-                pdh.addCol(eMTCT, "transferIn", mothersTransferIn.size());
-
-                pdh.addCol(eMTCT, "baseFraction", df.format(((double) mothersCD4L500.size()) / baselineCD4Mothers.size()));
-                pdh.addCol(eMTCT, "baseMedian", getMedianCD4(mothersCD4L500));
-                pdh.addCol(eMTCT, "transferOut", transferOutMothers.size());
-                pdh.addCol(eMTCT, "netCohort", netMothers.size());
-                pdh.addCol(eMTCT, "stopped", getPatientStopped(Joiner.on(",").join(netMothers), endDate));
-                pdh.addCol(eMTCT, "died", getDeadPatients(Joiner.on(",").join(netMothers), endDate).size());
-                pdh.addCol(eMTCT, "lost", lostMothers.get("lost").getSize());
-                pdh.addCol(eMTCT, "dropped", lostMothers.get("dropped").getSize());
-                pdh.addCol(eMTCT, "alive", alive.size());
-                pdh.addCol(eMTCT, "percentageAlive", df.format((alive.size() * 100.00) / netMothers.size()));
-
-                pdh.addCol(eMTCT, "fraction", df.format(((double) pCD4L500W.size()) / cCD4W.size()));
-                pdh.addCol(eMTCT, "median", getMedianCD4(pCD4L500W));
-            } else {
-                pdh.addCol(eMTCT, "enrolled", 0);
-                pdh.addCol(eMTCT, "transferIn", 0);
-
-                pdh.addCol(eMTCT, "baseFraction", "-");
-                pdh.addCol(eMTCT, "baseMedian", "-");
-                pdh.addCol(eMTCT, "transferOut", 0);
-                pdh.addCol(eMTCT, "netCohort", 0);
-                pdh.addCol(eMTCT, "stopped", 0);
-                pdh.addCol(eMTCT, "died", 0);
-                pdh.addCol(eMTCT, "lost", 0);
-                pdh.addCol(eMTCT, "dropped", 0);
-                pdh.addCol(eMTCT, "alive", 0);
-                pdh.addCol(eMTCT, "percentageAlive", 0.0);
-                pdh.addCol(eMTCT, "fraction", "-");
-                pdh.addCol(eMTCT, "median", "-");
+    private static Map<Integer, Object> restrict(Map<Integer, Object> data, Set<Integer> patients) {
+        Map<Integer, Object> result = new HashMap<Integer, Object>();
+        for (Integer patient : patients) {
+            if (data.containsKey(patient)) {
+                result.put(patient, data.get(patient));
             }
-            dataSet.addRow(all);
-            dataSet.addRow(eMTCT);
         }
+        return result;
+    }
 
-        return dataSet;
+    private static Set<Integer> intersection(Set<Integer> patients, Set<Integer> others) {
+        Set<Integer> result = new HashSet<Integer>(patients);
+        result.retainAll(others);
+        return result;
     }
 
-    private Map<Integer, Object> getPatientBaselineCD4Data(String cohort) throws EvaluationException {
-        String sql = String.format("select o.person_id, o.value_numeric from obs o where o.voided = 0 and o.concept_id = 99071 and person_id in (select o.person_id from obs o inner join person p using(person_id) where o.concept_id = 99161 and o.voided = 0 and YEAR(o.value_datetime) - YEAR(p.birthdate) - (RIGHT(o.value_datetime, 5) < RIGHT(p.birthdate, 5)) > 5 and p.person_id in(%s))", cohort);
-        SqlPatientDataDefinition definition = new SqlPatientDataDefinition();
-        definition.setSql(sql);
-        EvaluationContext context = new EvaluationContext();
-        context.setBaseCohort(new Cohort(cohort));
-        return patientDataService.evaluate(definition, context).getData();
+    private static Set<Integer> subtract(Set<Integer> patients, Set<Integer> others) {
+        Set<Integer> result = new HashSet<Integer>(patients);
+        result.removeAll(others);
+        return result;
     }
 
-    private Map<Integer, Object> getPatientWithRecentCD4(String cohort, String endDate) throws EvaluationException {
-        String sql = String.format("select DISTINCT A.person_id,A.value_numeric from (select o.person_id, o.value_numeric,o.obs_datetime from obs o where o.person_id in (%s) and o.concept_id = 5497 and obs_datetime <= '%s' and voided = 0) A  LEFT JOIN (select o.person_id, o.value_numeric,o.obs_datetime from obs o where o.person_id in (%s) and o.concept_id = 5497 and obs_datetime <= '%s' and voided = 0) B ON(A.person_id = B.person_id AND A.obs_datetime < B.obs_datetime) WHERE B.person_id IS NULL", cohort, endDate, cohort, endDate);
-        SqlPatientDataDefinition definition = new SqlPatientDataDefinition();
-        definition.setSql(sql);
-        EvaluationContext context = new EvaluationContext();
-        context.setBaseCohort(new Cohort(cohort));
-        return patientDataService.evaluate(definition, context).getData();
+    private Map<Integer, Object> getPatientBaselineCD4Data(Collection<Integer> cohort) throws EvaluationException {
+        return evaluatePatientData("baseline-cd4", NamedQuery.parameters(), cohort);
     }
 
-    private Map<Integer, Object> getPatientTransferredOut(String cohort, String endDate) throws EvaluationException {
-        String sql = String.format("select o.person_id, o.value_datetime from obs o where o.voided = 0 and o.person_id in (%s) and o.concept_id = 99165 and o.value_datetime <= '%s'", cohort, endDate);
-        SqlPatientDataDefinition definition = new SqlPatientDataDefinition();
-        definition.setSql(sql);
-        EvaluationContext context = new EvaluationContext();
-        context.setBaseCohort(new Cohort(cohort));
-        return patientDataService.evaluate(definition, context).getData();
+    private Map<Integer, Object> getPatientWithRecentCD4(Collection<Integer> cohort, Date endDate) throws EvaluationException {
+        return evaluatePatientData("recent-cd4", NamedQuery.parameters().date("endDate", endDate), cohort);
+    }
+
+    private Map<Integer, Object> getPatientTransferredOut(Collection<Integer> cohort, Date endDate) throws EvaluationException {
+        return evaluatePatientData(ArtFacts.isReady() ? "transfer-out-facts" : "transfer-out", NamedQuery.parameters().date("endDate", endDate), cohort);
     }
 
     private List<Integer> getPregnantAtArtStart(EvaluationContext evaluationContext) throws EvaluationException {
@@ -335,20 +293,11 @@ public class HMIS106A1BDataSetEvaluator implements DataSetEvaluator {
         return evaluationService.evaluateToList(q, Integer.class, evaluationContext);
     }
 
-    private Set<Integer> getPatientStopped(String cohort, String endDate) throws EvaluationException {
-        String sqlStopped = String.format("select person_id, MAX(DATE(o.value_datetime)) from obs o where o.voided = 0 and o.person_id in (%s) and o.concept_id = 99084 and o.value_datetime <= '%s' group by person_id", cohort, endDate);
-        String sqlRestarted = String.format("select person_id, MAX(DATE(o.value_datetime)) from obs o where o.voided = 0 and o.person_id in (%s) and o.concept_id = 99085 and o.value_datetime <= '%s' group by person_id", cohort, endDate);
-        SqlPatientDataDefinition stoppedDefinition = new SqlPatientDataDefinition();
-        SqlPatientDataDefinition restartedDefinition = new SqlPatientDataDefinition();
-
-        stoppedDefinition.setSql(sqlStopped);
-        restartedDefinition.setSql(sqlRestarted);
-        EvaluationContext context = new EvaluationContext();
-        context.setBaseCohort(new Cohort(cohort));
+    private Set<Integer> getPatientStopped(Collection<Integer> cohort, Date endDate) throws EvaluationException {
         Set<Integer> clients = new HashSet<Integer>();
 
-        Map<Integer, Object> stoppedPatients = patientDataService.evaluate(stoppedDefinition, context).getData();
-        Map<Integer, Object> restartedPatients = patientDataService.evaluate(restartedDefinition, context).getData();
+        Map<Integer, Object> stoppedPatients = evaluatePatientData("art-stopped", NamedQuery.parameters().date("endDate", endDate), cohort);
+        Map<Integer, Object> restartedPatients = evaluatePatientData("art-restarted", NamedQuery.parameters().date("endDate", endDate), cohort);
         for (Map.Entry<Integer, Object> o : stoppedPatients.entrySet()) {
             Date stopDate = DateUtil.parseDate(String.valueOf(o.getValue()), "yyyy-MM-dd");
             Object restartDate = restartedPatients.get(o.getKey());
@@ -364,105 +313,24 @@ public class HMIS106A1BDataSetEvaluator implements DataSetEvaluator {
         return clients;
     }
 
-    private Map<Integer, Object> getDeadPatients(String cohort, String endDate) throws EvaluationException {
-        String sql = "select * from\n" +
-                String.format("  (select person_id,Date(value_datetime) as death_date from obs where voided = 0 and concept_id = 90272 and person_id in(%s) and value_datetime < '%s'\n", cohort, endDate) +
-                "union\n" +
-                String.format("select person_id, DATE(death_date) from person WHERE death_date is not null and person_id in(%s) and death_date < '%s') A group by person_id", cohort, endDate);
-        SqlPatientDataDefinition definition = new SqlPatientDataDefinition();
-        definition.setSql(sql);
-        EvaluationContext context = new EvaluationContext();
-        context.setBaseCohort(new Cohort(cohort));
-        return patientDataService.evaluate(definition, context).getData();
+    private Map<Integer, Object> getDeadPatients(Collection<Integer> cohort, Date endDate) throws EvaluationException {
+        return evaluatePatientData(ArtFacts.isReady() ? "death-facts" : "death", NamedQuery.parameters().date("endDate", endDate), cohort);
     }
 
-    private Map<String, Cohort> getLostPatients(String cohort, String endDate) throws EvaluationException {
-        Map<String, Cohort> l = new HashMap<String, Cohort>();
-        String sql = "SELECT\n" +
-                "  A.patient_id,\n" +
-                "  CASE\n" +
-                "  WHEN B.visit IS NULL\n" +
-                "    THEN\n" +
-                "      CASE\n" +
-                "      WHEN DATEDIFF('2015-03-31', A.encounter) BETWEEN 8 AND 89\n" +
-                "        THEN 'LOST'\n" +
-                "      WHEN DATEDIFF('2015-03-31', A.encounter) >= 90\n" +
-                "        THEN 'DROPPED'\n" +
-                "      ELSE 'ACTIVE'\n" +
-                "      END\n" +
-                "  WHEN A.encounter >= B.visit AND B.visit IS NOT NULL\n" +
-                "    THEN\n" +
-                "      CASE\n" +
-                "      WHEN DATEDIFF(A.encounter, B.visit) BETWEEN 8 AND 89\n" +
-                "        THEN 'LOST'\n" +
-                "      WHEN DATEDIFF(A.encounter, B.visit) >= 90\n" +
-                "        THEN 'DROPPED'\n" +
-                "      ELSE 'ACTIVE'\n" +
-                "      END\n" +
-                "  WHEN B.visit > A.encounter AND B.visit IS NOT NULL\n" +
-                "    THEN\n" +
-                "      CASE\n" +
-                "      WHEN DATEDIFF('2015-03-31', B.visit) BETWEEN 8 AND 89\n" +
-                "        THEN 'LOST'\n" +
-                "      WHEN DATEDIFF('2015-03-31', B.visit) >= 90\n" +
-                "        THEN 'DROPPED'\n" +
-                "      ELSE 'ACTIVE'\n" +
-                "      END\n" +
-                "  END as status\n" +
-                "FROM\n" +
-                "  (SELECT\n" +
-                "     patient_id,\n" +
-                "     MAX(DATE(encounter_datetime)) AS encounter\n" +
-                "   FROM encounter\n" +
-                "   WHERE patient_id IN(1,2,3,4,5,6,7) AND voided = 0 AND encounter_datetime < '2015-03-31'\n" +
-                "   GROUP BY patient_id) A\n" +
-                "  LEFT JOIN\n" +
-                "  (SELECT\n" +
-                "     person_id,\n" +
-                "     MAX(DATE(value_datetime)) AS visit\n" +
-                "   FROM obs\n" +
-                "   WHERE concept_id = 5096 AND voided = 0 AND person_id IN(1,2,3,4,5,6,7) AND value_datetime < '2015-03-31'\n" +
-                "   GROUP BY person_id) B ON (A.patient_id = B.person_id)\n" +
-                "  LEFT JOIN\n" +
-                "  (SELECT\n" +
-                "     person_id,\n" +
-                "     MIN(DATE(value_datetime)) AS nextVisit\n" +
-                "   FROM obs\n" +
-                "   WHERE concept_id = 5096 AND voided = 0 AND person_id IN(1,2,3,4,5,6,7) AND value_datetime >= '2015-03-31') C\n" +
-                "    ON (A.patient_id = C.person_id)\n" +
-                "  LEFT JOIN\n" +
-                "  (SELECT\n" +
-                "     patient_id,\n" +
-                "     MIN(DATE(encounter_datetime)) AS nextEncounter\n" +
-                "   FROM encounter\n" +
-                "   WHERE patient_id IN(1,2,3,4,5,6,7) AND voided = 0 AND encounter_datetime >= '2015-03-31'\n" +
-                "   GROUP BY patient_id) D ON (A.patient_id = D.patient_id)";
-
-        sql = sql.replace("2015-03-31", endDate).replace("1,2,3,4,5,6,7", cohort);
-        SqlPatientDataDefinition definition = new SqlPatientDataDefinition();
-        definition.setSql(sql);
-        EvaluationContext context = new EvaluationContext();
-        context.setBaseCohort(new Cohort(cohort));
-        Set<Integer> lost = new HashSet<Integer>();
-        Set<Integer> dropped = new HashSet<Integer>();
-        Map<Integer, Object> data = patientDataService.evaluate(definition, context).getData();
-        for (Map.Entry<Integer, Object> o : data.entrySet()) {
-            if (String.valueOf(o.getValue()).contains("LOST")) {
-                lost.add(o.getKey());
-            }
-
-            if (String.valueOf(o.getValue()).contains("DROPPED")) {
-                dropped.add(o.getKey());
-            }
+    /**
+     * @return the second column of the named query by patient, run for the cohort in batches bound to :patientIds
+     */
+    private Map<Integer, Object> evaluatePatientData(String query, NamedQuery.Parameters parameters, Collection<Integer> cohort) throws EvaluationException {
+        NamedQuery namedQuery = NamedQuery.get(query);
+        try (Connection connection = ConnectionPool.getInstance().checkout("HMIS 106A1B")) {
+            return CohortParameter.boundMap(cohort, batch -> {
+                Map<Integer, Object> data = new HashMap<Integer, Object>();
+                namedQuery.forEach(connection, parameters.ids("patientIds", batch), rs -> data.put(rs.getInt(1), rs.getObject(2)));
+                return data;
+            });
+        } catch (SQLException e) {
+            throw new EvaluationException(query, e);
         }
-
-        Cohort lostPatients = new Cohort();
-        lostPatients.setMemberIds(lost);
-        Cohort droppedPatients = new Cohort();
-        droppedPatients.setMemberIds(dropped);
-        l.put("lost", lostPatients);
-        l.put("dropped", droppedPatients);
-        return l;
     }
 
     private Map<Integer, Object> getPatientBaselineCD4DataLS500(Map<Integer, Object> data) {
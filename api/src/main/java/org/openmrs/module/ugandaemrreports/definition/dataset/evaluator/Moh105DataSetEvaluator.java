@@ -0,0 +1,72 @@
+package org.openmrs.module.ugandaemrreports.definition.dataset.evaluator;
+
+import org.openmrs.annotation.Handler;
+import org.openmrs.module.reporting.dataset.DataSet;
+import org.openmrs.module.reporting.dataset.definition.CohortIndicatorDataSetDefinition;
+import org.openmrs.module.reporting.dataset.definition.DataSetDefinition;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.evaluation.EvaluationException;
+import org.openmrs.module.reporting.evaluation.parameter.Mapped;
+import org.openmrs.module.reporting.evaluation.service.EvaluationService;
+import org.openmrs.module.reporting.indicator.CohortIndicator;
+import org.openmrs.module.ugandaemrreports.common.Helper;
+import org.openmrs.module.ugandaemrreports.common.PatientBitmap;
+import org.openmrs.module.ugandaemrreports.definition.dataset.definition.Moh105DataSetDefinition;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Evaluates the MOH 105 data sets from one scan of the period's encounters and obs, see {@link EncounterObsScan}.
+ * Count indicators are planned together before any row is read; fractions, logic indicators and indicators with a
+ * location filter are evaluated by the indicator service as usual. Cells are counted with bitmaps like the other
+ * {@link BitmapIndicatorDataSetEvaluator}s.
+ */
+@Handler(supports = {Moh105DataSetDefinition.class}, order = 40)
+public class Moh105DataSetEvaluator extends BitmapIndicatorDataSetEvaluator {
+
+    public static final String GP_ENABLED = "ugandaemrreports.moh105Scan.enabled";
+
+    @Autowired
+    EvaluationService evaluationService;
+
+    @Override
+    public DataSet evaluate(DataSetDefinition dataSetDefinition, EvaluationContext context) throws EvaluationException {
+        CohortIndicatorDataSetDefinition dsd = (CohortIndicatorDataSetDefinition) dataSetDefinition;
+        if (!Helper.getBooleanGlobalProperty(GP_ENABLED, true)) {
+            return delegate(dsd).evaluate(dsd, context);
+        }
+        context = context == null ? new EvaluationContext() : context;
+
+        EncounterObsScan scan = new EncounterObsScan(evaluationService, context);
+        Map<Mapped<? extends CohortIndicator>, EncounterObsScan.Node> plans = new IdentityHashMap<Mapped<? extends CohortIndicator>, EncounterObsScan.Node>();
+        Map<Mapped<? extends CohortIndicator>, EvaluationContext> contexts = new IdentityHashMap<Mapped<? extends CohortIndicator>, EvaluationContext>();
+        for (CohortIndicatorDataSetDefinition.CohortIndicatorAndDimensionColumn column : dsd.getColumns()) {
+            Mapped<? extends CohortIndicator> indicator = column.getIndicator();
+            if (plans.containsKey(indicator) || !scanned(indicator.getParameterizable())) {
+                continue;
+            }
+            EvaluationContext indicatorContext = EncounterObsScan.childContext(context, indicator);
+            if (indicatorContext != null) {
+                plans.put(indicator, scan.plan(indicator.getParameterizable().getCohortDefinition(), indicatorContext));
+                contexts.put(indicator, indicatorContext);
+            }
+        }
+        scan.load();
+
+        PatientBitmap baseCohort = context.getBaseCohort() == null ? null : bitmap(context.getBaseCohort());
+        Map<Mapped<? extends CohortIndicator>, BitmapIndicatorResult> indicators = new IdentityHashMap<Mapped<? extends CohortIndicator>, BitmapIndicatorResult>();
+        for (Map.Entry<Mapped<? extends CohortIndicator>, EncounterObsScan.Node> plan : plans.entrySet()) {
+            PatientBitmap patients = plan.getValue().evaluate();
+            indicators.put(plan.getKey(), new BitmapIndicatorResult(plan.getKey().getParameterizable(), contexts.get(plan.getKey()),
+                    baseCohort == null ? patients : patients.and(baseCohort), null));
+        }
+        return evaluateCells(dsd, context, indicators);
+    }
+
+    private boolean scanned(CohortIndicator indicator) {
+        return indicator.getType() == CohortIndicator.IndicatorType.COUNT && indicator.getCohortDefinition() != null
+                && indicator.getLocationFilter() == null;
+    }
+}
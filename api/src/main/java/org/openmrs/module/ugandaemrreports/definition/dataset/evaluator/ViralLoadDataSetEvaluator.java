@@ -27,6 +27,7 @@ import org.openmrs.module.reporting.evaluation.EvaluationContext;
 import org.openmrs.module.reporting.evaluation.service.EvaluationService;
 import org.openmrs.module.ugandaemrreports.common.PatientDataHelper;
 import org.openmrs.module.ugandaemrreports.common.PatientNonSuppressingData;
+import org.openmrs.module.ugandaemrreports.common.Periods;
 import org.openmrs.module.ugandaemrreports.common.StubDate;
 import org.openmrs.module.ugandaemrreports.common.ViralLoad;
 import org.openmrs.module.ugandaemrreports.definition.data.definition.NonSuppressingPatientDataDefinition;
@@ -35,7 +36,8 @@ import org.openmrs.module.ugandaemrreports.definition.dataset.definition.ViralLo
 import org.openmrs.module.ugandaemrreports.definition.dataset.predicates.NonSuppressedDataFilter;
 import org.openmrs.module.ugandaemrreports.definition.dataset.predicates.ViralLoadNotDetectedFilter;
 import org.openmrs.module.ugandaemrreports.definition.dataset.predicates.ViralLoadTestedFilter;
-import org.openmrs.module.ugandaemrreports.library.CommonCohortDefinitionLibrary;
+import org.openmrs.module.ugandaemrreports.definition.dimension.evaluator.AgeGenderDimensionEvaluator;
+import org.openmrs.module.ugandaemrreports.definition.dimension.evaluator.AgeGenderIndex;
 import org.openmrs.module.ugandaemrreports.metadata.HIVMetadata;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -48,8 +50,6 @@ public class ViralLoadDataSetEvaluator implements org.openmrs.module.reporting.d
     @Autowired
     private HIVMetadata hivMetadata;
     @Autowired
-    private CommonCohortDefinitionLibrary commonCohortDefinitionLibrary;
-    @Autowired
     private EvaluationService evaluationService;
     PatientDataHelper pdh = new PatientDataHelper();
 
@@ -115,50 +115,39 @@ public class ViralLoadDataSetEvaluator implements org.openmrs.module.reporting.d
 
         Cohort enrolledViaPMTCT = this.cohortDefinitionService.evaluate(entryThroughPMTCT, null);
 
-        Cohort males = this.cohortDefinitionService.evaluate(this.commonCohortDefinitionLibrary.males(), null);
-
-        Cohort females = this.cohortDefinitionService.evaluate(this.commonCohortDefinitionLibrary.females(), null);
-
-
-        Cohort below2Years = this.cohortDefinitionService.evaluate(this.commonCohortDefinitionLibrary.agedAtMost(2, endDate), null);
-        Cohort between2And5Years = this.cohortDefinitionService.evaluate(this.commonCohortDefinitionLibrary.agedBetween(2, 4, endDate), null);
-        Cohort between5And10Years = this.cohortDefinitionService.evaluate(this.commonCohortDefinitionLibrary.agedBetween(5, 9, endDate), null);
-        Cohort between10And15Years = this.cohortDefinitionService.evaluate(this.commonCohortDefinitionLibrary.agedBetween(10, 14, endDate), null);
-        Cohort between15And20Years = this.cohortDefinitionService.evaluate(this.commonCohortDefinitionLibrary.agedBetween(15, 19, endDate), null);
-        Cohort between20And25Years = this.cohortDefinitionService.evaluate(this.commonCohortDefinitionLibrary.agedBetween(20, 24, endDate), null);
-        Cohort between25And49Years = this.cohortDefinitionService.evaluate(this.commonCohortDefinitionLibrary.agedBetween(25, 49, endDate), null);
-        Cohort above50Years = this.cohortDefinitionService.evaluate(this.commonCohortDefinitionLibrary.agedAtLeast(50, endDate), null);
+        AgeGenderIndex demographics = AgeGenderIndex.forRun(evaluationContext == null ? new EvaluationContext() : evaluationContext, this.evaluationService);
+        int effectiveDate = Periods.yearMonthDay(endDate);
 
-        Map<String, List<Cohort>> aggregates = new HashMap<String, List<Cohort>>();
+        Map<String, Bucket> aggregates = new HashMap<String, Bucket>();
 
-        aggregates.put("a", Arrays.asList(below2Years, males));
-        aggregates.put("b", Arrays.asList(below2Years, females));
+        aggregates.put("a", new Bucket("M", null, 2));
+        aggregates.put("b", new Bucket("F", null, 2));
 
-        aggregates.put("c", Arrays.asList(between2And5Years, males));
-        aggregates.put("d", Arrays.asList(between2And5Years, females));
+        aggregates.put("c", new Bucket("M", 2, 4));
+        aggregates.put("d", new Bucket("F", 2, 4));
 
-        aggregates.put("e", Arrays.asList(between5And10Years, males));
-        aggregates.put("f", Arrays.asList(between5And10Years, females));
+        aggregates.put("e", new Bucket("M", 5, 9));
+        aggregates.put("f", new Bucket("F", 5, 9));
 
-        aggregates.put("g", Arrays.asList(between10And15Years, males));
-        aggregates.put("h", Arrays.asList(between10And15Years, females));
+        aggregates.put("g", new Bucket("M", 10, 14));
+        aggregates.put("h", new Bucket("F", 10, 14));
 
-        aggregates.put("i", Arrays.asList(between15And20Years, males));
-        aggregates.put("j", Arrays.asList(between15And20Years, females));
+        aggregates.put("i", new Bucket("M", 15, 19));
+        aggregates.put("j", new Bucket("F", 15, 19));
 
-        aggregates.put("k", Arrays.asList(between20And25Years, males));
-        aggregates.put("l", Arrays.asList(between20And25Years, females));
+        aggregates.put("k", new Bucket("M", 20, 24));
+        aggregates.put("l", new Bucket("F", 20, 24));
 
-        aggregates.put("m", Arrays.asList(between25And49Years, males));
-        aggregates.put("n", Arrays.asList(between25And49Years, females));
+        aggregates.put("m", new Bucket("M", 25, 49));
+        aggregates.put("n", new Bucket("F", 25, 49));
 
-        aggregates.put("o", Arrays.asList(above50Years, males));
-        aggregates.put("p", Arrays.asList(above50Years, females));
+        aggregates.put("o", new Bucket("M", 50, null));
+        aggregates.put("p", new Bucket("F", 50, null));
 
-        aggregates.put("q", Collections.singletonList(males));
-        aggregates.put("r", Collections.singletonList(females));
+        aggregates.put("q", new Bucket("M", null, null));
+        aggregates.put("r", new Bucket("F", null, null));
 
-        aggregates.put("s", Arrays.asList(females, enrolledViaPMTCT));
+        aggregates.put("s", new Bucket("F", null, null, enrolledViaPMTCT));
 
         Integer i = 1;
         for (Map.Entry<String, Map<String, Integer>> o : quartersToSubtract.entrySet()) {
@@ -171,7 +160,7 @@ public class ViralLoadDataSetEvaluator implements org.openmrs.module.reporting.d
 
             Cohort testedCohort = getPatients(tested);
             Cohort suppressed = getPatients(notDetected);
-            DataSetRow dataSetRow = joinDatasetRows(disaggregation(testedCohort, aggregates, ""), disaggregation(suppressed, aggregates, "1"));
+            DataSetRow dataSetRow = joinDatasetRows(disaggregation(testedCohort, aggregates, demographics, effectiveDate, ""), disaggregation(suppressed, aggregates, demographics, effectiveDate, "1"));
             dataSetRow = addOtherColumns(dataSetRow, otherColumnLabels, Arrays.asList(String.valueOf(i), String.valueOf(start) + " Months Cohort"));
             dataSet.addRow(dataSetRow);
             if (i == 1) {
@@ -189,7 +178,7 @@ public class ViralLoadDataSetEvaluator implements org.openmrs.module.reporting.d
         Map<String, List<Cohort>> c = getNonSuppressedCohorts(nonSuppressed, startDate, endDate);
 
         for (Map.Entry<String, List<Cohort>> o : c.entrySet()) {
-            DataSetRow ds = joinDatasetRows(disaggregation(o.getValue().get(0), aggregates, ""), disaggregation(o.getValue().get(1), aggregates, "1"));
+            DataSetRow ds = joinDatasetRows(disaggregation(o.getValue().get(0), aggregates, demographics, effectiveDate, ""), disaggregation(o.getValue().get(1), aggregates, demographics, effectiveDate, "1"));
             ds = addOtherColumns(ds, otherColumnLabels, Arrays.asList(String.valueOf(i), columns.get(o.getKey())));
             dataSet.addRow(ds);
             i += 1;
@@ -216,20 +205,44 @@ public class ViralLoadDataSetEvaluator implements org.openmrs.module.reporting.d
         return dataSet;
     }
 
-    private DataSetRow disaggregation(Cohort baseCohort, Map<String, List<Cohort>> cohorts, String addToKey) {
+    private DataSetRow disaggregation(Cohort baseCohort, Map<String, Bucket> buckets, AgeGenderIndex demographics, int effectiveDate, String addToKey) {
         DataSetRow row = new DataSetRow();
-        for (Map.Entry<String, List<Cohort>> cohort : cohorts.entrySet()) {
-            Collection baseMembers = baseCohort.getMemberIds();
-            String key = cohort.getKey();
-            List<Cohort> newCohortList = cohort.getValue();
-            for (Cohort found : newCohortList) {
-                baseMembers = CollectionUtils.intersection(baseMembers, found.getMemberIds());
+        for (Map.Entry<String, Bucket> bucket : buckets.entrySet()) {
+            Collection<Integer> baseMembers = baseCohort.getMemberIds();
+            Bucket found = bucket.getValue();
+            if (found.within != null) {
+                baseMembers = CollectionUtils.intersection(baseMembers, found.within.getMemberIds());
             }
-            this.pdh.addCol(row, key + addToKey, baseMembers.size());
+            this.pdh.addCol(row, bucket.getKey() + addToKey, count(baseMembers, found, demographics, effectiveDate));
         }
         return row;
     }
 
+    /**
+     * @return how many of the patients are in the gender and age band of the bucket, with ages bucketed like the
+     * age/gender dimensions. Patients born after the effective date or without a birthdate only count in buckets with
+     * no age band
+     */
+    private int count(Collection<Integer> patientIds, Bucket bucket, AgeGenderIndex demographics, int effectiveDate) {
+        boolean anyAge = bucket.minAge == null && bucket.maxAge == null;
+        int count = 0;
+        for (Integer patientId : patientIds) {
+            int i = demographics.indexOf(patientId);
+            if (i < 0 || (bucket.gender != null && demographics.getGender(i) != AgeGenderIndex.gender(bucket.gender))) {
+                continue;
+            }
+            if (!anyAge) {
+                int age = AgeGenderDimensionEvaluator.bucket(demographics.getBirthdate(i), effectiveDate) - 1;
+                if (age < 0 || age > AgeGenderDimensionEvaluator.MAX_AGE || (bucket.minAge != null && age < bucket.minAge)
+                        || (bucket.maxAge != null && age > bucket.maxAge)) {
+                    continue;
+                }
+            }
+            count++;
+        }
+        return count;
+    }
+
     private DataSetRow addOtherColumns(DataSetRow dataSetRow, List<String> otherColumnLabels, List<String> otherColumnValues) {
 
         Iterator<String> otherColumnValuesIterator = otherColumnValues.iterator();
@@ -466,4 +479,25 @@ public class ViralLoadDataSetEvaluator implements org.openmrs.module.reporting.d
         }
         return finalDataSetRow;
     }
-}
\ No newline at end of file
+
+    /**
+     * A gender and inclusive age band on the end date, optionally within another cohort
+     */
+    private static class Bucket {
+        private final String gender;
+        private final Integer minAge;
+        private final Integer maxAge;
+        private final Cohort within;
+
+        Bucket(String gender, Integer minAge, Integer maxAge) {
+            this(gender, minAge, maxAge, null);
+        }
+
+        Bucket(String gender, Integer minAge, Integer maxAge, Cohort within) {
+            this.gender = gender;
+            this.minAge = minAge;
+            this.maxAge = maxAge;
+            this.within = within;
+        }
+    }
+}
@@ -7,17 +7,20 @@ import org.openmrs.module.ugandaemrreports.common.PatientMonthData;
  * Created by carapai on 11/05/2017.
  */
 public class PatientMonthDataFilter implements Predicate<PatientMonthData> {
-    private Integer month;
-    private Integer dataType;
+    private final int month;
+    private final int lastMonth;
+    private final int dataType;
 
-    public PatientMonthDataFilter(Integer month, Integer dataType) {
+    public PatientMonthDataFilter(int month, int dataType) {
         this.month = month;
+        this.lastMonth = month + 2;
         this.dataType = dataType;
     }
 
     @Override
     public boolean apply(PatientMonthData patientMonthData) {
-        return (patientMonthData.getDataType().equals(dataType)) && (patientMonthData.getMonth() >= month) && (patientMonthData.getMonth() <= month + 2);
+        int m = patientMonthData.getMonth();
+        return patientMonthData.getDataType() == dataType && m >= month && m <= lastMonth;
 
     }
-}
\ No newline at end of file
+}
@@ -7,14 +7,17 @@ import org.openmrs.module.ugandaemrreports.common.ViralLoad;
  * Created by carapai on 11/05/2017.
  */
 public class ViralLoadFailedFilter implements Predicate<ViralLoad> {
-    private Integer month;
+    private final int month;
+    private final int lastMonth;
 
-    public ViralLoadFailedFilter(Integer month) {
+    public ViralLoadFailedFilter(int month) {
         this.month = month;
+        this.lastMonth = month + 2;
     }
 
     @Override
     public boolean apply(ViralLoad viralLoad) {
-        return (viralLoad.getMonthsBetweenArtAndViralLoad() >= month) && (viralLoad.getMonthsBetweenArtAndViralLoad() <= month + 2) && (viralLoad.getValueNumeric() > 1000.0D);
+        int m = viralLoad.getMonthsBetweenArtAndViralLoad();
+        return m >= month && m <= lastMonth && viralLoad.getValueNumeric() > 1000.0D;
     }
-}
\ No newline at end of file
+}
@@ -7,16 +7,17 @@ import org.openmrs.module.ugandaemrreports.common.ViralLoad;
  * Created by carapai on 11/05/2017.
  */
 public class ViralLoadNotDetectedFilter implements Predicate<ViralLoad> {
-    private Integer start;
-    private Integer end;
+    private final int start;
+    private final int end;
 
-    public ViralLoadNotDetectedFilter(Integer start, Integer end) {
+    public ViralLoadNotDetectedFilter(int start, int end) {
         this.start = start;
         this.end = end;
     }
 
     @Override
     public boolean apply(ViralLoad viralLoad) {
-        return ((viralLoad.getValueCoded() == 1306 || viralLoad.getValueNumeric() < 1000.0D) && (viralLoad.getMonthsBetweenReportDateAndArt() >= start && viralLoad.getMonthsBetweenReportDateAndArt() <= end));
+        int m = viralLoad.getMonthsBetweenReportDateAndArt();
+        return (viralLoad.getValueCoded() == 1306 || viralLoad.getValueNumeric() < 1000.0D) && m >= start && m <= end;
     }
-}
\ No newline at end of file
+}
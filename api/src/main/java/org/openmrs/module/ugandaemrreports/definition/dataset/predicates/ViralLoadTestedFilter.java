@@ -7,17 +7,18 @@ import org.openmrs.module.ugandaemrreports.common.ViralLoad;
  * Created by carapai on 11/05/2017.
  */
 public class ViralLoadTestedFilter implements Predicate<ViralLoad> {
-    private Integer start;
-    private Integer end;
+    private final int start;
+    private final int end;
 
-    public ViralLoadTestedFilter(Integer start, Integer end) {
+    public ViralLoadTestedFilter(int start, int end) {
         this.start = start;
         this.end = end;
     }
 
     @Override
     public boolean apply(ViralLoad viralLoad) {
-        return (viralLoad.getMonthsBetweenReportDateAndArt() >= start && viralLoad.getMonthsBetweenReportDateAndArt() <= end);
+        int m = viralLoad.getMonthsBetweenReportDateAndArt();
+        return m >= start && m <= end;
 
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,102 @@
+package org.openmrs.module.ugandaemrreports.definition.dimension.definition;
+
+import org.openmrs.module.reporting.definition.configuration.ConfigurationProperty;
+import org.openmrs.module.reporting.indicator.dimension.CohortDefinitionDimension;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Age and gender disaggregation evaluated from one read of the patients' gender and birthdate instead of a
+ * composition cohort per option. Ages are in completed years on the endDate parameter and bounds are inclusive,
+ * the same as the AgeCohortDefinition and GenderCohortDefinition options it replaces.
+ */
+public class AgeGenderDimension extends CohortDefinitionDimension {
+
+    public static final String MALE = "M";
+    public static final String FEMALE = "F";
+
+    @ConfigurationProperty
+    private Map<String, Band> bands = new LinkedHashMap<String, Band>();
+
+    public AgeGenderDimension() {
+        super();
+    }
+
+    /**
+     * @param gender M, F or null for both
+     * @param minAge the youngest age included, null for no lower bound
+     * @param maxAge the oldest age included, null for no upper bound
+     */
+    public void addOption(String option, String gender, Integer minAge, Integer maxAge) {
+        bands.put(option, new Band(gender, minAge, maxAge));
+    }
+
+    /**
+     * Adds the options prefix + "male" and prefix + "female" for the age range
+     */
+    public void addGenderOptions(String prefix, Integer minAge, Integer maxAge) {
+        addOption(prefix + "male", MALE, minAge, maxAge);
+        addOption(prefix + "female", FEMALE, minAge, maxAge);
+    }
+
+    @Override
+    public List<String> getOptionKeys() {
+        return new ArrayList<String>(bands.keySet());
+    }
+
+    public Map<String, Band> getBands() {
+        return bands;
+    }
+
+    public void setBands(Map<String, Band> bands) {
+        this.bands = bands;
+    }
+
+    public static class Band {
+
+        private String gender;
+        private Integer minAge;
+        private Integer maxAge;
+
+        public Band() {
+        }
+
+        public Band(String gender, Integer minAge, Integer maxAge) {
+            this.gender = gender;
+            this.minAge = minAge;
+            this.maxAge = maxAge;
+        }
+
+        public String getGender() {
+            return gender;
+        }
+
+        public void setGender(String gender) {
+            this.gender = gender;
+        }
+
+        public Integer getMinAge() {
+            return minAge;
+        }
+
+        public void setMinAge(Integer minAge) {
+            this.minAge = minAge;
+        }
+
+        public Integer getMaxAge() {
+            return maxAge;
+        }
+
+        public void setMaxAge(Integer maxAge) {
+            this.maxAge = maxAge;
+        }
+
+        @Override
+        public String toString() {
+            return (gender == null ? "" : gender + " ") + (minAge == null ? "" : minAge) + "-" + (maxAge == null ? "" : maxAge);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.openmrs.module.ugandaemrreports.definition.dimension.evaluator;
+
+import org.openmrs.annotation.Handler;
+import org.openmrs.module.reporting.ReportingConstants;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.evaluation.EvaluationException;
+import org.openmrs.module.reporting.evaluation.service.EvaluationService;
+import org.openmrs.module.reporting.indicator.dimension.CohortDimensionResult;
+import org.openmrs.module.reporting.indicator.dimension.Dimension;
+import org.openmrs.module.reporting.indicator.dimension.evaluator.DimensionEvaluator;
+import org.openmrs.module.ugandaemrreports.common.PatientBitmap;
+import org.openmrs.module.ugandaemrreports.common.Periods;
+import org.openmrs.module.ugandaemrreports.definition.dimension.definition.AgeGenderDimension;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Puts every patient in one gender x age in years bucket in a single pass over {@link AgeGenderIndex}, each option is
+ * then the union of the buckets it covers
+ */
+@Handler(supports = {AgeGenderDimension.class}, order = 50)
+public class AgeGenderDimensionEvaluator implements DimensionEvaluator {
+
+    /**
+     * Older patients share the bucket of this age
+     */
+    public static final int MAX_AGE = 150;
+
+    @Autowired
+    EvaluationService evaluationService;
+
+    @Override
+    public CohortDimensionResult evaluate(Dimension dimension, EvaluationContext context) throws EvaluationException {
+        AgeGenderDimension definition = (AgeGenderDimension) dimension;
+        AgeGenderIndex index = AgeGenderIndex.forRun(context, evaluationService);
+        PatientBitmap base = context.getBaseCohort() == null ? null : PatientBitmap.of(context.getBaseCohort().getMemberIds());
+        int effectiveDate = Periods.yearMonthDay(getEffectiveDate(context));
+
+        // [gender][age + 1], age -1 being the patients born after the effective date, and [gender][MAX_AGE + 2] no birthdate
+        PatientBitmap[][] buckets = new PatientBitmap[3][MAX_AGE + 3];
+        for (int i = 0; i < index.size(); i++) {
+            int patientId = index.getPatientId(i);
+            if (base != null && !base.contains(patientId)) {
+                continue;
+            }
+            int bucket = bucket(index.getBirthdate(i), effectiveDate);
+            PatientBitmap patients = buckets[index.getGender(i)][bucket];
+            if (patients == null) {
+                patients = new PatientBitmap();
+                buckets[index.getGender(i)][bucket] = patients;
+            }
+            patients.add(patientId);
+        }
+
+        Map<String, PatientBitmap> options = new LinkedHashMap<String, PatientBitmap>();
+        for (Map.Entry<String, AgeGenderDimension.Band> option : definition.getBands().entrySet()) {
+            options.put(option.getKey(), union(buckets, option.getValue()));
+        }
+        return new AgeGenderDimensionResult(definition, context, options);
+    }
+
+    /**
+     * @return age + 1 in completed years at the effective date, 0 for a patient born after it and MAX_AGE + 2 for
+     * one without a birthdate
+     */
+    public static int bucket(int birthdate, int effectiveDate) {
+        if (birthdate == AgeGenderIndex.UNKNOWN) {
+            return MAX_AGE + 2;
+        } else if (birthdate > effectiveDate) {
+            return 0;
+        }
+        return Math.min((effectiveDate - birthdate) / 10000, MAX_AGE) + 1;
+    }
+
+    private PatientBitmap union(PatientBitmap[][] buckets, AgeGenderDimension.Band band) {
+        boolean anyAge = band.getMinAge() == null && band.getMaxAge() == null;
+        PatientBitmap patients = new PatientBitmap();
+        for (int gender = 0; gender < buckets.length; gender++) {
+            if (band.getGender() != null && AgeGenderIndex.gender(band.getGender()) != gender) {
+                continue;
+            }
+            for (int bucket = 0; bucket < buckets[gender].length; bucket++) {
+                if (buckets[gender][bucket] == null) {
+                    continue;
+                }
+                boolean included;
+                if (bucket == MAX_AGE + 2) {
+                    // like the age cohort definitions, patients without a birthdate are only in options with no age
+                    included = anyAge;
+                } else {
+                    int age = bucket - 1;
+                    included = (band.getMinAge() == null || age >= band.getMinAge()) && (band.getMaxAge() == null || age <= band.getMaxAge());
+                }
+                if (included) {
+                    patients = patients.or(buckets[gender][bucket]);
+                }
+            }
+        }
+        return patients;
+    }
+
+    private Date getEffectiveDate(EvaluationContext context) {
+        Object endDate = context.getParameterValue(ReportingConstants.END_DATE_PARAMETER.getName());
+        if (endDate instanceof Date) {
+            return (Date) endDate;
+        }
+        return context.getEvaluationDate() == null ? new Date() : context.getEvaluationDate();
+    }
+}
@@ -0,0 +1,51 @@
+package org.openmrs.module.ugandaemrreports.definition.dimension.evaluator;
+
+import org.openmrs.Cohort;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.indicator.dimension.CohortDimensionResult;
+import org.openmrs.module.ugandaemrreports.common.PatientBitmap;
+import org.openmrs.module.ugandaemrreports.definition.dimension.definition.AgeGenderDimension;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The patients of each option as a {@link PatientBitmap}. Cohorts are only built for the options asked for by
+ * callers that do not read the bitmaps.
+ */
+public class AgeGenderDimensionResult extends CohortDimensionResult {
+
+    private final Map<String, PatientBitmap> bitmaps;
+    private final Map<String, Cohort> cohorts = new LinkedHashMap<String, Cohort>();
+
+    public AgeGenderDimensionResult(AgeGenderDimension dimension, EvaluationContext context, Map<String, PatientBitmap> bitmaps) {
+        super(dimension, context);
+        this.bitmaps = bitmaps;
+    }
+
+    public PatientBitmap getBitmap(String option) {
+        return bitmaps.get(option);
+    }
+
+    public Map<String, PatientBitmap> getBitmaps() {
+        return bitmaps;
+    }
+
+    @Override
+    public synchronized Cohort getCohort(String option) {
+        Cohort cohort = cohorts.get(option);
+        if (cohort == null && bitmaps.containsKey(option)) {
+            cohort = new Cohort(bitmaps.get(option).toSet());
+            cohorts.put(option, cohort);
+        }
+        return cohort;
+    }
+
+    @Override
+    public synchronized Map<String, Cohort> getOptionCohorts() {
+        for (String option : bitmaps.keySet()) {
+            getCohort(option);
+        }
+        return cohorts;
+    }
+}
@@ -0,0 +1,101 @@
+package org.openmrs.module.ugandaemrreports.definition.dimension.evaluator;
+
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.evaluation.EvaluationException;
+import org.openmrs.module.reporting.evaluation.querybuilder.SqlQueryBuilder;
+import org.openmrs.module.reporting.evaluation.service.EvaluationService;
+import org.openmrs.module.ugandaemrreports.common.Periods;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Gender and birthdate of every patient, read once per report run and shared by the age/gender dimensions of all
+ * the data sets in it and by the evaluators that count patients per gender and age band
+ */
+public class AgeGenderIndex {
+
+    private static final String CACHE_KEY = AgeGenderIndex.class.getName();
+
+    public static final int MALE = 0;
+    public static final int FEMALE = 1;
+    public static final int OTHER = 2;
+
+    /**
+     * Birthdate of patients who have none
+     */
+    public static final int UNKNOWN = -1;
+
+    private final int[] patientIds;
+    private final byte[] genders;
+    /**
+     * As {@link Periods#yearMonthDay}
+     */
+    private final int[] birthdates;
+
+    private AgeGenderIndex(List<Object[]> rows) {
+        patientIds = new int[rows.size()];
+        genders = new byte[rows.size()];
+        birthdates = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            patientIds[i] = ((Number) row[0]).intValue();
+            genders[i] = (byte) gender((String) row[1]);
+            birthdates[i] = row[2] == null ? UNKNOWN : Periods.yearMonthDay((Date) row[2]);
+        }
+    }
+
+    public static AgeGenderIndex forRun(EvaluationContext context, EvaluationService evaluationService) throws EvaluationException {
+        EvaluationContext root = context;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        synchronized (root) {
+            Object cached = root.getFromCache(CACHE_KEY);
+            if (cached instanceof AgeGenderIndex) {
+                return (AgeGenderIndex) cached;
+            }
+            SqlQueryBuilder q = new SqlQueryBuilder();
+            q.append("SELECT p.patient_id, pe.gender, pe.birthdate\n" +
+                    "FROM patient p INNER JOIN person pe ON (pe.person_id = p.patient_id)\n" +
+                    "WHERE p.voided = 0 AND pe.voided = 0\n" +
+                    "ORDER BY p.patient_id");
+            AgeGenderIndex index = new AgeGenderIndex(evaluationService.evaluateToList(q, context));
+            root.addToCache(CACHE_KEY, index);
+            return index;
+        }
+    }
+
+    public static int gender(String gender) {
+        if ("M".equalsIgnoreCase(gender)) {
+            return MALE;
+        } else if ("F".equalsIgnoreCase(gender)) {
+            return FEMALE;
+        }
+        return OTHER;
+    }
+
+    public int size() {
+        return patientIds.length;
+    }
+
+    /**
+     * @return the position of the patient in the index, negative when the patient is voided or unknown
+     */
+    public int indexOf(int patientId) {
+        return Arrays.binarySearch(patientIds, patientId);
+    }
+
+    public int getPatientId(int i) {
+        return patientIds[i];
+    }
+
+    public int getGender(int i) {
+        return genders[i];
+    }
+
+    public int getBirthdate(int i) {
+        return birthdates[i];
+    }
+}
@@ -14,9 +14,7 @@
 package org.openmrs.module.ugandaemrreports.metadata;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -30,13 +28,12 @@ import org.openmrs.PersonAttributeType;
 import org.openmrs.RelationshipType;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.reporting.common.ObjectUtil;
+import org.openmrs.module.ugandaemrreports.reporting.metadata.ConceptCache;
 
 public abstract class Metadata {
 
 	protected final Log log = LogFactory.getLog(getClass());
 
-	private Map<String, Concept> conceptCache = new HashMap<String, Concept>();
-
 	/**
 	 * @return the PatientIdentifier that matches the passed uuid, name, or primary key id
 	 */
@@ -62,33 +59,34 @@ public abstract class Metadata {
 	 * @return the Concept that matches the passed uuid, name, source:code mapping, or primary key id
 	 */
 	public Concept getConcept(String lookup) {
-		Concept c = conceptCache.get(lookup);
+		Concept c = ConceptCache.METADATA.getConcept(lookup, this::resolveConcept);
 		if (c == null) {
-			c = Context.getConceptService().getConceptByUuid(lookup);
-			if (c == null) {
-				c = Context.getConceptService().getConceptByName(lookup);
-			}
-			if (c == null) {
-				try {
-					String[] split = lookup.split("\\:");
-					if (split.length == 2) {
-						c = Context.getConceptService().getConceptByMapping(split[1], split[0]);
-					}
-				}
-				catch (Exception e) {
+			throw new IllegalArgumentException("Unable to find Concept using key: " + lookup);
+		}
+		return c;
+	}
+
+	private Concept resolveConcept(String lookup) {
+		Concept c = Context.getConceptService().getConceptByUuid(lookup);
+		if (c == null) {
+			c = Context.getConceptService().getConceptByName(lookup);
+		}
+		if (c == null) {
+			try {
+				String[] split = lookup.split("\\:");
+				if (split.length == 2) {
+					c = Context.getConceptService().getConceptByMapping(split[1], split[0]);
 				}
 			}
-			if (c == null) {
-				try {
-					c = Context.getConceptService().getConcept(Integer.parseInt(lookup));
-				}
-				catch (Exception e) {
-				}
+			catch (Exception e) {
 			}
-			if (c == null) {
-				throw new IllegalArgumentException("Unable to find Concept using key: " + lookup);
+		}
+		if (c == null) {
+			try {
+				c = Context.getConceptService().getConcept(Integer.parseInt(lookup));
+			}
+			catch (Exception e) {
 			}
-			conceptCache.put(lookup, c);
 		}
 		return c;
 	}
@@ -0,0 +1,395 @@
+package org.openmrs.module.ugandaemrreports.reporting.appointments;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.ugandaemrreports.common.ConnectionPool;
+import org.openmrs.module.ugandaemrreports.common.NamedQuery;
+import org.openmrs.module.ugandaemrreports.reporting.cohort.CohortCache;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The visits of every patient in date order, each with the return visit date (5096) set at it, read with one streamed
+ * query per report run and shared by the evaluators that classify patients as having missed an appointment, lost or
+ * dropped. Statuses are computed in memory for any reference date and kept per reference date, so a report asking
+ * about several dates (the end of each period, the end of the first year of ART...) reads the visits once.
+ * Dates are held as day numbers, so a patient costs a few bytes per visit.
+ * Only return visit dates recorded in an encounter are read; a 5096 obs saved without an encounter is not a visit and
+ * is left out.
+ */
+public class AppointmentTimeline {
+
+    protected static final Log log = LogFactory.getLog(AppointmentTimeline.class);
+
+    /**
+     * Days after a missed appointment from which the HMIS 106a 1B cohort analysis counts a patient as lost
+     */
+    public static final int HMIS_LOST_DAYS = 8;
+
+    /**
+     * Days after a missed appointment from which a patient has dropped out of care (MoH)
+     */
+    public static final int DROPPED_DAYS = 90;
+
+    private static final int NONE = Integer.MIN_VALUE;
+
+    private static final String CACHE_KEY = AppointmentTimeline.class.getName();
+
+    public enum Status {
+        ACTIVE,
+        MISSED,
+        LOST,
+        DROPPED
+    }
+
+    /**
+     * One visit of a patient
+     */
+    public static class Visit {
+        private final Date date;
+        private final Date appointment;
+        private final int encounterType;
+        private final boolean scheduled;
+
+        Visit(Date date, Date appointment, int encounterType, boolean scheduled) {
+            this.date = date;
+            this.appointment = appointment;
+            this.encounterType = encounterType;
+            this.scheduled = scheduled;
+        }
+
+        public Date getDate() {
+            return date;
+        }
+
+        /**
+         * @return the return visit date set at the visit, null if none was
+         */
+        public Date getAppointment() {
+            return appointment;
+        }
+
+        public int getEncounterType() {
+            return encounterType;
+        }
+
+        /**
+         * @return true if the visit was recorded as a scheduled visit (90069)
+         */
+        public boolean isScheduled() {
+            return scheduled;
+        }
+    }
+
+    private final int[] patientIds;
+    /**
+     * Index of the first visit of each patient, with one more entry holding the number of visits
+     */
+    private final int[] firstVisits;
+    private final int[] visitDays;
+    private final int[] appointmentDays;
+    private final int[] encounterTypes;
+    private final BitSet scheduled;
+
+    private final Map<String, Map<Integer, Status>> statuses = new ConcurrentHashMap<>();
+
+    AppointmentTimeline(int[] patientIds, int[] firstVisits, int[] visitDays, int[] appointmentDays,
+                                int[] encounterTypes, BitSet scheduled) {
+        this.patientIds = patientIds;
+        this.firstVisits = firstVisits;
+        this.visitDays = visitDays;
+        this.appointmentDays = appointmentDays;
+        this.encounterTypes = encounterTypes;
+        this.scheduled = scheduled;
+    }
+
+    /**
+     * @return the timeline of the report run the context belongs to, read on first use
+     */
+    public static AppointmentTimeline forRun(EvaluationContext context) throws SQLException {
+        // kept by the run's cohort cache when there is one, so the data sets of a run evaluated concurrently share it
+        CohortCache run = CohortCache.forContext(context);
+        EvaluationContext root = context;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        synchronized (run != null ? run : root) {
+            Object cached = run != null ? run.getAttribute(CACHE_KEY) : root.getFromCache(CACHE_KEY);
+            if (cached instanceof AppointmentTimeline) {
+                return (AppointmentTimeline) cached;
+            }
+            AppointmentTimeline timeline;
+            try (Connection connection = ConnectionPool.getInstance().checkout("appointment timeline")) {
+                timeline = load(connection);
+            }
+            if (run != null) {
+                run.setAttribute(CACHE_KEY, timeline);
+            } else {
+                root.addToCache(CACHE_KEY, timeline);
+            }
+            return timeline;
+        }
+    }
+
+    static AppointmentTimeline load(Connection connection) throws SQLException {
+        long start = System.currentTimeMillis();
+        IntList patients = new IntList();
+        IntList firstVisits = new IntList();
+        IntList visits = new IntList();
+        IntList appointments = new IntList();
+        IntList types = new IntList();
+        BitSet scheduled = new BitSet();
+        NamedQuery.get("appointment-timeline").forEach(connection, NamedQuery.parameters(), rs -> {
+            int patientId = rs.getInt(1);
+            java.sql.Date visit = rs.getDate(2);
+            if (visit == null) {
+                return;
+            }
+            if (patients.size == 0 || patients.last() != patientId) {
+                patients.add(patientId);
+                firstVisits.add(visits.size);
+            }
+            java.sql.Date appointment = rs.getDate(4);
+            if (rs.getInt(5) > 0) {
+                scheduled.set(visits.size);
+            }
+            visits.add((int) visit.toLocalDate().toEpochDay());
+            types.add(rs.getInt(3));
+            appointments.add(appointment == null ? NONE : (int) appointment.toLocalDate().toEpochDay());
+        });
+        firstVisits.add(visits.size);
+        log.info("Read the appointment timeline of " + patients.size + " patients, " + visits.size + " visits, in "
+                + (System.currentTimeMillis() - start) + "ms");
+        return new AppointmentTimeline(patients.toArray(), firstVisits.toArray(), visits.toArray(), appointments.toArray(),
+                types.toArray(), scheduled);
+    }
+
+    /**
+     * @return the patients with at least one visit, in id order
+     */
+    public List<Integer> patients() {
+        List<Integer> patients = new ArrayList<>(patientIds.length);
+        for (int patientId : patientIds) {
+            patients.add(patientId);
+        }
+        return patients;
+    }
+
+    public boolean contains(Integer patientId) {
+        return index(patientId) >= 0;
+    }
+
+    /**
+     * @return the visits of the patient in date order, empty if they have none
+     */
+    public List<Visit> visits(Integer patientId) {
+        int index = index(patientId);
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        List<Visit> visits = new ArrayList<>();
+        for (int i = firstVisits[index]; i < firstVisits[index + 1]; i++) {
+            visits.add(new Visit(date(visitDays[i]), appointmentDays[i] == NONE ? null : date(appointmentDays[i]),
+                    encounterTypes[i], scheduled.get(i)));
+        }
+        return visits;
+    }
+
+    /**
+     * @return the date of the last visit of the patient on or before the date, null if there is none
+     */
+    public Date lastVisitOnOrBefore(Integer patientId, Date date) {
+        int index = index(patientId);
+        if (index < 0) {
+            return null;
+        }
+        int day = day(date);
+        int last = NONE;
+        for (int i = firstVisits[index]; i < firstVisits[index + 1]; i++) {
+            if (visitDays[i] <= day) {
+                last = Math.max(last, visitDays[i]);
+            }
+        }
+        return last == NONE ? null : date(last);
+    }
+
+    /**
+     * @return the latest return visit date set for the patient that falls on or before the date, null if there is none
+     */
+    public Date lastAppointmentOnOrBefore(Integer patientId, Date date) {
+        int index = index(patientId);
+        if (index < 0) {
+            return null;
+        }
+        int day = day(date);
+        int last = NONE;
+        for (int i = firstVisits[index]; i < firstVisits[index + 1]; i++) {
+            if (appointmentDays[i] != NONE && appointmentDays[i] <= day) {
+                last = Math.max(last, appointmentDays[i]);
+            }
+        }
+        return last == NONE ? null : date(last);
+    }
+
+    /**
+     * @return for each visit of the encounter type between the dates, inclusive, the days it came after the latest
+     * return visit date set at an earlier visit, negative when it came early; visits with no earlier appointment are
+     * left out
+     */
+    public List<Integer> daysLateAtVisits(Integer patientId, Date from, Date to, int encounterType) {
+        int index = index(patientId);
+        if (index < 0) {
+            return Collections.emptyList();
+        }
+        int first = day(from);
+        int last = day(to);
+        int appointment = NONE;
+        List<Integer> days = new ArrayList<>();
+        for (int i = firstVisits[index]; i < firstVisits[index + 1]; i++) {
+            if (encounterTypes[i] == encounterType && visitDays[i] >= first && visitDays[i] <= last && appointment != NONE) {
+                days.add(visitDays[i] - appointment);
+            }
+            if (appointmentDays[i] != NONE) {
+                appointment = Math.max(appointment, appointmentDays[i]);
+            }
+        }
+        return days;
+    }
+
+    /**
+     * How late the patient is on the reference date, looking only at visits before it and appointments falling before
+     * it: the days since the last appointment if it is after the last visit, the days the last visit came after the
+     * last appointment otherwise, or the days since the last visit if no appointment was ever set
+     *
+     * @return null if the patient has no visit before the reference date
+     */
+    public Integer daysLate(Integer patientId, Date reference) {
+        int index = index(patientId);
+        return index < 0 ? null : daysLate(index, day(reference));
+    }
+
+    private Integer daysLate(int index, int reference) {
+        int lastVisit = NONE;
+        int lastAppointment = NONE;
+        for (int i = firstVisits[index]; i < firstVisits[index + 1]; i++) {
+            if (visitDays[i] < reference) {
+                lastVisit = Math.max(lastVisit, visitDays[i]);
+            }
+            if (appointmentDays[i] != NONE && appointmentDays[i] < reference) {
+                lastAppointment = Math.max(lastAppointment, appointmentDays[i]);
+            }
+        }
+        if (lastVisit == NONE) {
+            return null;
+        } else if (lastAppointment == NONE) {
+            return reference - lastVisit;
+        } else if (lastVisit >= lastAppointment) {
+            return lastVisit - lastAppointment;
+        }
+        return reference - lastAppointment;
+    }
+
+    /**
+     * @return the status of the patient on the reference date, null if they have no visit before it
+     */
+    public Status status(Integer patientId, Date reference, int lostDays, int droppedDays) {
+        return statuses(reference, lostDays, droppedDays).get(patientId);
+    }
+
+    /**
+     * @return the status on the reference date of every patient with a visit before it, computed once per reference
+     * date and thresholds
+     */
+    public Map<Integer, Status> statuses(Date reference, int lostDays, int droppedDays) {
+        final int day = day(reference);
+        return statuses.computeIfAbsent(day + ":" + lostDays + ":" + droppedDays, key -> {
+            Map<Integer, Status> result = new HashMap<>();
+            for (int index = 0; index < patientIds.length; index++) {
+                Integer daysLate = daysLate(index, day);
+                if (daysLate != null) {
+                    result.put(patientIds[index], status(daysLate, lostDays, droppedDays));
+                }
+            }
+            return Collections.unmodifiableMap(result);
+        });
+    }
+
+    /**
+     * @return the patients among the given ones with the status on the reference date
+     */
+    public Set<Integer> withStatus(Collection<Integer> patients, Status status, Date reference, int lostDays, int droppedDays) {
+        Map<Integer, Status> all = statuses(reference, lostDays, droppedDays);
+        Set<Integer> result = new HashSet<>();
+        for (Integer patient : patients) {
+            if (all.get(patient) == status) {
+                result.add(patient);
+            }
+        }
+        return result;
+    }
+
+    static Status status(int daysLate, int lostDays, int droppedDays) {
+        if (daysLate >= droppedDays) {
+            return Status.DROPPED;
+        } else if (daysLate >= lostDays) {
+            return Status.LOST;
+        } else if (daysLate > 0) {
+            return Status.MISSED;
+        }
+        return Status.ACTIVE;
+    }
+
+    private int index(Integer patientId) {
+        return patientId == null ? -1 : Arrays.binarySearch(patientIds, patientId);
+    }
+
+    static int day(Date date) {
+        if (date instanceof java.sql.Date) {
+            return (int) ((java.sql.Date) date).toLocalDate().toEpochDay();
+        }
+        return (int) date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    static Date date(int day) {
+        return java.sql.Date.valueOf(LocalDate.ofEpochDay(day));
+    }
+
+    /**
+     * Growable array of ints, the timeline of a big facility holds millions of visits
+     */
+    private static class IntList {
+        private int[] values = new int[1024];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int last() {
+            return values[size - 1];
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
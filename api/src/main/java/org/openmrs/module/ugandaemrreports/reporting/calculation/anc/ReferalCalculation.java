@@ -48,16 +48,16 @@ public class ReferalCalculation extends AbstractPatientCalculation {
                 referOutReason = obs.getValueText();
             }
 
-            if(referralOption != null && referralOption.equals(Dictionary.getConcept("6442c9f6-25e8-4c8e-af8a-e9f6845ceaed"))) {
+            if(Dictionary.isConcept(referralOption, "6442c9f6-25e8-4c8e-af8a-e9f6845ceaed")) {
                 refer = "REF OUT "+referOutReason;
             }
-            else if(referralOption != null && referralOption.equals(Dictionary.getConcept("14714862-6c78-49da-b65b-f249cccddfb6"))) {
+            else if(Dictionary.isConcept(referralOption, "14714862-6c78-49da-b65b-f249cccddfb6")) {
                 refer = "REF IN";
             }
-            else if(referralOption != null && referralOption.equals(Dictionary.getConcept("03997d45-f6f7-4ee2-a6fe-b16985e3495d"))) {
+            else if(Dictionary.isConcept(referralOption, "03997d45-f6f7-4ee2-a6fe-b16985e3495d")) {
                 refer = "C/REF IN";
             }
-            else if(referralOption != null && referralOption.equals(Dictionary.getConcept("3af0aae4-4ea7-489d-a5be-c5339f7c5a77"))) {
+            else if(Dictionary.isConcept(referralOption, "3af0aae4-4ea7-489d-a5be-c5339f7c5a77")) {
                 refer = "FSG";
             }
 
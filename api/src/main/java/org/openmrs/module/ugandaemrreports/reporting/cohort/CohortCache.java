@@ -0,0 +1,300 @@
+package org.openmrs.module.ugandaemrreports.reporting.cohort;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.Cohort;
+import org.openmrs.OpenmrsObject;
+import org.openmrs.module.reporting.cohort.EvaluatedCohort;
+import org.openmrs.module.reporting.cohort.definition.CohortDefinition;
+import org.openmrs.module.reporting.definition.DefinitionUtil;
+import org.openmrs.module.reporting.definition.configuration.Property;
+import org.openmrs.module.reporting.evaluation.Definition;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.evaluation.parameter.Mapped;
+import org.openmrs.module.reporting.evaluation.parameter.Parameter;
+import org.openmrs.module.ugandaemrreports.common.Helper;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cohorts evaluated during one report run, so a cohort definition shared by many indicators (females, has an ANC
+ * encounter, ANC visit number between two values...) is evaluated once per run instead of once per indicator.
+ * Definitions are keyed by their structure: class, configuration properties (nested definitions included), the
+ * parameter values they are evaluated with, the base cohort and the evaluation date. Two definitions built
+ * separately by the libraries but configured the same therefore share one entry.
+ * A run starts and ends with the evaluation of a report definition, see {@link CohortCacheRunAdvice}; cohorts
+ * evaluated outside a report run are not cached.
+ */
+public class CohortCache {
+
+    protected static final Log log = LogFactory.getLog(CohortCache.class);
+
+    public static final String GP_ENABLED = "ugandaemrreports.cohortCache.enabled";
+
+    /**
+     * Runs in progress keyed by the context the report was evaluated with, weak so an abandoned run is collected
+     */
+    private static final Map<EvaluationContext, CohortCache> RUNS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private static final AtomicLong totalHits = new AtomicLong();
+    private static final AtomicLong totalMisses = new AtomicLong();
+
+    private static volatile CohortCache lastRun;
+
+    public interface Evaluation {
+        EvaluatedCohort evaluate() throws Throwable;
+    }
+
+    private final String name;
+    private final ConcurrentMap<String, EvaluatedCohort> cohorts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Object> attributes = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private CohortCache(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Starts a run for the report evaluated with the context unless one is already in progress
+     *
+     * @return true if a run was started, the caller must then {@link #finish} it
+     */
+    public static boolean start(EvaluationContext context, String name) {
+        if (!Helper.getBooleanGlobalProperty(GP_ENABLED, true)) {
+            return false;
+        }
+        EvaluationContext root = root(context);
+        synchronized (RUNS) {
+            if (RUNS.containsKey(root)) {
+                return false;
+            }
+            RUNS.put(root, new CohortCache(name));
+        }
+        return true;
+    }
+
+    public static void finish(EvaluationContext context) {
+        CohortCache run = RUNS.remove(root(context));
+        if (run != null) {
+            run.attributes.clear();
+            lastRun = run;
+            log.info("Cohort cache for " + run.name + ": " + run.getHits() + " hits, " + run.getMisses() + " misses, "
+                    + run.cohorts.size() + " cohorts");
+        }
+    }
+
+    /**
+     * Makes a copy of a run's context, evaluated on another thread, use the run's cache
+     *
+     * @return true if the copy was added to the run, the caller must then {@link #unshare} it
+     */
+    public static boolean share(EvaluationContext context, EvaluationContext copy) {
+        CohortCache run = forContext(context);
+        EvaluationContext copyRoot = root(copy);
+        if (run == null || copyRoot == root(context)) {
+            return false;
+        }
+        RUNS.put(copyRoot, run);
+        return true;
+    }
+
+    public static void unshare(EvaluationContext copy) {
+        RUNS.remove(root(copy));
+    }
+
+    /**
+     * @return the cache of the run the context belongs to, null when the context is not part of a report run
+     */
+    public static CohortCache forContext(EvaluationContext context) {
+        return RUNS.isEmpty() ? null : RUNS.get(root(context));
+    }
+
+    /**
+     * @return the last finished run, null if no report has finished since startup
+     */
+    public static CohortCache getLastRun() {
+        return lastRun;
+    }
+
+    public static long getTotalHits() {
+        return totalHits.get();
+    }
+
+    public static long getTotalMisses() {
+        return totalMisses.get();
+    }
+
+    private static EvaluationContext root(EvaluationContext context) {
+        EvaluationContext root = context;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        return root;
+    }
+
+    /**
+     * @param context the context the definition is evaluated with, its parameter values already resolved
+     * @return a copy of the cached cohort, so callers may change it
+     */
+    public EvaluatedCohort evaluate(CohortDefinition definition, EvaluationContext context, Evaluation evaluation) throws Throwable {
+        String key = key(definition, context);
+        EvaluatedCohort cohort = cohorts.get(key);
+        if (cohort != null) {
+            hits.incrementAndGet();
+            totalHits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            totalMisses.incrementAndGet();
+            cohort = evaluation.evaluate();
+            if (cohort == null) {
+                return null;
+            }
+            cohorts.putIfAbsent(key, new EvaluatedCohort(cohort, cohort.getDefinition(), cohort.getContext()));
+        }
+        return new EvaluatedCohort(cohort, cohort.getDefinition(), cohort.getContext());
+    }
+
+    String key(CohortDefinition definition, EvaluationContext context) {
+        StringBuilder key = new StringBuilder();
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        appendDefinition(key, definition, visited);
+        key.append("|parameters{");
+        for (Parameter parameter : definition.getParameters()) {
+            String parameterName = parameter.getName();
+            Object value = context.containsParameter(parameterName) ? context.getParameterValue(parameterName) : parameter.getDefaultValue();
+            key.append(parameterName).append('=');
+            appendValue(key, value, visited);
+            key.append(';');
+        }
+        key.append("}|base=").append(cohortKey(context.getBaseCohort()));
+        key.append("|date=").append(context.getEvaluationDate() == null ? "" : context.getEvaluationDate().getTime());
+        return key.toString();
+    }
+
+    private void appendDefinition(StringBuilder key, Definition definition, Set<Object> visited) {
+        key.append(definition.getClass().getName());
+        if (!visited.add(definition)) {
+            // a definition nested in itself, identity keeps the key finite and never shared by mistake
+            key.append('@').append(System.identityHashCode(definition));
+            return;
+        }
+        key.append('{');
+        for (Property property : DefinitionUtil.getConfigurationProperties(definition)) {
+            key.append(property.getField().getName()).append('=');
+            appendValue(key, property.getValue(), visited);
+            key.append(';');
+        }
+        key.append('}');
+        visited.remove(definition);
+    }
+
+    private void appendValue(StringBuilder key, Object value, Set<Object> visited) {
+        if (value == null) {
+            key.append("null");
+        } else if (value instanceof Date) {
+            key.append("date:").append(((Date) value).getTime());
+        } else if (value instanceof Definition) {
+            appendDefinition(key, (Definition) value, visited);
+        } else if (value instanceof Mapped) {
+            Mapped<?> mapped = (Mapped<?>) value;
+            key.append("mapped(");
+            appendValue(key, mapped.getParameterizable(), visited);
+            key.append(',');
+            appendValue(key, mapped.getParameterMappings(), visited);
+            key.append(')');
+        } else if (value instanceof Cohort) {
+            key.append(cohortKey((Cohort) value));
+        } else if (value instanceof OpenmrsObject) {
+            // class names of hibernate proxies vary, the uuid alone identifies the object
+            key.append("uuid:").append(((OpenmrsObject) value).getUuid());
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            key.append('{');
+            for (Map.Entry<?, ?> entry : sorted(map).entrySet()) {
+                appendValue(key, entry.getKey(), visited);
+                key.append('=');
+                appendValue(key, entry.getValue(), visited);
+                key.append(';');
+            }
+            key.append('}');
+        } else if (value instanceof Collection) {
+            key.append('[');
+            for (Object element : (Collection<?>) value) {
+                appendValue(key, element, visited);
+                key.append(',');
+            }
+            key.append(']');
+        } else if (value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Enum) {
+            key.append(value);
+        } else {
+            // unknown types only match themselves, which can cost a hit but never returns a wrong cohort
+            key.append(value.getClass().getName()).append('@').append(System.identityHashCode(value));
+        }
+    }
+
+    private static Map<?, ?> sorted(Map<?, ?> map) {
+        for (Object k : map.keySet()) {
+            if (!(k instanceof String)) {
+                return map;
+            }
+        }
+        return new TreeMap<>(map);
+    }
+
+    private static String cohortKey(Cohort cohort) {
+        if (cohort == null) {
+            return "all";
+        }
+        // a digest of every member id, so two different cohorts never share a key
+        Hasher hasher = Hashing.sha256().newHasher();
+        Set<Integer> members = new TreeSet<>(cohort.getMemberIds());
+        for (Integer member : members) {
+            hasher.putInt(member);
+        }
+        return "cohort:" + members.size() + ":" + hasher.hash();
+    }
+
+    /**
+     * @return a value other evaluators of the run stored with {@link #setAttribute}, null if none was
+     */
+    public Object getAttribute(String key) {
+        return attributes.get(key);
+    }
+
+    /**
+     * Keeps a value, such as an index read once per run, until the run finishes
+     */
+    public void setAttribute(String key, Object value) {
+        attributes.put(key, value);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return cohorts.size();
+    }
+}
@@ -0,0 +1,52 @@
+package org.openmrs.module.ugandaemrreports.reporting.cohort;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.module.reporting.cohort.EvaluatedCohort;
+import org.openmrs.module.reporting.cohort.definition.CohortDefinition;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.evaluation.parameter.Mapped;
+
+/**
+ * Answers CohortDefinitionService evaluations from the {@link CohortCache} of the report run they belong to
+ */
+public class CohortCacheAdvice implements MethodInterceptor {
+
+    protected static final Log log = LogFactory.getLog(CohortCacheAdvice.class);
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object[] args = invocation.getArguments();
+        if (!"evaluate".equals(invocation.getMethod().getName()) || args.length != 2 || !(args[1] instanceof EvaluationContext)
+                || !EvaluatedCohort.class.isAssignableFrom(invocation.getMethod().getReturnType())) {
+            return invocation.proceed();
+        }
+        EvaluationContext context = (EvaluationContext) args[1];
+        CohortCache cache = CohortCache.forContext(context);
+        if (cache == null) {
+            return invocation.proceed();
+        }
+
+        CohortDefinition definition;
+        EvaluationContext definitionContext;
+        if (args[0] instanceof CohortDefinition) {
+            definition = (CohortDefinition) args[0];
+            definitionContext = context;
+        } else if (args[0] instanceof Mapped && ((Mapped<?>) args[0]).getParameterizable() instanceof CohortDefinition) {
+            Mapped<?> mapped = (Mapped<?>) args[0];
+            definition = (CohortDefinition) mapped.getParameterizable();
+            try {
+                // the same resolution the service does, so the key holds the values the definition really gets
+                definitionContext = EvaluationContext.cloneForChild(context, mapped);
+            } catch (Exception e) {
+                log.debug("Unable to resolve the parameters of " + definition.getName() + ", evaluating without the cache", e);
+                return invocation.proceed();
+            }
+        } else {
+            return invocation.proceed();
+        }
+        return cache.evaluate(definition, definitionContext, () -> (EvaluatedCohort) invocation.proceed());
+    }
+}
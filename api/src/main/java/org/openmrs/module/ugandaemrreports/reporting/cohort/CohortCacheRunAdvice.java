@@ -0,0 +1,38 @@
+package org.openmrs.module.ugandaemrreports.reporting.cohort;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.evaluation.parameter.Mapped;
+import org.openmrs.module.reporting.report.definition.ReportDefinition;
+
+/**
+ * Scopes a {@link CohortCache} to every ReportDefinitionService evaluation, the cache is dropped and its
+ * counters logged when the report has been evaluated
+ */
+public class CohortCacheRunAdvice implements MethodInterceptor {
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object[] args = invocation.getArguments();
+        if (!"evaluate".equals(invocation.getMethod().getName()) || args.length != 2 || !(args[1] instanceof EvaluationContext)) {
+            return invocation.proceed();
+        }
+        EvaluationContext context = (EvaluationContext) args[1];
+        boolean started = CohortCache.start(context, getName(args[0]));
+        try {
+            return invocation.proceed();
+        } finally {
+            if (started) {
+                CohortCache.finish(context);
+            }
+        }
+    }
+
+    private String getName(Object definition) {
+        if (definition instanceof Mapped) {
+            definition = ((Mapped<?>) definition).getParameterizable();
+        }
+        return definition instanceof ReportDefinition ? ((ReportDefinition) definition).getName() : String.valueOf(definition);
+    }
+}
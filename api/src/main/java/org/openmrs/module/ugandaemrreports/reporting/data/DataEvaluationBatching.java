@@ -0,0 +1,151 @@
+package org.openmrs.module.ugandaemrreports.reporting.data;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.module.ugandaemrreports.common.Helper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses how many patients the patient data of an export is evaluated for at a time and keeps the timings of the
+ * batches evaluated. The size follows the heap left: a quarter of it divided by an estimate of the memory the data
+ * of one patient takes while it is evaluated, and the cohort is then cut in batches of equal size so the last one is
+ * not a handful of patients. The global property {@link #GP_BATCH_SIZE} overrides it: a positive value is used as
+ * is and -1 evaluates every cohort in one go, the behaviour before batching was added. The timings are shown by the
+ * batching action of the report statistics fragment.
+ */
+public class DataEvaluationBatching {
+
+    protected static final Log log = LogFactory.getLog(DataEvaluationBatching.class);
+
+    public static final String GP_BATCH_SIZE = "ugandaemrreports.dataEvaluation.batchSize";
+
+    static final int MIN_BATCH_SIZE = 500;
+    static final int MAX_BATCH_SIZE = 20000;
+    static final long BYTES_PER_PATIENT = 32 * 1024;
+    private static final int HEAP_SHARE = 4;
+    private static final int RECENT_BATCHES = 200;
+
+    private static final Deque<BatchTiming> recentBatches = new ArrayDeque<>();
+    private static final AtomicLong totalBatches = new AtomicLong();
+    private static final AtomicLong totalPatients = new AtomicLong();
+    private static final AtomicLong totalMillis = new AtomicLong();
+
+    private DataEvaluationBatching() {
+    }
+
+    /**
+     * @return the number of patients to evaluate at a time, the cohort size when it should not be split
+     */
+    public static int batchSize(int cohortSize) {
+        Runtime runtime = Runtime.getRuntime();
+        long headroom = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        return batchSize(cohortSize, Helper.getIntegerGlobalProperty(GP_BATCH_SIZE, 0), headroom);
+    }
+
+    /**
+     * @param override the value of {@link #GP_BATCH_SIZE}, 0 when the size follows the heap
+     * @param headroom the bytes of heap left
+     */
+    static int batchSize(int cohortSize, int override, long headroom) {
+        if (override > 0) {
+            return Math.min(override, Math.max(cohortSize, 1));
+        }
+        if (override < 0) {
+            return cohortSize;
+        }
+        long byHeap = headroom / HEAP_SHARE / BYTES_PER_PATIENT;
+        int max = (int) Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, byHeap));
+        if (cohortSize <= max) {
+            return cohortSize;
+        }
+        int batches = (cohortSize + max - 1) / max;
+        return (cohortSize + batches - 1) / batches;
+    }
+
+    static void record(String definition, int batch, int batches, int patients, long millis) {
+        totalBatches.incrementAndGet();
+        totalPatients.addAndGet(patients);
+        totalMillis.addAndGet(millis);
+        Runtime runtime = Runtime.getRuntime();
+        BatchTiming timing = new BatchTiming(definition, patients, millis, runtime.totalMemory() - runtime.freeMemory());
+        synchronized (recentBatches) {
+            if (recentBatches.size() == RECENT_BATCHES) {
+                recentBatches.removeFirst();
+            }
+            recentBatches.addLast(timing);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Batch " + batch + "/" + batches + " of " + definition + ": " + patients + " patients in " + millis
+                    + " ms, " + (timing.getHeapUsed() >> 20) + " MB of heap used");
+        }
+    }
+
+    /**
+     * Logs the batches of one evaluation once they are all done
+     */
+    static void recordEvaluation(String definition, int batches, int patients, long millis) {
+        log.info("Evaluated " + definition + " for " + patients + " patients in " + batches + " batches in " + millis + " ms");
+    }
+
+    /**
+     * @return the timings of the last batches evaluated, oldest first
+     */
+    public static List<BatchTiming> getRecentBatches() {
+        synchronized (recentBatches) {
+            return new ArrayList<>(recentBatches);
+        }
+    }
+
+    public static long getTotalBatches() {
+        return totalBatches.get();
+    }
+
+    public static long getTotalPatients() {
+        return totalPatients.get();
+    }
+
+    public static long getTotalMillis() {
+        return totalMillis.get();
+    }
+
+    public static class BatchTiming {
+
+        private final long time = System.currentTimeMillis();
+        private final String definition;
+        private final int patients;
+        private final long millis;
+        private final long heapUsed;
+
+        BatchTiming(String definition, int patients, long millis, long heapUsed) {
+            this.definition = definition;
+            this.patients = patients;
+            this.millis = millis;
+            this.heapUsed = heapUsed;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public String getDefinition() {
+            return definition;
+        }
+
+        public int getPatients() {
+            return patients;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public long getHeapUsed() {
+            return heapUsed;
+        }
+    }
+}
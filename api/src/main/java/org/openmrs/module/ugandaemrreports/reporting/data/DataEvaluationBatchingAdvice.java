@@ -0,0 +1,82 @@
+package org.openmrs.module.ugandaemrreports.reporting.data;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openmrs.Cohort;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.reporting.data.patient.EvaluatedPatientData;
+import org.openmrs.module.reporting.data.patient.definition.PatientDataDefinition;
+import org.openmrs.module.reporting.data.patient.service.PatientDataService;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.evaluation.parameter.Mapped;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates PatientDataService data definitions for large base cohorts in batches sized by
+ * {@link DataEvaluationBatching}, merging the data of the batches into one result. The Hibernate session is flushed
+ * and cleared between batches so the entities loaded for one batch do not pile up until the end of the export.
+ */
+public class DataEvaluationBatchingAdvice implements MethodInterceptor {
+
+    /**
+     * Set while the batches are evaluated, so their own calls to the service go straight through
+     */
+    private static final ThreadLocal<Boolean> inBatch = new ThreadLocal<>();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object[] args = invocation.getArguments();
+        if (inBatch.get() != null || !"evaluate".equals(invocation.getMethod().getName()) || args.length != 2
+                || !(args[1] instanceof EvaluationContext) || !EvaluatedPatientData.class.isAssignableFrom(invocation.getMethod().getReturnType())) {
+            return invocation.proceed();
+        }
+        PatientDataDefinition definition;
+        if (args[0] instanceof PatientDataDefinition) {
+            definition = (PatientDataDefinition) args[0];
+        } else if (args[0] instanceof Mapped && ((Mapped<?>) args[0]).getParameterizable() instanceof PatientDataDefinition) {
+            definition = (PatientDataDefinition) ((Mapped<?>) args[0]).getParameterizable();
+        } else {
+            return invocation.proceed();
+        }
+        EvaluationContext context = (EvaluationContext) args[1];
+        Cohort baseCohort = context.getBaseCohort();
+        int cohortSize = baseCohort == null ? 0 : baseCohort.size();
+        int batchSize = cohortSize == 0 ? 0 : DataEvaluationBatching.batchSize(cohortSize);
+        if (batchSize <= 0 || batchSize >= cohortSize) {
+            return invocation.proceed();
+        }
+
+        List<Integer> patientIds = new ArrayList<>(baseCohort.getMemberIds());
+        int batches = (patientIds.size() + batchSize - 1) / batchSize;
+        String name = definition.getName() == null ? definition.getClass().getSimpleName() : definition.getName();
+        PatientDataService service = Context.getService(PatientDataService.class);
+        EvaluatedPatientData result = new EvaluatedPatientData(definition, context);
+        long started = System.currentTimeMillis();
+        inBatch.set(Boolean.TRUE);
+        try {
+            for (int batch = 0; batch < batches; batch++) {
+                List<Integer> ids = patientIds.subList(batch * batchSize, Math.min(patientIds.size(), (batch + 1) * batchSize));
+                EvaluationContext batchContext = context.shallowCopy();
+                batchContext.setBaseCohort(new Cohort(ids));
+                long start = System.currentTimeMillis();
+                EvaluatedPatientData data = (EvaluatedPatientData) invocation.getMethod().invoke(service, args[0], batchContext);
+                DataEvaluationBatching.record(name, batch + 1, batches, ids.size(), System.currentTimeMillis() - start);
+                result.getData().putAll(data.getData());
+                if (batch + 1 < batches) {
+                    // the entities loaded for a batch are not needed by the next one
+                    Context.flushSession();
+                    Context.clearSession();
+                }
+            }
+            DataEvaluationBatching.recordEvaluation(name, batches, patientIds.size(), System.currentTimeMillis() - started);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        } finally {
+            inBatch.remove();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,59 @@
+package org.openmrs.module.ugandaemrreports.reporting.dataset;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.module.reporting.dataset.DataSet;
+import org.openmrs.module.reporting.dataset.definition.DataSetDefinition;
+import org.openmrs.module.reporting.evaluation.parameter.Mapped;
+
+import java.util.Map;
+
+/**
+ * Answers the DataSetDefinitionService evaluations of a report from the data sets {@link ConcurrentDataSetRunAdvice}
+ * evaluated concurrently beforehand. Data sets are found by the uuid and parameter mappings of their definition, not
+ * by the instance the report holds, so a service handed a copy of the mapping still gets its data set. The
+ * {@link ConcurrentDataSets#isSerial serial} data sets are evaluated here as usual.
+ */
+public class ConcurrentDataSetAdvice implements MethodInterceptor {
+
+    protected static final Log log = LogFactory.getLog(ConcurrentDataSetAdvice.class);
+
+    private static final ThreadLocal<Map<String, DataSet>> evaluated = new ThreadLocal<>();
+
+    static void start(Map<String, DataSet> dataSets) {
+        evaluated.set(dataSets);
+    }
+
+    static void finish() {
+        evaluated.remove();
+    }
+
+    static boolean isEvaluating() {
+        return evaluated.get() != null;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Map<String, DataSet> dataSets = evaluated.get();
+        Object[] args = invocation.getArguments();
+        if (dataSets == null || !"evaluate".equals(invocation.getMethod().getName()) || args.length != 2
+                || !(args[0] instanceof Mapped) || !(((Mapped<?>) args[0]).getParameterizable() instanceof DataSetDefinition)) {
+            return invocation.proceed();
+        }
+        @SuppressWarnings("unchecked")
+        Mapped<? extends DataSetDefinition> mapped = (Mapped<? extends DataSetDefinition>) args[0];
+        if (ConcurrentDataSets.isSerial(mapped.getParameterizable())) {
+            return invocation.proceed();
+        }
+        // each data set is handed out once, a report evaluating the same mapping twice gets a fresh one the second time
+        String key = ConcurrentDataSets.getKey(mapped);
+        DataSet dataSet = dataSets.remove(key);
+        if (dataSet == null) {
+            log.warn("No data set was evaluated beforehand for " + key + ", evaluating it again");
+            return invocation.proceed();
+        }
+        return dataSet;
+    }
+}
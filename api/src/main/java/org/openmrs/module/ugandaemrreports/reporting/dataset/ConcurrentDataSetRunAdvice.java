@@ -0,0 +1,58 @@
+package org.openmrs.module.ugandaemrreports.reporting.dataset;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openmrs.module.reporting.dataset.DataSet;
+import org.openmrs.module.reporting.dataset.definition.DataSetDefinition;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.evaluation.parameter.Mapped;
+import org.openmrs.module.reporting.report.definition.ReportDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates the data sets of a report concurrently with {@link ConcurrentDataSets} before the ReportDefinitionService
+ * evaluates the report, which then gets them from {@link ConcurrentDataSetAdvice} in its own order. Reports with a
+ * base cohort definition, whose data sets depend on it, are evaluated as usual.
+ */
+public class ConcurrentDataSetRunAdvice implements MethodInterceptor {
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object[] args = invocation.getArguments();
+        if (!"evaluate".equals(invocation.getMethod().getName()) || args.length != 2 || !(args[1] instanceof EvaluationContext)
+                || ConcurrentDataSetAdvice.isEvaluating()) {
+            return invocation.proceed();
+        }
+        ReportDefinition definition;
+        EvaluationContext context = (EvaluationContext) args[1];
+        if (args[0] instanceof ReportDefinition) {
+            definition = (ReportDefinition) args[0];
+        } else if (args[0] instanceof Mapped && ((Mapped<?>) args[0]).getParameterizable() instanceof ReportDefinition) {
+            Mapped<?> mapped = (Mapped<?>) args[0];
+            definition = (ReportDefinition) mapped.getParameterizable();
+            try {
+                context = EvaluationContext.cloneForChild(context, mapped);
+            } catch (Exception e) {
+                return invocation.proceed();
+            }
+        } else {
+            return invocation.proceed();
+        }
+        int parallelism = ConcurrentDataSets.getParallelism();
+        if (parallelism <= 1 || definition.getBaseCohortDefinition() != null || definition.getDataSetDefinitions().size() < 2) {
+            return invocation.proceed();
+        }
+
+        List<Mapped<? extends DataSetDefinition>> dataSets = new ArrayList<>(definition.getDataSetDefinitions().values());
+        Map<String, DataSet> evaluated = ConcurrentDataSets.evaluate(dataSets, context, parallelism);
+        ConcurrentDataSetAdvice.start(evaluated);
+        try {
+            return invocation.proceed();
+        } finally {
+            ConcurrentDataSetAdvice.finish();
+        }
+    }
+}
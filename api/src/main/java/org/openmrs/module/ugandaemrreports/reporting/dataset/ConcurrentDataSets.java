@@ -0,0 +1,231 @@
+package org.openmrs.module.ugandaemrreports.reporting.dataset;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.HibernateException;
+import org.openmrs.Concept;
+import org.openmrs.OpenmrsObject;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
+import org.openmrs.module.reporting.dataset.DataSet;
+import org.openmrs.module.reporting.dataset.definition.DataSetDefinition;
+import org.openmrs.module.reporting.dataset.definition.service.DataSetDefinitionService;
+import org.openmrs.module.reporting.definition.DefinitionUtil;
+import org.openmrs.module.reporting.definition.configuration.Property;
+import org.openmrs.module.reporting.evaluation.Definition;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.evaluation.EvaluationException;
+import org.openmrs.module.reporting.evaluation.parameter.Mapped;
+import org.openmrs.module.ugandaemrreports.common.Helper;
+import org.openmrs.module.ugandaemrreports.common.UserContexts;
+import org.openmrs.module.ugandaemrreports.definition.dataset.definition.EMRVersionDatasetDefinition;
+import org.openmrs.module.ugandaemrreports.definition.dataset.definition.GlobalPropertyParametersDatasetDefinition;
+import org.openmrs.module.ugandaemrreports.definition.dataset.definition.NameOfHealthUnitDatasetDefinition;
+import org.openmrs.module.ugandaemrreports.definition.dataset.definition.TodayDateDatasetDefinition;
+import org.openmrs.module.ugandaemrreports.reporting.cohort.CohortCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates the data set definitions of one report on a shared pool of threads. The data sets of a report only
+ * share the context they are evaluated with, so each one gets its own copy of it (the cohort cache of the run is
+ * still shared) and runs in its own hibernate session with a user context of its own, authenticated as the user that
+ * runs the report. At most {@link #GP_PARALLELISM} data sets of a report are evaluated at a time; the pool itself is
+ * as large as the number of processors, so several reports running together cannot take more threads than that.
+ * Data sets whose evaluators add values to the context for the renderer ({@link #SERIAL}) are left to the report
+ * service, which evaluates them one after the other in the report's own context as before.
+ * The definitions are attached to the hibernate session of the thread running the report, so the metadata they hold
+ * is loaded on that thread before the pool's threads read them from their own sessions.
+ */
+public class ConcurrentDataSets {
+
+    protected static final Log log = LogFactory.getLog(ConcurrentDataSets.class);
+
+    public static final String GP_PARALLELISM = "ugandaemrreports.dataSets.parallelism";
+
+    private static final int DEFAULT_PARALLELISM = 2;
+
+    /**
+     * Data sets evaluated by the report service itself, their evaluators add the values the templates show to the
+     * context
+     */
+    private static final Set<Class<? extends DataSetDefinition>> SERIAL = new HashSet<Class<? extends DataSetDefinition>>(Arrays.asList(
+            NameOfHealthUnitDatasetDefinition.class, GlobalPropertyParametersDatasetDefinition.class,
+            EMRVersionDatasetDefinition.class, TodayDateDatasetDefinition.class));
+
+    private static ExecutorService pool;
+
+    private ConcurrentDataSets() {
+    }
+
+    /**
+     * @return number of data sets of a report evaluated at a time, 1 evaluates them one after the other
+     */
+    public static int getParallelism() {
+        return Helper.getIntegerGlobalProperty(GP_PARALLELISM, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * @return true if the data set is left to the report service, see {@link #SERIAL}
+     */
+    public static boolean isSerial(DataSetDefinition definition) {
+        return definition != null && SERIAL.contains(definition.getClass());
+    }
+
+    /**
+     * @return the key of a mapped definition: the uuid of the definition and its parameter mappings, so a copy of the
+     * mapping made by the caller still finds the data set
+     */
+    public static String getKey(Mapped<? extends DataSetDefinition> dataSet) {
+        Map<String, Object> mappings = dataSet.getParameterMappings();
+        return dataSet.getParameterizable().getUuid() + (mappings == null ? "{}" : new TreeMap<String, Object>(mappings).toString());
+    }
+
+    /**
+     * @return the data sets keyed by the {@link #getKey key} of the mapped definitions they were evaluated from, the
+     * {@link #isSerial serial} ones are not evaluated
+     */
+    public static Map<String, DataSet> evaluate(List<Mapped<? extends DataSetDefinition>> dataSets,
+                                                                             EvaluationContext context, int parallelism) throws EvaluationException {
+        final List<Mapped<? extends DataSetDefinition>> concurrent = new ArrayList<>();
+        Set<Object> initialized = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        for (Mapped<? extends DataSetDefinition> dataSet : dataSets) {
+            if (!isSerial(dataSet.getParameterizable())) {
+                concurrent.add(dataSet);
+                initialize(dataSet, initialized);
+            }
+        }
+        final Map<String, DataSet> results = new HashMap<>();
+        final UserContext userContext = Context.getUserContext();
+        final String user = UserContexts.currentUser();
+        final AtomicInteger next = new AtomicInteger();
+        long start = System.currentTimeMillis();
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(parallelism, concurrent.size()); i++) {
+            workers.add(getPool().submit(() -> {
+                UserContext workerContext = UserContexts.forUser(user, userContext);
+                for (int index = next.getAndIncrement(); index < concurrent.size(); index = next.getAndIncrement()) {
+                    Mapped<? extends DataSetDefinition> dataSet = concurrent.get(index);
+                    DataSet result = evaluate(dataSet, context, workerContext);
+                    synchronized (results) {
+                        results.put(getKey(dataSet), result);
+                    }
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EvaluationException("Interrupted while evaluating data sets", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof EvaluationException) {
+                throw (EvaluationException) e.getCause();
+            }
+            throw new EvaluationException("Unable to evaluate data sets", e.getCause());
+        } finally {
+            // after a failure the workers still running pick up no further data set
+            next.set(concurrent.size());
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Evaluated " + concurrent.size() + " data sets " + parallelism + " at a time in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        }
+        return results;
+    }
+
+    private static DataSet evaluate(Mapped<? extends DataSetDefinition> dataSet, EvaluationContext context, UserContext userContext)
+            throws EvaluationException {
+        EvaluationContext copy = context.shallowCopy();
+        copy.setCache(new HashMap<String, Object>());
+        boolean shared = CohortCache.share(context, copy);
+        Context.openSession();
+        try {
+            Context.setUserContext(userContext);
+            return Context.getService(DataSetDefinitionService.class).evaluate(dataSet, copy);
+        } finally {
+            Context.clearUserContext();
+            Context.closeSession();
+            if (shared) {
+                CohortCache.unshare(copy);
+            }
+        }
+    }
+
+    /**
+     * Loads the metadata the definition holds, and that of the definitions it maps, in the session of the calling
+     * thread
+     */
+    private static void initialize(Object value, Set<Object> seen) {
+        if (value == null || !seen.add(value)) {
+            return;
+        }
+        if (value instanceof Mapped) {
+            initialize(((Mapped<?>) value).getParameterizable(), seen);
+            initialize(((Mapped<?>) value).getParameterMappings(), seen);
+        } else if (value instanceof Definition) {
+            for (Property property : DefinitionUtil.getConfigurationProperties((Definition) value)) {
+                initialize(property.getValue(), seen);
+            }
+        } else if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                initialize(element, seen);
+            }
+        } else if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                initialize(entry.getKey(), seen);
+                initialize(entry.getValue(), seen);
+            }
+        } else if (value instanceof OpenmrsObject) {
+            try {
+                Hibernate.initialize(value);
+                if (value instanceof Concept) {
+                    Hibernate.initialize(((Concept) value).getNames());
+                }
+            } catch (HibernateException e) {
+                log.debug("Unable to load " + value.getClass().getSimpleName() + " before evaluating data sets", e);
+            }
+        }
+    }
+
+    private static synchronized ExecutorService getPool() {
+        if (pool == null) {
+            final ClassLoader classLoader = ConcurrentDataSets.class.getClassLoader();
+            final AtomicInteger threads = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "ugandaemrreports-datasets-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setContextClassLoader(classLoader);
+                return thread;
+            });
+        }
+        return pool;
+    }
+
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+    }
+}
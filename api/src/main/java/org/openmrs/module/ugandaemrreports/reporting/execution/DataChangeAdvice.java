@@ -0,0 +1,37 @@
+package org.openmrs.module.ugandaemrreports.reporting.execution;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the saves, voids, unvoids, purges and deaths recorded through the ObsService, EncounterService,
+ * PatientService, PersonService and ProgramWorkflowService of this server, so the data version the
+ * {@link ReportExecutor} reuses results on also changes on edits and voids that add no row
+ */
+public class DataChangeAdvice implements MethodInterceptor {
+
+    private static final AtomicLong changes = new AtomicLong();
+
+    /**
+     * @return the changes counted since the module started
+     */
+    public static long getChanges() {
+        return changes.get();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        if (isChange(invocation.getMethod().getName())) {
+            changes.incrementAndGet();
+        }
+        return result;
+    }
+
+    static boolean isChange(String method) {
+        return method.startsWith("save") || method.startsWith("void") || method.startsWith("unvoid") || method.startsWith("purge")
+                || method.contains("Dead") || method.contains("Death");
+    }
+}
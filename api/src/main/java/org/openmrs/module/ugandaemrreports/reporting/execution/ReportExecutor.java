@@ -0,0 +1,357 @@
+package org.openmrs.module.ugandaemrreports.reporting.execution;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.UserContext;
+import org.openmrs.module.reporting.report.ReportDesign;
+import org.openmrs.module.reporting.report.ReportRequest;
+import org.openmrs.module.reporting.report.renderer.ExcelTemplateRenderer;
+import org.openmrs.module.reporting.report.renderer.RenderingMode;
+import org.openmrs.module.reporting.report.service.ReportService;
+import org.openmrs.module.ugandaemrreports.common.ConnectionPool;
+import org.openmrs.module.ugandaemrreports.common.Helper;
+import org.openmrs.module.ugandaemrreports.common.NamedQuery;
+import org.openmrs.module.ugandaemrreports.common.UserContexts;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the report requests submitted from the run report pages on worker threads of the module, so the request that
+ * submits one returns as soon as it is queued. At most {@link #GP_MAX_RUNNING} reports run at a time and at most
+ * {@link #GP_MAX_RUNNING_PER_USER} of them for the same user; the rest wait in order of priority and then of
+ * submission. Aggregate reports, filled into an Excel template without repeating sections, are queued with a high
+ * priority so a short monthly report is not stuck behind a register or line list.
+ * A request is queued in the ReportService as well, so it shows in the queue of the page like before, and taken over
+ * right away: one committed update moves it from requested to processing, so the reporting module's own queue task
+ * no longer finds it requested and cannot run it past the limits. If that task got to it first the update changes
+ * nothing and the request is left to it. When the module stops, the requests taken over but not started are put back
+ * to requested for that task to run.
+ * A worker runs a request as the user who submitted it, with a user context of its own rather than the one of the
+ * web session it was submitted from.
+ * A request identical to one queued or running, see {@link ReportRequestKey}, is not queued again: the submitter
+ * gets the request already in flight. Neither is one identical to a request that completed while the data version
+ * has not changed since it started, its rendered output is served instead. The data version is made of the newest
+ * obs, encounter, person, patient identifier and program enrollment, and of the changes counted by
+ * {@link DataChangeAdvice}; a result is reused for at most {@link #GP_RESULT_MAX_AGE} minutes, since edits made
+ * outside this server that add no row do not show in it. The last {@link #GP_RESULT_CACHE_SIZE} completed requests
+ * are remembered for this, see {@link ResultCache}.
+ */
+public class ReportExecutor {
+
+    protected static final Log log = LogFactory.getLog(ReportExecutor.class);
+
+    public static final String GP_MAX_RUNNING = "ugandaemrreports.reports.maxRunning";
+
+    public static final String GP_MAX_RUNNING_PER_USER = "ugandaemrreports.reports.maxRunningPerUser";
+
+    public static final String GP_RESULT_CACHE_SIZE = "ugandaemrreports.reports.resultCacheSize";
+
+    public static final String GP_RESULT_MAX_AGE = "ugandaemrreports.reports.resultMaxAgeMinutes";
+
+    private static final int DEFAULT_RESULT_CACHE_SIZE = 50;
+
+    private static final int DEFAULT_RESULT_MAX_AGE = 15;
+
+    public enum State {
+        QUEUED, RUNNING
+    }
+
+    private static final ReportQueue queue = new ReportQueue();
+    private static final Map<ReportQueue.Entry, Task> tasks = new HashMap<>();
+    private static final ResultCache results = new ResultCache();
+
+    private static ExecutorService pool;
+
+    private ReportExecutor() {
+    }
+
+    /**
+     * @return number of reports run at a time
+     */
+    public static int getMaxRunning() {
+        return Helper.getIntegerGlobalProperty(GP_MAX_RUNNING, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    public static int getMaxRunningPerUser() {
+        return Helper.getIntegerGlobalProperty(GP_MAX_RUNNING_PER_USER, 1);
+    }
+
+    public static int getResultCacheSize() {
+        return Helper.getIntegerGlobalProperty(GP_RESULT_CACHE_SIZE, DEFAULT_RESULT_CACHE_SIZE);
+    }
+
+    /**
+     * @return minutes after its run started that the output of a completed request is served again
+     */
+    public static int getResultMaxAge() {
+        return Helper.getIntegerGlobalProperty(GP_RESULT_MAX_AGE, DEFAULT_RESULT_MAX_AGE);
+    }
+
+    /**
+     * Queues the request and returns it saved, it is run once a worker and the limit of its user allow. When an
+     * identical request is in flight, or completed on the data as it is now, that request is returned instead.
+     */
+    public static ReportRequest submit(ReportService reportService, ReportRequest reportRequest) {
+        String key = ReportRequestKey.of(reportRequest);
+        ReportRequest identical = getInFlight(reportService, key);
+        if (identical == null) {
+            identical = getCompleted(reportService, key);
+        }
+        if (identical != null) {
+            log.debug("Report request identical to " + identical.getUuid() + " not queued again");
+            return identical;
+        }
+
+        if (isAggregate(reportService, reportRequest.getRenderingMode())) {
+            reportRequest.setPriority(ReportRequest.Priority.HIGH);
+        }
+        String user = UserContexts.currentUser();
+        UserContext userContext = Context.getUserContext();
+        synchronized (ReportExecutor.class) {
+            // checked again under the lock, so identical requests submitted together are queued once
+            identical = getInFlight(reportService, key);
+            if (identical != null) {
+                return identical;
+            }
+            reportRequest = reportService.queueReport(reportRequest);
+            if (!takeOver(reportRequest.getUuid())) {
+                return reportRequest;
+            }
+            ReportQueue.Entry entry = queue.add(reportRequest.getUuid(), key, user, reportRequest.getPriority());
+            tasks.put(entry, new Task(entry, userContext));
+            dispatch();
+        }
+        return reportRequest;
+    }
+
+    private static synchronized ReportRequest getInFlight(ReportService reportService, String key) {
+        ReportQueue.Entry entry = queue.getByKey(key);
+        return entry == null ? null : reportService.getReportRequestByUuid(entry.getRequestUuid());
+    }
+
+    /**
+     * @return the completed request with the key if its output is still there and the data has not changed since
+     */
+    private static ReportRequest getCompleted(ReportService reportService, String key) {
+        String requestUuid = results.get(key, System.currentTimeMillis(), TimeUnit.MINUTES.toMillis(getResultMaxAge()),
+                ReportExecutor::getDataVersion);
+        if (requestUuid == null) {
+            return null;
+        }
+        ReportRequest request = reportService.getReportRequestByUuid(requestUuid);
+        // the output of an old request can be deleted by the reporting module's clean up task
+        if (request != null && isCompleted(request) && reportService.loadRenderedOutput(request) != null) {
+            return request;
+        }
+        results.remove(key);
+        return null;
+    }
+
+    private static boolean isCompleted(ReportRequest request) {
+        return request.getStatus() == ReportRequest.Status.COMPLETED || request.getStatus() == ReportRequest.Status.SAVED;
+    }
+
+    /**
+     * @return a token that changes whenever an obs, encounter, person, identifier or program enrollment is created or
+     * something is changed through the services of this server, null when it cannot be read so nothing is served from
+     * the cache
+     */
+    private static String getDataVersion() {
+        long changes = DataChangeAdvice.getChanges();
+        try (Connection connection = ConnectionPool.getInstance().checkout("report executor")) {
+            List<String> version = NamedQuery.get("data-version").list(connection, NamedQuery.parameters(), rs -> rs.getString(1));
+            return version.isEmpty() ? null : version.get(0) + "|" + changes;
+        } catch (SQLException e) {
+            log.warn("Unable to read the data version, completed reports are not reused", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the request was still requested and is now processing for the executor, false when the
+     * reporting module's queue task has it
+     */
+    private static boolean takeOver(String requestUuid) {
+        try (Connection connection = ConnectionPool.getInstance().checkout("report executor")) {
+            return takeOver(connection, requestUuid);
+        } catch (SQLException e) {
+            log.warn("Unable to take over report request " + requestUuid + ", it is left to the reporting queue", e);
+            return false;
+        }
+    }
+
+    static boolean takeOver(Connection connection, String requestUuid) throws SQLException {
+        return update(connection, "report-request-take-over", NamedQuery.parameters().string("uuid", requestUuid)) == 1;
+    }
+
+    /**
+     * Puts the requests back to requested if they are still processing, so the reporting module's queue task runs them
+     */
+    static int release(Connection connection, List<String> requestUuids) throws SQLException {
+        if (requestUuids.isEmpty()) {
+            return 0;
+        }
+        return update(connection, "report-request-release", NamedQuery.parameters().strings("uuids", requestUuids));
+    }
+
+    private static int update(Connection connection, String query, NamedQuery.Parameters parameters) throws SQLException {
+        try (PreparedStatement statement = NamedQuery.get(query).prepare(connection, parameters)) {
+            return statement.executeUpdate();
+        }
+    }
+
+    private static void completed(ReportQueue.Entry entry, String dataVersion, long started) {
+        results.put(entry.getKey(), entry.getRequestUuid(), dataVersion, started, getResultCacheSize());
+    }
+
+    /**
+     * @return the state of the request in the queue of the module, null once it has finished or if it was not
+     * submitted here, in which case the status of the request itself tells how it went
+     */
+    public static synchronized State getState(String requestUuid) {
+        ReportQueue.Entry entry = queue.get(requestUuid);
+        return entry == null ? null : entry.getState();
+    }
+
+    /**
+     * @return how many queued requests run before this one, 0 when it is running or not queued here
+     */
+    public static synchronized int getPosition(String requestUuid) {
+        ReportQueue.Entry entry = queue.get(requestUuid);
+        return entry == null ? 0 : queue.getPosition(entry);
+    }
+
+    public static synchronized int getRunning() {
+        return queue.getRunning();
+    }
+
+    public static synchronized int getQueued() {
+        return queue.getQueued();
+    }
+
+    /**
+     * An aggregate report fills its indicators into an Excel template without repeating sections
+     */
+    private static boolean isAggregate(ReportService reportService, RenderingMode renderingMode) {
+        if (renderingMode == null || !(renderingMode.getRenderer() instanceof ExcelTemplateRenderer)) {
+            return false;
+        }
+        ReportDesign design = reportService.getReportDesignByUuid(renderingMode.getArgument());
+        return design != null && design.getPropertyValue("repeatingSections", null) == null;
+    }
+
+    /**
+     * Starts the queued tasks the limits allow, highest priority first
+     */
+    private static synchronized void dispatch() {
+        for (ReportQueue.Entry entry : queue.start(getMaxRunning(), getMaxRunningPerUser())) {
+            getPool().execute(tasks.get(entry));
+        }
+    }
+
+    private static synchronized void finished(Task task) {
+        tasks.remove(task.entry);
+        // a task still running when the module stopped was already forgotten
+        if (queue.finished(task.entry)) {
+            dispatch();
+        }
+    }
+
+    /**
+     * The threads are bounded by {@link #dispatch()}, which never has more than {@link #GP_MAX_RUNNING} tasks running
+     */
+    private static synchronized ExecutorService getPool() {
+        if (pool == null) {
+            final ClassLoader classLoader = ReportExecutor.class.getClassLoader();
+            final AtomicInteger threads = new AtomicInteger();
+            pool = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "ugandaemrreports-reports-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setContextClassLoader(classLoader);
+                return thread;
+            });
+        }
+        return pool;
+    }
+
+    /**
+     * Stops the running reports and puts the queued requests back to requested in the ReportService for its own queue
+     * task
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+        List<String> queued = queue.clear();
+        tasks.clear();
+        results.clear();
+        if (!queued.isEmpty()) {
+            try (Connection connection = ConnectionPool.getInstance().checkout("report executor")) {
+                release(connection, queued);
+            } catch (SQLException e) {
+                log.warn("Unable to put back the queued report requests " + queued, e);
+            }
+        }
+    }
+
+    private static class Task implements Runnable {
+        private final ReportQueue.Entry entry;
+        /**
+         * The context of the submitter, only used when the module cannot build one of its own
+         */
+        private final UserContext fallback;
+
+        Task(ReportQueue.Entry entry, UserContext fallback) {
+            this.entry = entry;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public void run() {
+            String requestUuid = entry.getRequestUuid();
+            Context.openSession();
+            try {
+                Context.setUserContext(UserContexts.forUser(entry.getUser(), fallback));
+                ReportService reportService = Context.getService(ReportService.class);
+                // taken over when submitted, so the request read here already shows it processing
+                ReportRequest request = reportService.getReportRequestByUuid(requestUuid);
+                if (request != null) {
+                    long start = System.currentTimeMillis();
+                    // read before the run, so data changed while it runs makes the output stale
+                    String dataVersion = getDataVersion();
+                    reportService.runReport(request);
+                    if (isCompleted(request)) {
+                        completed(entry, dataVersion, start);
+                    }
+                    if (log.isDebugEnabled()) {
+                        log.debug("Ran report request " + requestUuid + " in " + (System.currentTimeMillis() - start) + "ms");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted before running report request " + requestUuid);
+            } catch (Exception e) {
+                log.error("Unable to run report request " + requestUuid, e);
+            } finally {
+                try {
+                    // while the session is open, the limits are global properties
+                    finished(this);
+                } finally {
+                    Context.clearUserContext();
+                    Context.closeSession();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.openmrs.module.ugandaemrreports.reporting.execution;
+
+import org.openmrs.module.reporting.report.ReportRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The report requests of the {@link ReportExecutor} that are queued or running, and the order they are started in:
+ * highest priority first, then in order of submission, skipping the requests of a user already running as many as
+ * allowed. Not thread safe, the executor holds its lock while using it.
+ */
+class ReportQueue {
+
+    static class Entry implements Comparable<Entry> {
+        private final String requestUuid;
+        private final String key;
+        private final String user;
+        private final ReportRequest.Priority priority;
+        private final long submitted;
+        private ReportExecutor.State state = ReportExecutor.State.QUEUED;
+
+        private Entry(String requestUuid, String key, String user, ReportRequest.Priority priority, long submitted) {
+            this.requestUuid = requestUuid;
+            this.key = key;
+            this.user = user;
+            this.priority = priority == null ? ReportRequest.Priority.NORMAL : priority;
+            this.submitted = submitted;
+        }
+
+        String getRequestUuid() {
+            return requestUuid;
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        /**
+         * @return the system id of the user who submitted the request, null if no user was authenticated
+         */
+        String getUser() {
+            return user;
+        }
+
+        ReportExecutor.State getState() {
+            return state;
+        }
+
+        /**
+         * Priorities are declared highest first
+         */
+        @Override
+        public int compareTo(Entry other) {
+            int compare = priority.compareTo(other.priority);
+            return compare != 0 ? compare : Long.compare(submitted, other.submitted);
+        }
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final Map<String, Integer> runningPerUser = new HashMap<>();
+    private long sequence = 0;
+    private int running = 0;
+
+    Entry add(String requestUuid, String key, String user, ReportRequest.Priority priority) {
+        Entry entry = new Entry(requestUuid, key, user, priority, ++sequence);
+        entries.put(requestUuid, entry);
+        return entry;
+    }
+
+    Entry get(String requestUuid) {
+        return entries.get(requestUuid);
+    }
+
+    /**
+     * @return the queued or running entry with the key, null if there is none
+     */
+    Entry getByKey(String key) {
+        for (Entry entry : entries.values()) {
+            if (entry.key.equals(key)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Marks the entries the limits allow to start as running
+     *
+     * @return the entries to start, in the order they were picked
+     */
+    List<Entry> start(int maxRunning, int maxRunningPerUser) {
+        List<Entry> started = new ArrayList<>();
+        while (running < maxRunning) {
+            Entry next = null;
+            for (Entry entry : entries.values()) {
+                if (entry.state == ReportExecutor.State.QUEUED && runningFor(entry.user) < maxRunningPerUser
+                        && (next == null || entry.compareTo(next) < 0)) {
+                    next = entry;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            next.state = ReportExecutor.State.RUNNING;
+            running++;
+            runningPerUser.put(next.user, runningFor(next.user) + 1);
+            started.add(next);
+        }
+        return started;
+    }
+
+    /**
+     * Forgets a running entry
+     *
+     * @return false if the entry was not running here, e.g. the queue was cleared while it ran
+     */
+    boolean finished(Entry entry) {
+        if (entries.get(entry.requestUuid) != entry || entry.state != ReportExecutor.State.RUNNING) {
+            return false;
+        }
+        entries.remove(entry.requestUuid);
+        running--;
+        int count = runningFor(entry.user) - 1;
+        if (count > 0) {
+            runningPerUser.put(entry.user, count);
+        } else {
+            runningPerUser.remove(entry.user);
+        }
+        return true;
+    }
+
+    private int runningFor(String user) {
+        Integer count = runningPerUser.get(user);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * @return how many queued entries start before this one, 0 when it is running
+     */
+    int getPosition(Entry entry) {
+        if (entry.state != ReportExecutor.State.QUEUED) {
+            return 0;
+        }
+        int position = 0;
+        for (Entry other : entries.values()) {
+            if (other.state == ReportExecutor.State.QUEUED && other.compareTo(entry) < 0) {
+                position++;
+            }
+        }
+        return position;
+    }
+
+    int getRunning() {
+        return running;
+    }
+
+    int getQueued() {
+        return entries.size() - running;
+    }
+
+    /**
+     * Forgets every entry
+     *
+     * @return the uuids of the requests that were still queued
+     */
+    List<String> clear() {
+        List<String> queued = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.state == ReportExecutor.State.QUEUED) {
+                queued.add(entry.requestUuid);
+            }
+        }
+        entries.clear();
+        runningPerUser.clear();
+        running = 0;
+        return queued;
+    }
+}
@@ -0,0 +1,80 @@
+package org.openmrs.module.ugandaemrreports.reporting.execution;
+
+import org.joda.time.LocalDateTime;
+import org.openmrs.Cohort;
+import org.openmrs.OpenmrsObject;
+import org.openmrs.module.reporting.report.ReportRequest;
+import org.openmrs.module.reporting.report.renderer.RenderingMode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * What makes two report requests the same report: the report definition, the parameter values and the rendering
+ * mode. Values are normalised so that equal values submitted differently give the same key, dates without a time as
+ * yyyy-MM-dd, metadata by uuid, cohorts and collections by their sorted members.
+ */
+public class ReportRequestKey {
+
+    private ReportRequestKey() {
+    }
+
+    public static String of(ReportRequest request) {
+        StringBuilder key = new StringBuilder(request.getReportDefinition().getParameterizable().getUuid());
+        Map<String, Object> parameters = request.getReportDefinition().getParameterMappings();
+        if (parameters != null) {
+            for (Map.Entry<String, Object> parameter : new TreeMap<>(parameters).entrySet()) {
+                key.append('|').append(parameter.getKey()).append('=').append(normalise(parameter.getValue()));
+            }
+        }
+        if (request.getBaseCohort() != null) {
+            key.append("|baseCohort=").append(normalise(request.getBaseCohort().getParameterizable()))
+                    .append(normalise(request.getBaseCohort().getParameterMappings()));
+        }
+        RenderingMode renderingMode = request.getRenderingMode();
+        if (renderingMode != null) {
+            key.append('|').append(renderingMode.getRenderer().getClass().getName()).append(':').append(renderingMode.getArgument());
+        }
+        return key.toString();
+    }
+
+    private static String normalise(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof Date) {
+            // from the instant, the fields of a java.sql.Date have no time to read
+            LocalDateTime date = new LocalDateTime(((Date) value).getTime());
+            return date.getMillisOfDay() == 0 ? date.toLocalDate().toString() : date.toString();
+        }
+        if (value instanceof Cohort) {
+            List<Integer> members = new ArrayList<>(((Cohort) value).getMemberIds());
+            Collections.sort(members);
+            return members.toString();
+        }
+        if (value instanceof OpenmrsObject) {
+            return ((OpenmrsObject) value).getUuid();
+        }
+        if (value instanceof Map) {
+            Map<String, String> entries = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                entries.put(String.valueOf(entry.getKey()), normalise(entry.getValue()));
+            }
+            return entries.toString();
+        }
+        if (value instanceof Collection) {
+            List<String> elements = new ArrayList<>();
+            for (Object element : (Collection<?>) value) {
+                elements.add(normalise(element));
+            }
+            Collections.sort(elements);
+            return elements.toString();
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package org.openmrs.module.ugandaemrreports.reporting.execution;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The completed report requests of the {@link ReportExecutor} by {@link ReportRequestKey}, with the data version they
+ * ran on and when they started. A request is reused while the data version has not changed and it is not older than
+ * the maximum age; the least recently used are dropped past the maximum size.
+ */
+class ResultCache {
+
+    private static class Result {
+        private final String requestUuid;
+        private final String dataVersion;
+        private final long started;
+
+        Result(String requestUuid, String dataVersion, long started) {
+            this.requestUuid = requestUuid;
+            this.dataVersion = dataVersion;
+            this.started = started;
+        }
+    }
+
+    /**
+     * Least recently used first
+     */
+    private final Map<String, Result> results = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Remembers a completed request, not when the data version it ran on could not be read
+     */
+    synchronized void put(String key, String requestUuid, String dataVersion, long started, int maxSize) {
+        if (dataVersion == null) {
+            return;
+        }
+        results.put(key, new Result(requestUuid, dataVersion, started));
+        Iterator<String> eldest = results.keySet().iterator();
+        while (results.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * @param dataVersion read only when a request is remembered for the key, so a miss costs no query
+     * @return the uuid of the request completed with the key if it started at most maxAge milliseconds before now
+     * and the data version is still the one it ran on, otherwise null and the request is forgotten
+     */
+    String get(String key, long now, long maxAge, Supplier<String> dataVersion) {
+        Result result;
+        synchronized (this) {
+            result = results.get(key);
+        }
+        if (result == null) {
+            return null;
+        }
+        if (now - result.started <= maxAge && result.dataVersion.equals(dataVersion.get())) {
+            return result.requestUuid;
+        }
+        remove(key);
+        return null;
+    }
+
+    synchronized void remove(String key) {
+        results.remove(key);
+    }
+
+    synchronized int size() {
+        return results.size();
+    }
+
+    synchronized void clear() {
+        results.clear();
+    }
+}
@@ -0,0 +1,337 @@
+package org.openmrs.module.ugandaemrreports.reporting.facts;
+
+import com.google.common.base.Joiner;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.module.ugandaemrreports.common.ConnectionPool;
+import org.openmrs.module.ugandaemrreports.common.Helper;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ART facts table: one row per patient with the dates the HIV evaluators otherwise look up in obs every time, the
+ * first ART start (99161) and transfer out (99165) dates and the earliest of person.death_date and the death date
+ * obs (90272).
+ * Rows of the patients whose obs, encounters or person record are saved are refreshed shortly after the save commits,
+ * see {@link ArtFactsAdvice}. The rows of patients saved before the module was installed are filled in by a backfill
+ * that goes through the patients in batches and stores how far it got, so a restart resumes where it stopped; the
+ * patients saved meanwhile are refreshed between two batches.
+ * The patients waiting for a refresh are only kept in memory, and changes made while the module was down or by direct
+ * SQL never reach the advice, so every start reconciles the table: the patients whose ART obs, person or patient record
+ * changed since the previous start, found from the obs and person ids above the stored maximums and the date_created,
+ * date_changed and date_voided columns, are refreshed before the table is used again.
+ * Evaluators must check {@link #isReady()}, which only holds once the backfill or the reconcile is complete, before
+ * reading the table.
+ * The table does not yet hold the transfer in, last visit and last appointment dates; the evaluators needing them
+ * still read obs and encounters.
+ */
+public class ArtFacts {
+
+    protected static final Log log = LogFactory.getLog(ArtFacts.class);
+
+    public static final String TABLE = "ugandaemrreports_art_facts";
+    public static final String GP_ENABLED = "ugandaemrreports.artFacts.enabled";
+
+    static final String STATE_TABLE = "ugandaemrreports_fact_state";
+    static final String STATE_NAME = "art_facts";
+    static final String SYNC_STATE_NAME = "art_facts_sync";
+    static final String COMPLETE = "complete";
+
+    static final Set<Integer> CONCEPTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(99161, 99165, 90272)));
+
+    private static final int BATCH_SIZE = 500;
+    private static final long FLUSH_SECONDS = 30;
+
+    private static final String REFRESH = "INSERT INTO " + TABLE + " (patient_id, art_start_date, transfer_out_date, death_date, date_updated)\n" +
+            "SELECT\n" +
+            "  p.patient_id,\n" +
+            "  (SELECT MIN(o.value_datetime) FROM obs o WHERE o.person_id = p.patient_id AND o.concept_id = 99161 AND o.voided = 0),\n" +
+            "  (SELECT MIN(o.value_datetime) FROM obs o WHERE o.person_id = p.patient_id AND o.concept_id = 99165 AND o.voided = 0),\n" +
+            "  COALESCE(LEAST(pe.death_date, D.death_date), pe.death_date, D.death_date),\n" +
+            "  NOW()\n" +
+            "FROM patient p\n" +
+            "  INNER JOIN person pe ON (pe.person_id = p.patient_id)\n" +
+            "  LEFT JOIN (SELECT person_id, MIN(value_datetime) AS death_date FROM obs\n" +
+            "             WHERE concept_id = 90272 AND voided = 0 AND person_id IN (%1$s) GROUP BY person_id) D ON (D.person_id = p.patient_id)\n" +
+            "WHERE p.voided = 0 AND p.patient_id IN (%1$s)";
+
+    private static final String MARK = "SELECT NOW(), (SELECT MAX(obs_id) FROM obs), (SELECT MAX(person_id) FROM person)";
+
+    private static final String CHANGED = "SELECT person_id FROM obs WHERE concept_id IN (99161, 99165, 90272) AND (obs_id > ? OR date_voided >= ?)\n" +
+            "UNION\n" +
+            "SELECT person_id FROM person WHERE person_id > ? OR date_changed >= ? OR date_voided >= ?\n" +
+            "UNION\n" +
+            "SELECT patient_id FROM patient WHERE date_created >= ? OR date_changed >= ? OR date_voided >= ?";
+
+    private static final Set<Integer> changed = ConcurrentHashMap.newKeySet();
+    private static final AtomicLong refreshed = new AtomicLong();
+
+    private static ScheduledExecutorService executor;
+    private static volatile boolean ready;
+
+    private ArtFacts() {
+    }
+
+    /**
+     * Resumes the backfill and starts refreshing the rows of changed patients
+     */
+    public static synchronized void start() {
+        if (executor != null || !Helper.getBooleanGlobalProperty(GP_ENABLED, true)) {
+            return;
+        }
+        final ClassLoader classLoader = ArtFacts.class.getClassLoader();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ugandaemrreports-art-facts");
+            thread.setDaemon(true);
+            thread.setContextClassLoader(classLoader);
+            return thread;
+        });
+        executor.execute(ArtFacts::backfill);
+        executor.scheduleWithFixedDelay(ArtFacts::flush, FLUSH_SECONDS, FLUSH_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stop() {
+        if (executor != null) {
+            // an interrupted backfill batch is redone on the next start
+            executor.shutdownNow();
+            try {
+                // let the current batch hand its connection back before the pool is closed
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+        ready = false;
+    }
+
+    static boolean isRunning() {
+        return executor != null;
+    }
+
+    /**
+     * @return true if the table holds every patient, reconciled since the module started, and evaluators may read it
+     * instead of obs
+     */
+    public static boolean isReady() {
+        return ready && Helper.getBooleanGlobalProperty(GP_ENABLED, true);
+    }
+
+    public static long getRefreshed() {
+        return refreshed.get();
+    }
+
+    /**
+     * Refreshes the row of the patient once the current transaction, if any, commits
+     */
+    static void patientChanged(final Integer patientId) {
+        if (patientId == null || !isRunning()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    changed.add(patientId);
+                }
+            });
+        } else {
+            changed.add(patientId);
+        }
+    }
+
+    static void flush() {
+        if (changed.isEmpty()) {
+            return;
+        }
+        try (Connection connection = ConnectionPool.getInstance().checkout("ART facts")) {
+            flush(connection);
+        } catch (SQLException e) {
+            log.error("Unable to refresh the ART facts, retrying on the next flush", e);
+        }
+    }
+
+    private static void flush(Connection connection) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        List<Integer> patientIds = new ArrayList<>(changed);
+        changed.removeAll(patientIds);
+        try {
+            for (int i = 0; i < patientIds.size(); i += BATCH_SIZE) {
+                refresh(connection, patientIds.subList(i, Math.min(patientIds.size(), i + BATCH_SIZE)));
+            }
+        } catch (SQLException e) {
+            log.error("Unable to refresh the ART facts of " + patientIds.size() + " patients, retrying on the next flush", e);
+            changed.addAll(patientIds);
+        }
+    }
+
+    static void backfill() {
+        try (Connection connection = ConnectionPool.getInstance().checkout("ART facts backfill")) {
+            backfill(connection);
+        } catch (Exception e) {
+            log.error("ART facts backfill or reconcile stopped, it resumes from the last batch or mark on the next start", e);
+        }
+    }
+
+    /**
+     * Reconciles the table when it is complete, otherwise fills it from the last patient of the stored position
+     */
+    static void backfill(Connection connection) throws SQLException {
+        String position = readState(connection, STATE_NAME);
+        String sync = readState(connection, SYNC_STATE_NAME);
+        if (COMPLETE.equals(position) && sync != null) {
+            reconcile(connection, sync);
+            return;
+        }
+        if (sync == null) {
+            // without a mark nothing tells which rows went stale before this start, so the table is filled again
+            position = null;
+            writeState(connection, SYNC_STATE_NAME, mark(connection));
+        }
+        int last = position == null ? 0 : Integer.parseInt(position);
+        log.info("Backfilling the ART facts from patient " + last);
+        long start = System.currentTimeMillis();
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Integer> patientIds = nextPatients(connection, last);
+            if (patientIds.isEmpty()) {
+                writeState(connection, STATE_NAME, COMPLETE);
+                ready = true;
+                log.info("Backfilled the ART facts in " + (System.currentTimeMillis() - start) + "ms");
+                return;
+            }
+            refresh(connection, patientIds);
+            last = patientIds.get(patientIds.size() - 1);
+            writeState(connection, STATE_NAME, String.valueOf(last));
+            // the scheduled flushes wait for the backfill on this thread, so the saved patients would pile up
+            flush(connection);
+        }
+    }
+
+    /**
+     * Refreshes the patients changed since the mark of the previous start and moves the mark to this start. An
+     * interrupted reconcile leaves the old mark, so the next start goes over the same patients again.
+     */
+    private static void reconcile(Connection connection, String sync) throws SQLException {
+        String next = mark(connection);
+        List<Integer> patientIds = changedSince(connection, sync);
+        log.info("Reconciling the ART facts of " + patientIds.size() + " patients changed since " + sync);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < patientIds.size(); i += BATCH_SIZE) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            refresh(connection, patientIds.subList(i, Math.min(patientIds.size(), i + BATCH_SIZE)));
+        }
+        writeState(connection, SYNC_STATE_NAME, next);
+        ready = true;
+        log.info("Reconciled the ART facts in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * @return the database time and the highest obs and person ids, as "time|obs id|person id"
+     */
+    private static String mark(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(MARK)) {
+            rs.next();
+            return rs.getString(1) + "|" + rs.getInt(2) + "|" + rs.getInt(3);
+        }
+    }
+
+    private static List<Integer> changedSince(Connection connection, String sync) throws SQLException {
+        String[] mark = sync.split("\\|");
+        String time = mark[0];
+        List<Integer> patientIds = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(CHANGED)) {
+            statement.setInt(1, Integer.parseInt(mark[1]));
+            statement.setString(2, time);
+            statement.setInt(3, Integer.parseInt(mark[2]));
+            for (int i = 4; i <= 8; i++) {
+                statement.setString(i, time);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    patientIds.add(rs.getInt(1));
+                }
+            }
+        }
+        Collections.sort(patientIds);
+        return patientIds;
+    }
+
+    private static List<Integer> nextPatients(Connection connection, int after) throws SQLException {
+        List<Integer> patientIds = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT patient_id FROM patient WHERE patient_id > ? ORDER BY patient_id LIMIT ?")) {
+            statement.setInt(1, after);
+            statement.setInt(2, BATCH_SIZE);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    patientIds.add(rs.getInt(1));
+                }
+            }
+        }
+        return patientIds;
+    }
+
+    /**
+     * Replaces the rows of the patients in one transaction, so readers never see a patient missing
+     */
+    static void refresh(Connection connection, List<Integer> patientIds) throws SQLException {
+        String ids = Joiner.on(",").join(patientIds);
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM " + TABLE + " WHERE patient_id IN (" + ids + ")");
+            statement.executeUpdate(String.format(REFRESH, ids));
+            connection.commit();
+            refreshed.addAndGet(patientIds.size());
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static String readState(Connection connection, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT value FROM " + STATE_TABLE + " WHERE name = ?")) {
+            statement.setString(1, name);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private static void writeState(Connection connection, String name, String value) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + STATE_TABLE + " SET value = ? WHERE name = ?")) {
+            update.setString(1, value);
+            update.setString(2, name);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + STATE_TABLE + " (name, value) VALUES (?, ?)")) {
+            insert.setString(1, name);
+            insert.setString(2, value);
+            insert.executeUpdate();
+        }
+    }
+}
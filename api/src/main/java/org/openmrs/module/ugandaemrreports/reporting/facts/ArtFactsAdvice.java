@@ -0,0 +1,47 @@
+package org.openmrs.module.ugandaemrreports.reporting.facts;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openmrs.Encounter;
+import org.openmrs.Obs;
+import org.openmrs.Patient;
+import org.openmrs.Person;
+
+/**
+ * Marks the {@link ArtFacts} of a patient for refresh when the ObsService, EncounterService, PatientService or
+ * PersonService saves, voids, unvoids or purges something of theirs or records their death
+ */
+public class ArtFactsAdvice implements MethodInterceptor {
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        if (ArtFacts.isRunning() && changes(invocation.getMethod().getName())) {
+            for (Object argument : invocation.getArguments()) {
+                ArtFacts.patientChanged(patientId(argument));
+            }
+            ArtFacts.patientChanged(patientId(result));
+        }
+        return result;
+    }
+
+    private boolean changes(String method) {
+        return method.startsWith("save") || method.startsWith("void") || method.startsWith("unvoid") || method.startsWith("purge")
+                || method.contains("Dead") || method.contains("Death");
+    }
+
+    private Integer patientId(Object object) {
+        if (object instanceof Obs) {
+            Obs obs = (Obs) object;
+            return obs.getConcept() != null && ArtFacts.CONCEPTS.contains(obs.getConcept().getConceptId()) ? obs.getPersonId() : null;
+        } else if (object instanceof Encounter) {
+            Patient patient = ((Encounter) object).getPatient();
+            return patient == null ? null : patient.getPatientId();
+        } else if (object instanceof Patient) {
+            return ((Patient) object).getPatientId();
+        } else if (object instanceof Person) {
+            return ((Person) object).getPersonId();
+        }
+        return null;
+    }
+}
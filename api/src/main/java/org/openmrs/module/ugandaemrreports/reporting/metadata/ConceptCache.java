@@ -0,0 +1,103 @@
+package org.openmrs.module.ugandaemrreports.reporting.metadata;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.Concept;
+import org.openmrs.api.context.Context;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers which concept id an identifier (id, uuid, name or mapping) resolved to, so repeated lookups become a
+ * map read plus a load by primary key from the hibernate session. Only ids are kept, never Concept entities, so
+ * the cache can be shared by every session and thread. It is cleared whenever a concept is saved, retired or
+ * purged, see {@link ConceptCacheAdvice}.
+ */
+public class ConceptCache {
+
+    protected static final Log log = LogFactory.getLog(ConceptCache.class);
+
+    /**
+     * Identifiers resolved by {@link Dictionary#getConcept(String)}
+     */
+    public static final ConceptCache DICTIONARY = new ConceptCache("dictionary");
+
+    /**
+     * Identifiers resolved by {@link org.openmrs.module.ugandaemrreports.metadata.Metadata#getConcept(String)}
+     */
+    public static final ConceptCache METADATA = new ConceptCache("metadata");
+
+    private static final Integer MISSING = -1;
+
+    public interface Resolver {
+        Concept resolve(String identifier);
+    }
+
+    private final String name;
+    private final ConcurrentMap<String, Integer> conceptIds = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private ConceptCache(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the id of the concept the identifier resolves to, null if there is none
+     */
+    public Integer getConceptId(String identifier, Resolver resolver) {
+        if (identifier == null) {
+            return null;
+        }
+        Integer conceptId = conceptIds.get(identifier);
+        if (conceptId == null) {
+            misses.incrementAndGet();
+            Concept concept = resolver.resolve(identifier);
+            conceptId = concept == null || concept.getConceptId() == null ? MISSING : concept.getConceptId();
+            conceptIds.put(identifier, conceptId);
+        } else {
+            hits.incrementAndGet();
+        }
+        return MISSING.equals(conceptId) ? null : conceptId;
+    }
+
+    /**
+     * @return the concept the identifier resolves to, null if there is none
+     */
+    public Concept getConcept(String identifier, Resolver resolver) {
+        Integer conceptId = getConceptId(identifier, resolver);
+        return conceptId == null ? null : Context.getConceptService().getConcept(conceptId);
+    }
+
+    public void clear() {
+        if (log.isDebugEnabled()) {
+            log.debug("Clearing " + name + " concept cache with " + conceptIds.size() + " entries, " + hits.get() + " hits and " + misses.get() + " misses");
+        }
+        conceptIds.clear();
+        generation.incrementAndGet();
+    }
+
+    public static void clearAll() {
+        DICTIONARY.clear();
+        METADATA.clear();
+    }
+
+    /**
+     * @return a number that changes every time the cache is cleared, for callers that keep their own copy of ids
+     */
+    public int getGeneration() {
+        return generation.get();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,19 @@
+package org.openmrs.module.ugandaemrreports.reporting.metadata;
+
+import org.springframework.aop.AfterReturningAdvice;
+
+import java.lang.reflect.Method;
+
+/**
+ * Clears the {@link ConceptCache} after any ConceptService call that saves, retires or purges concepts
+ */
+public class ConceptCacheAdvice implements AfterReturningAdvice {
+
+    @Override
+    public void afterReturning(Object returnValue, Method method, Object[] args, Object target) throws Throwable {
+        String name = method.getName();
+        if (name.startsWith("save") || name.startsWith("retire") || name.startsWith("unretire") || name.startsWith("purge")) {
+            ConceptCache.clearAll();
+        }
+    }
+}
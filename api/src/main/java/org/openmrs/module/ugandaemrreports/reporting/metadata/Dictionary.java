@@ -37,6 +37,27 @@ public class Dictionary extends Metadata.Concept {
      * @throws MissingMetadataException if the concept could not be found
      */
     public static Concept getConcept(String identifier) {
+        return ConceptCache.DICTIONARY.getConcept(identifier, Dictionary::resolveConcept);
+    }
+
+    /**
+     * Gets the id of the concept an identifier resolves to without loading the concept once it is cached
+     * @param identifier the identifier
+     * @return the concept id, null if the concept could not be found
+     */
+    public static Integer getConceptId(String identifier) {
+        return ConceptCache.DICTIONARY.getConceptId(identifier, Dictionary::resolveConcept);
+    }
+
+    /**
+     * Compares a concept, typically a coded value, with the concept an identifier resolves to by id
+     * @return true if the concept is the one the identifier resolves to
+     */
+    public static boolean isConcept(Concept concept, String identifier) {
+        return concept != null && concept.getConceptId() != null && concept.getConceptId().equals(getConceptId(identifier));
+    }
+
+    private static Concept resolveConcept(String identifier) {
         Concept cpt = null;
 
         if (identifier != null) {
@@ -0,0 +1,229 @@
+package org.openmrs.module.ugandaemrreports.reporting.renderer;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.openmrs.annotation.Handler;
+import org.openmrs.module.reporting.common.ExcelUtil;
+import org.openmrs.module.reporting.common.Localized;
+import org.openmrs.module.reporting.evaluation.EvaluationUtil;
+import org.openmrs.module.reporting.report.ReportData;
+import org.openmrs.module.reporting.report.ReportDesign;
+import org.openmrs.module.reporting.report.ReportDesignResource;
+import org.openmrs.module.reporting.report.renderer.ExcelTemplateRenderer;
+import org.openmrs.module.reporting.report.renderer.RenderingException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * The Excel template renderer for templates whose placeholders are filled in where they are, that is without
+ * repeating sections. The template of a design is parsed once and the cells holding placeholders are indexed, so a
+ * run only evaluates those cells on a parsed copy of the template instead of loading and scanning the whole
+ * workbook; the copy is put back to its placeholders afterwards for the next run.
+ * Templates are cached by design uuid and checked against a checksum of the resource, so an edited template is
+ * parsed again. Only the placeholder index is held for good: the parsed copies of a template, which are large, are
+ * soft references dropped when the heap runs short and after a template has not been rendered for a while.
+ * Anything else, repeating sections, placeholders in sheet names or a password, is left to
+ * {@link ExcelTemplateRenderer}.
+ */
+@Handler
+@Localized("reporting.ExcelTemplateRenderer")
+public class CachedExcelTemplateRenderer extends ExcelTemplateRenderer {
+
+    /**
+     * Templates kept parsed, least recently used first
+     */
+    private static final int CACHE_SIZE = 20;
+
+    /**
+     * Parsed copies of one template kept for concurrent runs
+     */
+    private static final int IDLE_COPIES = 2;
+
+    /**
+     * Parsed copies of a template not rendered for this long are dropped
+     */
+    private static final long IDLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final Map<String, ParsedTemplate> CACHE = Collections.synchronizedMap(new LinkedHashMap<String, ParsedTemplate>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ParsedTemplate> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    });
+
+    @Override
+    public void render(ReportData reportData, String argument, OutputStream out) throws IOException, RenderingException {
+        ReportDesign design = getDesign(argument);
+        ParsedTemplate template = design.getPropertyValue("repeatingSections", null) == null
+                && design.getPropertyValue("password", null) == null ? getParsedTemplate(design) : null;
+        if (template == null || !template.isFillable()) {
+            super.render(reportData, argument, out);
+            return;
+        }
+
+        expireIdleCopies();
+        Map<String, Object> replacements = getBaseReplacementData(reportData, design);
+        Workbook workbook = template.checkout();
+        boolean reusable = false;
+        try {
+            int styles = workbook.getNumCellStyles();
+            template.fill(workbook, replacements, getExpressionPrefix(design), getExpressionSuffix(design));
+            workbook.setForceFormulaRecalculation(true);
+            workbook.write(out);
+            // a copy that gained styles while being filled would keep growing, so it is not reused
+            reusable = workbook.getNumCellStyles() == styles;
+        } finally {
+            if (reusable) {
+                template.checkin(workbook);
+            }
+        }
+    }
+
+    /**
+     * @return the parsed template of the design, parsed again when its resource has changed
+     */
+    private ParsedTemplate getParsedTemplate(ReportDesign design) throws IOException {
+        ReportDesignResource resource = getTemplate(design);
+        if (resource == null || resource.getContents() == null) {
+            return null;
+        }
+        long checksum = checksum(resource.getContents());
+        ParsedTemplate template = CACHE.get(design.getUuid());
+        if (template == null || template.checksum != checksum) {
+            template = new ParsedTemplate(resource.getContents(), checksum, getExpressionPrefix(design));
+            CACHE.put(design.getUuid(), template);
+        }
+        return template;
+    }
+
+    private static void expireIdleCopies() {
+        long now = System.currentTimeMillis();
+        synchronized (CACHE) {
+            for (ParsedTemplate template : CACHE.values()) {
+                if (now - template.lastUsed > IDLE_MILLIS) {
+                    template.idle.clear();
+                }
+            }
+        }
+    }
+
+    private static long checksum(byte[] contents) {
+        CRC32 crc = new CRC32();
+        crc.update(contents);
+        return crc.getValue() ^ ((long) contents.length << 32);
+    }
+
+    /**
+     * A template with the position and text of every cell holding a placeholder
+     */
+    private static class ParsedTemplate {
+        private final byte[] contents;
+        private final long checksum;
+        private final List<Placeholder> placeholders = new ArrayList<>();
+        private final Deque<SoftReference<Workbook>> idle = new ConcurrentLinkedDeque<>();
+        private volatile long lastUsed = System.currentTimeMillis();
+        private boolean fillable = true;
+
+        ParsedTemplate(byte[] contents, long checksum, String prefix) throws IOException {
+            this.contents = contents;
+            this.checksum = checksum;
+            Workbook workbook = parse();
+            for (int s = 0; s < workbook.getNumberOfSheets(); s++) {
+                Sheet sheet = workbook.getSheetAt(s);
+                if (sheet.getSheetName().contains(prefix)) {
+                    fillable = false;
+                }
+                for (Row row : sheet) {
+                    for (Cell cell : row) {
+                        if (cell.getCellType() == Cell.CELL_TYPE_STRING && cell.getStringCellValue().contains(prefix)) {
+                            placeholders.add(new Placeholder(s, row.getRowNum(), cell.getColumnIndex(), cell.getStringCellValue(),
+                                    cell.getCellStyle().getIndex()));
+                        }
+                    }
+                }
+            }
+            idle.push(new SoftReference<>(workbook));
+        }
+
+        boolean isFillable() {
+            return fillable;
+        }
+
+        private Workbook parse() throws IOException {
+            try {
+                return WorkbookFactory.create(new ByteArrayInputStream(contents));
+            } catch (Exception e) {
+                throw new IOException("Unable to parse Excel template", e);
+            }
+        }
+
+        Workbook checkout() throws IOException {
+            lastUsed = System.currentTimeMillis();
+            SoftReference<Workbook> reference;
+            while ((reference = idle.poll()) != null) {
+                Workbook workbook = reference.get();
+                if (workbook != null) {
+                    return workbook;
+                }
+            }
+            return parse();
+        }
+
+        /**
+         * Puts the placeholders back so the copy can be filled by the next run
+         */
+        void checkin(Workbook workbook) {
+            if (idle.size() >= IDLE_COPIES) {
+                return;
+            }
+            for (Placeholder placeholder : placeholders) {
+                Cell cell = placeholder.cell(workbook);
+                cell.setCellValue(placeholder.text);
+                cell.setCellStyle(workbook.getCellStyleAt(placeholder.style));
+            }
+            idle.push(new SoftReference<>(workbook));
+        }
+
+        void fill(Workbook workbook, Map<String, Object> replacements, String prefix, String suffix) {
+            for (Placeholder placeholder : placeholders) {
+                Object value = EvaluationUtil.evaluateExpression(placeholder.text, replacements, prefix, suffix);
+                ExcelUtil.setCellContents(placeholder.cell(workbook), value);
+            }
+        }
+    }
+
+    private static class Placeholder {
+        private final int sheet;
+        private final int row;
+        private final int column;
+        private final String text;
+        private final short style;
+
+        Placeholder(int sheet, int row, int column, String text, short style) {
+            this.sheet = sheet;
+            this.row = row;
+            this.column = column;
+            this.text = text;
+            this.style = style;
+        }
+
+        Cell cell(Workbook workbook) {
+            return workbook.getSheetAt(sheet).getRow(row).getCell(column);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package org.openmrs.module.ugandaemrreports.reporting.renderer;
+
+import org.joda.time.LocalDateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.openmrs.annotation.Handler;
+import org.openmrs.module.reporting.common.Localized;
+import org.openmrs.module.reporting.common.ObjectUtil;
+import org.openmrs.module.reporting.dataset.DataSet;
+import org.openmrs.module.reporting.dataset.DataSetColumn;
+import org.openmrs.module.reporting.dataset.DataSetRow;
+import org.openmrs.module.reporting.dataset.SimpleDataSet;
+import org.openmrs.module.reporting.dataset.column.definition.RowPerObjectColumnDefinition;
+import org.openmrs.module.reporting.dataset.definition.DataSetDefinition;
+import org.openmrs.module.reporting.dataset.definition.RowPerObjectDataSetDefinition;
+import org.openmrs.module.reporting.report.ReportData;
+import org.openmrs.module.reporting.report.ReportDesign;
+import org.openmrs.module.reporting.report.ReportRequest;
+import org.openmrs.module.reporting.report.renderer.RenderingException;
+import org.openmrs.module.reporting.report.renderer.ReportDesignRenderer;
+import org.openmrs.module.ugandaemrreports.common.ExcelBuilder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes one data set of a report as CSV, newline delimited JSON or an Excel sheet, a row at a time as the data set
+ * is iterated, so a {@link org.openmrs.module.ugandaemrreports.common.StreamingDataSet} is never held in memory and a
+ * SimpleDataSet is not copied into a workbook first. Excel sheets are written with a streaming
+ * {@link ExcelBuilder} unless the data set is known to be small.
+ * The columns are in the order of the column definitions of the data set definition, followed by any column only
+ * found in the data set.
+ * Design properties: format (csv, ndjson or xlsx, csv by default), gzip (true or false, false by default, ignored for
+ * xlsx which is already compressed), password (encrypts an xlsx) and dataset (the name of the data set to write, the
+ * first one by default).
+ */
+@Handler
+@Localized("ugandaemrreports.LineListReportRenderer")
+public class LineListReportRenderer extends ReportDesignRenderer {
+
+    public static final String FORMAT_PROPERTY = "format";
+    public static final String GZIP_PROPERTY = "gzip";
+    public static final String DATASET_PROPERTY = "dataset";
+    public static final String PASSWORD_PROPERTY = "password";
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+    public static final String XLSX = "xlsx";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final DateTimeFormatter DATE = DateTimeFormat.forPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormat.forPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Override
+    public String getRenderedContentType(ReportRequest request) {
+        ReportDesign design = getDesign(request.getRenderingMode().getArgument());
+        if (XLSX.equals(getFormat(design))) {
+            return "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+        }
+        if (isGzip(design)) {
+            return "application/gzip";
+        }
+        return NDJSON.equals(getFormat(design)) ? "application/x-ndjson" : "text/csv";
+    }
+
+    @Override
+    public String getFilename(ReportRequest request) {
+        ReportDesign design = getDesign(request.getRenderingMode().getArgument());
+        return getFilenameBase(request) + "." + getFormat(design) + (isGzip(design) ? ".gz" : "");
+    }
+
+    @Override
+    public void render(ReportData reportData, String argument, OutputStream out) throws IOException, RenderingException {
+        ReportDesign design = getDesign(argument);
+        DataSet dataSet = getDataSet(reportData, design.getPropertyValue(DATASET_PROPERTY, null));
+        if (XLSX.equals(getFormat(design))) {
+            renderWorkbook(dataSet, design.getPropertyValue(PASSWORD_PROPERTY, null), out);
+            return;
+        }
+
+        GZIPOutputStream gzip = isGzip(design) ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip == null ? out : gzip, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        writeLines(dataSet, NDJSON.equals(getFormat(design)), writer);
+
+        writer.flush();
+        // finish the gzip trailer without closing the stream of the caller
+        if (gzip != null) {
+            gzip.finish();
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the rows of the data set, after a header row for CSV
+     */
+    void writeLines(DataSet dataSet, boolean json, Writer writer) throws IOException {
+        List<String> columns = getColumns(dataSet);
+        if (!json) {
+            writeCsvRow(writer, columns);
+        }
+        List<Object> values = new ArrayList<Object>(columns.size());
+        for (DataSetRow row : dataSet) {
+            values.clear();
+            for (String column : columns) {
+                values.add(row.getColumnValue(column));
+            }
+            if (json) {
+                writeJsonRow(writer, columns, values);
+            } else {
+                writeCsvRow(writer, values);
+            }
+        }
+    }
+
+    private void renderWorkbook(DataSet dataSet, String password, OutputStream out) throws IOException {
+        ExcelBuilder builder = ExcelBuilder.forExpectedRows(getExpectedRows(dataSet));
+        builder.newSheet(dataSet.getDefinition() == null ? null : dataSet.getDefinition().getName());
+        List<String> columns = getColumns(dataSet);
+        for (String column : columns) {
+            builder.addCell(column, "bold");
+        }
+        builder.nextRow();
+        for (DataSetRow row : dataSet) {
+            for (String column : columns) {
+                builder.addCell(row.getColumnValue(column));
+            }
+            builder.nextRow();
+        }
+        builder.write(out, password);
+        out.flush();
+    }
+
+    /**
+     * @return the rows of a data set held in memory, and for one whose rows are only read while rendering as many
+     * as can be, so it is streamed
+     */
+    private int getExpectedRows(DataSet dataSet) {
+        if (dataSet instanceof SimpleDataSet) {
+            return ((SimpleDataSet) dataSet).getRows().size();
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    private DataSet getDataSet(ReportData reportData, String name) throws RenderingException {
+        if (reportData.getDataSets().isEmpty()) {
+            throw new RenderingException("No data set to render in " + reportData.getDefinition().getName());
+        }
+        if (name == null) {
+            return reportData.getDataSets().values().iterator().next();
+        }
+        DataSet dataSet = reportData.getDataSets().get(name);
+        if (dataSet == null) {
+            throw new RenderingException("No data set named " + name + " in " + reportData.getDefinition().getName());
+        }
+        return dataSet;
+    }
+
+    /**
+     * @return the column names in the order the data set definition declares them, so every run of a report has the
+     * same columns in the same place whatever order the evaluator returned them in
+     */
+    private List<String> getColumns(DataSet dataSet) {
+        Set<String> columns = new LinkedHashSet<String>();
+        DataSetDefinition definition = dataSet.getDefinition();
+        if (definition instanceof RowPerObjectDataSetDefinition) {
+            for (RowPerObjectColumnDefinition column : ((RowPerObjectDataSetDefinition) definition).getColumnDefinitions()) {
+                columns.add(column.getName());
+            }
+        }
+        for (DataSetColumn column : dataSet.getMetaData().getColumns()) {
+            columns.add(column.getName());
+        }
+        return new ArrayList<String>(columns);
+    }
+
+    private void writeCsvRow(Writer writer, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = format(values.get(i));
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeJsonRow(Writer writer, List<String> columns, List<Object> values) throws IOException {
+        writer.write('{');
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeJsonString(writer, columns.get(i));
+            writer.write(':');
+            Object value = values.get(i);
+            if (value == null || isNotFinite(value)) {
+                // JSON has no literal for NaN or infinity
+                writer.write("null");
+            } else if (value instanceof Number || value instanceof Boolean) {
+                writer.write(value.toString());
+            } else {
+                writeJsonString(writer, format(value));
+            }
+        }
+        writer.write("}\n");
+    }
+
+    private boolean isNotFinite(Object value) {
+        if (value instanceof Double) {
+            return ((Double) value).isNaN() || ((Double) value).isInfinite();
+        }
+        if (value instanceof Float) {
+            return ((Float) value).isNaN() || ((Float) value).isInfinite();
+        }
+        return false;
+    }
+
+    private void writeJsonString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+
+    /**
+     * Dates are written yyyy-MM-dd, with the time only when there is one, so both formats sort and parse the same
+     */
+    private String format(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof Date) {
+            LocalDateTime date = LocalDateTime.fromDateFields((Date) value);
+            return date.getMillisOfDay() == 0 ? DATE.print(date) : DATE_TIME.print(date);
+        }
+        return ObjectUtil.format(value);
+    }
+
+    private String getFormat(ReportDesign design) {
+        String format = design.getPropertyValue(FORMAT_PROPERTY, CSV);
+        if (NDJSON.equalsIgnoreCase(format)) {
+            return NDJSON;
+        }
+        return XLSX.equalsIgnoreCase(format) ? XLSX : CSV;
+    }
+
+    private boolean isGzip(ReportDesign design) {
+        return !XLSX.equals(getFormat(design)) && Boolean.parseBoolean(design.getPropertyValue(GZIP_PROPERTY, "false"));
+    }
+}
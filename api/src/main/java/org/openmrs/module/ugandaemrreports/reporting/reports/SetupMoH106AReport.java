@@ -215,6 +215,6 @@ public class SetupMoH106AReport extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.2.2.1";
+        return "0.2.2.2";
     }
 }
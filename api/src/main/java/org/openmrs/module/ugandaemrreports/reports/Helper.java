@@ -53,69 +53,21 @@ public class Helper {
 
     public static List<PatientEncounterObs> getEncounterObs(Connection connection, String encounterType, String obs, Date startDate, Date endDate) throws SQLException {
 
-        String sql = "SELECT\n" +
-                "  e.patient_id,\n" +
-                "  DATE(encounter_datetime)                                 AS encounter_date,\n" +
-                "  (SELECT GROUP_CONCAT(CONCAT_WS(' ', COALESCE(given_name, ''), COALESCE(family_name, '')))\n" +
-                "   FROM person_name pn\n" +
-                "   WHERE e.patient_id = pn.person_id)                      AS 'names',\n" +
-                "  (SELECT p.gender\n" +
-                "   FROM person p\n" +
-                "   WHERE p.person_id = e.patient_id)                       AS gender,\n" +
-                "  (SELECT birthdate\n" +
-                "   FROM person p\n" +
-                "   WHERE p.person_id = e.patient_id)                       AS dob,\n" +
-                "  (SELECT YEAR(e.encounter_datetime) - YEAR(birthdate) - (RIGHT(e.encounter_datetime, 5) < RIGHT(birthdate, 5))\n" +
-                "   FROM person p\n" +
-                "   WHERE p.person_id = e.patient_id)                       AS age,\n" +
-                "  (SELECT group_concat(concat_ws(':', o.concept_id, o.value_coded, DATE(o.obs_datetime)))\n" +
-                "   FROM obs o\n" +
-                "   WHERE o.concept_id = 90244 AND o.person_id = e.patient_id) AS marital,\n" +
-                "  (SELECT GROUP_CONCAT(CONCAT_WS(':', COALESCE(pit.uuid, ''), COALESCE(identifier, '')))\n" +
-                "   FROM patient_identifier pi INNER JOIN patient_identifier_type pit\n" +
-                "       ON (pi.identifier_type = pit.patient_identifier_type_id)\n" +
-                "   WHERE pi.patient_id = e.patient_id)                     AS 'identifiers',\n" +
-                "  (SELECT GROUP_CONCAT(CONCAT_WS(':', COALESCE(pat.uuid, ''), COALESCE(value, '')))\n" +
-                "   FROM person_attribute pa INNER JOIN person_attribute_type pat\n" +
-                "       ON (pa.person_attribute_type_id = pat.person_attribute_type_id)\n" +
-                "   WHERE e.patient_id = pa.person_id)                      AS 'attributes',\n" +
-                "  (SELECT GROUP_CONCAT(\n" +
-                "      CONCAT_WS(':', COALESCE(country, ''), COALESCE(county_district, ''), COALESCE(state_province, ''),\n" +
-                "                COALESCE(address3, ''),\n" +
-                "                COALESCE(address4, ''), COALESCE(address5, '')))\n" +
-                "   FROM person_address pas\n" +
-                "   WHERE e.patient_id = pas.person_id)                     AS 'addresses',\n" +
-                "  (SELECT group_concat(\n" +
-                "      concat_ws(':', o.concept_id, concat_ws('', DATE(o.value_datetime), o.value_text, o.value_coded, o.value_numeric),\n" +
-                "                DATE(o.obs_datetime),COALESCE(o.obs_group_id, '')))\n" +
-                "   FROM obs o\n";
+        List<Integer> concepts = new ArrayList<>();
         if (obs != null) {
-            sql += String.format("   WHERE o.encounter_id = e.encounter_id AND o.voided = 0 AND concept_id IN(%s)) AS obs\n", obs);
-        } else {
-            sql += "   WHERE o.encounter_id = e.encounter_id AND o.voided = 0) AS obs\n";
-        }
-
-        sql += "FROM encounter e\n" +
-                "WHERE e.encounter_type = (SELECT encounter_type_id\n" +
-                "                          FROM encounter_type\n" +
-                "                          WHERE uuid =\n" +
-                String.format("                                '%s') AND voided = 0", encounterType);
-
-        if (startDate != null) {
-            sql += " AND e.encounter_datetime >= '" + DateUtil.formatDate(startDate, "yyyy-MM-dd") + "'";
-        }
-
-        if (endDate != null) {
-            sql += " AND e.encounter_datetime <= '" + DateUtil.formatDate(endDate, "yyyy-MM-dd") + "'";
+            for (String concept : Splitter.on(",").trimResults().omitEmptyStrings().split(obs)) {
+                concepts.add(Integer.valueOf(concept));
+            }
         }
+        NamedQuery.Parameters parameters = NamedQuery.parameters()
+                .string("encounterType", encounterType)
+                .integer("allObs", obs == null ? 1 : 0)
+                .ids("concepts", concepts)
+                .date("startDate", startDate)
+                .date("endDate", endDate);
 
-        Statement stmt = connection.createStatement(java.sql.ResultSet.TYPE_FORWARD_ONLY,
-                java.sql.ResultSet.CONCUR_READ_ONLY);
-        stmt.setFetchSize(Integer.MIN_VALUE);
-
-        ResultSet rs = stmt.executeQuery(sql);
         List<PatientEncounterObs> patientEncounterObs = new ArrayList<>();
-        while (rs.next()) {
+        NamedQuery.get("encounter-obs").forEach(connection, parameters, rs -> {
             PatientEncounterObs encounterObs = new PatientEncounterObs();
             encounterObs.setPatientId(rs.getInt(1));
             encounterObs.setEncounterDate(rs.getDate(2));
@@ -147,9 +99,7 @@ public class Helper {
             }
             encounterObs.setObs(foundObs);
             patientEncounterObs.add(encounterObs);
-        }
-        rs.close();
-        stmt.close();
+        });
         return patientEncounterObs;
     }
 
@@ -162,17 +112,9 @@ public class Helper {
     }
 
 
-    public static Multimap<Integer, Date> getData(Connection connection, String sql, String columnLabel1, String columnLabel2) throws SQLException {
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        ResultSet rs = stmt.executeQuery();
+    public static Multimap<Integer, Date> getData(Connection connection, String query, NamedQuery.Parameters parameters, String columnLabel1, String columnLabel2) throws SQLException {
         Multimap<Integer, Date> result = TreeMultimap.create();
-        while (rs.next()) {
-            result.put(rs.getInt(columnLabel1), rs.getDate(columnLabel2));
-        }
-        rs.close();
-        stmt.close();
-
+        NamedQuery.get(query).forEach(connection, parameters, rs -> result.put(rs.getInt(columnLabel1), rs.getDate(columnLabel2)));
         return result;
     }
 
@@ -189,39 +131,7 @@ public class Helper {
     }
 
     public static String convert(String concept) {
-        Map<String, String> result = new HashMap<>();
-        // Entry point
-        result.put("90012", "eMTCT");
-        result.put("90016", "TB");
-        result.put("99593", "YCC");
-        result.put("90019", "Outreach");
-        result.put("90013", "Out Patient");
-        result.put("90015", "STI");
-        result.put("90018", "Inpatient");
-        result.put("90002", "Other");
-        // TB status
-        result.put("90079", "1");
-        result.put("90073", "2");
-        result.put("90078", "3");
-        result.put("90071", "4");
-        // Infant feeding status
-        result.put("5526", "EBF");
-        result.put("99089", "RF");
-        result.put("6046", "MF");
-        result.put("99791", "CF");
-        result.put("99792", "W");
-        result.put("99793", "NLB");
-        // Infant ARVs for eMTCT @TODO Requires revision
-        result.put("163013", "2");
-        result.put("162966", "2");
-        result.put("99789", "2");
-        result.put("99790", "3");
-        result.put("99788", "1");
-        result.put("1067", "5");
-        result.put("163009", "5");
-        result.put("163010", "5");
-
-        return result.get(concept);
+        return RegisterCodes.convert(concept);
     }
 
 
@@ -236,24 +146,16 @@ public class Helper {
         return result;
     }
 
-    public static ObsData getData(List<ObsData> data, String concept) {
-
-        return data.stream()
-                .filter(line -> line.getConceptId().compareTo(concept) == 0).findAny().orElse(null);
+    public static ObsData getData(PatientObsStore data, String concept) {
+        return data.getFirst(concept);
     }
 
-    public static ObsData getData(List<ObsData> data, String yearMonth, String concept) {
-
-        return data.stream()
-                .filter(line -> line.getConceptId().compareTo(concept) == 0 && getObsPeriod(line.getEncounterDate(),
-                        Enums.Period.MONTHLY).compareTo(yearMonth) == 0).findAny().orElse(null);
+    public static ObsData getData(PatientObsStore data, Integer yearMonth, String concept) {
+        return data.get(concept, yearMonth);
     }
 
-    public static ObsData getData(List<ObsData> data, Integer yearMonth) {
-
-        return data.stream()
-                .filter(line -> getObsPeriod(line.getEncounterDate(),
-                        Enums.Period.MONTHLY).compareTo(String.valueOf(yearMonth)) == 0).findAny().orElse(null);
+    public static boolean hasData(PatientObsStore data, Integer yearMonth) {
+        return data.hasData(yearMonth);
     }
 
     public static List<ObsData> getData(Connection connection, String sql) throws SQLException {
@@ -275,75 +177,35 @@ public class Helper {
         return result;
     }
 
-    public static List<String> getData(Map<String, String> data, String yearQuarter, String concept) {
-        String quarter = yearQuarter.substring(Math.max(yearQuarter.length() - 2, 0));
-        String year = yearQuarter.substring(0, Math.min(yearQuarter.length(), 4));
-
-        List<String> result = new ArrayList<>();
-
-        ImmutableMap<String, List<String>> quarters =
-                new ImmutableMap.Builder<String, List<String>>()
-                        .put("Q1", Arrays.asList("01", "02", "03"))
-                        .put("Q2", Arrays.asList("04", "05", "06"))
-                        .put("Q3", Arrays.asList("07", "08", "09"))
-                        .put("Q4", Arrays.asList("10", "11", "12"))
-                        .build();
-
-        List<String> periods = quarters.get(quarter);
-        String r1 = data.get(year + periods.get(0) + concept);
-        String r2 = data.get(year + periods.get(1) + concept);
-        String r3 = data.get(year + periods.get(2) + concept);
+    public static ObsDataStore getObsDataStore(Connection connection, String sql) throws SQLException {
+        PreparedStatement stmt = connection.prepareStatement(sql);
+        ResultSet rs = stmt.executeQuery();
+        ObsDataStore store = ObsDataStore.load(rs);
+        rs.close();
+        stmt.close();
 
-        if (r1 != null) {
-            result.add(r1);
-        }
-        if (r2 != null) {
-            result.add(r2);
-        }
-        if (r3 != null) {
-            result.add(r3);
-        }
-        return result;
+        return store;
     }
 
-    public static String getData(Map<String, String> data, String concept) {
-
-        Set<String> keys = data.keySet();
-
-        String criteria = keys.stream()
-                .filter(e -> e.endsWith(concept))
-                .findAny().orElse(null);
-        if (criteria != null) {
-            return data.get(criteria);
+    /**
+     * @param sql obs query with a %1$s placeholder for the ids of a batch of patients
+     */
+    public static ObsDataStore getObsDataStore(Connection connection, String sql, Collection<Integer> patients) throws SQLException {
+        ObsDataStore store = new ObsDataStore();
+        for (String batch : CohortParameter.batches(patients)) {
+            store.addAll(getObsDataStore(connection, String.format(sql, batch)));
         }
-
-        return null;
+        return store;
     }
 
-
-    public static Table<String, Integer, String> getDataTable(Connection connection, String sql) throws SQLException {
-
-        PreparedStatement stmt = connection.prepareStatement(sql);
-        ResultSet rs = stmt.executeQuery();
-        Table<String, Integer, String> table = TreeBasedTable.create();
-        while (rs.next()) {
-            Integer patientId = rs.getInt(1);
-            String conceptId = rs.getString(2);
-            Date encounterDate = rs.getDate(3);
-            String val = rs.getString(4);
-            String encounterMonth = DateUtil.formatDate(encounterDate, "yyyyMM") + conceptId;
-            table.put(encounterMonth, patientId, val);
-        }
-        rs.close();
-        stmt.close();
-
-        return table;
+    public static List<ObsData> getData(PatientObsStore data, Integer fromYearMonth, Integer toYearMonth, String concept) {
+        return data.getAll(concept, fromYearMonth, toYearMonth);
     }
 
-    public static Map<String, Date> getClinicalStages(Map<String, String> data, String concept) {
+    public static Map<String, Date> getClinicalStages(PatientObsStore data, String concept) {
         Map<String, Date> result = new HashMap<>();
 
-        ImmutableMap<String, String> quarters =
+        ImmutableMap<String, String> stages =
                 new ImmutableMap.Builder<String, String>()
                         .put("90033", "1")
                         .put("90034", "2")
@@ -355,49 +217,29 @@ public class Helper {
                         .put("90296", "T4")
                         .build();
 
-        for (Map.Entry<String, String> dic : data.entrySet()) {
-            String value = quarters.get(dic.getValue());
-            String key = dic.getKey();
-            if (key.endsWith(concept) && !result.containsValue(value)) {
-                result.put(value, DateUtil.parseDate(key.substring(0, Math.min(key.length(), 6)), "yyyyMM"));
+        for (ObsData obs : data.getAll(concept)) {
+            String value = stages.get(obs.getVal());
+            if (obs.getEncounterDate() != null && !result.containsKey(value)) {
+                result.put(value, Periods.monthStartFor(StubDate.dateOf(obs.getEncounterDate())).toDate());
             }
         }
         return result;
     }
 
-    public static String getMinimum(Map<String, String> data, String concept) {
-        List<String> result = new ArrayList<>();
-
-        for (Map.Entry<String, String> dic : data.entrySet()) {
-            String key = dic.getKey();
-            if (key.endsWith(concept)) {
-                result.add(key.substring(0, Math.min(key.length(), 6)));
-            }
-        }
-        sort(result);
-
-        if (result.size() > 0) {
-
-            String month = result.get(0).substring(Math.max(result.get(0).length() - 2, 0));
-            String year = result.get(0).substring(0, Math.min(result.get(0).length(), 4));
-            return month + "/" + year;
+    public static String getMinimum(PatientObsStore data, String concept) {
+        ObsData first = data.getFirst(concept);
+        if (first != null && first.getEncounterDate() != null) {
+            return DateUtil.formatDate(first.getEncounterDate(), "MM/yyyy");
         }
         return "";
     }
 
-    public static ObsData getFirstData(List<ObsData> data, String concept) {
-        List<ObsData> filteredData = getDataAsList(data, concept);
-        filteredData.sort(comparing(ObsData::getEncounterId));
-        if (filteredData.size() > 0) {
-            return filteredData.get(0);
-        }
-        return null;
+    public static ObsData getFirstData(PatientObsStore data, String concept) {
+        return data.getFirst(concept);
     }
 
-    public static List<ObsData> getDataAsList(List<ObsData> data, String concept) {
-        return data.stream()
-                .filter(line -> line.getConceptId().compareTo(concept) == 0)
-                .collect(Collectors.toList());
+    public static List<ObsData> getDataAsList(PatientObsStore data, String concept) {
+        return data.getAll(concept);
     }
 
     public static String getObsPeriod(Date period, Enums.Period periodType) {
@@ -474,16 +316,6 @@ public class Helper {
                 .build();
     }
 
-    public static Connection getDatabaseConnection(Properties props) throws ClassNotFoundException, SQLException {
-
-        String driverClassName = props.getProperty("driver.class");
-        String driverURL = props.getProperty("driver.url");
-        String username = props.getProperty("user");
-        String password = props.getProperty("password");
-        Class.forName(driverClassName);
-        return DriverManager.getConnection(driverURL, username, password);
-    }
-
     public static ObsData viralLoad(List<ObsData> vls, Integer no) {
 
         if (vls != null && vls.size() > 0) {
@@ -522,6 +354,10 @@ public class Helper {
     }
 
 
+    public static Map<Integer, List<PersonDemographics>> getPatientDemographics(Connection connection, Collection<Integer> patients) throws SQLException {
+        return CohortParameter.map(patients, batch -> getPatientDemographics(connection, batch));
+    }
+
     public static Map<Integer, List<PersonDemographics>> getPatientDemographics(Connection connection, String patients) throws SQLException {
         String where = "p.voided = 0";
 
@@ -624,111 +460,15 @@ public class Helper {
         return result;
     }
 
-    public static List<EWIPatientData> getEWIPillPickupPatients(Connection connection, String sql)
-            throws SQLException {
-        Statement stmt = connection.createStatement(java.sql.ResultSet.TYPE_FORWARD_ONLY,
-                java.sql.ResultSet.CONCUR_READ_ONLY);
-        stmt.setFetchSize(Integer.MIN_VALUE);
-        ResultSet rs = stmt.executeQuery(sql);
-        List<EWIPatientData> ewiPatientData = new ArrayList<>();
-        while (rs.next()) {
-            Integer personId = rs.getInt(1);
-            String gender = rs.getString(2);
-            String dob = rs.getString(3);
-            Integer age = rs.getInt(4);
-            String deathDate = rs.getString(5);
-            String clinicNo = rs.getString(6);
-            String artStartDate = rs.getString(7);
-            String transferOutDate = rs.getString(8);
-            String arv_stop = rs.getString(9);
-            EWIPatientData p = new EWIPatientData(personId, gender, dob, deathDate, clinicNo, artStartDate, transferOutDate,arv_stop,age);
-            ewiPatientData.add(p);
-        }
-        rs.close();
-        stmt.close();
-        return ewiPatientData;
-    }
-    public static List<Integer> getEWICohort(Connection connection, String sql)
-            throws SQLException {
-        Statement stmt = connection.createStatement(java.sql.ResultSet.TYPE_FORWARD_ONLY,
-                java.sql.ResultSet.CONCUR_READ_ONLY);
-        stmt.setFetchSize(Integer.MIN_VALUE);
-        ResultSet rs = stmt.executeQuery(sql);
-        List<Integer> ewiPatients = new ArrayList<>();
-        while (rs.next()) {
-            Integer patient = rs.getInt(1);
-            ewiPatients.add(patient);
-        }
-        rs.close();
-        stmt.close();
-        return ewiPatients;
-    }
-    public static List<EWIPatientEncounter> getEWIPatientEncounters(Connection connection, String sql)
-            throws SQLException {
-        Statement stmt = connection.createStatement(java.sql.ResultSet.TYPE_FORWARD_ONLY,
-                java.sql.ResultSet.CONCUR_READ_ONLY);
-        stmt.setFetchSize(Integer.MIN_VALUE);
-        ResultSet rs = stmt.executeQuery(sql);
-        List<EWIPatientEncounter> ewiPatients = new ArrayList<>();
-        while (rs.next()) {
-            Integer patient = rs.getInt(1);
-            Integer encounterId = rs.getInt(2);
-            String encounterDate = rs.getString(3);
-            String nextVisitDate = rs.getString(4);
-            EWIPatientEncounter ewiPatient = new EWIPatientEncounter(patient, encounterId, encounterDate, nextVisitDate);
-            ewiPatients.add(ewiPatient);
-        }
-        rs.close();
-        stmt.close();
-        return ewiPatients;
-    }
-
-    public static List<EWIPatientEncounter> getBaselinePickup(Connection connection, String sql)
-            throws SQLException {
-        Statement stmt = connection.createStatement(java.sql.ResultSet.TYPE_FORWARD_ONLY,
-                java.sql.ResultSet.CONCUR_READ_ONLY);
-        stmt.setFetchSize(Integer.MIN_VALUE);
-        ResultSet rs = stmt.executeQuery(sql);
-        List<EWIPatientEncounter> ewiPatients = new ArrayList<>();
-        while (rs.next()) {
-            Integer patient = rs.getInt(1);
-            String baselinepickup = rs.getString(2);
-
-            EWIPatientEncounter ewiPatient = new EWIPatientEncounter(patient, baselinepickup);
-            ewiPatients.add(ewiPatient);
-        }
-        rs.close();
-        stmt.close();
-        return ewiPatients;
-    }
-
-    public static List<EWIPatientEncounter> getNumberOfDaysPickedAtBaseline(Connection connection,String sql) throws SQLException{
-        Statement stmt = connection.createStatement(java.sql.ResultSet.TYPE_FORWARD_ONLY,
-                java.sql.ResultSet.CONCUR_READ_ONLY);
-        stmt.setFetchSize(Integer.MIN_VALUE);
-        ResultSet rs = stmt.executeQuery(sql);
-        List<EWIPatientEncounter> ewiPatients = new ArrayList<>();
-        while (rs.next()) {
-            Integer patient = rs.getInt(1);
-            Integer noOfDays = rs.getInt(2);
-
-            EWIPatientEncounter ewiPatient = new EWIPatientEncounter(patient, noOfDays);
-            ewiPatients.add(ewiPatient);
-        }
-        rs.close();
-        stmt.close();
-        return ewiPatients;
-
-    }
-
     public static Connection sqlConnection() throws SQLException, ClassNotFoundException {
+        return sqlConnection("reports");
+    }
 
-        Properties props = new Properties();
-        props.setProperty("driver.class", "com.mysql.jdbc.Driver");
-        props.setProperty("driver.url", Context.getRuntimeProperties().getProperty("connection.url"));
-        props.setProperty("user", Context.getRuntimeProperties().getProperty("connection.username"));
-        props.setProperty("password", Context.getRuntimeProperties().getProperty("connection.password"));
-        return getDatabaseConnection(props);
+    /**
+     * Checks out a pooled connection on behalf of the given report, close it to hand it back to the pool
+     */
+    public static Connection sqlConnection(String owner) throws SQLException {
+        return ConnectionPool.getInstance().checkout(owner);
     }
 
     public static Observation searchObservations(List<Observation> observations, Predicate<Observation> predicate) {
@@ -738,15 +478,6 @@ public class Helper {
                 .orElse(null);
     }
 
-    public static Connection testSqlConnection() throws SQLException, ClassNotFoundException {
-        Properties props = new Properties();
-        props.setProperty("driver.class", "com.mysql.jdbc.Driver");
-        props.setProperty("driver.url", "jdbc:mysql://localhost:3306/openmrs");
-        props.setProperty("user", "openmrs");
-        props.setProperty("password", "openmrs");
-        return getDatabaseConnection(props);
-    }
-
     public static void addIndicator(CohortIndicatorDataSetDefinition dsd, String key, String label, CohortDefinition cohortDefinition, String dimensionOptions) {
         CohortIndicator ci = new CohortIndicator();
         ci.addParameter(ReportingConstants.START_DATE_PARAMETER);
@@ -156,6 +156,6 @@ public class SetUpDSDMModelEnrollmentReport extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "2.0.18";
+        return "2.0.19";
     }
 }
@@ -121,6 +121,6 @@ public class SetUpEWILostToFollowUp extends UgandaEMRDataExportManager {
     }
     @Override
     public String getVersion() {
-        return "0.59";
+        return "0.60";
     }
 }
@@ -41,7 +41,7 @@ public class SetUpHTCDataExportReport extends UgandaEMRDataExportManager {
 	
 	@Override
 	public String getVersion() {
-		return "2.3";
+		return "2.6";
 	}
 	
 	/**
@@ -65,6 +65,7 @@ public class SetUpHTCDataExportReport extends UgandaEMRDataExportManager {
 		List<ReportDesign> l = new ArrayList<ReportDesign>();
 		l.add(buildReportDesign(reportDefinition));
 //		l.add(buildExcelReportDesign(reportDefinition));
+		l.addAll(constructLineListDesigns(reportDefinition));
 		return l;
 	}
 	
@@ -68,7 +68,7 @@ public class SetUpHTSClientCardDataExportReport2019 extends UgandaEMRDataExportM
 	
 	@Override
 	public String getVersion() {
-		return "3.0.0";
+		return "3.0.2";
 	}
 	
 	/**
@@ -91,6 +91,7 @@ public class SetUpHTSClientCardDataExportReport2019 extends UgandaEMRDataExportM
 	public List<ReportDesign> constructReportDesigns(ReportDefinition reportDefinition) {
 		List<ReportDesign> l = new ArrayList<ReportDesign>();
 		l.add(buildReportDesign(reportDefinition));
+		l.addAll(constructLineListDesigns(reportDefinition));
 		return l;
 	}
 	
@@ -142,6 +142,6 @@ public class SetUpLostToFollowUp extends UgandaEMRDataExportManager {
 
         @Override
         public String getVersion() {
-        return "0.8.0";
+        return "0.8.1";
         }
         }
@@ -357,7 +357,7 @@ public class Setup106A1ADSDMReport extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.44.4";
+        return "0.44.6";
     }
 
 }
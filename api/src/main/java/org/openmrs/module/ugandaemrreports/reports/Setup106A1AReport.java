@@ -291,6 +291,6 @@ public class Setup106A1AReport extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.2.2";
+        return "0.2.4";
     }
 }
@@ -91,6 +91,6 @@ public class Setup12And24MonthHCAReport extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.12";
+        return "0.13";
     }
 }
@@ -111,7 +111,7 @@ public class SetupANCRegister extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "2.0.4";
+        return "2.0.5";
     }
 
     @Override
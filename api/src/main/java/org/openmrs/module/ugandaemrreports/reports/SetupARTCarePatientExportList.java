@@ -73,6 +73,7 @@ public class SetupARTCarePatientExportList extends UgandaEMRDataExportManager {
 	public List<ReportDesign> constructReportDesigns(ReportDefinition reportDefinition) {
 		List<ReportDesign> l = new ArrayList<ReportDesign>();
 		l.add(buildReportDesign(reportDefinition));
+		l.addAll(constructLineListDesigns(reportDefinition));
 		return l;
 	}
 
@@ -142,6 +143,6 @@ public class SetupARTCarePatientExportList extends UgandaEMRDataExportManager {
 
 	@Override
 	public String getVersion() {
-		return "1.0.1";
+		return "1.0.4";
 	}
 }
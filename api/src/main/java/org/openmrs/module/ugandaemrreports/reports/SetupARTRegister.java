@@ -126,6 +126,6 @@ public class SetupARTRegister extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.8.0";
+        return "0.8.1";
     }
 }
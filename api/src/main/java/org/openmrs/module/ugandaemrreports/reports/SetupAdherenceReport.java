@@ -100,6 +100,6 @@ public class SetupAdherenceReport extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.3.0";
+        return "0.3.1";
     }
 }
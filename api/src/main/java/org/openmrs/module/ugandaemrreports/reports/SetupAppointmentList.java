@@ -140,6 +140,6 @@ public class SetupAppointmentList extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "1.0.7";
+        return "1.0.8";
     }
 }
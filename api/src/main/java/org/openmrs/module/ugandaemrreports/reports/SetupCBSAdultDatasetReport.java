@@ -84,6 +84,6 @@ public class SetupCBSAdultDatasetReport extends UgandaEMRDataExportManager {
     }
 
     public String getVersion() {
-        return "2.0.7";
+        return "2.0.8";
     }
 }
\ No newline at end of file
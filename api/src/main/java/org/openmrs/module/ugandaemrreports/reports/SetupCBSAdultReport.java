@@ -231,6 +231,6 @@ public class SetupCBSAdultReport extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.34";
+        return "0.35";
     }
 }
@@ -231,6 +231,6 @@ public class SetupCBSEIDReport extends UgandaEMRDataExportManager {
 
 	@Override
 	public String getVersion() {
-		return "0.1";
+		return "0.2";
 	}
 }
@@ -141,6 +141,6 @@ public class SetupDeathList extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "1.2.4";
+        return "1.2.5";
     }
 }
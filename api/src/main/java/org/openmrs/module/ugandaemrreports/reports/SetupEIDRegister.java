@@ -97,6 +97,6 @@ public class SetupEIDRegister extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.3.0";
+        return "0.3.1";
     }
 }
@@ -66,6 +66,7 @@ public class SetupEMTCTDataExport extends UgandaEMRDataExportManager {
     public List<ReportDesign> constructReportDesigns(ReportDefinition reportDefinition) {
         List<ReportDesign> l = new ArrayList<ReportDesign>();
         l.add(buildReportDesign(reportDefinition));
+        l.addAll(constructLineListDesigns(reportDefinition));
         return l;
     }
 
@@ -209,6 +209,6 @@ public class SetupEWIViralLoadSupressionReport extends UgandaEMRDataExportManage
 
     @Override
     public String getVersion() {
-        return "1.7.0";
+        return "1.7.1";
     }
 }
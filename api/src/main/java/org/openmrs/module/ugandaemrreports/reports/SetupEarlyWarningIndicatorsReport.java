@@ -75,6 +75,6 @@ public class SetupEarlyWarningIndicatorsReport extends UgandaEMRDataExportManage
 
     @Override
     public String getVersion() {
-        return "0.3";
+        return "0.4";
     }
 }
@@ -124,6 +124,6 @@ public class SetupFamilyMembersTestedReport extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.1";
+        return "0.2";
     }
 }
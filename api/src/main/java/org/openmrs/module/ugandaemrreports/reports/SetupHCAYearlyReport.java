@@ -90,6 +90,6 @@ public class SetupHCAYearlyReport extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.57";
+        return "0.58";
     }
 }
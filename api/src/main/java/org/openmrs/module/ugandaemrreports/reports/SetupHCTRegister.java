@@ -41,7 +41,7 @@ public class SetupHCTRegister extends UgandaEMRDataExportManager {
 	
 	@Override
 	public String getVersion() {
-		return "0.7";
+		return "0.8";
 	}
 	
 	/**
@@ -198,6 +198,6 @@ public class SetupHCT_TST_FacilityReport extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "3.0.0";
+        return "3.0.2";
     }
 }
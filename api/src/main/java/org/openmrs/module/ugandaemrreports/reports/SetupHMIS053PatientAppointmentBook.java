@@ -147,6 +147,6 @@ public class SetupHMIS053PatientAppointmentBook extends UgandaEMRDataExportManag
 
     @Override
     public String getVersion() {
-        return "0.57";
+        return "0.58";
     }
 }
@@ -190,6 +190,6 @@ public class SetupHTSRecency2019Report extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "3.0.0";
+        return "3.0.2";
     }
 }
\ No newline at end of file
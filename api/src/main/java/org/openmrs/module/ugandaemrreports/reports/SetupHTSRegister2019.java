@@ -191,6 +191,6 @@ public class SetupHTSRegister2019 extends UgandaEMRDataExportManager {
 
 	@Override
 	public String getVersion() {
-		return "3.0.0";
+		return "3.0.1";
 	}
 }
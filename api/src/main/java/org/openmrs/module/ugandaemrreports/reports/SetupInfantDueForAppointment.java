@@ -103,7 +103,7 @@ public class SetupInfantDueForAppointment extends UgandaEMRDataExportManager {
 	
 	@Override
 	public String getVersion() {
-		return "1.7.0";
+		return "1.7.1";
 	}
 	
 	@Override
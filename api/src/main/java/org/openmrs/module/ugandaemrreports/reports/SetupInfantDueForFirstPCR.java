@@ -104,7 +104,7 @@ public class SetupInfantDueForFirstPCR extends UgandaEMRDataExportManager {
 	
 	@Override
 	public String getVersion() {
-		return "0.1.5";
+		return "0.1.6";
 	}
 	
 	@Override
@@ -103,7 +103,7 @@ public class SetupInfantDueForRapidTest extends UgandaEMRDataExportManager {
 	
 	@Override
 	public String getVersion() {
-		return "0.1.5.2";
+		return "0.1.5.3";
 	}
 	
 	@Override
@@ -103,7 +103,7 @@ public class SetupInfantDueForSecondPCR extends UgandaEMRDataExportManager {
 	
 	@Override
 	public String getVersion() {
-		return "0.1.5";
+		return "0.1.6";
 	}
 	
 	@Override
@@ -193,6 +193,6 @@ public class SetupMERTxNew2019Report extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.1.3";
+        return "0.1.5";
     }
 }
\ No newline at end of file
@@ -21,6 +21,7 @@ import org.openmrs.module.reporting.indicator.CohortIndicator;
 import org.openmrs.module.reporting.report.ReportDesign;
 import org.openmrs.module.reporting.report.definition.ReportDefinition;
 import org.openmrs.module.ugandaemrreports.definition.dataset.definition.GlobalPropertyParametersDatasetDefinition;
+import org.openmrs.module.ugandaemrreports.definition.dataset.definition.Moh105DataSetDefinition;
 import org.openmrs.module.ugandaemrreports.library.Moh105IndicatorLibrary;
 import org.openmrs.module.ugandaemrreports.reporting.library.dimension.CommonReportDimensionLibrary;
 import org.openmrs.module.ugandaemrreports.reporting.utils.ReportUtils;
@@ -105,7 +106,7 @@ public class SetupMOH105Section1Report extends UgandaEMRDataExportManager {
     }
 
     protected DataSetDefinition opdDiagnosis() {
-        CohortIndicatorDataSetDefinition dsd = new CohortIndicatorDataSetDefinition();
+        CohortIndicatorDataSetDefinition dsd = new Moh105DataSetDefinition();
         dsd.setParameters(getParameters());
         dsd.addDimension("age", ReportUtils.map(dimensionLibrary.standardAgeGroupsForOutPatient(), "effectiveDate=${endDate}"));
         dsd.addDimension("age1", ReportUtils.map(dimensionLibrary.drugUseAgeGroups(), "effectiveDate=${endDate}"));
@@ -295,7 +296,7 @@ public class SetupMOH105Section1Report extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.5";
+        return "0.7";
     }
 
     @Override
@@ -26,6 +26,7 @@ import org.openmrs.module.reporting.indicator.CohortIndicator;
 import org.openmrs.module.reporting.report.ReportDesign;
 import org.openmrs.module.reporting.report.definition.ReportDefinition;
 import org.openmrs.module.ugandaemrreports.definition.dataset.definition.GlobalPropertyParametersDatasetDefinition;
+import org.openmrs.module.ugandaemrreports.definition.dataset.definition.Moh105DataSetDefinition;
 import org.openmrs.module.ugandaemrreports.library.Moh105IndicatorLibrary;
 import org.openmrs.module.ugandaemrreports.reporting.library.dimension.CommonReportDimensionLibrary;
 import org.openmrs.module.ugandaemrreports.reporting.utils.ReportUtils;
@@ -102,7 +103,7 @@ public class SetupMOH105Section3And4Report extends UgandaEMRDataExportManager {
     }
     
     protected DataSetDefinition eid() {
-        CohortIndicatorDataSetDefinition dsd = new CohortIndicatorDataSetDefinition();
+        CohortIndicatorDataSetDefinition dsd = new Moh105DataSetDefinition();
         dsd.setParameters(getParameters());
         dsd.addDimension("age", ReportUtils.map(dimensionLibrary.htcAgeGroups(), "effectiveDate=${endDate}"));
         dsd.addDimension("gender", ReportUtils.map(dimensionLibrary.gender()));
@@ -155,7 +156,7 @@ public class SetupMOH105Section3And4Report extends UgandaEMRDataExportManager {
         
     @Override
     public String getVersion() {
-        return "0.1";
+        return "0.3";
     }
 
     @Override
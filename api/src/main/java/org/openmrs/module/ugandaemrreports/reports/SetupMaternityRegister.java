@@ -71,7 +71,7 @@ public class SetupMaternityRegister extends UgandaEMRDataExportManager {
 
 	@Override
 	public String getVersion() {
-		return "4.7";
+		return "4.8";
 	}
 
 	/**
@@ -143,6 +143,6 @@ public class SetupMissedAppointmentList extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "2.8.0";
+        return "2.8.1";
     }
 }
@@ -21,6 +21,7 @@ import org.openmrs.module.reporting.evaluation.parameter.Parameter;
 import org.openmrs.module.reporting.report.ReportDesign;
 import org.openmrs.module.reporting.report.definition.ReportDefinition;
 import org.openmrs.module.ugandaemrreports.definition.dataset.definition.GlobalPropertyParametersDatasetDefinition;
+import org.openmrs.module.ugandaemrreports.definition.dataset.definition.Moh105DataSetDefinition;
 import org.openmrs.module.ugandaemrreports.library.Moh105IndicatorLibrary;
 import org.openmrs.module.ugandaemrreports.reporting.library.dimension.CommonReportDimensionLibrary;
 import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
@@ -108,7 +109,7 @@ public class SetupMoH105Section5Report extends UgandaEMRDataExportManager  {
 
     @Override
     public String getVersion() {
-        return "0.1";
+        return "0.3";
     }
 
     @Override
@@ -120,7 +121,7 @@ public class SetupMoH105Section5Report extends UgandaEMRDataExportManager  {
     }
 
     protected DataSetDefinition smc(){
-        CohortIndicatorDataSetDefinition dsd = new CohortIndicatorDataSetDefinition();
+        CohortIndicatorDataSetDefinition dsd = new Moh105DataSetDefinition();
 
         dsd.setParameters(getParameters());
         dsd.setName("M");
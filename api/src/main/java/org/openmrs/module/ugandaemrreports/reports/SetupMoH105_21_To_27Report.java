@@ -21,6 +21,7 @@ import org.openmrs.module.reporting.evaluation.parameter.Parameter;
 import org.openmrs.module.reporting.report.ReportDesign;
 import org.openmrs.module.reporting.report.definition.ReportDefinition;
 import org.openmrs.module.ugandaemrreports.definition.dataset.definition.GlobalPropertyParametersDatasetDefinition;
+import org.openmrs.module.ugandaemrreports.definition.dataset.definition.Moh105DataSetDefinition;
 import org.openmrs.module.ugandaemrreports.library.Moh105IndicatorLibrary;
 import org.openmrs.module.ugandaemrreports.reporting.library.dimension.CommonReportDimensionLibrary;
 import org.openmrs.module.ugandaemrreports.reporting.metadata.Dictionary;
@@ -109,7 +110,7 @@ public class SetupMoH105_21_To_27Report extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.1";
+        return "0.3";
     }
 
     @Override
@@ -122,7 +123,7 @@ public class SetupMoH105_21_To_27Report extends UgandaEMRDataExportManager {
 
     protected DataSetDefinition antenatal(){
 
-        CohortIndicatorDataSetDefinition dsd = new CohortIndicatorDataSetDefinition();
+        CohortIndicatorDataSetDefinition dsd = new Moh105DataSetDefinition();
         dsd.setParameters(getParameters());
         dsd.setName("A");
         dsd.addDimension("age", ReportUtils.map(dimensionLibrary.standardAgeGroupsForAnc(), "onDate=${endDate}"));
@@ -174,7 +175,7 @@ public class SetupMoH105_21_To_27Report extends UgandaEMRDataExportManager {
     }
     protected DataSetDefinition postnatal(){
 
-        CohortIndicatorDataSetDefinition dsd = new CohortIndicatorDataSetDefinition();
+        CohortIndicatorDataSetDefinition dsd = new Moh105DataSetDefinition();
         dsd.setParameters(getParameters());
         dsd.setName("P");
         dsd.addDimension("age", ReportUtils.map(dimensionLibrary.standardAgeGroupsForAnc(), "onDate=${endDate}"));
@@ -216,7 +217,7 @@ public class SetupMoH105_21_To_27Report extends UgandaEMRDataExportManager {
     }
 
     protected DataSetDefinition maternity() {
-        CohortIndicatorDataSetDefinition dsd = new CohortIndicatorDataSetDefinition();
+        CohortIndicatorDataSetDefinition dsd = new Moh105DataSetDefinition();
         dsd.setParameters(getParameters());
         dsd.setName("M");
         dsd.addDimension("age", ReportUtils.map(dimensionLibrary.standardAgeGroupsForMaternity(), "onDate=${endDate}"));
@@ -258,7 +259,7 @@ public class SetupMoH105_21_To_27Report extends UgandaEMRDataExportManager {
     }
 
     protected DataSetDefinition eid() {
-        CohortIndicatorDataSetDefinition dsd = new CohortIndicatorDataSetDefinition();
+        CohortIndicatorDataSetDefinition dsd = new Moh105DataSetDefinition();
         dsd.setParameters(getParameters());
         dsd.setName("E");
         
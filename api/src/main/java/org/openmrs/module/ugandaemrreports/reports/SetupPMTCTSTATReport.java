@@ -157,6 +157,6 @@ public class SetupPMTCTSTATReport extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.2.1";
+        return "0.2.2";
     }
 }
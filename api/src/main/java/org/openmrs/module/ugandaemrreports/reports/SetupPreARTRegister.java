@@ -105,6 +105,6 @@ public class SetupPreARTRegister extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.2.1";
+        return "0.2.2";
     }
 }
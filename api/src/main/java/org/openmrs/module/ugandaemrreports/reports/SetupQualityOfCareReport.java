@@ -123,6 +123,6 @@ public class SetupQualityOfCareReport extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.1";
+        return "0.2";
     }
 }
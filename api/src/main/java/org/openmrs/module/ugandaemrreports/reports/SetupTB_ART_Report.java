@@ -169,6 +169,6 @@ public class SetupTB_ART_Report extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.1.3";
+        return "0.1.5";
     }
 }
\ No newline at end of file
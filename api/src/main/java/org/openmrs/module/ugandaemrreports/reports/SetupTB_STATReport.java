@@ -171,6 +171,6 @@ public class SetupTB_STATReport extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.2.0";
+        return "0.2.2";
     }
 }
@@ -193,6 +193,6 @@ public class SetupTxCurrent_28Days2019Report extends UgandaEMRDataExportManager
 
     @Override
     public String getVersion() {
-        return "0.3";
+        return "0.5";
     }
 }
@@ -180,6 +180,6 @@ public class SetupTxCurrent_30DaysReport extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.8.5.1";
+        return "0.8.5.3";
     }
 }
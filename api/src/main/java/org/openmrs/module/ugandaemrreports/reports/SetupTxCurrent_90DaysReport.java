@@ -142,6 +142,6 @@ public class SetupTxCurrent_90DaysReport extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.1.9";
+        return "0.1.11";
     }
 }
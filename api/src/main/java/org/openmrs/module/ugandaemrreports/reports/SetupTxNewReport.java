@@ -177,6 +177,6 @@ public class SetupTxNewReport extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.4.5.1";
+        return "0.4.5.3";
     }
 }
\ No newline at end of file
@@ -177,6 +177,6 @@ public class SetupTxTBReport extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.1.2.8";
+        return "0.1.2.9";
     }
 }
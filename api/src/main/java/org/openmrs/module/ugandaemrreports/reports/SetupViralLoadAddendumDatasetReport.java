@@ -76,6 +76,6 @@ public class SetupViralLoadAddendumDatasetReport extends UgandaEMRDataExportMana
     }
 
     public String getVersion() {
-        return "0.0.2";
+        return "0.0.3";
     }
 }
\ No newline at end of file
@@ -107,6 +107,6 @@ public class SetupWeeklyOptionBPlusSMSReport extends UgandaEMRDataExportManager
 	
 	@Override
 	public String getVersion() {
-		return "0.2";
+		return "0.3";
 	}
 }
@@ -14,10 +14,14 @@
 
 package org.openmrs.module.ugandaemrreports.reports;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
+import org.openmrs.module.ugandaemrreports.UgandaEMRReportUtil;
 import org.openmrs.module.ugandaemrreports.metadata.CommonReportMetadata;
+import org.openmrs.module.ugandaemrreports.reporting.renderer.LineListReportRenderer;
 import org.openmrs.module.reporting.report.ReportDesign;
 import org.openmrs.module.reporting.report.definition.ReportDefinition;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -45,6 +49,26 @@ public abstract class UgandaEMRDataExportManager extends UgandaEMRReportManager
 		return l;
 	}
 
+	/**
+	 * @return the CSV, JSON lines and Excel line list designs that stream the rows of the export instead of building a
+	 * workbook from a template, to offer next to the Excel design of a large line list. Only patient line list exports
+	 * add them to their designs
+	 */
+	protected List<ReportDesign> constructLineListDesigns(ReportDefinition reportDefinition) {
+		List<ReportDesign> l = new ArrayList<ReportDesign>();
+		l.add(UgandaEMRReportUtil.createLineListDesign(getLineListDesignUuid(LineListReportRenderer.CSV), reportDefinition, LineListReportRenderer.CSV));
+		l.add(UgandaEMRReportUtil.createLineListDesign(getLineListDesignUuid(LineListReportRenderer.NDJSON), reportDefinition, LineListReportRenderer.NDJSON));
+		l.add(UgandaEMRReportUtil.createLineListDesign(getLineListDesignUuid(LineListReportRenderer.XLSX), reportDefinition, LineListReportRenderer.XLSX));
+		return l;
+	}
+
+	/**
+	 * @return a uuid derived from the report uuid, so the design keeps its uuid across restarts
+	 */
+	protected String getLineListDesignUuid(String format) {
+		return UUID.nameUUIDFromBytes((getUuid() + "-" + format).getBytes(StandardCharsets.UTF_8)).toString();
+	}
+
 	/**
 	 * Build the report design for the specified report, this allows a user to override the report design by adding properties and other metadata to the report design
 	 * @return The report design
@@ -19,6 +19,7 @@ import java.util.Map;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.module.ugandaemrreports.UgandaEMRReportUtil;
+import org.openmrs.module.ugandaemrreports.reporting.renderer.CachedExcelTemplateRenderer;
 import org.openmrs.module.reporting.common.ObjectUtil;
 import org.openmrs.module.reporting.data.encounter.definition.EncounterDataDefinition;
 import org.openmrs.module.reporting.data.encounter.definition.PatientToEncounterDataDefinition;
@@ -78,7 +79,10 @@ public abstract class UgandaEMRReportManager extends BaseReportManager {
 		// TODO: Update this function below to use the class from the Report definition
 		String resourcePath = ReportUtil.getPackageAsPath(getClass()) + "/" + templatePath;
 		log.debug("Resource path for " + templatePath + " is " + resourcePath);
-		return ReportManagerUtil.createExcelTemplateDesign(reportDesignUuid, reportDefinition, resourcePath);
+		ReportDesign design = ReportManagerUtil.createExcelTemplateDesign(reportDesignUuid, reportDefinition, resourcePath);
+		// keeps the template parsed between runs, see CachedExcelTemplateRenderer
+		design.setRendererType(CachedExcelTemplateRenderer.class);
+		return design;
 	}
 
 	protected ReportDesign createJSONTemplateDesign(String reportDesignUuid, ReportDefinition reportDefinition,
@@ -261,6 +261,6 @@ public class SetupHCT_TST_Facility2019Report extends UgandaEMRDataExportManager
 
     @Override
     public String getVersion() {
-        return "0.1.8";
+        return "0.1.9";
     }
 }
@@ -121,6 +121,6 @@ public class SetupMERPMTCTSTAT2019Report extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.3";
+        return "0.4";
     }
 }
@@ -128,6 +128,6 @@ public class SetupPMTCTART2019Report extends UgandaEMRDataExportManager {
 
     @Override
     public String getVersion() {
-        return "0.1.1";
+        return "0.1.2";
     }
 }
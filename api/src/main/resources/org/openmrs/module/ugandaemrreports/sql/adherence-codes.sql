@@ -0,0 +1,4 @@
+-- The adherence ratings (90221) recorded between :startDate and :endDate
+SELECT person_id, value_coded
+FROM obs
+WHERE concept_id = 90221 AND obs_datetime BETWEEN :startDate AND :endDate AND voided = 0
@@ -0,0 +1,6 @@
+-- The adherence ratings (90221) of the 6 months before :startDate with their names
+SELECT o.person_id, cn.name, o.obs_datetime
+FROM obs o
+  INNER JOIN (concept_name cn) ON o.value_coded = cn.concept_id
+WHERE o.concept_id = 90221 AND obs_datetime >= DATE_SUB(:startDate, INTERVAL 6 MONTH)
+  AND cn.concept_name_type = 'FULLY_SPECIFIED' AND obs_datetime < :startDate
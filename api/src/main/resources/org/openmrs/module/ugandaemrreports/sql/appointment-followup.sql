@@ -0,0 +1,39 @@
+-- The appointment followup encounters between :startDate and :endDate, either left out for no bound, with the patient's
+-- identifiers, attributes, names, obs, earlier visits and last appointment
+SELECT
+  e.patient_id,
+  e.encounter_id,
+  DATE(e.encounter_datetime),
+  (SELECT GROUP_CONCAT(CONCAT_WS(':', COALESCE(pit.uuid, ''), COALESCE(identifier, '')))
+   FROM patient_identifier pi INNER JOIN patient_identifier_type pit
+       ON (pi.identifier_type = pit.patient_identifier_type_id)
+   WHERE pi.patient_id = e.patient_id)                                                         AS 'identifiers',
+  (SELECT GROUP_CONCAT(CONCAT_WS(':', COALESCE(pat.uuid, ''), COALESCE(value, '')))
+   FROM person_attribute pa INNER JOIN person_attribute_type pat
+       ON (pa.person_attribute_type_id = pat.person_attribute_type_id)
+   WHERE e.patient_id =
+         pa.person_id)                                                                         AS 'attributes',
+  (SELECT GROUP_CONCAT(CONCAT_WS(' ', COALESCE(given_name, ''), COALESCE(middle_name, ''), COALESCE(family_name, '')))
+   FROM person_name pn
+   WHERE e.patient_id = pn.person_id)                                                          AS 'names',
+  (SELECT group_concat(
+      concat_ws(':', o.concept_id, o.value_numeric, o.value_coded, DATE(o.value_datetime), o.value_text))
+   FROM obs o
+   WHERE o.encounter_id = e.encounter_id AND o.voided = 0)                                     AS obs,
+  (SELECT COUNT(DISTINCT ex.encounter_id)
+   FROM encounter ex
+   WHERE ex.patient_id = e.patient_id AND ex.voided = 0 AND ex.encounter_datetime < e.encounter_datetime AND
+         ex.encounter_type NOT IN (SELECT et.encounter_type_id
+                                   FROM encounter_type et
+                                   WHERE et.uuid IN ('dc551efc-024d-4c40-aeb8-2147c4033778'))) AS visits,
+(SELECT DATE(MAX(o.value_datetime))
+   FROM obs o
+   WHERE o.voided = 0 AND o.person_id = e.patient_id AND o.value_datetime < e.encounter_datetime
+         AND o.concept_id = 5096)                                                   AS appointment
+FROM encounter e
+WHERE e.voided = 0
+      AND e.encounter_type IN (SELECT et.encounter_type_id
+                               FROM encounter_type et
+                               WHERE et.uuid IN ('dc551efc-024d-4c40-aeb8-2147c4033778'))
+  AND (:startDate IS NULL OR e.encounter_datetime >= :startDate)
+  AND (:endDate IS NULL OR e.encounter_datetime <= :endDate)
@@ -0,0 +1,13 @@
+-- Every visit of every patient in date order with the return visit date (5096) set at it and whether it was a
+-- scheduled visit (90069). Return visit dates recorded without an encounter are not read, they belong to no visit.
+SELECT e.patient_id,
+  DATE(e.encounter_datetime),
+  e.encounter_type,
+  MAX(CASE WHEN o.concept_id = 5096 THEN DATE(o.value_datetime) END),
+  MAX(CASE WHEN o.concept_id = 90069 THEN 1 ELSE 0 END)
+FROM encounter e
+  INNER JOIN person p ON (p.person_id = e.patient_id AND p.voided = 0)
+  LEFT JOIN obs o ON (o.encounter_id = e.encounter_id AND o.concept_id IN (5096, 90069) AND o.voided = 0)
+WHERE e.voided = 0
+GROUP BY e.encounter_id
+ORDER BY e.patient_id, e.encounter_datetime, e.encounter_id
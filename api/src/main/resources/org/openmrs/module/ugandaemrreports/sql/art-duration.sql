@@ -0,0 +1,7 @@
+-- Patients who had been on ART for :months months or more by :startDate
+SELECT person_id
+FROM obs o
+WHERE TIMESTAMPDIFF(MONTH, value_datetime, :startDate) >= :months
+  AND concept_id = (SELECT concept_id FROM concept WHERE concept.uuid = 'ab505422-26d9-41f1-a079-c3d222000440')
+  AND o.voided = 0
+GROUP BY person_id
@@ -0,0 +1,24 @@
+-- Patients who started ART between :startDate and :endDate with a CD4 within :difference :period of the start,
+-- only those whose highest CD4 is 250 or less unless :allBaseCD4 is 1
+SELECT D.person_id
+FROM
+  (SELECT
+     A.person_id,
+     MAX(B.dt)            AS enc_date,
+     MAX(B.value_numeric) AS val
+   FROM
+     (SELECT
+        person_id,
+        value_datetime
+      FROM obs
+      WHERE concept_id = 99161 AND value_datetime BETWEEN :startDate AND :endDate) A
+     INNER JOIN
+     (SELECT
+        o.person_id,
+        o.value_numeric,
+        e.encounter_datetime AS dt
+      FROM obs o INNER JOIN encounter e ON (concept_id = 5497 AND e.encounter_id = o.encounter_id)) B
+       ON (A.person_id = B.person_id)
+   WHERE B.dt <= DATE_ADD(A.value_datetime, INTERVAL :difference :period)
+   GROUP BY A.person_id) D
+WHERE :allBaseCD4 = 1 OR D.val <= 250
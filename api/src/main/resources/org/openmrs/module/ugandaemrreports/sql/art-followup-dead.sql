@@ -0,0 +1,15 @@
+-- Patients who started ART between :startDate and :endDate and died within :difference :period of the start
+SELECT A.person_id
+FROM
+  (SELECT
+     person_id,
+     value_datetime
+   FROM obs
+   WHERE concept_id = 99161 AND value_datetime BETWEEN :startDate AND :endDate) A
+  INNER JOIN
+  (SELECT
+     person_id,
+     death_date
+   FROM person
+   WHERE death_date IS NOT NULL) B
+    ON (B.person_id = A.person_id AND death_date <= DATE_ADD(A.value_datetime, INTERVAL :difference :period))
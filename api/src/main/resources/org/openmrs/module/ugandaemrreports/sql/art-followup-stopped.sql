@@ -0,0 +1,32 @@
+-- Patients who started ART between :startDate and :endDate and whose stop date is on or before their last ARV
+-- regimen within :difference :period of the start
+SELECT A.person_id
+FROM
+  (SELECT
+     person_id,
+     value_datetime
+   FROM obs
+   WHERE concept_id = 99161 AND value_datetime BETWEEN :startDate AND :endDate) A
+  INNER JOIN
+  (SELECT
+     o.person_id,
+     MAX(e.encounter_datetime) AS dt
+   FROM
+     obs o INNER JOIN (SELECT
+                         person_id,
+                         value_datetime
+                       FROM obs
+                       WHERE concept_id = 99161 AND value_datetime BETWEEN :startDate AND :endDate) B
+       ON (o.person_id = B.person_id)
+     INNER JOIN encounter e
+       ON (e.encounter_id = o.encounter_id AND o.concept_id = 90315 AND
+           e.encounter_datetime <= DATE_ADD(B.value_datetime, INTERVAL :difference :period))
+   GROUP BY o.person_id) C
+    ON (A.person_id = C.person_id)
+  INNER JOIN
+  (SELECT
+     person_id,
+     value_datetime
+   FROM obs
+   WHERE concept_id = 99084) D
+    ON (D.person_id = C.person_id AND D.value_datetime <= C.dt)
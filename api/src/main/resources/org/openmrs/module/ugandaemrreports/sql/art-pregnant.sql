@@ -0,0 +1,8 @@
+-- Patients who started ART between :startDate and :endDate and were ever recorded pregnant
+SELECT A.person_id
+FROM (SELECT person_id
+      FROM obs
+      WHERE concept_id = 99161 AND value_datetime BETWEEN :startDate AND :endDate) A
+  INNER JOIN (SELECT person_id
+              FROM obs
+              WHERE concept_id IN (99072, 99603) AND value_coded = 1065) B ON (A.person_id = B.person_id)
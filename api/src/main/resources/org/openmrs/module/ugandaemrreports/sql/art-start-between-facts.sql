@@ -0,0 +1,4 @@
+-- ART start dates between :startDate and :endDate, from the ART facts table
+SELECT patient_id, DATE(art_start_date)
+FROM ugandaemrreports_art_facts
+WHERE art_start_date BETWEEN :startDate AND :endDate
@@ -0,0 +1,4 @@
+-- ART start dates between :startDate and :endDate
+SELECT person_id, DATE(value_datetime)
+FROM obs
+WHERE concept_id = 99161 AND voided = 0 AND value_datetime BETWEEN :startDate AND :endDate
@@ -0,0 +1,4 @@
+-- First ART start date of every patient, from the ART facts table
+SELECT patient_id, DATE(art_start_date)
+FROM ugandaemrreports_art_facts
+WHERE art_start_date IS NOT NULL
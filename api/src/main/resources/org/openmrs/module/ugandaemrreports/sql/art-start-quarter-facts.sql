@@ -0,0 +1,4 @@
+-- Quarter (e.g. 2019Q1) of the first ART start date of every patient, from the ART facts table
+SELECT patient_id, CONCAT_WS('', YEAR(art_start_date), 'Q', QUARTER(art_start_date))
+FROM ugandaemrreports_art_facts
+WHERE art_start_date IS NOT NULL
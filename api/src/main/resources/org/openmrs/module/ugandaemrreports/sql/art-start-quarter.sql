@@ -0,0 +1,4 @@
+-- Quarter (e.g. 2019Q1) of every ART start date (99161)
+SELECT person_id, CONCAT_WS('', YEAR(value_datetime), 'Q', QUARTER(value_datetime))
+FROM obs
+WHERE concept_id = 99161 AND voided = 0
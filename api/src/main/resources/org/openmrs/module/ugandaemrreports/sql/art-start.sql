@@ -0,0 +1,5 @@
+-- First ART start date (99161) of every patient
+SELECT person_id, MIN(DATE(value_datetime))
+FROM obs
+WHERE concept_id = 99161 AND voided = 0
+GROUP BY person_id
@@ -0,0 +1,5 @@
+-- The last ART stop date (99084) on or before :endDate of the patients in :patientIds
+SELECT person_id, MAX(DATE(o.value_datetime))
+FROM obs o
+WHERE o.voided = 0 AND o.person_id IN (:patientIds) AND o.concept_id = 99084 AND o.value_datetime <= :endDate
+GROUP BY person_id
@@ -0,0 +1,9 @@
+-- The baseline CD4 (99071) of the patients in :patientIds who were older than 5 when they started ART
+SELECT o.person_id, o.value_numeric
+FROM obs o
+WHERE o.voided = 0 AND o.concept_id = 99071
+  AND person_id IN (SELECT o.person_id
+                    FROM obs o INNER JOIN person p USING (person_id)
+                    WHERE o.concept_id = 99161 AND o.voided = 0
+                      AND YEAR(o.value_datetime) - YEAR(p.birthdate) - (RIGHT(o.value_datetime, 5) < RIGHT(p.birthdate, 5)) > 5
+                      AND p.person_id IN (:patientIds))
@@ -0,0 +1,22 @@
+-- The ARV regimens (90315) of :patientIds at encounters of type :encounterType from six months to 75 months after
+-- :startDate, with the age at the encounter and the months since the ART summary (:summaryType)
+SELECT
+  p.person_id,
+  TIMESTAMPDIFF(YEAR, p.birthdate, B.encounter_datetime)                 AS age,
+  TIMESTAMPDIFF(MONTH, summary.encounter_datetime, B.encounter_datetime) AS dt,
+  B.value_coded
+FROM encounter summary INNER JOIN
+  (SELECT
+     e.patient_id,
+     e.encounter_id,
+     e.encounter_datetime,
+     o.value_coded
+   FROM encounter e INNER JOIN obs o
+       ON (
+       o.concept_id = 90315 AND e.patient_id IN (:patientIds) AND o.person_id = e.patient_id AND
+       e.encounter_id = o.encounter_id AND encounter_type = :encounterType
+       AND encounter_datetime BETWEEN DATE_ADD(:startDate, INTERVAL 6 MONTH) AND
+       DATE_ADD(:startDate, INTERVAL 75 MONTH) - INTERVAL 1 DAY)) B
+    ON (summary.patient_id = B.patient_id AND summary.encounter_type = :summaryType AND
+        TIMESTAMPDIFF(MONTH, summary.encounter_datetime, B.encounter_datetime) BETWEEN 6 AND 72)
+  INNER JOIN person p ON (summary.patient_id = p.person_id)
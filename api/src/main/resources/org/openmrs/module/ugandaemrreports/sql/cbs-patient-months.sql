@@ -0,0 +1,22 @@
+-- Months before the end of the 75 month CBS window of the ART encounters (1), return visit dates (2) and death (3) of
+-- :patientIds from six months after :startDate
+SELECT patient_id,
+  TIMESTAMPDIFF(MONTH, encounter_datetime, DATE_ADD(:startDate, INTERVAL 75 MONTH) - INTERVAL 1 DAY) AS art_start,
+  1 AS other
+FROM encounter
+WHERE patient_id IN (:patientIds) AND encounter_type = :encounterType
+  AND encounter_datetime BETWEEN DATE_ADD(:startDate, INTERVAL 6 MONTH) AND DATE_ADD(:startDate, INTERVAL 75 MONTH) - INTERVAL 1 DAY
+UNION ALL
+SELECT person_id,
+  TIMESTAMPDIFF(MONTH, value_datetime, DATE_ADD(:startDate, INTERVAL 75 MONTH) - INTERVAL 1 DAY) AS art_start,
+  2 AS other
+FROM obs
+WHERE person_id IN (:patientIds) AND concept_id = 5096
+  AND value_datetime BETWEEN DATE_ADD(:startDate, INTERVAL 6 MONTH) AND DATE_ADD(:startDate, INTERVAL 75 MONTH) - INTERVAL 1 DAY
+UNION ALL
+SELECT person_id,
+  TIMESTAMPDIFF(MONTH, death_date, DATE_ADD(:startDate, INTERVAL 75 MONTH) - INTERVAL 1 DAY) AS art_start,
+  3 AS other
+FROM person
+WHERE person_id IN (:patientIds)
+  AND death_date BETWEEN DATE_ADD(:startDate, INTERVAL 6 MONTH) AND DATE_ADD(:startDate, INTERVAL 75 MONTH) - INTERVAL 1 DAY
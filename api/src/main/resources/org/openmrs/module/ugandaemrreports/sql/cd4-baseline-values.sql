@@ -0,0 +1,25 @@
+-- The CD4 at or before the ART start of the patients aged 5 or more who started ART between :startDate and :endDate
+SELECT
+  A.person_id,
+  MAX(A.encounter_datetime),
+  A.value_numeric
+FROM (SELECT
+        o.person_id,
+        e.encounter_datetime,
+        o.value_numeric
+      FROM
+        obs o INNER JOIN encounter e
+          ON (e.encounter_id = o.encounter_id AND (o.concept_id IN (5497, 730) OR o.person_id IN (SELECT person_id
+                                                                                                      FROM obs
+                                                                                                      WHERE concept_id =
+                                                                                                            99071)))) A
+  INNER JOIN
+  (SELECT
+     person_id,
+     value_datetime
+   FROM obs
+   WHERE concept_id = 99161 AND value_datetime BETWEEN :startDate AND :endDate) B
+    ON (B.person_id = A.person_id AND A.encounter_datetime <= B.value_datetime)
+  INNER JOIN person p ON (p.person_id = B.person_id)
+WHERE TIMESTAMPDIFF(YEAR, p.birthdate, A.encounter_datetime) >= 5 AND A.value_numeric IS NOT NULL
+GROUP BY A.person_id
@@ -0,0 +1,10 @@
+-- The newest obs, encounter, person, patient identifier and program enrollment, read from the primary keys so the
+-- query costs one index lookup per table. An obs is never edited in place, editing voids it and saves a new one;
+-- voids and edits made through this server are counted by DataChangeAdvice, the others that add no row are covered
+-- by the maximum age of a reused result instead of a scan of the unindexed date columns
+SELECT CONCAT_WS('|',
+  (SELECT MAX(obs_id) FROM obs),
+  (SELECT MAX(encounter_id) FROM encounter),
+  (SELECT MAX(person_id) FROM person),
+  (SELECT MAX(patient_identifier_id) FROM patient_identifier),
+  (SELECT MAX(patient_program_id) FROM patient_program))
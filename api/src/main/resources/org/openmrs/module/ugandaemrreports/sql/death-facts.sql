@@ -0,0 +1,4 @@
+-- Death dates before :endDate of the patients in :patientIds, from the ART facts table
+SELECT patient_id, DATE(death_date)
+FROM ugandaemrreports_art_facts
+WHERE patient_id IN (:patientIds) AND death_date < :endDate
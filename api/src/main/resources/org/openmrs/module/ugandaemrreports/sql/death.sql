@@ -0,0 +1,10 @@
+-- Death dates before :endDate of the patients in :patientIds, from the death date obs (90272) and the person record
+SELECT person_id, MIN(death_date)
+FROM (SELECT person_id, DATE(value_datetime) AS death_date
+      FROM obs
+      WHERE voided = 0 AND concept_id = 90272 AND person_id IN (:patientIds) AND value_datetime < :endDate
+      UNION
+      SELECT person_id, DATE(death_date)
+      FROM person
+      WHERE death_date IS NOT NULL AND person_id IN (:patientIds) AND death_date < :endDate) A
+GROUP BY person_id
@@ -0,0 +1,6 @@
+-- The adherence ratings of each patient in the 6 months before :startDate, comma separated
+SELECT person_id, GROUP_CONCAT(value_coded SEPARATOR ',') AS value_coded
+FROM obs
+WHERE concept_id = (SELECT concept_id FROM concept WHERE concept.uuid = 'dce03b2f-30ab-102d-86b0-7a5022ba4115')
+  AND obs_datetime >= DATE_SUB(:startDate, INTERVAL 6 MONTH) AND obs_datetime < :startDate AND voided = 0
+GROUP BY person_id
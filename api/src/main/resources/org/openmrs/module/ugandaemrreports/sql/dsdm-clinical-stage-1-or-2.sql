@@ -0,0 +1,7 @@
+-- Patients at WHO clinical stage 1 or 2 between :startDate and :endDate
+SELECT e.patient_id
+FROM obs
+  INNER JOIN encounter e ON obs.encounter_id = e.encounter_id
+WHERE concept_id = 90203 AND value_coded IN (90033, 90034)
+  AND obs.voided = 0 AND obs.obs_datetime BETWEEN :startDate AND :endDate
+GROUP BY e.patient_id
@@ -0,0 +1,7 @@
+-- Patients in a program other than the two excluded below with an encounter between :startDate and :endDate
+SELECT pg.patient_id
+FROM patient_program pg
+  INNER JOIN program p ON p.program_id = pg.program_id
+  INNER JOIN encounter e ON e.patient_id = pg.patient_id
+WHERE p.uuid NOT IN ('19cfd5dd-927f-44ad-8be2-80d8dc5c337d', '37811e6c-819f-4e1c-b9cd-89fbd39f4bd4')
+  AND e.encounter_datetime BETWEEN :startDate AND :endDate
@@ -0,0 +1,6 @@
+-- Patients enrolled in a program between :startDate and :endDate who have not completed it
+SELECT p.patient_id
+FROM patient a
+  INNER JOIN patient_program p ON a.patient_id = p.patient_id
+WHERE p.date_enrolled BETWEEN :startDate AND :endDate AND p.date_completed IS NULL
+GROUP BY p.patient_id
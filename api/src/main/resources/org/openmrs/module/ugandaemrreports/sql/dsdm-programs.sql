@@ -0,0 +1,6 @@
+-- The program (DSDM model) of each patient still enrolled at :endDate with the date of enrollment
+SELECT pg.patient_id, p.name, pg.date_enrolled, pg.date_completed
+FROM patient_program AS pg
+  INNER JOIN program p ON p.program_id = pg.program_id
+WHERE ((pg.date_completed > :endDate) OR date_completed IS NULL)
+GROUP BY pg.patient_id
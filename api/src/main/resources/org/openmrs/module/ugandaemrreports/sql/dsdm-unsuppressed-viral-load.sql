@@ -0,0 +1,6 @@
+-- Patients with a viral load of 1000 or more between :startDate and :endDate
+SELECT person_id
+FROM obs
+WHERE concept_id = (SELECT concept_id FROM concept WHERE concept.uuid = 'dc8d83e3-30ab-102d-86b0-7a5022ba4115')
+  AND obs_datetime BETWEEN :startDate AND :endDate AND value_numeric >= 1000 AND voided = 0
+GROUP BY person_id
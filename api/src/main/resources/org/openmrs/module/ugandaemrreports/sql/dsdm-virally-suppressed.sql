@@ -0,0 +1,13 @@
+-- Patients whose last viral load in the 12 months before :startDate is below 1000
+SELECT o.person_id
+FROM obs o
+  INNER JOIN (SELECT person_id, MAX(obs_datetime) AS max_date
+              FROM obs
+              WHERE concept_id = (SELECT concept_id FROM concept WHERE concept.uuid = 'dc8d83e3-30ab-102d-86b0-7a5022ba4115')
+                AND obs_datetime >= DATE_SUB(:startDate, INTERVAL 12 MONTH) AND obs_datetime < :startDate
+                AND value_numeric < 1000 AND voided = 0
+              GROUP BY person_id) t ON t.person_id = o.person_id
+WHERE o.obs_datetime = max_date
+  AND concept_id = (SELECT concept_id FROM concept WHERE concept.uuid = 'dc8d83e3-30ab-102d-86b0-7a5022ba4115')
+  AND o.voided = 0
+GROUP BY o.person_id
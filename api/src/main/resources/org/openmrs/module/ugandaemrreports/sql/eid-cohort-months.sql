@@ -0,0 +1,13 @@
+-- The exposed infants born in the :birthMonths (yyyyMM) and the opening of their EID charts
+SELECT
+  p.person_id,
+  p.birthdate,
+  EXTRACT(YEAR_MONTH FROM p.birthdate)          AS birthmonth,
+  e.encounter_datetime        AS date_chart_opened,
+  MONTH(e.encounter_datetime) AS month_chart_opened,
+  p.death_date
+FROM person p INNER JOIN encounter e ON (e.patient_id = p.person_id AND e.encounter_type = (SELECT encounter_type_id
+                                                                                            FROM encounter_type
+                                                                                            WHERE uuid =
+                                                                                                  '9fcfcc91-ad60-4d84-9710-11cc25258719')
+                                         AND EXTRACT(YEAR_MONTH FROM p.birthdate) IN (:birthMonths))
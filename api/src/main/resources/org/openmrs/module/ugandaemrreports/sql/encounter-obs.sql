@@ -0,0 +1,44 @@
+-- The demographics and obs of the encounters of a type, all obs or those of :concepts, optionally between dates
+SELECT
+  e.patient_id,
+  DATE(encounter_datetime)                                 AS encounter_date,
+  (SELECT GROUP_CONCAT(CONCAT_WS(' ', COALESCE(given_name, ''), COALESCE(family_name, '')))
+   FROM person_name pn
+   WHERE e.patient_id = pn.person_id)                      AS 'names',
+  (SELECT p.gender
+   FROM person p
+   WHERE p.person_id = e.patient_id)                       AS gender,
+  (SELECT birthdate
+   FROM person p
+   WHERE p.person_id = e.patient_id)                       AS dob,
+  (SELECT YEAR(e.encounter_datetime) - YEAR(birthdate) - (RIGHT(e.encounter_datetime, 5) < RIGHT(birthdate, 5))
+   FROM person p
+   WHERE p.person_id = e.patient_id)                       AS age,
+  (SELECT group_concat(concat_ws(':', o.concept_id, o.value_coded, DATE(o.obs_datetime)))
+   FROM obs o
+   WHERE o.concept_id = 90244 AND o.person_id = e.patient_id) AS marital,
+  (SELECT GROUP_CONCAT(CONCAT_WS(':', COALESCE(pit.uuid, ''), COALESCE(identifier, '')))
+   FROM patient_identifier pi INNER JOIN patient_identifier_type pit
+       ON (pi.identifier_type = pit.patient_identifier_type_id)
+   WHERE pi.patient_id = e.patient_id)                     AS 'identifiers',
+  (SELECT GROUP_CONCAT(CONCAT_WS(':', COALESCE(pat.uuid, ''), COALESCE(value, '')))
+   FROM person_attribute pa INNER JOIN person_attribute_type pat
+       ON (pa.person_attribute_type_id = pat.person_attribute_type_id)
+   WHERE e.patient_id = pa.person_id)                      AS 'attributes',
+  (SELECT GROUP_CONCAT(
+      CONCAT_WS(':', COALESCE(country, ''), COALESCE(county_district, ''), COALESCE(state_province, ''),
+                COALESCE(address3, ''),
+                COALESCE(address4, ''), COALESCE(address5, '')))
+   FROM person_address pas
+   WHERE e.patient_id = pas.person_id)                     AS 'addresses',
+  (SELECT group_concat(
+      concat_ws(':', o.concept_id, concat_ws('', DATE(o.value_datetime), o.value_text, o.value_coded, o.value_numeric),
+                DATE(o.obs_datetime),COALESCE(o.obs_group_id, '')))
+   FROM obs o
+   WHERE o.encounter_id = e.encounter_id AND o.voided = 0 AND (:allObs = 1 OR concept_id IN (:concepts))) AS obs
+FROM encounter e
+WHERE e.encounter_type = (SELECT encounter_type_id
+                          FROM encounter_type
+                          WHERE uuid = :encounterType) AND voided = 0
+  AND (:startDate IS NULL OR e.encounter_datetime >= :startDate)
+  AND (:endDate IS NULL OR e.encounter_datetime <= :endDate)
@@ -0,0 +1,15 @@
+-- Number of days of ARVs (99036) dispensed at the first pickup of :patientIds between :startDate and :endDate
+SELECT e.patient_id, obs.value_numeric
+FROM obs obs
+  INNER JOIN encounter e ON obs.encounter_id = e.encounter_id
+  INNER JOIN (SELECT e.patient_id, GROUP_CONCAT(DATE(e.encounter_datetime) ORDER BY e.encounter_datetime ASC SEPARATOR ',') AS baselinepickup
+              FROM encounter e
+                INNER JOIN obs o ON (e.encounter_id = o.encounter_id)
+              WHERE e.encounter_datetime BETWEEN :startDate AND :endDate
+                AND e.encounter_type = (SELECT encounter_type_id FROM encounter_type et WHERE et.uuid = '8d5b2be0-c2cc-11de-8d13-0010c6dffd0f')
+                AND o.concept_id = (SELECT c.concept_id FROM concept c WHERE c.uuid = 'dd2b0b4d-30ab-102d-86b0-7a5022ba4115')
+                AND o.voided = 0
+                AND e.patient_id IN (:patientIds)
+              GROUP BY e.patient_id) temp ON e.patient_id = temp.patient_id AND e.encounter_datetime = SUBSTRING_INDEX(temp.baselinepickup, ',', 1)
+WHERE obs.concept_id = 99036 AND obs.voided = 0
+GROUP BY e.patient_id
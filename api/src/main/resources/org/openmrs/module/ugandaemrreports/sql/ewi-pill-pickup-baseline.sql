@@ -0,0 +1,10 @@
+-- Dates of the ARV pickups of :patientIds between :startDate and :endDate, first to last, comma separated
+SELECT e.patient_id, GROUP_CONCAT(DATE(e.encounter_datetime) ORDER BY e.encounter_datetime ASC SEPARATOR ',') AS baselinepickup
+FROM encounter e
+  INNER JOIN obs o ON (e.encounter_id = o.encounter_id)
+WHERE e.encounter_datetime BETWEEN :startDate AND :endDate
+  AND e.encounter_type = (SELECT encounter_type_id FROM encounter_type et WHERE et.uuid = '8d5b2be0-c2cc-11de-8d13-0010c6dffd0f')
+  AND o.concept_id = (SELECT c.concept_id FROM concept c WHERE c.uuid = 'dd2b0b4d-30ab-102d-86b0-7a5022ba4115')
+  AND o.voided = 0
+  AND e.patient_id IN (:patientIds)
+GROUP BY patient_id
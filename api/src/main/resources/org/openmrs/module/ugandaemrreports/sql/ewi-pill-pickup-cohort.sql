@@ -0,0 +1,13 @@
+-- Patients with an ART encounter dispensing ARVs, an ART start or a transfer in between :startDate and :endDate
+SELECT t.person_id
+FROM obs t
+  INNER JOIN encounter e ON t.encounter_id = e.encounter_id
+WHERE t.obs_datetime BETWEEN :startDate AND :endDate
+  AND e.encounter_type = (SELECT encounter_type_id FROM encounter_type et WHERE et.uuid = '8d5b2be0-c2cc-11de-8d13-0010c6dffd0f')
+  AND t.concept_id = (SELECT c.concept_id FROM concept c WHERE c.uuid = 'dd2b0b4d-30ab-102d-86b0-7a5022ba4115')
+  AND t.voided = 0
+GROUP BY t.person_id
+UNION
+SELECT o.person_id FROM obs o WHERE o.value_datetime BETWEEN :startDate AND :endDate AND o.concept_id = 99161 AND o.voided = 0
+UNION
+SELECT obs.person_id FROM obs obs WHERE obs.concept_id = 99160 AND obs.value_datetime BETWEEN :startDate AND :endDate AND obs.voided = 0
@@ -0,0 +1,22 @@
+-- Demographics, ART clinic number, ART start, transfer out and ARV stop of :patientIds for the period :startDate to :endDate
+SELECT p.person_id,
+  p.gender,
+  DATE(p.birthdate),
+  YEAR(:endDate) - YEAR(p.birthdate) AS age,
+  (SELECT DATE(pe.death_date) FROM person pe
+   WHERE pe.death_date BETWEEN :startDate AND :endDate AND pe.person_id = p.person_id
+   GROUP BY pe.person_id) AS death_date,
+  pi.identifier,
+  (SELECT DATE(o.value_datetime) FROM obs o
+   WHERE o.person_id = p.person_id AND o.concept_id = 99161 AND o.voided = 0
+   GROUP BY o.person_id) AS ART,
+  (SELECT DATE(o.value_datetime) FROM obs o
+   WHERE o.person_id = p.person_id AND o.concept_id = 99165 AND o.voided = 0 AND o.value_datetime BETWEEN :startDate AND :endDate
+   GROUP BY o.person_id) AS transfer,
+  (SELECT DATE(o.value_datetime) FROM obs o
+   WHERE o.person_id = p.person_id AND o.value_datetime BETWEEN :startDate AND :endDate AND o.concept_id = 99084
+   GROUP BY o.person_id) AS arv_stop
+FROM person p
+  INNER JOIN patient_identifier pi ON (p.person_id = pi.patient_id)
+WHERE pi.identifier_type = (SELECT patient_identifier_type_id FROM patient_identifier_type pit WHERE pit.uuid = 'e1731641-30ab-102d-86b0-7a5022ba4115')
+  AND p.person_id IN (:patientIds)
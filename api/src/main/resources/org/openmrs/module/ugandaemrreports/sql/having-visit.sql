@@ -0,0 +1,6 @@
+-- Patients with a return visit date whose 90 day grace period ends between :startDate and :endDate
+SELECT DISTINCT person_id
+FROM (SELECT person_id, value_datetime, ADDDATE(value_datetime, INTERVAL 90 DAY) AS dt
+      FROM obs
+      WHERE concept_id = 5096
+      HAVING dt BETWEEN :startDate AND :endDate) D
@@ -0,0 +1,7 @@
+-- Patients with an encounter in the quarter before :startDate whose return visit date is after :endDate
+SELECT patient_id
+FROM encounter e
+  INNER JOIN obs o ON e.encounter_id = o.encounter_id
+WHERE e.encounter_datetime >= DATE_SUB(:startDate, INTERVAL 3 MONTH)
+  AND e.encounter_datetime < :startDate AND o.value_datetime > :endDate AND o.concept_id = 5096
+GROUP BY patient_id
@@ -0,0 +1,5 @@
+-- The HIV care enrollment encounters between :startDate and :endDate
+SELECT patient_id, DATE(encounter_datetime) AS enrollment
+FROM encounter
+WHERE voided = 0 AND encounter_datetime BETWEEN :startDate AND :endDate
+  AND encounter_type = (SELECT encounter_type_id FROM encounter_type WHERE uuid = '8d5b27bc-c2cc-11de-8d13-0010c6dffd0f')
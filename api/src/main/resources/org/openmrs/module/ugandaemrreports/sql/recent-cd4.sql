@@ -0,0 +1,10 @@
+-- The last CD4 (5497) on or before :endDate of the patients in :patientIds
+SELECT DISTINCT A.person_id, A.value_numeric
+FROM (SELECT o.person_id, o.value_numeric, o.obs_datetime
+      FROM obs o
+      WHERE o.person_id IN (:patientIds) AND o.concept_id = 5497 AND obs_datetime <= :endDate AND voided = 0) A
+  LEFT JOIN (SELECT o.person_id, o.value_numeric, o.obs_datetime
+             FROM obs o
+             WHERE o.person_id IN (:patientIds) AND o.concept_id = 5497 AND obs_datetime <= :endDate AND voided = 0) B
+    ON (A.person_id = B.person_id AND A.obs_datetime < B.obs_datetime)
+WHERE B.person_id IS NULL
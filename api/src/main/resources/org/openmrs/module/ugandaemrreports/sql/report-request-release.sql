@@ -0,0 +1,2 @@
+-- Puts report requests taken over but not started back to requested, for the reporting module's own queue task to run
+UPDATE reporting_report_request SET status = 'REQUESTED' WHERE uuid IN (:uuids) AND status = 'PROCESSING'
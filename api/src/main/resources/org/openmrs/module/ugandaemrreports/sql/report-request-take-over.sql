@@ -0,0 +1,3 @@
+-- Marks a report request as processing if it is still requested, in one statement so of two runners only the first
+-- to get to it changes it
+UPDATE reporting_report_request SET status = 'PROCESSING' WHERE uuid = :uuid AND status = 'REQUESTED'
@@ -0,0 +1,231 @@
+-- The TB register: the treatment summary of the patients with a TB enrollment in the :treatmentMonths months before
+-- :endDate (a negative number of months) joined to their followups by unit TB number
+SELECT TB_SUMMARY.*,TB_FOLLOWUP.* FROM (SELECT 
+	UNIQUE_TB_NO.identifier 	AS unitTbNo,
+	SUBDIST_TB_NO.identifier	AS hsdNo,
+	DIST_TB_NO.identifier	AS distTbNo,
+	CONCAT(PN.family_name, ' ', PN.given_name, '\r\n', IFNULL(CONTACT.value_text, ''), ' ', IFNULL(PAT.value,''))	AS patientAndContact,
+	CONCAT(CASE HEALTH_WORKER.value_coded 
+	WHEN 1065 THEN 'Y'
+	WHEN 1066 THEN 'N'
+	ELSE ''
+	END,
+	IFNULL(CADRE_HEALTH_WORKER.name,''))	AS healthWorker,
+	P.gender	AS sex,
+	YEAR(A.encounter_datetime) - YEAR(P.birthdate) - (RIGHT(A.encounter_datetime, 5) < RIGHT(P.birthdate, 5)) 	AS age,
+	CONCAT('District: ', IFNULL(PA.county_district,''), '\r\n',
+	'County: ', IFNULL(PA.state_province,''), '\r\n', 
+	'Sub-county: ', IFNULL(PA.address3,''), '\r\n', 
+	'Parish: ',   IFNULL(PA.address4,''), '\r\n', 
+	'Village: ', IFNULL(PA.address5,''))	AS address,
+	CONCAT(DATE_FORMAT(A.encounter_datetime,'%d/%m/%Y'),'\n', IFNULL(REG.name,''))	AS dateTreatmentStartedAndRegimen,
+	CASE DISEASE_CLASS.value_coded 
+	WHEN 113489 THEN 'P-BC'
+	WHEN 113491 THEN 'P-CD'
+	WHEN 5042 THEN 'EP'
+	ELSE ''
+	END	AS diseaseClass,
+	IFNULL(TYPE_OF_PATIENT.name,'')	AS typeOfPatient,
+	CONCAT(IFNULL(TRANSFER_IN_FROM.value_text,''),'\n', IFNULL(TRANSFER_IN_TB_NO.identifier,''))	AS transferIn,
+	CONCAT(IFNULL(SPUTUM_SMEAR_RESULTS.name,''),'\n', IFNULL(DATE_FORMAT(SPUTUM_SMEAR_DATE.value_datetime,'%d/%m/%Y'),""))	AS sputumSmearResults,
+	CASE COUNSELLING_TESTING.value_coded 
+	WHEN 99294 THEN 'C'
+	WHEN 99406 THEN 'CT'
+	WHEN 99407 THEN 'CT1'
+	WHEN 99408 THEN 'CT2'
+	ELSE ''
+	END	AS hivTest,
+	CASE RECEIVED_RESULTS.value_coded 
+	WHEN 1065 THEN 'Y'
+	WHEN 1066 THEN 'N'
+	ELSE ''
+	END	AS patientReceivedHivResults,
+	CONCAT(CASE ON_CPT.value_coded 
+	WHEN 1065 THEN 'Y'
+	WHEN 1066 THEN 'N'
+	ELSE ''
+	END, '\n',
+	IFNULL(DATE_FORMAT(CPT_DATE.value_datetime,'%d/%m/%Y'),''))	AS cpt,
+	CONCAT(CASE ON_ART.value_coded 
+	WHEN 1065 THEN 'Y'
+	WHEN 1066 THEN 'N'
+	ELSE ''
+	END, '\n',
+	IFNULL(ART_NO.value_text, ''), '\n',
+	IFNULL(DATE_FORMAT(ART_DATE.value_datetime,'%d/%m/%Y'),''))	AS artAndArtNo,
+	CONCAT(IFNULL(TOTAL_CONTACT_LT_5.value_numeric,''),'\n', IFNULL(TOTAL_CONTACT_LT_5_IPT.value_numeric,''))	AS contact5Years,
+	CONCAT(CASE TREATMENT_MODEL.value_coded 
+	WHEN 99416 THEN 'F'
+	WHEN 99417 THEN 'C'
+	ELSE ''
+	END, '\n',
+	IFNULL(DATE_FORMAT(DOTS_DATE.value_datetime,'%d/%m/%Y'),''), '\n',
+	IFNULL(TREATMENT_SUPPORTER.value_text, ''))	AS treatmentModelAndNameOfTreatmentSupporter,
+	IFNULL(TREATMENT_OUTCOME.value_coded, -1)	AS treatmentOutcome,
+	IFNULL(TRANSFER_OUT_UNIT.value_text, '')	AS transferOutUnit,
+	IFNULL(DATE_FORMAT(TREATMENT_OUTCOME_DATE.value_datetime,'%d/%m/%Y'),'')	AS treatmentOutcomeDate,
+	CASE DIAGNOSED_DR_TB.value_coded 
+	WHEN 1065 THEN 'Y'
+	WHEN 1066 THEN 'N'
+	ELSE ''
+	END	AS diagnosedWithDrTb,
+	IFNULL(REMARKS.value_text, '')	AS remarks	
+FROM
+(SELECT
+     e.encounter_id,
+     e.patient_id,
+     e.encounter_datetime
+   FROM encounter e
+   INNER JOIN encounter_type et ON et.encounter_type_id = e.encounter_type AND (et.uuid = '334bf97e-28e2-4a27-8727-a5ce31c7cd66')
+	WHERE e.encounter_datetime <= :endDate AND e.encounter_datetime >= DATE_ADD(:endDate, INTERVAL :treatmentMonths MONTH) AND e.voided = 0
+   ORDER BY e.encounter_datetime) A 
+  INNER JOIN person P
+   ON (P.person_id = A.patient_id)
+  LEFT JOIN person_name PN ON (P.person_id = PN.person_id)
+  LEFT JOIN (
+	SELECT 
+	PI.patient_id,PI.identifier 
+	FROM patient_identifier PI 
+	INNER JOIN patient_identifier_type PIT ON PI.identifier_type = PIT.patient_identifier_type_id AND PI.voided = 0 AND PIT.uuid='8fd5e225-f91a-44af-ba04-3b41428d2164') UNIQUE_TB_NO ON P.person_id = UNIQUE_TB_NO.patient_id
+  LEFT JOIN (
+	SELECT 
+	PI.patient_id,PI.identifier 
+	FROM patient_identifier PI 
+	INNER JOIN patient_identifier_type PIT ON PI.identifier_type = PIT.patient_identifier_type_id AND PI.voided = 0 AND PIT.uuid='2a6f1f82-2b70-4a51-8507-3a849bc637c3') SUBDIST_TB_NO ON P.person_id = SUBDIST_TB_NO.patient_id
+  LEFT JOIN (
+	SELECT 
+	PI.patient_id,PI.identifier 
+	FROM patient_identifier PI 
+	INNER JOIN patient_identifier_type PIT ON PI.identifier_type = PIT.patient_identifier_type_id AND PI.voided = 0 AND PIT.uuid='8110f2d2-1f98-4c38-aef3-11b19bb0a589') DIST_TB_NO ON P.person_id = DIST_TB_NO.patient_id
+  LEFT JOIN person_attribute PAT ON (P.person_id = PAT.person_id AND PAT.person_attribute_type_id = 8 AND PAT.voided = 0)
+  LEFT JOIN obs CONTACT ON CONTACT.encounter_id = A.encounter_id AND CONTACT.concept_id = 163258 AND CONTACT.voided = 0 
+  LEFT JOIN obs HEALTH_WORKER ON HEALTH_WORKER.encounter_id = A.encounter_id AND HEALTH_WORKER.concept_id = 5619 AND HEALTH_WORKER.voided = 0 
+  LEFT JOIN (SELECT 
+	o.encounter_id, cn.name
+	     FROM obs o 
+	     INNER JOIN concept_name cn ON o.value_coded = cn.concept_id AND cn.locale = 'en' AND cn.concept_name_type = 'FULLY_SPECIFIED' AND cn.voided = 0 WHERE o.concept_id = 1783 AND o.voided = 0
+	     GROUP BY o.encounter_id ) CADRE_HEALTH_WORKER ON CADRE_HEALTH_WORKER.encounter_id = A.encounter_id  
+  LEFT JOIN person_address PA ON (P.person_id = PA.person_id AND PA.preferred = 1 AND PA.voided = 0)
+  LEFT JOIN (SELECT 
+	o.encounter_id, cn.name
+	     FROM obs o 
+	     INNER JOIN concept_name cn ON o.value_coded = cn.concept_id AND cn.locale = 'en' AND cn.concept_name_type = 'FULLY_SPECIFIED' AND cn.voided = 0 WHERE o.concept_id = 99374 AND o.voided = 0
+	     GROUP BY o.encounter_id) REG ON REG.encounter_id = A.encounter_id
+  LEFT JOIN obs DISEASE_CLASS ON DISEASE_CLASS.encounter_id = A.encounter_id AND DISEASE_CLASS.concept_id = 99379 AND DISEASE_CLASS.voided = 0 
+  LEFT JOIN (SELECT 
+	o.encounter_id, cn.name
+	     FROM obs o 
+	     INNER JOIN concept_name cn ON o.value_coded = cn.concept_id AND cn.locale = 'en' AND cn.concept_name_type = 'FULLY_SPECIFIED' AND cn.voided = 0 WHERE o.concept_id = 99386 AND o.voided = 0
+	     GROUP BY o.encounter_id ) TYPE_OF_PATIENT ON TYPE_OF_PATIENT.encounter_id = A.encounter_id 
+ LEFT JOIN obs COUNSELLING_TESTING ON COUNSELLING_TESTING.encounter_id = A.encounter_id AND COUNSELLING_TESTING.concept_id = 99409 AND COUNSELLING_TESTING.voided = 0 
+ LEFT JOIN obs RECEIVED_RESULTS ON RECEIVED_RESULTS.encounter_id = A.encounter_id AND RECEIVED_RESULTS.concept_id = 99411 AND RECEIVED_RESULTS.voided = 0 
+ LEFT JOIN obs ON_CPT ON ON_CPT.encounter_id = A.encounter_id AND ON_CPT.concept_id = 160434 AND ON_CPT.voided = 0 
+ LEFT JOIN obs CPT_DATE ON CPT_DATE.encounter_id = A.encounter_id AND CPT_DATE.concept_id = 164361 AND CPT_DATE.voided = 0 
+ LEFT JOIN obs ON_ART ON ON_ART.encounter_id = A.encounter_id AND ON_ART.concept_id = 159991 AND ON_ART.voided = 0 
+ LEFT JOIN obs ART_DATE ON ART_DATE.encounter_id = A.encounter_id AND ART_DATE.concept_id = 99161 AND ART_DATE.voided = 0 
+ LEFT JOIN obs ART_NO ON ART_NO.encounter_id = A.encounter_id AND ART_NO.concept_id = 99431 AND ART_NO.voided = 0 
+ LEFT JOIN obs TREATMENT_OUTCOME ON TREATMENT_OUTCOME.encounter_id = A.encounter_id AND TREATMENT_OUTCOME.concept_id = 99423 AND TREATMENT_OUTCOME.voided = 0 
+ LEFT JOIN obs REMARKS ON REMARKS.encounter_id = A.encounter_id AND REMARKS.concept_id = 159395 AND REMARKS.voided = 0 
+ LEFT JOIN obs TRANSFER_IN_FROM ON TRANSFER_IN_FROM.encounter_id = A.encounter_id AND TRANSFER_IN_FROM.concept_id = 99109 AND TRANSFER_IN_FROM.voided = 0 
+ LEFT JOIN (
+	SELECT 
+	PI.patient_id,PI.identifier 
+	FROM patient_identifier PI 
+	INNER JOIN patient_identifier_type PIT ON PI.identifier_type = PIT.patient_identifier_type_id AND PI.voided = 0 AND PIT.uuid='1d2be2a3-7d90-42a6-aasa5-a04b684a365b') TRANSFER_IN_TB_NO ON P.person_id = TRANSFER_IN_TB_NO.patient_id
+ LEFT JOIN (SELECT 
+	o.encounter_id, cn.name
+	     FROM obs o 
+	     INNER JOIN concept_name cn ON o.value_coded = cn.concept_id AND cn.locale = 'en' AND cn.concept_name_type = 'FULLY_SPECIFIED' AND cn.voided = 0 WHERE o.concept_id = 99030 AND o.voided = 0
+	     GROUP BY o.encounter_id ) MUAC ON MUAC.encounter_id = A.encounter_id
+ LEFT JOIN obs W4A_Z_SCORE ON W4A_Z_SCORE.encounter_id = A.encounter_id AND W4A_Z_SCORE.concept_id = 1854 AND W4A_Z_SCORE.voided = 0 
+ LEFT JOIN obs H4A_Z_SCORE ON H4A_Z_SCORE.encounter_id = A.encounter_id AND H4A_Z_SCORE.concept_id = 164088 AND H4A_Z_SCORE.voided = 0 
+ LEFT JOIN (
+	SELECT 
+	PI.patient_id,PI.identifier 
+	FROM patient_identifier PI 
+	INNER JOIN patient_identifier_type PIT ON PI.identifier_type = PIT.patient_identifier_type_id AND PI.voided = 0 AND PIT.uuid='d4b21726-e908-4b1a-abab-b5f87cd01c18') INR_NO ON P.person_id = INR_NO.patient_id 
+ LEFT JOIN obs TOTAL_CONTACT_LT_5 ON TOTAL_CONTACT_LT_5.encounter_id = A.encounter_id AND TOTAL_CONTACT_LT_5.concept_id = 164419 AND TOTAL_CONTACT_LT_5.voided = 0 
+ LEFT JOIN obs TOTAL_CONTACT_LT_5_IPT ON TOTAL_CONTACT_LT_5_IPT.encounter_id = A.encounter_id AND TOTAL_CONTACT_LT_5_IPT.concept_id = 164421 AND TOTAL_CONTACT_LT_5_IPT.voided = 0 
+ LEFT JOIN obs TREATMENT_MODEL ON TREATMENT_MODEL.encounter_id = A.encounter_id AND TREATMENT_MODEL.concept_id = 99418 AND TREATMENT_MODEL.voided = 0 
+ LEFT JOIN obs DOTS_DATE ON DOTS_DATE.encounter_id = A.encounter_id AND DOTS_DATE.concept_id = 90217 AND DOTS_DATE.voided = 0 
+ LEFT JOIN obs TREATMENT_SUPPORTER ON TREATMENT_SUPPORTER.encounter_id = A.encounter_id AND TREATMENT_SUPPORTER.concept_id = 99142 AND TREATMENT_SUPPORTER.voided = 0 
+ LEFT JOIN obs TREATMENT_PHASE ON TREATMENT_PHASE.encounter_id = A.encounter_id AND TREATMENT_PHASE.concept_id = 159792 AND TREATMENT_PHASE.voided = 0 
+ LEFT JOIN obs DIAGNOSED_DR_TB ON DIAGNOSED_DR_TB.encounter_id = A.encounter_id AND DIAGNOSED_DR_TB.concept_id = 90211 AND DIAGNOSED_DR_TB.voided = 0
+ LEFT JOIN (SELECT 
+	o.encounter_id, cn.name
+	     FROM obs o 
+	     INNER JOIN concept_name cn ON o.value_coded = cn.concept_id AND cn.locale = 'en' AND cn.concept_name_type = 'FULLY_SPECIFIED' AND cn.voided = 0 WHERE o.concept_id = 307 AND o.voided = 0
+	     GROUP BY o.encounter_id ) SPUTUM_SMEAR_RESULTS ON SPUTUM_SMEAR_RESULTS.encounter_id = A.encounter_id 
+ LEFT JOIN obs SPUTUM_SMEAR_DATE ON SPUTUM_SMEAR_DATE.encounter_id = A.encounter_id AND SPUTUM_SMEAR_DATE.concept_id = 99392 AND SPUTUM_SMEAR_DATE.voided = 0
+ LEFT JOIN obs TREATMENT_OUTCOME_DATE ON TREATMENT_OUTCOME_DATE.encounter_id = A.encounter_id AND TREATMENT_OUTCOME_DATE.concept_id = 159787 AND TREATMENT_OUTCOME_DATE.voided = 0
+ LEFT JOIN obs TRANSFER_OUT_UNIT ON TRANSFER_OUT_UNIT.encounter_id = A.encounter_id AND TRANSFER_OUT_UNIT.concept_id = 90211 AND TRANSFER_OUT_UNIT.voided = 0
+ GROUP BY A.patient_id
+) AS TB_SUMMARY  LEFT JOIN (SELECT 
+	GROUP_CONCAT(CONCAT(IFNULL(SPUTUM_SMEAR_RESULTS.name,''),'\n', IFNULL(DATE_FORMAT(SPUTUM_SMEAR_DATE.value_datetime,'%d/%m/%Y'),"")))	AS followUpSputumSmearResults,
+	CONCAT(IFNULL(DST_RESULTS.name,''),'\n', IFNULL(DATE_FORMAT(DST_DATE.value_datetime,'%d/%m/%Y'),""))	AS dstResults,
+	CONCAT(IFNULL(MUAC.name,''),'\n',
+	CASE W4A_Z_SCORE.value_coded
+	WHEN 115 THEN 'N'
+	WHEN 99271 THEN 'MAM' 
+	WHEN 99272 THEN  'SAM'
+	ELSE ''
+	END, '\n',
+	CASE H4A_Z_SCORE.value_coded
+	WHEN 115 THEN 'N'
+	WHEN 164085 THEN 'S' 
+	ELSE ''
+	END, '\n',
+	IFNULL(INR_NO.identifier,""))	AS zScoreAndInrNo,
+	GROUP_CONCAT(CASE TREATMENT_PHASE.value_coded 
+	WHEN 159794 THEN 'Y'
+	ELSE ''
+	END) 	AS intensive,
+	GROUP_CONCAT(CASE TREATMENT_PHASE.value_coded 
+	WHEN 159795 THEN 'Y'
+	ELSE ''
+	END)	AS continous,
+	UNIQUE_TB_NO.identifier 	AS unitTbNo,
+	A.encounter_id	AS encounterId
+FROM
+(SELECT
+     e.encounter_id,
+     e.patient_id,
+     e.encounter_datetime
+   FROM encounter e
+   INNER JOIN encounter_type et ON et.encounter_type_id = e.encounter_type AND et.uuid = '455bad1f-5e97-4ee9-9558-ff1df8808732'
+	WHERE e.encounter_datetime <= :endDate AND e.encounter_datetime >= DATE_ADD(:endDate, INTERVAL :treatmentMonths MONTH) AND e.voided = 0) A 
+  INNER JOIN person P
+   ON (P.person_id = A.patient_id)
+  LEFT JOIN person_name PN ON (P.person_id = PN.person_id)
+  LEFT JOIN (
+	SELECT 
+	PI.patient_id,PI.identifier 
+	FROM patient_identifier PI 
+	INNER JOIN patient_identifier_type PIT ON PI.identifier_type = PIT.patient_identifier_type_id AND PI.voided = 0 AND PIT.uuid='8fd5e225-f91a-44af-ba04-3b41428d2164') UNIQUE_TB_NO ON P.person_id = UNIQUE_TB_NO.patient_id
+ LEFT JOIN (SELECT 
+	o.encounter_id, cn.name
+	     FROM obs o 
+	     INNER JOIN concept_name cn ON o.value_coded = cn.concept_id AND cn.locale = 'en' AND cn.concept_name_type = 'FULLY_SPECIFIED' AND cn.voided = 0 WHERE o.concept_id = 99030 AND o.voided = 0
+	     GROUP BY o.encounter_id ) MUAC ON MUAC.encounter_id = A.encounter_id
+ LEFT JOIN obs W4A_Z_SCORE ON W4A_Z_SCORE.encounter_id = A.encounter_id AND W4A_Z_SCORE.concept_id = 1854 AND W4A_Z_SCORE.voided = 0 
+ LEFT JOIN obs H4A_Z_SCORE ON H4A_Z_SCORE.encounter_id = A.encounter_id AND H4A_Z_SCORE.concept_id = 164088 AND H4A_Z_SCORE.voided = 0 
+ LEFT JOIN (
+	SELECT 
+	PI.patient_id,PI.identifier 
+	FROM patient_identifier PI 
+	INNER JOIN patient_identifier_type PIT ON PI.identifier_type = PIT.patient_identifier_type_id AND PI.voided = 0 AND PIT.uuid='d4b21726-e908-4b1a-abab-b5f87cd01c18') INR_NO ON P.person_id = INR_NO.patient_id 
+ LEFT JOIN obs TREATMENT_PHASE ON TREATMENT_PHASE.encounter_id = A.encounter_id AND TREATMENT_PHASE.concept_id = 159792 AND TREATMENT_PHASE.voided = 0 
+ LEFT JOIN (SELECT 
+	o.encounter_id, cn.name
+	     FROM obs o 
+	     INNER JOIN concept_name cn ON o.value_coded = cn.concept_id AND cn.locale = 'en' AND cn.concept_name_type = 'FULLY_SPECIFIED' AND cn.voided = 0 WHERE o.concept_id = 159984 AND o.voided = 0
+	     GROUP BY o.encounter_id ) DST_RESULTS ON DST_RESULTS.encounter_id = A.encounter_id 
+ LEFT JOIN obs DST_DATE ON DST_DATE.encounter_id = A.encounter_id AND DST_DATE.concept_id = 164396 AND DST_DATE.voided = 0 
+ LEFT JOIN (SELECT 
+	o.encounter_id, cn.name
+	     FROM obs o 
+	     INNER JOIN concept_name cn ON o.value_coded = cn.concept_id AND cn.locale = 'en' AND cn.concept_name_type = 'FULLY_SPECIFIED' AND cn.voided = 0 WHERE o.concept_id = 307 AND o.voided = 0
+	     GROUP BY o.encounter_id ) SPUTUM_SMEAR_RESULTS ON SPUTUM_SMEAR_RESULTS.encounter_id = A.encounter_id 
+ LEFT JOIN obs SPUTUM_SMEAR_DATE ON SPUTUM_SMEAR_DATE.encounter_id = A.encounter_id AND SPUTUM_SMEAR_DATE.concept_id = 99392 AND SPUTUM_SMEAR_DATE.voided = 0
+ GROUP BY UNIQUE_TB_NO.identifier
+ ) AS TB_FOLLOWUP ON TB_SUMMARY.unitTbNo = TB_FOLLOWUP.unitTbNo
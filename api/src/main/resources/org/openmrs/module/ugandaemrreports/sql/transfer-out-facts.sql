@@ -0,0 +1,4 @@
+-- Transfer out dates on or before :endDate of the patients in :patientIds, from the ART facts table
+SELECT patient_id, transfer_out_date
+FROM ugandaemrreports_art_facts
+WHERE patient_id IN (:patientIds) AND transfer_out_date <= :endDate
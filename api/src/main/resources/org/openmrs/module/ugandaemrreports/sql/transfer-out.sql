@@ -0,0 +1,4 @@
+-- Transfer out dates (99165) on or before :endDate of the patients in :patientIds
+SELECT person_id, value_datetime
+FROM obs
+WHERE voided = 0 AND concept_id = 99165 AND person_id IN (:patientIds) AND value_datetime <= :endDate
@@ -0,0 +1,5 @@
+-- Patients with a viral load above 999 in an encounter between :startDate and :endDate
+SELECT e.patient_id
+FROM encounter e
+  INNER JOIN obs o ON o.encounter_id = e.encounter_id
+WHERE o.concept_id = 856 AND o.value_numeric > 999 AND e.encounter_datetime BETWEEN :startDate AND :endDate AND o.voided = 0
@@ -0,0 +1,53 @@
+-- Every viral load of the patients on ART, with the months from the ART start to :endDate and to the viral load,
+-- -1 for a missing qualitative or numeric result
+SELECT
+  C.person_id,
+  TIMESTAMPDIFF(MONTH, C.value_datetime, :endDate)         AS months_btn_art_and_report,
+  TIMESTAMPDIFF(MONTH, C.value_datetime, B.value_datetime) AS months_btn_art_and_viral,
+  IF(B.value_coded IS NULL, -1, B.value_coded)             AS 'value_coded',
+  IF(B.value_numeric IS NULL, -1, B.value_numeric)         AS 'value_numeric'
+FROM (SELECT
+        person_id,
+        value_datetime
+      FROM obs
+      WHERE concept_id = 99161
+            AND voided = 0) C INNER JOIN
+  (SELECT
+     A.person_id,
+     A.value_datetime,
+     vlq.value_coded,
+     vln.value_numeric
+   FROM (SELECT
+           person_id,
+           encounter_id,
+           value_datetime
+         FROM obs
+         WHERE
+           concept_id = 163023 AND voided = 0
+         UNION ALL
+         SELECT
+           person_id,
+           encounter_id,
+           obs_datetime AS 'value_datetime'
+         FROM obs
+         WHERE concept_id = 856 AND voided = 0
+               AND encounter_id
+                   NOT IN (SELECT encounter_id
+                           FROM obs
+                           WHERE concept_id =
+                                 163023)
+        ) A LEFT JOIN
+     obs vlq ON (A.person_id = vlq.person_id AND
+                 A.encounter_id = vlq.encounter_id AND
+                 vlq.concept_id = 1305 AND vlq.voided = 0)
+     LEFT JOIN obs vln ON (vln.person_id = A.person_id AND
+                           vln.encounter_id =
+                           A.encounter_id AND
+                           vln.concept_id = 856 AND
+                           vln.voided = 0)) B
+    ON (B.person_id = C.person_id)
+GROUP BY C.person_id,
+  TIMESTAMPDIFF(MONTH, C.value_datetime, :endDate),
+  TIMESTAMPDIFF(MONTH, C.value_datetime, B.value_datetime),
+  B.value_coded,
+  B.value_numeric
@@ -0,0 +1,108 @@
+package org.openmrs.module.ugandaemrreports.common;
+
+import org.apache.poi.poifs.crypt.Decryptor;
+import org.apache.poi.poifs.crypt.EncryptionInfo;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExcelBuilderTest {
+
+    private static final int ROWS = ExcelBuilder.STREAMING_THRESHOLD + 1;
+
+    @Test
+    public void forExpectedRows_shouldKeepASmallWorkbookInMemory() {
+        assertFalse(ExcelBuilder.forExpectedRows(ExcelBuilder.STREAMING_THRESHOLD).isStreaming());
+    }
+
+    @Test
+    public void write_shouldWriteEveryRowOfAStreamedWorkbook() throws Exception {
+        ExcelBuilder builder = ExcelBuilder.forExpectedRows(ROWS);
+        assertTrue(builder.isStreaming());
+        builder.newSheet("patients");
+        addRows(builder);
+
+        XSSFSheet sheet = read(write(builder, null)).getSheet("patients");
+
+        assertEquals(ROWS - 1, sheet.getLastRowNum());
+        assertRows(sheet, 0);
+    }
+
+    @Test
+    public void write_shouldKeepTheTemplateRowsAndStreamTheRowsAfterThem() throws Exception {
+        XSSFWorkbook template = new XSSFWorkbook();
+        XSSFSheet templateSheet = template.createSheet("register");
+        templateSheet.createRow(0).createCell(0).setCellValue("Title");
+        templateSheet.createRow(1).createCell(0).setCellValue("Header");
+        templateSheet.createRow(2).createCell(0).setCellValue("Placeholder");
+
+        ExcelBuilder builder = ExcelBuilder.forExpectedRows(ROWS);
+        builder.setWorkbook(template);
+        Properties position = new Properties();
+        position.setProperty("renderToTemplateSheet", "0");
+        position.setProperty("renderToTemplateRow", "2");
+        position.setProperty("renderToTemplateColumn", "0");
+        builder.goToPosition(position);
+        addRows(builder);
+
+        XSSFSheet sheet = read(write(builder, null)).getSheet("register");
+
+        assertEquals("Title", sheet.getRow(0).getCell(0).getStringCellValue());
+        assertEquals("Header", sheet.getRow(1).getCell(0).getStringCellValue());
+        assertEquals(ROWS + 1, sheet.getLastRowNum());
+        assertRows(sheet, 2);
+    }
+
+    @Test
+    public void write_shouldEncryptAStreamedWorkbook() throws Exception {
+        ExcelBuilder builder = ExcelBuilder.forExpectedRows(ROWS);
+        builder.newSheet("patients");
+        addRows(builder);
+
+        POIFSFileSystem fs = new POIFSFileSystem(new ByteArrayInputStream(write(builder, "secret")));
+        Decryptor decryptor = Decryptor.getInstance(new EncryptionInfo(fs));
+        assertFalse(decryptor.verifyPassword("wrong"));
+        assertTrue(decryptor.verifyPassword("secret"));
+        XSSFSheet sheet = new XSSFWorkbook(decryptor.getDataStream(fs)).getSheet("patients");
+
+        assertEquals(ROWS - 1, sheet.getLastRowNum());
+        assertRows(sheet, 0);
+    }
+
+    private static void addRows(ExcelBuilder builder) {
+        for (int i = 0; i < ROWS; i++) {
+            builder.addCell(i).addCell("patient " + i);
+            builder.nextRow();
+        }
+    }
+
+    /**
+     * Checks the first, a middle and the last row, those flushed early and those still in memory when written
+     */
+    private static void assertRows(XSSFSheet sheet, int offset) {
+        for (int i : new int[]{0, ROWS / 2, ROWS - 1}) {
+            assertEquals(i, (int) sheet.getRow(offset + i).getCell(0).getNumericCellValue());
+            assertEquals("patient " + i, sheet.getRow(offset + i).getCell(1).getStringCellValue());
+        }
+    }
+
+    private static byte[] write(ExcelBuilder builder, String password) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        builder.write(out, password);
+        return out.toByteArray();
+    }
+
+    private static XSSFWorkbook read(byte[] bytes) throws IOException {
+        return new XSSFWorkbook(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,91 @@
+package org.openmrs.module.ugandaemrreports.common;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class NamedQueryTest {
+
+    @Test
+    public void sql_shouldReplaceEachParameterWithAPlaceholder() {
+        NamedQuery query = new NamedQuery("test", "SELECT person_id FROM obs WHERE value_datetime BETWEEN :startDate AND :endDate AND concept_id = :concept1");
+
+        String sql = query.sql(NamedQuery.parameters().date("startDate", new Date()).date("endDate", new Date()).integer("concept1", 99161));
+
+        assertEquals("SELECT person_id FROM obs WHERE value_datetime BETWEEN ? AND ? AND concept_id = ?", sql);
+    }
+
+    @Test
+    public void sql_shouldWriteAPlaceholderForEachUseOfAParameter() {
+        NamedQuery query = new NamedQuery("test", "SELECT :endDate FROM obs WHERE obs_datetime <= :endDate");
+
+        assertEquals("SELECT ? FROM obs WHERE obs_datetime <= ?", query.sql(NamedQuery.parameters().date("endDate", new Date())));
+    }
+
+    @Test
+    public void sql_shouldExpandACollectionToOnePlaceholderPerId() {
+        NamedQuery query = new NamedQuery("test", "SELECT * FROM patient WHERE patient_id IN (:patientIds)");
+
+        assertEquals("SELECT * FROM patient WHERE patient_id IN (?,?,?)",
+                query.sql(NamedQuery.parameters().ids("patientIds", Arrays.asList(3, 1, 2))));
+    }
+
+    @Test
+    public void sql_shouldWriteNullForAnEmptyCollection() {
+        NamedQuery query = new NamedQuery("test", "SELECT * FROM patient WHERE patient_id IN (:patientIds)");
+
+        assertEquals("SELECT * FROM patient WHERE patient_id IN (NULL)",
+                query.sql(NamedQuery.parameters().ids("patientIds", Collections.<Integer>emptyList())));
+    }
+
+    @Test
+    public void sql_shouldFailForAParameterWithoutAValue() {
+        NamedQuery query = new NamedQuery("test", "SELECT * FROM obs WHERE obs_datetime < :endDate");
+
+        try {
+            query.sql(NamedQuery.parameters().date("startDate", new Date()));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("No value for parameter endDate of query test", e.getMessage());
+        }
+    }
+
+    @Test
+    public void sql_shouldWriteKeywordsIntoTheText() {
+        NamedQuery query = new NamedQuery("test", "SELECT DATE_ADD(:startDate, INTERVAL :difference :period)");
+
+        String sql = query.sql(NamedQuery.parameters().date("startDate", new Date()).integer("difference", 6)
+                .keyword("period", Enums.Period.MONTHLY));
+
+        assertEquals("SELECT DATE_ADD(?, INTERVAL ? MONTH)", sql);
+    }
+
+    @Test
+    public void sql_shouldLeaveDoubleColonsAndQuotedColonsAlone() {
+        NamedQuery query = new NamedQuery("test", "SELECT '10:30', ':notAParameter', value::text FROM obs WHERE obs_datetime < :endDate");
+
+        assertEquals("SELECT '10:30', ':notAParameter', value::text FROM obs WHERE obs_datetime < ?",
+                query.sql(NamedQuery.parameters().date("endDate", new Date())));
+    }
+
+    @Test
+    public void get_shouldDropCommentsAndTheTrailingSemicolon() {
+        String sql = NamedQuery.get("art-start-between").sql(NamedQuery.parameters().date("startDate", new Date())
+                .date("endDate", new Date()));
+
+        assertFalse(sql.contains("--"));
+        assertFalse(sql.endsWith(";"));
+        assertEquals(2, sql.split("\\?", -1).length - 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void get_shouldFailForAQueryThatDoesNotExist() {
+        NamedQuery.get("no-such-query");
+    }
+}
@@ -0,0 +1,125 @@
+package org.openmrs.module.ugandaemrreports.common;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PatientBitmapTest {
+
+    @Test
+    public void add_shouldKeepEachPatientOnce() {
+        PatientBitmap bitmap = PatientBitmap.of(5, 3, 5, 70000, 3);
+
+        assertEquals(3, bitmap.cardinality());
+        assertArrayEquals(new int[]{3, 5, 70000}, bitmap.toArray());
+        assertTrue(bitmap.contains(70000));
+        assertFalse(bitmap.contains(4));
+        assertFalse(bitmap.contains(-1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_shouldRejectNegativeIds() {
+        new PatientBitmap().add(-1);
+    }
+
+    @Test
+    public void of_shouldSkipNullIds() {
+        PatientBitmap bitmap = PatientBitmap.of(Arrays.asList(1, null, 2));
+
+        assertArrayEquals(new int[]{1, 2}, bitmap.toArray());
+    }
+
+    @Test
+    public void and_shouldIntersectSparseChunks() {
+        PatientBitmap a = PatientBitmap.of(1, 2, 3, 65536, 65537);
+        PatientBitmap b = PatientBitmap.of(2, 3, 4, 65537, 131072);
+
+        assertArrayEquals(new int[]{2, 3, 65537}, a.and(b).toArray());
+        assertEquals(3, a.andCardinality(b));
+    }
+
+    @Test
+    public void and_shouldDropChunksWithNothingInCommon() {
+        PatientBitmap a = PatientBitmap.of(1, 65536);
+        PatientBitmap b = PatientBitmap.of(2, 65536);
+
+        PatientBitmap intersection = a.and(b);
+
+        assertArrayEquals(new int[]{65536}, intersection.toArray());
+        assertTrue(PatientBitmap.of(1).and(PatientBitmap.of(2)).isEmpty());
+    }
+
+    @Test
+    public void or_shouldUniteBitmaps() {
+        PatientBitmap a = PatientBitmap.of(1, 3, 65536);
+        PatientBitmap b = PatientBitmap.of(2, 3, 131072);
+
+        assertArrayEquals(new int[]{1, 2, 3, 65536, 131072}, a.or(b).toArray());
+        assertArrayEquals(new int[]{1, 3, 65536}, a.or(new PatientBitmap()).toArray());
+    }
+
+    @Test
+    public void or_shouldNotChangeItsOperands() {
+        PatientBitmap a = PatientBitmap.of(1);
+        PatientBitmap b = PatientBitmap.of(2);
+
+        a.or(b).add(3);
+
+        assertArrayEquals(new int[]{1}, a.toArray());
+        assertArrayEquals(new int[]{2}, b.toArray());
+    }
+
+    @Test
+    public void setOperations_shouldMatchSetsAcrossArrayAndBitmapChunks() {
+        Set<Integer> evens = new TreeSet<Integer>();
+        Set<Integer> threes = new TreeSet<Integer>();
+        for (int id = 0; id < 3 * 65536; id++) {
+            if (id % 2 == 0) {
+                evens.add(id);
+            }
+            // sparse in the first chunk, dense in the others
+            if (id % 3 == 0 && (id >= 65536 || id % 300 == 0)) {
+                threes.add(id);
+            }
+        }
+        PatientBitmap a = PatientBitmap.of(evens);
+        PatientBitmap b = PatientBitmap.of(threes);
+
+        Set<Integer> intersection = new HashSet<Integer>(evens);
+        intersection.retainAll(threes);
+        Set<Integer> union = new HashSet<Integer>(evens);
+        union.addAll(threes);
+
+        assertEquals(evens.size(), a.cardinality());
+        assertEquals(intersection, a.and(b).toSet());
+        assertEquals(intersection, b.and(a).toSet());
+        assertEquals(intersection.size(), a.andCardinality(b));
+        assertEquals(intersection.size(), b.andCardinality(a));
+        assertEquals(union, a.or(b).toSet());
+        assertEquals(union, b.or(a).toSet());
+    }
+
+    @Test
+    public void add_shouldTurnAFullArrayChunkIntoABitmap() {
+        PatientBitmap bitmap = new PatientBitmap();
+        for (int id = PatientBitmap.ARRAY_MAX; id >= 0; id--) {
+            bitmap.add(id * 2);
+        }
+
+        assertEquals(PatientBitmap.ARRAY_MAX + 1, bitmap.cardinality());
+        assertTrue(bitmap.contains(PatientBitmap.ARRAY_MAX * 2));
+        assertFalse(bitmap.contains(1));
+        int[] ids = bitmap.toArray();
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(i * 2, ids[i]);
+        }
+    }
+}
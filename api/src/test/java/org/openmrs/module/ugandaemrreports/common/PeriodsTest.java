@@ -0,0 +1,26 @@
+package org.openmrs.module.ugandaemrreports.common;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import static org.junit.Assert.assertEquals;
+
+public class PeriodsTest {
+
+    @Test
+    public void yearMonthDay_shouldIgnoreTheTimeOfDay() {
+        Calendar calendar = new GregorianCalendar(2019, Calendar.MARCH, 31, 23, 59, 59);
+
+        assertEquals(20190331, Periods.yearMonthDay(calendar.getTime()));
+    }
+
+    @Test
+    public void yearMonthDay_shouldDifferByCompletedYears() {
+        int birthdate = Periods.yearMonthDay(new GregorianCalendar(2016, Calendar.FEBRUARY, 29).getTime());
+
+        assertEquals(0, (Periods.yearMonthDay(new GregorianCalendar(2017, Calendar.FEBRUARY, 28).getTime()) - birthdate) / 10000);
+        assertEquals(1, (Periods.yearMonthDay(new GregorianCalendar(2017, Calendar.MARCH, 1).getTime()) - birthdate) / 10000);
+    }
+}
@@ -0,0 +1,54 @@
+package org.openmrs.module.ugandaemrreports.definition.dataset.evaluator;
+
+import org.junit.Test;
+import org.openmrs.module.reporting.common.Fraction;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.indicator.CohortIndicator;
+import org.openmrs.module.reporting.indicator.dimension.CohortIndicatorAndDimensionResult;
+import org.openmrs.module.ugandaemrreports.common.PatientBitmap;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BitmapIndicatorCellResultTest {
+
+    @Test
+    public void getValue_shouldCountTheIndicatorPatientsInTheCellOptions() {
+        BitmapIndicatorResult indicator = result(CohortIndicator.IndicatorType.COUNT, PatientBitmap.of(1, 2, 3, 70000), null);
+        CohortIndicatorAndDimensionResult cell = new BitmapIndicatorCellResult(indicator, indicator.getContext(), PatientBitmap.of(2, 70000, 9));
+
+        assertEquals(2, cell.getValue());
+        assertEquals(new HashSet<Integer>(Arrays.asList(2, 70000)), cell.getCohortIndicatorAndDimensionCohort().getMemberIds());
+        assertNull(cell.getCohortIndicatorAndDimensionDenominator());
+    }
+
+    @Test
+    public void getValue_shouldCountTheWholeIndicatorWithoutOptions() {
+        BitmapIndicatorResult indicator = result(CohortIndicator.IndicatorType.COUNT, PatientBitmap.of(1, 2, 3), null);
+
+        assertEquals(3, new BitmapIndicatorCellResult(indicator, indicator.getContext(), null).getValue());
+        assertEquals(3, indicator.getValue());
+        assertEquals(3, indicator.getCohort().size());
+    }
+
+    @Test
+    public void getValue_shouldFilterBothSidesOfAFraction() {
+        BitmapIndicatorResult indicator = result(CohortIndicator.IndicatorType.FRACTION, PatientBitmap.of(1, 2), PatientBitmap.of(1, 2, 3, 4));
+        CohortIndicatorAndDimensionResult cell = new BitmapIndicatorCellResult(indicator, indicator.getContext(), PatientBitmap.of(2, 3));
+
+        Fraction value = (Fraction) cell.getValue();
+        assertEquals(1, value.getNumerator());
+        assertEquals(2, value.getDenominator());
+        assertTrue(cell.getCohortIndicatorAndDimensionDenominator().getMemberIds().containsAll(Arrays.asList(2, 3)));
+    }
+
+    private BitmapIndicatorResult result(CohortIndicator.IndicatorType type, PatientBitmap numerator, PatientBitmap denominator) {
+        CohortIndicator indicator = new CohortIndicator("test");
+        indicator.setType(type);
+        return new BitmapIndicatorResult(indicator, new EvaluationContext(), numerator, denominator);
+    }
+}
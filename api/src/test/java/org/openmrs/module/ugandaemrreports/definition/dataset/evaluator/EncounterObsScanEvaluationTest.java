@@ -0,0 +1,89 @@
+package org.openmrs.module.ugandaemrreports.definition.dataset.evaluator;
+
+import org.junit.Test;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.reporting.cohort.definition.CohortDefinition;
+import org.openmrs.module.reporting.cohort.definition.CompositionCohortDefinition;
+import org.openmrs.module.reporting.cohort.definition.EncounterCohortDefinition;
+import org.openmrs.module.reporting.cohort.definition.service.CohortDefinitionService;
+import org.openmrs.module.reporting.common.DateUtil;
+import org.openmrs.module.reporting.common.RangeComparator;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.evaluation.parameter.Mapped;
+import org.openmrs.module.reporting.evaluation.service.EvaluationService;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks the patients matched from the scanned rows against the reporting module's own evaluators on the standard
+ * test data set
+ */
+public class EncounterObsScanEvaluationTest extends BaseModuleContextSensitiveTest {
+
+    private static final Date START = DateUtil.getDateTime(2000, 1, 1);
+
+    @Test
+    public void evaluate_shouldMatchTheCohortDefinitionService() throws Exception {
+        EncounterCohortDefinition anyEncounter = EncounterObsScanTest.encounters(1, START);
+        anyEncounter.setEncounterTypeList(null);
+
+        Map<String, CohortDefinition> definitions = new LinkedHashMap<String, CohortDefinition>();
+        definitions.put("encounter type 1", EncounterObsScanTest.encounters(1, START));
+        definitions.put("encounter type 2", EncounterObsScanTest.encounters(2, START));
+        definitions.put("any encounter", anyEncounter);
+        definitions.put("weight above 50", EncounterObsScanTest.numeric(5089, RangeComparator.GREATER_THAN, 50d, START));
+        definitions.put("weight at most 50", EncounterObsScanTest.numeric(5089, RangeComparator.LESS_EQUAL, 50d, START));
+        definitions.put("coded answer", EncounterObsScanTest.coded(21, 7, START));
+        definitions.put("type 1 without type 2", composition("1 AND NOT 2"));
+        definitions.put("type 1 or heavy", composition("1 OR 3"));
+
+        EvaluationContext context = new EvaluationContext();
+        EncounterObsScan scan = new EncounterObsScan(Context.getService(EvaluationService.class), context);
+        Map<String, EncounterObsScan.Node> plans = new LinkedHashMap<String, EncounterObsScan.Node>();
+        for (Map.Entry<String, CohortDefinition> definition : definitions.entrySet()) {
+            plans.put(definition.getKey(), scan.plan(map(definition.getValue()), context));
+        }
+        scan.load();
+
+        for (Map.Entry<String, CohortDefinition> definition : definitions.entrySet()) {
+            Set<Integer> expected = Context.getService(CohortDefinitionService.class)
+                    .evaluate(map(definition.getValue()), new EvaluationContext()).getMemberIds();
+            assertEquals(definition.getKey(), new TreeSet<Integer>(expected), members(plans.get(definition.getKey())));
+        }
+        assertFalse(members(plans.get("encounter type 1")).isEmpty());
+    }
+
+    private static Set<Integer> members(EncounterObsScan.Node node) throws Exception {
+        Set<Integer> members = new TreeSet<Integer>();
+        for (int patientId : node.evaluate().toArray()) {
+            members.add(patientId);
+        }
+        return members;
+    }
+
+    private static Mapped<CohortDefinition> map(CohortDefinition definition) {
+        return new Mapped<CohortDefinition>(definition, new HashMap<String, Object>());
+    }
+
+    private static CompositionCohortDefinition composition(String compositionString) {
+        List<CohortDefinition> searches = Arrays.<CohortDefinition>asList(EncounterObsScanTest.encounters(1, START),
+                EncounterObsScanTest.encounters(2, START), EncounterObsScanTest.numeric(5089, RangeComparator.GREATER_THAN, 50d, START));
+        CompositionCohortDefinition definition = new CompositionCohortDefinition();
+        for (int i = 0; i < searches.size(); i++) {
+            definition.addSearch(String.valueOf(i + 1), map(searches.get(i)));
+        }
+        definition.setCompositionString(compositionString);
+        return definition;
+    }
+}
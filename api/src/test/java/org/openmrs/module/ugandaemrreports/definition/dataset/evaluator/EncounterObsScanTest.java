@@ -0,0 +1,132 @@
+package org.openmrs.module.ugandaemrreports.definition.dataset.evaluator;
+
+import org.junit.Test;
+import org.openmrs.Concept;
+import org.openmrs.EncounterType;
+import org.openmrs.Location;
+import org.openmrs.module.reporting.cohort.definition.BaseObsCohortDefinition.TimeModifier;
+import org.openmrs.module.reporting.cohort.definition.CodedObsCohortDefinition;
+import org.openmrs.module.reporting.cohort.definition.CohortDefinition;
+import org.openmrs.module.reporting.cohort.definition.CompositionCohortDefinition;
+import org.openmrs.module.reporting.cohort.definition.EncounterCohortDefinition;
+import org.openmrs.module.reporting.cohort.definition.NumericObsCohortDefinition;
+import org.openmrs.module.reporting.common.DateUtil;
+import org.openmrs.module.reporting.common.RangeComparator;
+import org.openmrs.module.reporting.common.SetComparator;
+import org.openmrs.module.reporting.common.TimeQualifier;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.evaluation.parameter.Mapped;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EncounterObsScanTest {
+
+    private static final Date START = DateUtil.getDateTime(2019, 1, 1);
+    private static final Date END = DateUtil.getDateTime(2019, 3, 31);
+
+    private final EncounterObsScan scan = new EncounterObsScan(null, new EvaluationContext());
+
+    @Test
+    public void plan_shouldMatchEncounterAndObsDefinitionsFromTheRows() {
+        assertTrue(plan(encounters(1, START)) instanceof EncounterObsScan.Leaf);
+        assertTrue(plan(coded(5, 7, START)) instanceof EncounterObsScan.Leaf);
+        assertTrue(plan(numeric(5089, RangeComparator.GREATER_THAN, 50d, START)) instanceof EncounterObsScan.Leaf);
+    }
+
+    @Test
+    public void plan_shouldShareTheLeafOfEqualDefinitions() {
+        assertSame(plan(coded(5, 7, START)), plan(coded(5, 7, START)));
+    }
+
+    @Test
+    public void plan_shouldLeaveDefinitionsWithoutAStartDateToTheService() {
+        assertTrue(plan(encounters(1, null)) instanceof EncounterObsScan.ServiceNode);
+        assertTrue(plan(coded(5, 7, null)) instanceof EncounterObsScan.ServiceNode);
+    }
+
+    @Test
+    public void plan_shouldLeaveUnsupportedRestrictionsToTheService() {
+        EncounterCohortDefinition atLocation = encounters(1, START);
+        atLocation.setLocationList(Collections.singletonList(new Location(1)));
+        assertTrue(plan(atLocation) instanceof EncounterObsScan.ServiceNode);
+
+        EncounterCohortDefinition last = encounters(1, START);
+        last.setTimeQualifier(TimeQualifier.LAST);
+        assertTrue(plan(last) instanceof EncounterObsScan.ServiceNode);
+
+        CodedObsCohortDefinition notIn = coded(5, 7, START);
+        notIn.setOperator(SetComparator.NOT_IN);
+        assertTrue(plan(notIn) instanceof EncounterObsScan.ServiceNode);
+
+        assertTrue(plan(numeric(5089, RangeComparator.GREATER_THAN, null, START)) instanceof EncounterObsScan.ServiceNode);
+    }
+
+    @Test
+    public void plan_shouldCombineCompositionsOfLeaves() {
+        assertTrue(plan(composition("1 AND (2 OR NOT 3)")) instanceof EncounterObsScan.CombinationNode);
+        assertTrue(plan(composition("NOT 1")) instanceof EncounterObsScan.NotNode);
+        assertTrue(plan(composition("1 AND 4")) instanceof EncounterObsScan.CombinationNode);
+    }
+
+    @Test
+    public void plan_shouldLeaveMixedOperatorsToTheService() {
+        assertTrue(plan(composition("1 AND 2 OR 3")) instanceof EncounterObsScan.ServiceNode);
+        assertTrue(plan(composition("(1 AND 2")) instanceof EncounterObsScan.ServiceNode);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void plan_shouldFailOnceTheRowsAreRead() throws Exception {
+        scan.load();
+        plan(encounters(1, START));
+    }
+
+    private EncounterObsScan.Node plan(CohortDefinition definition) {
+        return scan.plan(new Mapped<CohortDefinition>(definition, new HashMap<String, Object>()), new EvaluationContext());
+    }
+
+    static EncounterCohortDefinition encounters(int encounterTypeId, Date onOrAfter) {
+        EncounterCohortDefinition definition = new EncounterCohortDefinition();
+        definition.setTimeQualifier(TimeQualifier.ANY);
+        definition.setEncounterTypeList(Collections.singletonList(new EncounterType(encounterTypeId)));
+        definition.setOnOrAfter(onOrAfter);
+        definition.setOnOrBefore(END);
+        return definition;
+    }
+
+    static CodedObsCohortDefinition coded(int questionId, int answerId, Date onOrAfter) {
+        CodedObsCohortDefinition definition = new CodedObsCohortDefinition();
+        definition.setTimeModifier(TimeModifier.ANY);
+        definition.setQuestion(new Concept(questionId));
+        definition.setOperator(SetComparator.IN);
+        definition.setValueList(Collections.singletonList(new Concept(answerId)));
+        definition.setOnOrAfter(onOrAfter);
+        definition.setOnOrBefore(END);
+        return definition;
+    }
+
+    static NumericObsCohortDefinition numeric(int questionId, RangeComparator operator, Double value, Date onOrAfter) {
+        NumericObsCohortDefinition definition = new NumericObsCohortDefinition();
+        definition.setTimeModifier(TimeModifier.ANY);
+        definition.setQuestion(new Concept(questionId));
+        definition.setOperator1(operator);
+        definition.setValue1(value);
+        definition.setOnOrAfter(onOrAfter);
+        definition.setOnOrBefore(END);
+        return definition;
+    }
+
+    private static CompositionCohortDefinition composition(String compositionString) {
+        CompositionCohortDefinition definition = new CompositionCohortDefinition();
+        definition.addSearch("1", new Mapped<CohortDefinition>(encounters(1, START), new HashMap<String, Object>()));
+        definition.addSearch("2", new Mapped<CohortDefinition>(coded(5, 7, START), new HashMap<String, Object>()));
+        definition.addSearch("3", new Mapped<CohortDefinition>(numeric(5089, RangeComparator.GREATER_THAN, 50d, START), new HashMap<String, Object>()));
+        definition.addSearch("4", new Mapped<CohortDefinition>(encounters(1, null), new HashMap<String, Object>()));
+        definition.setCompositionString(compositionString);
+        return definition;
+    }
+}
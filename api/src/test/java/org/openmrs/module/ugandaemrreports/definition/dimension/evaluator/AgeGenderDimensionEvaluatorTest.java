@@ -0,0 +1,48 @@
+package org.openmrs.module.ugandaemrreports.definition.dimension.evaluator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AgeGenderDimensionEvaluatorTest {
+
+    private static final int END_DATE = 20190331;
+
+    @Test
+    public void bucket_shouldCountCompletedYearsOnTheBirthday() {
+        assertEquals(15 + 1, AgeGenderDimensionEvaluator.bucket(20040331, END_DATE));
+        assertEquals(14 + 1, AgeGenderDimensionEvaluator.bucket(20040401, END_DATE));
+        assertEquals(15 + 1, AgeGenderDimensionEvaluator.bucket(20040330, END_DATE));
+    }
+
+    @Test
+    public void bucket_shouldCountYearsAcrossMonthEnds() {
+        assertEquals(0 + 1, AgeGenderDimensionEvaluator.bucket(20181231, END_DATE));
+        assertEquals(0 + 1, AgeGenderDimensionEvaluator.bucket(END_DATE, END_DATE));
+        assertEquals(1 + 1, AgeGenderDimensionEvaluator.bucket(20160229, 20170301));
+        assertEquals(0 + 1, AgeGenderDimensionEvaluator.bucket(20160229, 20170228));
+    }
+
+    @Test
+    public void bucket_shouldPutPatientsBornAfterTheEndDateBeforeAgeZero() {
+        assertEquals(0, AgeGenderDimensionEvaluator.bucket(20190401, END_DATE));
+    }
+
+    @Test
+    public void bucket_shouldPutPatientsWithoutABirthdateLast() {
+        assertEquals(AgeGenderDimensionEvaluator.MAX_AGE + 2, AgeGenderDimensionEvaluator.bucket(AgeGenderIndex.UNKNOWN, END_DATE));
+    }
+
+    @Test
+    public void bucket_shouldShareTheOldestBucket() {
+        assertEquals(AgeGenderDimensionEvaluator.MAX_AGE + 1, AgeGenderDimensionEvaluator.bucket(18000101, END_DATE));
+    }
+
+    @Test
+    public void gender_shouldPutUnknownGendersInOther() {
+        assertEquals(AgeGenderIndex.MALE, AgeGenderIndex.gender("m"));
+        assertEquals(AgeGenderIndex.FEMALE, AgeGenderIndex.gender("F"));
+        assertEquals(AgeGenderIndex.OTHER, AgeGenderIndex.gender(null));
+        assertEquals(AgeGenderIndex.OTHER, AgeGenderIndex.gender("O"));
+    }
+}
@@ -0,0 +1,111 @@
+package org.openmrs.module.ugandaemrreports.reporting.appointments;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class AppointmentTimelineTest {
+
+    private static final int ART = 1;
+    private static final int OTHER = 2;
+    private static final int NONE = Integer.MIN_VALUE;
+
+    /**
+     * Patient 1 came on 1 Jan with a return date of 1 Feb, came back on 5 Feb with a return date of 5 Mar and never
+     * came back. Patient 2 came once on 1 Jan with no return date. Patient 3 came on 1 Jan with a return date of
+     * 1 Feb and came back early on 25 Jan for ART, then on 1 Feb for something else.
+     */
+    private final AppointmentTimeline timeline = new AppointmentTimeline(
+            new int[]{1, 2, 3},
+            new int[]{0, 2, 3, 6},
+            new int[]{day(2019, 1, 1), day(2019, 2, 5), day(2019, 1, 1), day(2019, 1, 1), day(2019, 1, 25), day(2019, 2, 1)},
+            new int[]{day(2019, 2, 1), day(2019, 3, 5), NONE, day(2019, 2, 1), NONE, NONE},
+            new int[]{ART, ART, ART, ART, ART, OTHER},
+            new BitSet());
+
+    @Test
+    public void daysLate_shouldBeNullWithoutAVisitBeforeTheReferenceDate() {
+        assertNull(timeline.daysLate(1, date(2019, 1, 1)));
+        assertNull(timeline.daysLate(4, date(2019, 6, 1)));
+        assertNull(timeline.daysLate(null, date(2019, 6, 1)));
+    }
+
+    @Test
+    public void daysLate_shouldCountFromTheLastVisitWithoutAnAppointment() {
+        assertEquals(Integer.valueOf(10), timeline.daysLate(2, date(2019, 1, 11)));
+    }
+
+    @Test
+    public void daysLate_shouldBeHowLateTheLastVisitCameAfterTheAppointment() {
+        assertEquals(Integer.valueOf(4), timeline.daysLate(1, date(2019, 2, 10)));
+        assertEquals(Integer.valueOf(4), timeline.daysLate(1, date(2019, 3, 5)));
+    }
+
+    @Test
+    public void daysLate_shouldCountFromAMissedAppointment() {
+        assertEquals(Integer.valueOf(1), timeline.daysLate(1, date(2019, 3, 6)));
+        assertEquals(Integer.valueOf(92), timeline.daysLate(1, date(2019, 6, 5)));
+    }
+
+    @Test
+    public void daysLate_shouldIgnoreAppointmentsNotYetDue() {
+        assertEquals(Integer.valueOf(9), timeline.daysLate(3, date(2019, 1, 10)));
+    }
+
+    @Test
+    public void status_shouldClassifyByTheThresholds() {
+        assertEquals(AppointmentTimeline.Status.ACTIVE, AppointmentTimeline.status(-3, 8, 90));
+        assertEquals(AppointmentTimeline.Status.ACTIVE, AppointmentTimeline.status(0, 8, 90));
+        assertEquals(AppointmentTimeline.Status.MISSED, AppointmentTimeline.status(1, 8, 90));
+        assertEquals(AppointmentTimeline.Status.MISSED, AppointmentTimeline.status(7, 8, 90));
+        assertEquals(AppointmentTimeline.Status.LOST, AppointmentTimeline.status(8, 8, 90));
+        assertEquals(AppointmentTimeline.Status.LOST, AppointmentTimeline.status(89, 8, 90));
+        assertEquals(AppointmentTimeline.Status.DROPPED, AppointmentTimeline.status(90, 8, 90));
+    }
+
+    @Test
+    public void status_shouldUseTheDaysLateOnTheReferenceDate() {
+        int lost = AppointmentTimeline.HMIS_LOST_DAYS;
+        int dropped = AppointmentTimeline.DROPPED_DAYS;
+
+        assertEquals(AppointmentTimeline.Status.ACTIVE, timeline.status(3, date(2019, 2, 2), lost, dropped));
+        assertEquals(AppointmentTimeline.Status.MISSED, timeline.status(1, date(2019, 3, 6), lost, dropped));
+        assertEquals(AppointmentTimeline.Status.LOST, timeline.status(1, date(2019, 3, 13), lost, dropped));
+        assertEquals(AppointmentTimeline.Status.DROPPED, timeline.status(1, date(2019, 6, 3), lost, dropped));
+        assertNull(timeline.status(4, date(2019, 6, 3), lost, dropped));
+    }
+
+    @Test
+    public void daysLateAtVisits_shouldLeaveOutVisitsWithoutAnEarlierAppointment() {
+        assertEquals(Collections.singletonList(4), timeline.daysLateAtVisits(1, date(2019, 1, 1), date(2019, 12, 31), ART));
+        assertEquals(Collections.<Integer>emptyList(), timeline.daysLateAtVisits(2, date(2019, 1, 1), date(2019, 12, 31), ART));
+        assertEquals(Collections.<Integer>emptyList(), timeline.daysLateAtVisits(4, date(2019, 1, 1), date(2019, 12, 31), ART));
+    }
+
+    @Test
+    public void daysLateAtVisits_shouldCountEarlyVisitsAsNegative() {
+        assertEquals(Collections.singletonList(-7), timeline.daysLateAtVisits(3, date(2019, 1, 1), date(2019, 12, 31), ART));
+    }
+
+    @Test
+    public void daysLateAtVisits_shouldOnlyCountVisitsOfTheEncounterTypeInThePeriod() {
+        assertEquals(Collections.singletonList(0), timeline.daysLateAtVisits(3, date(2019, 1, 1), date(2019, 12, 31), OTHER));
+        assertEquals(Collections.<Integer>emptyList(), timeline.daysLateAtVisits(1, date(2019, 1, 1), date(2019, 2, 4), ART));
+        assertEquals(Arrays.asList(4), timeline.daysLateAtVisits(1, date(2019, 2, 5), date(2019, 2, 5), ART));
+    }
+
+    private static int day(int year, int month, int day) {
+        return (int) LocalDate.of(year, month, day).toEpochDay();
+    }
+
+    private static Date date(int year, int month, int day) {
+        return AppointmentTimeline.date(day(year, month, day));
+    }
+}
@@ -0,0 +1,39 @@
+package org.openmrs.module.ugandaemrreports.reporting.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DataEvaluationBatchingTest {
+
+    private static final long GIGABYTE = 1L << 30;
+
+    @Test
+    public void batchSize_shouldNotSplitCohortsThatFitTheHeap() {
+        assertEquals(5000, DataEvaluationBatching.batchSize(5000, 0, GIGABYTE));
+        assertEquals(0, DataEvaluationBatching.batchSize(0, 0, GIGABYTE));
+    }
+
+    @Test
+    public void batchSize_shouldCutLargeCohortsInEqualBatches() {
+        // a quarter of a gigabyte holds 8192 patients, 20000 patients take 3 batches
+        assertEquals(6667, DataEvaluationBatching.batchSize(20000, 0, GIGABYTE));
+    }
+
+    @Test
+    public void batchSize_shouldKeepBatchesWithinTheBounds() {
+        assertEquals(334, DataEvaluationBatching.batchSize(1001, 0, 0));
+        assertEquals(16667, DataEvaluationBatching.batchSize(50000, 0, 1000 * GIGABYTE));
+    }
+
+    @Test
+    public void batchSize_shouldUseAFixedSizeFromTheGlobalProperty() {
+        assertEquals(1000, DataEvaluationBatching.batchSize(5000, 1000, GIGABYTE));
+        assertEquals(10, DataEvaluationBatching.batchSize(10, 1000, 0));
+    }
+
+    @Test
+    public void batchSize_shouldEvaluateTheWholeCohortWhenBatchingIsOff() {
+        assertEquals(50000, DataEvaluationBatching.batchSize(50000, -1, 0));
+    }
+}
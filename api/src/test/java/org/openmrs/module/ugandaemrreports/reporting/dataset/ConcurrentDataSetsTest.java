@@ -0,0 +1,77 @@
+package org.openmrs.module.ugandaemrreports.reporting.dataset;
+
+import org.junit.Test;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.reporting.dataset.DataSet;
+import org.openmrs.module.reporting.dataset.DataSetColumn;
+import org.openmrs.module.reporting.dataset.DataSetRow;
+import org.openmrs.module.reporting.dataset.definition.DataSetDefinition;
+import org.openmrs.module.reporting.dataset.definition.SqlDataSetDefinition;
+import org.openmrs.module.reporting.dataset.definition.service.DataSetDefinitionService;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+import org.openmrs.module.reporting.evaluation.parameter.Mapped;
+import org.openmrs.module.ugandaemrreports.definition.dataset.definition.TodayDateDatasetDefinition;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentDataSetsTest extends BaseModuleContextSensitiveTest {
+
+    @Test
+    public void evaluate_shouldMatchTheDataSetsEvaluatedOneAfterTheOther() throws Exception {
+        List<Mapped<? extends DataSetDefinition>> dataSets = Arrays.<Mapped<? extends DataSetDefinition>>asList(
+                sql("patients", "select patient_id from patient where voided = 0 order by patient_id"),
+                sql("encounters", "select encounter_id, patient_id, encounter_type from encounter order by encounter_id"),
+                sql("obs", "select obs_id, person_id, concept_id from obs where voided = 0 order by obs_id"),
+                map(new TodayDateDatasetDefinition()));
+
+        Map<String, DataSet> parallel = ConcurrentDataSets.evaluate(dataSets, new EvaluationContext(), 2);
+
+        DataSetDefinitionService service = Context.getService(DataSetDefinitionService.class);
+        for (Mapped<? extends DataSetDefinition> dataSet : dataSets) {
+            String key = ConcurrentDataSets.getKey(dataSet);
+            if (ConcurrentDataSets.isSerial(dataSet.getParameterizable())) {
+                assertFalse(parallel.containsKey(key));
+                continue;
+            }
+            List<Map<String, Object>> serial = rows(service.evaluate(dataSet, new EvaluationContext()));
+            assertFalse(serial.isEmpty());
+            assertEquals(dataSet.getParameterizable().getName(), serial, rows(parallel.get(key)));
+        }
+    }
+
+    @Test
+    public void isSerial_shouldLeaveTheDataSetsAddingContextValuesToTheReportService() {
+        assertTrue(ConcurrentDataSets.isSerial(new TodayDateDatasetDefinition()));
+        assertFalse(ConcurrentDataSets.isSerial(new SqlDataSetDefinition()));
+    }
+
+    private static Mapped<? extends DataSetDefinition> sql(String name, String query) {
+        return map(new SqlDataSetDefinition(name, null, query));
+    }
+
+    private static Mapped<? extends DataSetDefinition> map(DataSetDefinition definition) {
+        return new Mapped<DataSetDefinition>(definition, new HashMap<String, Object>());
+    }
+
+    private static List<Map<String, Object>> rows(DataSet dataSet) {
+        List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
+        for (DataSetRow row : dataSet) {
+            Map<String, Object> values = new LinkedHashMap<String, Object>();
+            for (Map.Entry<DataSetColumn, Object> value : row.getColumnValues().entrySet()) {
+                values.put(value.getKey().getName(), value.getValue());
+            }
+            rows.add(values);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,76 @@
+package org.openmrs.module.ugandaemrreports.reporting.execution;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the take over and release of report requests against an in-memory table holding the columns they use
+ */
+public class ReportExecutorTest {
+
+    private Connection connection;
+
+    @Before
+    public void createTable() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:report_requests;MODE=MySQL", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE reporting_report_request (uuid VARCHAR(38) PRIMARY KEY, status VARCHAR(50))");
+            statement.execute("INSERT INTO reporting_report_request (uuid, status) VALUES ('requested', 'REQUESTED'), "
+                    + "('queued', 'REQUESTED'), ('completed', 'COMPLETED')");
+        }
+    }
+
+    @After
+    public void dropTable() throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Test
+    public void takeOver_shouldTakeARequestOnlyOnceAndOnlyWhileRequested() throws Exception {
+        assertTrue(ReportExecutor.takeOver(connection, "requested"));
+        assertEquals("PROCESSING", status("requested"));
+
+        assertFalse(ReportExecutor.takeOver(connection, "requested"));
+        assertFalse(ReportExecutor.takeOver(connection, "completed"));
+        assertEquals("COMPLETED", status("completed"));
+    }
+
+    @Test
+    public void release_shouldPutTheRequestsStillProcessingBackToRequested() throws Exception {
+        ReportExecutor.takeOver(connection, "requested");
+        ReportExecutor.takeOver(connection, "queued");
+
+        assertEquals(1, ReportExecutor.release(connection, Arrays.asList("queued", "completed")));
+
+        assertEquals("REQUESTED", status("queued"));
+        assertEquals("PROCESSING", status("requested"));
+        assertEquals("COMPLETED", status("completed"));
+        assertEquals(0, ReportExecutor.release(connection, Collections.<String>emptyList()));
+    }
+
+    private String status(String uuid) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT status FROM reporting_report_request WHERE uuid = ?")) {
+            statement.setString(1, uuid);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+}
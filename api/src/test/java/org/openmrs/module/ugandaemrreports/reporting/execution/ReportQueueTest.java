@@ -0,0 +1,108 @@
+package org.openmrs.module.ugandaemrreports.reporting.execution;
+
+import org.junit.Test;
+import org.openmrs.module.reporting.report.ReportRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ReportQueueTest {
+
+    private final ReportQueue queue = new ReportQueue();
+
+    @Test
+    public void start_shouldStartNoMoreThanTheMaximumRunning() {
+        add("a", "admin", null);
+        add("b", "clerk", null);
+        add("c", "nurse", null);
+
+        assertEquals(Arrays.asList("a", "b"), uuids(queue.start(2, 1)));
+        assertEquals(2, queue.getRunning());
+        assertEquals(1, queue.getQueued());
+        assertTrue(queue.start(2, 1).isEmpty());
+    }
+
+    @Test
+    public void start_shouldLeaveTheRequestsOfAUserRunningAsManyAsAllowed() {
+        ReportQueue.Entry first = add("a", "admin", null);
+        add("b", "admin", null);
+        add("c", "clerk", null);
+
+        assertEquals(Arrays.asList("a", "c"), uuids(queue.start(3, 1)));
+        assertEquals(ReportExecutor.State.QUEUED, queue.get("b").getState());
+
+        assertTrue(queue.finished(first));
+        assertEquals(Collections.singletonList("b"), uuids(queue.start(3, 1)));
+    }
+
+    @Test
+    public void start_shouldStartTheHighestPriorityFirstThenInOrderOfSubmission() {
+        add("normal", "admin", ReportRequest.Priority.NORMAL);
+        add("low", "clerk", ReportRequest.Priority.LOW);
+        add("default", "nurse", null);
+        add("high", "doctor", ReportRequest.Priority.HIGH);
+
+        assertEquals(Arrays.asList("high", "normal", "default", "low"), uuids(queue.start(4, 1)));
+    }
+
+    @Test
+    public void getPosition_shouldCountTheQueuedRequestsStartingBefore() {
+        ReportQueue.Entry running = add("a", "admin", null);
+        queue.start(1, 1);
+        ReportQueue.Entry normal = add("b", "admin", null);
+        ReportQueue.Entry high = add("c", "admin", ReportRequest.Priority.HIGH);
+
+        assertEquals(0, queue.getPosition(running));
+        assertEquals(0, queue.getPosition(high));
+        assertEquals(1, queue.getPosition(normal));
+    }
+
+    @Test
+    public void getByKey_shouldFindAQueuedOrRunningRequestUntilItFinishes() {
+        ReportQueue.Entry entry = add("a", "admin", null);
+        assertSame(entry, queue.getByKey("key-a"));
+        queue.start(1, 1);
+        assertSame(entry, queue.getByKey("key-a"));
+
+        assertTrue(queue.finished(entry));
+
+        assertNull(queue.getByKey("key-a"));
+        assertNull(queue.get("a"));
+        assertEquals(0, queue.getRunning());
+    }
+
+    @Test
+    public void clear_shouldReturnTheQueuedRequestsAndForgetTheRunningOnes() {
+        ReportQueue.Entry running = add("a", "admin", null);
+        queue.start(1, 1);
+        add("b", "clerk", null);
+        add("c", "nurse", null);
+
+        List<String> queued = queue.clear();
+
+        assertEquals(Arrays.asList("b", "c"), queued);
+        assertEquals(0, queue.getRunning());
+        assertEquals(0, queue.getQueued());
+        assertFalse(queue.finished(running));
+    }
+
+    private ReportQueue.Entry add(String uuid, String user, ReportRequest.Priority priority) {
+        return queue.add(uuid, "key-" + uuid, user, priority);
+    }
+
+    private static List<String> uuids(List<ReportQueue.Entry> entries) {
+        List<String> uuids = new ArrayList<>();
+        for (ReportQueue.Entry entry : entries) {
+            uuids.add(entry.getRequestUuid());
+        }
+        return uuids;
+    }
+}
@@ -0,0 +1,94 @@
+package org.openmrs.module.ugandaemrreports.reporting.execution;
+
+import org.junit.Test;
+import org.openmrs.Cohort;
+import org.openmrs.Location;
+import org.openmrs.module.reporting.evaluation.parameter.Mapped;
+import org.openmrs.module.reporting.report.ReportRequest;
+import org.openmrs.module.reporting.report.definition.ReportDefinition;
+import org.openmrs.module.reporting.report.renderer.RenderingMode;
+import org.openmrs.module.ugandaemrreports.reporting.renderer.LineListReportRenderer;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class ReportRequestKeyTest {
+
+    @Test
+    public void of_shouldIgnoreTheOrderOfTheParameters() {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("startDate", date(2019, 1, 1, 0));
+        first.put("endDate", date(2019, 1, 31, 0));
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("endDate", date(2019, 1, 31, 0));
+        second.put("startDate", date(2019, 1, 1, 0));
+
+        assertEquals(ReportRequestKey.of(request("report", first, "design")), ReportRequestKey.of(request("report", second, "design")));
+    }
+
+    @Test
+    public void of_shouldWriteMidnightAsADayAndKeepOtherTimes() {
+        String key = ReportRequestKey.of(request("report", parameters("endDate", date(2019, 1, 31, 0)), "design"));
+        String withTime = ReportRequestKey.of(request("report", parameters("endDate", date(2019, 1, 31, 10)), "design"));
+
+        assertEquals("report|endDate=2019-01-31|" + LineListReportRenderer.class.getName() + ":design", key);
+        assertNotEquals(key, withTime);
+        assertEquals(key, ReportRequestKey.of(request("report", parameters("endDate", new java.sql.Date(date(2019, 1, 31, 0).getTime())), "design")));
+    }
+
+    @Test
+    public void of_shouldWriteMetadataByUuidAndCohortsAndCollectionsSorted() {
+        Location location = new Location();
+        location.setUuid("location-uuid");
+        Location sameLocation = new Location(7);
+        sameLocation.setUuid("location-uuid");
+
+        Map<String, Object> first = parameters("location", location);
+        first.put("cohort", new Cohort(Arrays.asList(3, 1, 2)));
+        first.put("codes", Arrays.asList("b", "a"));
+        Map<String, Object> second = parameters("location", sameLocation);
+        second.put("cohort", new Cohort(Arrays.asList(1, 2, 3)));
+        second.put("codes", Arrays.asList("a", "b"));
+
+        String key = ReportRequestKey.of(request("report", first, "design"));
+        assertEquals(key, ReportRequestKey.of(request("report", second, "design")));
+        assertEquals("report|codes=[a, b]|cohort=[1, 2, 3]|location=location-uuid|" + LineListReportRenderer.class.getName() + ":design", key);
+    }
+
+    @Test
+    public void of_shouldTellApartReportsParameterValuesAndDesigns() {
+        String key = ReportRequestKey.of(request("report", parameters("endDate", date(2019, 1, 31, 0)), "design"));
+
+        assertNotEquals(key, ReportRequestKey.of(request("other", parameters("endDate", date(2019, 1, 31, 0)), "design")));
+        assertNotEquals(key, ReportRequestKey.of(request("report", parameters("endDate", date(2019, 2, 28, 0)), "design")));
+        assertNotEquals(key, ReportRequestKey.of(request("report", parameters("endDate", date(2019, 1, 31, 0)), "other")));
+    }
+
+    private static ReportRequest request(String reportUuid, Map<String, Object> parameters, String designUuid) {
+        ReportDefinition definition = new ReportDefinition();
+        definition.setUuid(reportUuid);
+        ReportRequest request = new ReportRequest();
+        request.setReportDefinition(new Mapped<ReportDefinition>(definition, parameters));
+        request.setRenderingMode(new RenderingMode(new LineListReportRenderer(), "Line list", designUuid, 0));
+        return request;
+    }
+
+    private static Map<String, Object> parameters(String name, Object value) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put(name, value);
+        return parameters;
+    }
+
+    private static Date date(int year, int month, int day, int hour) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, 0);
+        return calendar.getTime();
+    }
+}
@@ -0,0 +1,85 @@
+package org.openmrs.module.ugandaemrreports.reporting.execution;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ResultCacheTest {
+
+    private static final long MAX_AGE = 1000;
+
+    private final ResultCache cache = new ResultCache();
+
+    @Test
+    public void get_shouldReturnTheRequestWhileTheDataVersionIsTheSame() {
+        cache.put("key", "request", "10|20", 0, 10);
+
+        assertEquals("request", cache.get("key", MAX_AGE, MAX_AGE, version("10|20")));
+        assertEquals("request", cache.get("key", 0, MAX_AGE, version("10|20")));
+    }
+
+    @Test
+    public void get_shouldForgetTheRequestOnceTheDataVersionChanged() {
+        cache.put("key", "request", "10|20", 0, 10);
+
+        assertNull(cache.get("key", 0, MAX_AGE, version("11|20")));
+        assertEquals(0, cache.size());
+        assertNull(cache.get("key", 0, MAX_AGE, version("10|20")));
+    }
+
+    @Test
+    public void get_shouldForgetTheRequestOnceOlderThanTheMaximumAge() {
+        cache.put("key", "request", "10|20", 0, 10);
+
+        assertNull(cache.get("key", MAX_AGE + 1, MAX_AGE, version("10|20")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void get_shouldMissWhenTheDataVersionCannotBeRead() {
+        cache.put("key", "request", "10|20", 0, 10);
+
+        assertNull(cache.get("key", 0, MAX_AGE, version(null)));
+    }
+
+    @Test
+    public void get_shouldNotReadTheDataVersionWithoutARequestForTheKey() {
+        final AtomicInteger reads = new AtomicInteger();
+        cache.put("key", "request", "10|20", 0, 10);
+
+        assertNull(cache.get("other", 0, MAX_AGE, () -> {
+            reads.incrementAndGet();
+            return "10|20";
+        }));
+        assertEquals(0, reads.get());
+    }
+
+    @Test
+    public void put_shouldNotRememberARequestWithoutADataVersion() {
+        cache.put("key", "request", null, 0, 10);
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void put_shouldDropTheLeastRecentlyUsedPastTheMaximumSize() {
+        cache.put("a", "request-a", "1", 0, 2);
+        cache.put("b", "request-b", "1", 0, 2);
+        cache.get("a", 0, MAX_AGE, version("1"));
+
+        cache.put("c", "request-c", "1", 0, 2);
+
+        assertEquals(2, cache.size());
+        assertEquals("request-a", cache.get("a", 0, MAX_AGE, version("1")));
+        assertNull(cache.get("b", 0, MAX_AGE, version("1")));
+        assertEquals("request-c", cache.get("c", 0, MAX_AGE, version("1")));
+    }
+
+    private static Supplier<String> version(String version) {
+        return () -> version;
+    }
+}
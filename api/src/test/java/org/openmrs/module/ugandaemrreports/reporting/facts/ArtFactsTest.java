@@ -0,0 +1,180 @@
+package org.openmrs.module.ugandaemrreports.reporting.facts;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Runs the backfill, reconcile and refresh of the ART facts against an in-memory database holding the columns they
+ * read
+ */
+public class ArtFactsTest {
+
+    private static final String OLD = "2000-01-01 00:00:00";
+
+    private Connection connection;
+
+    @Before
+    public void createTables() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:art_facts;MODE=MySQL", "sa", "");
+        execute("CREATE TABLE person (person_id INT PRIMARY KEY, death_date TIMESTAMP, date_changed TIMESTAMP, date_voided TIMESTAMP)",
+                "CREATE TABLE patient (patient_id INT PRIMARY KEY, voided INT DEFAULT 0, date_created TIMESTAMP, date_changed TIMESTAMP, date_voided TIMESTAMP)",
+                "CREATE TABLE obs (obs_id INT PRIMARY KEY, person_id INT, concept_id INT, value_datetime TIMESTAMP, voided INT DEFAULT 0, date_voided TIMESTAMP)",
+                "CREATE TABLE " + ArtFacts.TABLE + " (patient_id INT PRIMARY KEY, art_start_date TIMESTAMP, transfer_out_date TIMESTAMP, death_date TIMESTAMP, date_updated TIMESTAMP)",
+                "CREATE TABLE " + ArtFacts.STATE_TABLE + " (name VARCHAR(50) PRIMARY KEY, value VARCHAR(255))");
+        for (int patientId = 1; patientId <= 3; patientId++) {
+            execute("INSERT INTO person (person_id) VALUES (" + patientId + ")",
+                    "INSERT INTO patient (patient_id, date_created) VALUES (" + patientId + ", '" + OLD + "')");
+        }
+        execute("INSERT INTO obs (obs_id, person_id, concept_id, value_datetime) VALUES (1, 1, 99161, '2018-03-01 00:00:00')",
+                "INSERT INTO obs (obs_id, person_id, concept_id, value_datetime) VALUES (2, 1, 99161, '2018-01-01 00:00:00')",
+                "INSERT INTO obs (obs_id, person_id, concept_id, value_datetime) VALUES (3, 2, 99165, '2019-02-01 00:00:00')",
+                "INSERT INTO obs (obs_id, person_id, concept_id, value_datetime) VALUES (4, 3, 90272, '2019-05-01 00:00:00')",
+                "UPDATE person SET death_date = '2019-04-01 00:00:00' WHERE person_id = 3");
+    }
+
+    @After
+    public void dropTables() throws Exception {
+        ArtFacts.stop();
+        execute("DROP ALL OBJECTS");
+        connection.close();
+    }
+
+    @Test
+    public void backfill_shouldFillEveryPatientAndMarkTheTableComplete() throws Exception {
+        ArtFacts.backfill(connection);
+
+        assertEquals(Arrays.asList("2018-01-01", null, null), facts(1));
+        assertEquals(Arrays.asList(null, "2019-02-01", null), facts(2));
+        assertEquals(Arrays.asList(null, null, "2019-04-01"), facts(3));
+        assertEquals(ArtFacts.COMPLETE, state(ArtFacts.STATE_NAME));
+        assertNotNull(state(ArtFacts.SYNC_STATE_NAME));
+    }
+
+    @Test
+    public void backfill_shouldResumeAfterTheStoredPatient() throws Exception {
+        execute("INSERT INTO " + ArtFacts.STATE_TABLE + " (name, value) VALUES ('" + ArtFacts.STATE_NAME + "', '1')",
+                "INSERT INTO " + ArtFacts.STATE_TABLE + " (name, value) VALUES ('" + ArtFacts.SYNC_STATE_NAME + "', '" + OLD + "|4|3')");
+
+        ArtFacts.backfill(connection);
+
+        assertEquals(2, count());
+        assertNull(facts(1));
+        assertEquals(Arrays.asList(null, "2019-02-01", null), facts(2));
+        assertEquals(ArtFacts.COMPLETE, state(ArtFacts.STATE_NAME));
+    }
+
+    @Test
+    public void backfill_shouldStartOverWithoutAMark() throws Exception {
+        execute("INSERT INTO " + ArtFacts.STATE_TABLE + " (name, value) VALUES ('" + ArtFacts.STATE_NAME + "', '2')");
+
+        ArtFacts.backfill(connection);
+
+        assertEquals(3, count());
+    }
+
+    @Test
+    public void backfill_shouldOnlyRefreshThePatientsChangedSinceTheMarkOnceComplete() throws Exception {
+        ArtFacts.backfill(connection);
+        String mark = state(ArtFacts.SYNC_STATE_NAME);
+        // stale rows the reconcile must leave alone
+        execute("UPDATE " + ArtFacts.TABLE + " SET death_date = '2001-01-01 00:00:00'");
+        // a new ART start obs for patient 2 and a death date changed on patient 3
+        execute("INSERT INTO obs (obs_id, person_id, concept_id, value_datetime) VALUES (5, 2, 99161, '2019-03-01 00:00:00')",
+                "UPDATE person SET death_date = '2019-03-15 00:00:00', date_changed = NOW() WHERE person_id = 3");
+
+        ArtFacts.backfill(connection);
+
+        assertEquals(Arrays.asList("2018-01-01", null, "2001-01-01"), facts(1));
+        assertEquals(Arrays.asList("2019-03-01", "2019-02-01", null), facts(2));
+        assertEquals(Arrays.asList(null, null, "2019-03-15"), facts(3));
+        String next = state(ArtFacts.SYNC_STATE_NAME);
+        assertEquals("5", next.split("\\|")[1]);
+        assertEquals(mark.split("\\|")[2], next.split("\\|")[2]);
+    }
+
+    @Test
+    public void backfill_shouldRefreshNewPatientsAndVoidedObsOnReconcile() throws Exception {
+        ArtFacts.backfill(connection);
+        execute("INSERT INTO person (person_id) VALUES (4)",
+                "INSERT INTO patient (patient_id, date_created) VALUES (4, NOW())",
+                "INSERT INTO obs (obs_id, person_id, concept_id, value_datetime) VALUES (5, 4, 99161, '2019-06-01 00:00:00')",
+                "UPDATE obs SET voided = 1, date_voided = NOW() WHERE obs_id = 2");
+
+        ArtFacts.backfill(connection);
+
+        assertEquals(Arrays.asList("2018-03-01", null, null), facts(1));
+        assertEquals(Arrays.asList("2019-06-01", null, null), facts(4));
+    }
+
+    @Test
+    public void refresh_shouldReplaceTheRowsOfThePatientsAndDropVoidedPatients() throws Exception {
+        ArtFacts.refresh(connection, Arrays.asList(1, 2, 3));
+        execute("INSERT INTO obs (obs_id, person_id, concept_id, value_datetime) VALUES (5, 1, 99165, '2019-07-01 00:00:00')",
+                "UPDATE patient SET voided = 1 WHERE patient_id = 3");
+
+        ArtFacts.refresh(connection, Arrays.asList(1, 3));
+
+        assertEquals(Arrays.asList("2018-01-01", "2019-07-01", null), facts(1));
+        assertEquals(Arrays.asList(null, "2019-02-01", null), facts(2));
+        assertNull(facts(3));
+    }
+
+    private void execute(String... statements) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    /**
+     * @return the ART start, transfer out and death dates of the patient, null when the table has no row for it
+     */
+    private List<String> facts(int patientId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT art_start_date, transfer_out_date, death_date FROM "
+                + ArtFacts.TABLE + " WHERE patient_id = ?")) {
+            statement.setInt(1, patientId);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return Arrays.asList(day(rs.getTimestamp(1)), day(rs.getTimestamp(2)), day(rs.getTimestamp(3)));
+            }
+        }
+    }
+
+    private int count() throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + ArtFacts.TABLE)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private String state(String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT value FROM " + ArtFacts.STATE_TABLE + " WHERE name = ?")) {
+            statement.setString(1, name);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private static String day(Date date) {
+        return date == null ? null : new java.sql.Date(date.getTime()).toString();
+    }
+}
@@ -0,0 +1,67 @@
+package org.openmrs.module.ugandaemrreports.reporting.renderer;
+
+import org.junit.Test;
+import org.openmrs.module.reporting.data.patient.definition.PatientIdDataDefinition;
+import org.openmrs.module.reporting.dataset.DataSetColumn;
+import org.openmrs.module.reporting.dataset.DataSetRow;
+import org.openmrs.module.reporting.dataset.SimpleDataSet;
+import org.openmrs.module.reporting.dataset.definition.PatientDataSetDefinition;
+import org.openmrs.module.reporting.evaluation.EvaluationContext;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+
+public class LineListReportRendererTest {
+
+    @Test
+    public void writeLines_shouldWriteTheColumnsInTheOrderOfTheDataSetDefinition() throws Exception {
+        PatientDataSetDefinition definition = new PatientDataSetDefinition();
+        definition.addColumn("id", new PatientIdDataDefinition(), "");
+        definition.addColumn("name", new PatientIdDataDefinition(), "");
+        definition.addColumn("age", new PatientIdDataDefinition(), "");
+        SimpleDataSet dataSet = new SimpleDataSet(definition, new EvaluationContext());
+        // the evaluator added the values in another order and a column the definition does not declare
+        dataSet.addRow(row("age", 30, "extra", "x", "name", "Jane", "id", 1));
+
+        assertEquals("id,name,age,extra\r\n1,Jane,30,x\r\n", write(dataSet, false));
+    }
+
+    @Test
+    public void writeLines_shouldQuoteValuesHoldingSeparatorsQuotesOrLineBreaks() throws Exception {
+        SimpleDataSet dataSet = new SimpleDataSet(new PatientDataSetDefinition(), new EvaluationContext());
+        dataSet.addRow(row("names", "Doe, John", "remark", "said \"yes\"", "address", "Kampala\nUganda", "clinic", "ART"));
+
+        assertEquals("names,remark,address,clinic\r\n\"Doe, John\",\"said \"\"yes\"\"\",\"Kampala\nUganda\",ART\r\n",
+                write(dataSet, false));
+    }
+
+    @Test
+    public void writeLines_shouldWriteNotFiniteNumbersAsNullInJsonLines() throws Exception {
+        SimpleDataSet dataSet = new SimpleDataSet(new PatientDataSetDefinition(), new EvaluationContext());
+        dataSet.addRow(row("ratio", Double.NaN, "rate", Double.POSITIVE_INFINITY, "weight", Float.NEGATIVE_INFINITY,
+                "cd4", 350.5, "remark", "say \"hi\""));
+
+        assertEquals("{\"ratio\":null,\"rate\":null,\"weight\":null,\"cd4\":350.5,\"remark\":\"say \\\"hi\\\"\"}\n",
+                write(dataSet, true));
+    }
+
+    /**
+     * @param values column names each followed by its value
+     */
+    private static DataSetRow row(Object... values) {
+        DataSetRow row = new DataSetRow();
+        for (int i = 0; i < values.length; i += 2) {
+            Object value = values[i + 1];
+            row.addColumnValue(new DataSetColumn((String) values[i], (String) values[i], value.getClass()), value);
+        }
+        return row;
+    }
+
+    private static String write(SimpleDataSet dataSet, boolean json) throws IOException {
+        StringWriter writer = new StringWriter();
+        new LineListReportRenderer().writeLines(dataSet, json, writer);
+        return writer.toString();
+    }
+}
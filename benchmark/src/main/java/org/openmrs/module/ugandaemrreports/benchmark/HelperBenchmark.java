@@ -0,0 +1,121 @@
+package org.openmrs.module.ugandaemrreports.benchmark;
+
+import org.openmrs.module.ugandaemrreports.common.ObsData;
+import org.openmrs.module.ugandaemrreports.common.ObsDataStore;
+import org.openmrs.module.ugandaemrreports.common.PatientObsStore;
+import org.openmrs.module.ugandaemrreports.common.PeriodKeys;
+import org.openmrs.module.ugandaemrreports.common.PersonDemographics;
+import org.openmrs.module.ugandaemrreports.reports.Helper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Obs lookups and string parsing done for every patient of the ART and Pre-ART registers
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HelperBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int patients;
+
+    private List<PatientObsStore> stores;
+    private List<List<ObsData>> viralLoads;
+    private List<PersonDemographics> demographics;
+    private List<String> codedAnswers;
+    private int[] months;
+
+    @Setup
+    public void setUp() {
+        SyntheticData data = new SyntheticData(42);
+        Map<Integer, Date> artStartDates = data.artStartDates(patients);
+        ObsDataStore store = data.obs(artStartDates, 72);
+        stores = new ArrayList<>(patients);
+        viralLoads = new ArrayList<>(patients);
+        codedAnswers = new ArrayList<>(patients);
+        for (Integer patient : artStartDates.keySet()) {
+            PatientObsStore patientData = store.get(patient);
+            stores.add(patientData);
+            viralLoads.add(Helper.getDataAsList(patientData, "856"));
+            StringBuilder answers = new StringBuilder();
+            for (ObsData obs : patientData.getAll("90221")) {
+                if (answers.length() > 0) {
+                    answers.append(",");
+                }
+                answers.append(obs.getEncounterId()).append(":").append(obs.getVal());
+            }
+            codedAnswers.add(answers.toString());
+        }
+        demographics = data.demographics(patients);
+        months = PeriodKeys.monthKeys(SyntheticData.COHORT_START, 73);
+    }
+
+    @Benchmark
+    public void getFirstData(Blackhole blackhole) {
+        for (PatientObsStore store : stores) {
+            blackhole.consume(Helper.getData(store, "99161"));
+            blackhole.consume(Helper.getData(store, "99069"));
+            blackhole.consume(Helper.getData(store, "99061"));
+        }
+    }
+
+    @Benchmark
+    public void getMonthlyData(Blackhole blackhole) {
+        for (PatientObsStore store : stores) {
+            for (int month : months) {
+                blackhole.consume(Helper.hasData(store, month));
+                blackhole.consume(Helper.getData(store, month, "90315"));
+            }
+        }
+    }
+
+    @Benchmark
+    public void viralLoad(Blackhole blackhole) {
+        for (List<ObsData> vls : viralLoads) {
+            blackhole.consume(Helper.viralLoad(vls, 6));
+            blackhole.consume(Helper.viralLoad(vls, 12));
+            blackhole.consume(Helper.viralLoad(vls, 24));
+        }
+    }
+
+    @Benchmark
+    public void processString(Blackhole blackhole) {
+        for (PersonDemographics person : demographics) {
+            blackhole.consume(Helper.processString(person.getIdentifiers()));
+        }
+    }
+
+    @Benchmark
+    public void processString2(Blackhole blackhole) {
+        for (PersonDemographics person : demographics) {
+            blackhole.consume(Helper.processString2(person.getAddresses()));
+        }
+    }
+
+    @Benchmark
+    public void processString3(Blackhole blackhole) {
+        for (String answers : codedAnswers) {
+            blackhole.consume(Helper.processString3(answers));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.openmrs.module.ugandaemrreports.benchmark;
+
+import org.openmrs.module.ugandaemrreports.common.PatientBitmap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The indicator x age/gender dimension cells of a MER style data set: 24 age/gender options crossed with 20
+ * indicators, counted with set intersections the way the reporting module does and with bitmap cardinalities
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PatientBitmapBenchmark {
+
+    private static final int OPTIONS = 24;
+    private static final int INDICATORS = 20;
+
+    @Param({"1000", "10000", "100000"})
+    public int patients;
+
+    private List<Set<Integer>> optionSets;
+    private List<Set<Integer>> indicatorSets;
+    private List<PatientBitmap> optionBitmaps;
+    private List<PatientBitmap> indicatorBitmaps;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        optionSets = new ArrayList<>();
+        for (int i = 0; i < OPTIONS; i++) {
+            optionSets.add(new HashSet<Integer>());
+        }
+        for (int patient = 1; patient <= patients; patient++) {
+            optionSets.get(random.nextInt(OPTIONS)).add(patient);
+        }
+        indicatorSets = new ArrayList<>();
+        for (int i = 0; i < INDICATORS; i++) {
+            Set<Integer> indicator = new HashSet<>();
+            // indicators cover from a few to most of the patients
+            double share = (i + 1) / (double) (INDICATORS + 1);
+            for (int patient = 1; patient <= patients; patient++) {
+                if (random.nextDouble() < share) {
+                    indicator.add(patient);
+                }
+            }
+            indicatorSets.add(indicator);
+        }
+        optionBitmaps = new ArrayList<>();
+        for (Set<Integer> option : optionSets) {
+            optionBitmaps.add(PatientBitmap.of(option));
+        }
+        indicatorBitmaps = new ArrayList<>();
+        for (Set<Integer> indicator : indicatorSets) {
+            indicatorBitmaps.add(PatientBitmap.of(indicator));
+        }
+    }
+
+    @Benchmark
+    public void setIntersections(Blackhole blackhole) {
+        for (Set<Integer> indicator : indicatorSets) {
+            for (Set<Integer> option : optionSets) {
+                Set<Integer> cell = new HashSet<>(indicator);
+                cell.retainAll(option);
+                blackhole.consume(cell.size());
+            }
+        }
+    }
+
+    @Benchmark
+    public void bitmapCardinalities(Blackhole blackhole) {
+        for (PatientBitmap indicator : indicatorBitmaps) {
+            for (PatientBitmap option : optionBitmaps) {
+                blackhole.consume(indicator.andCardinality(option));
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.openmrs.module.ugandaemrreports.benchmark;
+
+import org.joda.time.Interval;
+import org.joda.time.LocalDate;
+import org.openmrs.module.ugandaemrreports.common.Enums;
+import org.openmrs.module.ugandaemrreports.common.PeriodKeys;
+import org.openmrs.module.ugandaemrreports.common.Periods;
+import org.openmrs.module.ugandaemrreports.common.ViralLoad;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Placing encounter dates in reporting quarters, the interval based Periods helpers against the int keys of PeriodKeys
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PeriodsBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int patients;
+
+    private TreeMap<String, Interval> quarters;
+    private List<String> dates;
+
+    @Setup
+    public void setUp() {
+        quarters = Periods.getQuarters(SyntheticData.COHORT_START, 24);
+        dates = new ArrayList<>(patients);
+        for (ViralLoad viralLoad : new SyntheticData(42).viralLoads(patients)) {
+            if (dates.size() == patients) {
+                break;
+            }
+            dates.add(SyntheticData.COHORT_START.plusMonths(viralLoad.getMonthsBetweenArtAndViralLoad()).toString("yyyy-MM-dd"));
+        }
+    }
+
+    @Benchmark
+    public TreeMap<String, Interval> getQuarters() {
+        return Periods.getQuarters(SyntheticData.COHORT_START, 24);
+    }
+
+    @Benchmark
+    public List<LocalDate> getDatesDuringPeriods() {
+        return Periods.getDatesDuringPeriods(SyntheticData.COHORT_START, 24, Enums.Period.QUARTERLY);
+    }
+
+    @Benchmark
+    public List<String> listOfDatesInPeriods() {
+        return Periods.listOfDatesInPeriods(quarters, dates);
+    }
+
+    @Benchmark
+    public void isDateInTheInterval(Blackhole blackhole) {
+        for (String date : dates) {
+            blackhole.consume(Periods.isDateInTheInterval(date, quarters));
+        }
+    }
+
+    @Benchmark
+    public void yearQuarter(Blackhole blackhole) {
+        for (String date : dates) {
+            blackhole.consume(PeriodKeys.yearQuarter(date));
+        }
+    }
+}
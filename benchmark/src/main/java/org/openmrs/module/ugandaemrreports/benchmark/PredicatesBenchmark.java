@@ -0,0 +1,118 @@
+package org.openmrs.module.ugandaemrreports.benchmark;
+
+import com.google.common.collect.Collections2;
+import org.openmrs.module.ugandaemrreports.common.PatientARV;
+import org.openmrs.module.ugandaemrreports.common.PatientMonthData;
+import org.openmrs.module.ugandaemrreports.common.ViralLoad;
+import org.openmrs.module.ugandaemrreports.definition.dataset.predicates.PatientARVFilter;
+import org.openmrs.module.ugandaemrreports.definition.dataset.predicates.PatientMonthDataFilter;
+import org.openmrs.module.ugandaemrreports.definition.dataset.predicates.PatientSecondLineARVFilter;
+import org.openmrs.module.ugandaemrreports.definition.dataset.predicates.PatientThirdLineARVFilter;
+import org.openmrs.module.ugandaemrreports.definition.dataset.predicates.ViralLoadFailedFilter;
+import org.openmrs.module.ugandaemrreports.definition.dataset.predicates.ViralLoadNotDetectedFilter;
+import org.openmrs.module.ugandaemrreports.definition.dataset.predicates.ViralLoadTestedFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The data set predicates applied at every cohort milestone by the CBS and viral load evaluators
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PredicatesBenchmark {
+
+    static final int[] MILESTONES = {6, 12, 24, 36, 48, 60, 72};
+
+    @Param({"1000", "10000", "100000"})
+    public int patients;
+
+    private List<ViralLoad> viralLoads;
+    private List<PatientMonthData> patientMonthData;
+    private List<PatientARV> patientARVs;
+    private Set<Integer> secondLineChildren;
+    private Set<Integer> secondLineAdults;
+    private Set<Integer> thirdLine;
+
+    @Setup
+    public void setUp() {
+        SyntheticData data = new SyntheticData(42);
+        viralLoads = data.viralLoads(patients);
+        patientMonthData = data.patientMonthData(patients);
+        patientARVs = data.patientARVs(patients);
+        secondLineChildren = new HashSet<>(SyntheticData.SECOND_LINE_CHILDREN);
+        secondLineAdults = new HashSet<>(SyntheticData.SECOND_LINE_ADULTS);
+        thirdLine = new HashSet<>(SyntheticData.THIRD_LINE);
+    }
+
+    @Benchmark
+    public void viralLoadFilters(Blackhole blackhole) {
+        for (int month : MILESTONES) {
+            Collection<ViralLoad> tested = Collections2.filter(viralLoads, new ViralLoadTestedFilter(month, month + 2));
+            blackhole.consume(patientIds(tested));
+            blackhole.consume(patientIds(Collections2.filter(tested, new ViralLoadNotDetectedFilter(month, month + 2))));
+            blackhole.consume(patientIds(Collections2.filter(viralLoads, new ViralLoadFailedFilter(month))));
+        }
+    }
+
+    @Benchmark
+    public void patientMonthDataFilter(Blackhole blackhole) {
+        for (int month : MILESTONES) {
+            for (int dataType = 1; dataType <= 3; dataType++) {
+                blackhole.consume(monthPatientIds(Collections2.filter(patientMonthData, new PatientMonthDataFilter(month, dataType))));
+            }
+        }
+    }
+
+    @Benchmark
+    public void arvFilters(Blackhole blackhole) {
+        for (int month : MILESTONES) {
+            blackhole.consume(arvPatientIds(Collections2.filter(patientARVs, new PatientARVFilter(month))));
+            blackhole.consume(arvPatientIds(Collections2.filter(patientARVs, new PatientSecondLineARVFilter(month, secondLineChildren, secondLineAdults))));
+            blackhole.consume(arvPatientIds(Collections2.filter(patientARVs, new PatientThirdLineARVFilter(month, thirdLine))));
+        }
+    }
+
+    static Set<Integer> patientIds(Collection<ViralLoad> viralLoads) {
+        Set<Integer> patients = new HashSet<>();
+        for (ViralLoad viralLoad : viralLoads) {
+            patients.add(viralLoad.getPatientId());
+        }
+        return patients;
+    }
+
+    static Set<Integer> monthPatientIds(Collection<PatientMonthData> data) {
+        Set<Integer> patients = new HashSet<>();
+        for (PatientMonthData d : data) {
+            patients.add(d.getPatientId());
+        }
+        return patients;
+    }
+
+    static Set<Integer> arvPatientIds(Collection<PatientARV> arvs) {
+        Set<Integer> patients = new HashSet<>();
+        for (PatientARV arv : arvs) {
+            patients.add(arv.getPatientId());
+        }
+        return patients;
+    }
+}
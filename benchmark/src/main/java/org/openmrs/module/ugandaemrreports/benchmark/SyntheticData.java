@@ -0,0 +1,229 @@
+package org.openmrs.module.ugandaemrreports.benchmark;
+
+import org.joda.time.LocalDate;
+import org.openmrs.module.ugandaemrreports.common.EWIPatientData;
+import org.openmrs.module.ugandaemrreports.common.EWIPatientEncounter;
+import org.openmrs.module.ugandaemrreports.common.ObsData;
+import org.openmrs.module.ugandaemrreports.common.ObsDataStore;
+import org.openmrs.module.ugandaemrreports.common.PatientARV;
+import org.openmrs.module.ugandaemrreports.common.PatientMonthData;
+import org.openmrs.module.ugandaemrreports.common.PersonDemographics;
+import org.openmrs.module.ugandaemrreports.common.ViralLoad;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates registers' worth of patients with the shapes the evaluators read from the database.
+ * The same seed always produces the same data, so runs of different commits can be compared.
+ * Patient ids run from 1 to the number of patients and everyone starts ART during the quarter starting at
+ * {@link #COHORT_START}.
+ */
+public class SyntheticData {
+
+    public static final LocalDate COHORT_START = new LocalDate(2015, 1, 1);
+
+    public static final String CLINIC_NUMBER = "e1731641-30ab-102d-86b0-7a5022ba4115";
+
+    private static final String NIN = "f0c16a6d-dc5f-4118-a803-616d0075d282";
+    private static final String PHONE = "14d4f066-15f5-102d-96e4-000c29c2a5d7";
+
+    private static final String[] REGIMENS = {"99015", "99016", "99005", "99006", "99039", "99040", "99044", "99046", "99286"};
+    private static final String[] CLINICAL_STAGES = {"90033", "90034", "90035", "90036"};
+    private static final String[] FUNCTIONAL_STATUSES = {"90037", "90038", "90039"};
+    private static final String[] TB_STATUSES = {"90079", "90073", "90078", "90071"};
+    private static final String[] ADHERENCE = {"90156", "90157", "90158"};
+    private static final String[] DISTRICTS = {"Kampala", "Wakiso", "Gulu", "Mbarara", "Mbale", "Arua"};
+
+    public static final List<Integer> SECOND_LINE_CHILDREN = Arrays.asList(99044, 99046, 99282);
+    public static final List<Integer> SECOND_LINE_ADULTS = Arrays.asList(99007, 99008, 99043, 99044);
+    public static final List<Integer> THIRD_LINE = Arrays.asList(163017, 99888);
+
+    private static final int[] CODED_ARVS = {99015, 99016, 99005, 99007, 99008, 99043, 99044, 99046, 99282, 163017, 99888};
+
+    private final Random random;
+
+    public SyntheticData(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * @return ART start date of every patient ordered by patient id
+     */
+    public Map<Integer, Date> artStartDates(int patients) {
+        Map<Integer, Date> dates = new LinkedHashMap<>();
+        for (int patient = 1; patient <= patients; patient++) {
+            dates.put(patient, COHORT_START.plusDays(random.nextInt(90)).toDate());
+        }
+        return dates;
+    }
+
+    public List<PersonDemographics> demographics(int patients) {
+        List<PersonDemographics> demographics = new ArrayList<>(patients);
+        for (int patient = 1; patient <= patients; patient++) {
+            String gender = random.nextBoolean() ? "M" : "F";
+            String birthDate = COHORT_START.minusYears(1 + random.nextInt(70)).minusDays(random.nextInt(365)).toString("yyyy-MM-dd");
+            String identifiers = CLINIC_NUMBER + ":ART-" + patient + "," + NIN + ":CM" + (10000000 + patient);
+            String attributes = PHONE + ":07" + (10000000 + random.nextInt(90000000));
+            String names = "Surname" + patient + " Given" + patient;
+            String district = DISTRICTS[random.nextInt(DISTRICTS.length)];
+            String addresses = "Uganda:" + district + ":" + district + ":Parish" + random.nextInt(50) + ":Village" + random.nextInt(200) + ":Cell" + random.nextInt(20);
+            demographics.add(new PersonDemographics(patient, gender, birthDate, identifiers, attributes, names, addresses));
+        }
+        return demographics;
+    }
+
+    /**
+     * Baseline obs at ART start and monthly follow up encounters, about one in seven visits missed and a few deaths
+     * and transfers out. Obs are added in chronological order with increasing encounter ids, the order
+     * {@link ObsDataStore#load} leaves them in.
+     */
+    public ObsDataStore obs(Map<Integer, Date> artStartDates, int followUpMonths) {
+        ObsDataStore store = new ObsDataStore();
+        int encounterId = 0;
+        for (Map.Entry<Integer, Date> patient : artStartDates.entrySet()) {
+            Integer patientId = patient.getKey();
+            LocalDate artStart = new LocalDate(patient.getValue());
+            Date baseline = patient.getValue();
+            encounterId++;
+            store.add(new ObsData(patientId, "99161", encounterId, baseline, artStart.toString("yyyy-MM-dd"), ""));
+            store.add(new ObsData(patientId, "99069", encounterId, baseline, String.valueOf(20 + random.nextInt(60)), ""));
+            store.add(new ObsData(patientId, "99070", encounterId, baseline, pick(CLINICAL_STAGES), ""));
+            store.add(new ObsData(patientId, "99071", encounterId, baseline, String.valueOf(50 + random.nextInt(800)), ""));
+            store.add(new ObsData(patientId, "99061", encounterId, baseline, pick(REGIMENS), ""));
+            store.add(new ObsData(patientId, "90235", encounterId, baseline, pick(FUNCTIONAL_STATUSES), ""));
+
+            String regimen = pick(REGIMENS);
+            int exitMonth = random.nextInt(100) < 5 ? 1 + random.nextInt(followUpMonths) : Integer.MAX_VALUE;
+            for (int month = 1; month <= followUpMonths && month < exitMonth; month++) {
+                if (random.nextInt(7) == 0) {
+                    continue;
+                }
+                LocalDate visitDate = artStart.plusMonths(month);
+                Date visit = visitDate.toDate();
+                encounterId++;
+                store.add(new ObsData(patientId, "90315", encounterId, visit, regimen, ""));
+                store.add(new ObsData(patientId, "5096", encounterId, visit, visitDate.plusMonths(1).toString("yyyy-MM-dd"), ""));
+                store.add(new ObsData(patientId, "90221", encounterId, visit, pick(ADHERENCE), ""));
+                store.add(new ObsData(patientId, "90216", encounterId, visit, pick(TB_STATUSES), ""));
+                if (random.nextBoolean()) {
+                    store.add(new ObsData(patientId, "99037", encounterId, visit, "960", ""));
+                }
+                if (month % 6 == 0) {
+                    store.add(new ObsData(patientId, "90236", encounterId, visit, String.valueOf(20 + random.nextInt(60)), ""));
+                    store.add(new ObsData(patientId, "5497", encounterId, visit, String.valueOf(50 + random.nextInt(900)), ""));
+                    store.add(new ObsData(patientId, "90203", encounterId, visit, pick(CLINICAL_STAGES), ""));
+                    store.add(new ObsData(patientId, "856", encounterId, visit, String.valueOf(random.nextInt(100000)), ""));
+                }
+            }
+            if (exitMonth != Integer.MAX_VALUE) {
+                LocalDate exitDate = artStart.plusMonths(exitMonth);
+                encounterId++;
+                if (random.nextBoolean()) {
+                    store.add(new ObsData(patientId, "0", 0, exitDate.toDate(), exitDate.toString("yyyy-MM-dd"), ""));
+                } else {
+                    store.add(new ObsData(patientId, "99165", encounterId, exitDate.toDate(), exitDate.toString("yyyy-MM-dd"), ""));
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * @return viral loads at the 6 monthly milestones, some patients have none
+     */
+    public List<ViralLoad> viralLoads(int patients) {
+        List<ViralLoad> viralLoads = new ArrayList<>();
+        for (int patient = 1; patient <= patients; patient++) {
+            int monthsOnArt = 6 + random.nextInt(72);
+            for (int month = 6; month <= monthsOnArt; month += 6) {
+                if (random.nextInt(4) == 0) {
+                    continue;
+                }
+                double value = random.nextInt(5) == 0 ? 1000 + random.nextInt(100000) : random.nextInt(1000);
+                viralLoads.add(new ViralLoad(patient, monthsOnArt, month + random.nextInt(3), value < 20 ? 1306 : 0, value));
+            }
+        }
+        return viralLoads;
+    }
+
+    /**
+     * @return encounters (type 1), visits (type 2) and deaths (type 3) positioned by months since enrollment
+     */
+    public List<PatientMonthData> patientMonthData(int patients) {
+        List<PatientMonthData> data = new ArrayList<>();
+        for (int patient = 1; patient <= patients; patient++) {
+            int months = 1 + random.nextInt(75);
+            for (int month = 0; month < months; month += 1 + random.nextInt(3)) {
+                data.add(new PatientMonthData(patient, month, 1));
+                if (random.nextBoolean()) {
+                    data.add(new PatientMonthData(patient, month, 2));
+                }
+            }
+            if (random.nextInt(100) < 5) {
+                data.add(new PatientMonthData(patient, months, 3));
+            }
+        }
+        return data;
+    }
+
+    public List<PatientARV> patientARVs(int patients) {
+        List<PatientARV> arvs = new ArrayList<>();
+        for (int patient = 1; patient <= patients; patient++) {
+            int age = 1 + random.nextInt(70);
+            int months = 1 + random.nextInt(75);
+            int arv = CODED_ARVS[random.nextInt(CODED_ARVS.length)];
+            for (int month = 0; month < months; month += 1 + random.nextInt(3)) {
+                arvs.add(new PatientARV(patient, age + month / 12, month, arv));
+            }
+        }
+        return arvs;
+    }
+
+    public List<EWIPatientData> ewiPatients(int patients) {
+        List<EWIPatientData> data = new ArrayList<>(patients);
+        for (int patient = 1; patient <= patients; patient++) {
+            int age = 1 + random.nextInt(70);
+            String dob = COHORT_START.minusYears(age).toString("yyyy-MM-dd");
+            String artStart = COHORT_START.plusDays(random.nextInt(90)).toString("yyyy-MM-dd");
+            String exit = COHORT_START.plusMonths(3 + random.nextInt(12)).toString("yyyy-MM-dd");
+            int outcome = random.nextInt(20);
+            data.add(new EWIPatientData(patient, random.nextBoolean() ? "M" : "F", dob, outcome == 0 ? exit : null,
+                    "ART-" + patient, artStart, outcome == 1 ? exit : null, outcome == 2 ? exit : null, age));
+        }
+        return data;
+    }
+
+    /**
+     * @return the baseline pick up of every patient, most with the first refill after it
+     */
+    public List<EWIPatientEncounter> ewiBaselinePickups(int patients) {
+        List<EWIPatientEncounter> pickups = new ArrayList<>(patients);
+        for (int patient = 1; patient <= patients; patient++) {
+            LocalDate baseline = COHORT_START.plusDays(random.nextInt(90));
+            String dates = baseline.toString("yyyy-MM-dd");
+            if (random.nextInt(10) > 0) {
+                dates += "," + baseline.plusDays(28 + random.nextInt(60)).toString("yyyy-MM-dd");
+            }
+            pickups.add(new EWIPatientEncounter(patient, dates));
+        }
+        return pickups;
+    }
+
+    public List<EWIPatientEncounter> ewiDaysPicked(int patients) {
+        List<EWIPatientEncounter> days = new ArrayList<>(patients);
+        for (int patient = 1; patient <= patients; patient++) {
+            days.add(new EWIPatientEncounter(patient, 30 * (1 + random.nextInt(3))));
+        }
+        return days;
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
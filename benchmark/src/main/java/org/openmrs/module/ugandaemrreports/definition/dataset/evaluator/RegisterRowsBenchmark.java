@@ -0,0 +1,126 @@
+package org.openmrs.module.ugandaemrreports.definition.dataset.evaluator;
+
+import org.openmrs.module.reporting.dataset.DataSetRow;
+import org.openmrs.module.ugandaemrreports.benchmark.SyntheticData;
+import org.openmrs.module.ugandaemrreports.common.EWIPatientData;
+import org.openmrs.module.ugandaemrreports.common.EWIPatientEncounter;
+import org.openmrs.module.ugandaemrreports.common.ObsDataStore;
+import org.openmrs.module.ugandaemrreports.common.PatientARV;
+import org.openmrs.module.ugandaemrreports.common.PatientDataHelper;
+import org.openmrs.module.ugandaemrreports.common.PatientMonthData;
+import org.openmrs.module.ugandaemrreports.common.PeriodKeys;
+import org.openmrs.module.ugandaemrreports.common.PersonDemographics;
+import org.openmrs.module.ugandaemrreports.common.ViralLoad;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The row building loops of the ART register, the CBS follow up cohorts and the EWI pill pick up line list, run on
+ * synthetic data already loaded in memory so only the work done after the queries is measured.
+ * Lives in the evaluator package to reach the package private row builders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RegisterRowsBenchmark {
+
+    private static final int[] MILESTONES = {6, 12, 24, 36, 48, 60, 72};
+
+    @Param({"1000", "10000", "100000"})
+    public int patients;
+
+    private final ARTDatasetDefinitionEvaluator artEvaluator = new ARTDatasetDefinitionEvaluator();
+    private final EWIPillPickupEvaluator ewiEvaluator = new EWIPillPickupEvaluator();
+
+    private List<Map.Entry<Integer, Date>> artStartDates;
+    private Map<Integer, PersonDemographics> demographics;
+    private ObsDataStore obs;
+    private int[] months;
+    private int currentMonth;
+
+    private List<ViralLoad> viralLoads;
+    private List<PatientMonthData> patientMonthData;
+    private List<PatientARV> patientARVs;
+
+    private Map<Integer, List<EWIPatientData>> ewiPatients;
+    private Map<Integer, List<EWIPatientEncounter>> ewiPickups;
+    private Map<Integer, List<EWIPatientEncounter>> ewiDays;
+
+    @Setup
+    public void setUp() {
+        SyntheticData data = new SyntheticData(42);
+        Map<Integer, Date> dates = data.artStartDates(patients);
+        artStartDates = new ArrayList<>(dates.entrySet());
+        artStartDates.sort(Comparator.<Map.Entry<Integer, Date>, Date>comparing(Map.Entry::getValue).thenComparing(Map.Entry::getKey));
+        demographics = data.demographics(patients).stream().collect(Collectors.toMap(PersonDemographics::getPersonId, p -> p));
+        obs = data.obs(dates, 72);
+        months = PeriodKeys.monthKeys(SyntheticData.COHORT_START, 73);
+        currentMonth = PeriodKeys.yearMonth(new Date());
+
+        viralLoads = data.viralLoads(patients);
+        patientMonthData = data.patientMonthData(patients);
+        patientARVs = data.patientARVs(patients);
+
+        ewiPatients = data.ewiPatients(patients).stream().collect(Collectors.groupingBy(EWIPatientData::getPersonId));
+        ewiPickups = data.ewiBaselinePickups(patients).stream().collect(Collectors.groupingBy(EWIPatientEncounter::getPersonId));
+        ewiDays = data.ewiDaysPicked(patients).stream().collect(Collectors.groupingBy(EWIPatientEncounter::getPersonId));
+    }
+
+    @Benchmark
+    public void artRegister(Blackhole blackhole) {
+        for (Map.Entry<Integer, Date> patient : artStartDates) {
+            blackhole.consume(buildArtRow(patient));
+        }
+    }
+
+    private DataSetRow buildArtRow(Map.Entry<Integer, Date> patient) {
+        Integer patientId = patient.getKey();
+        return artEvaluator.buildRow(patient.getValue(), demographics.get(patientId), obs.get(patientId), months, currentMonth);
+    }
+
+    /**
+     * The milestone cohorts of CBSAdultFollowupDataSetEvaluator, without the queries
+     */
+    @Benchmark
+    public void cbsFollowup(Blackhole blackhole) {
+        for (int i : MILESTONES) {
+            CBSAdultFollowupDataSetEvaluator.Milestone milestone = new CBSAdultFollowupDataSetEvaluator.Milestone(i, patientMonthData,
+                    patientARVs, viralLoads, SyntheticData.SECOND_LINE_CHILDREN, SyntheticData.SECOND_LINE_ADULTS, SyntheticData.THIRD_LINE);
+            blackhole.consume(milestone.died.size());
+            blackhole.consume(milestone.onArt.size());
+            blackhole.consume(milestone.lost.size());
+            blackhole.consume(milestone.secondLineFailed.size());
+            blackhole.consume(milestone.thirdLineFailed.size());
+        }
+    }
+
+    @Benchmark
+    public void ewiPillPickup(Blackhole blackhole) throws ParseException {
+        PatientDataHelper pdh = new PatientDataHelper();
+        for (int patient = 1; patient <= patients; patient++) {
+            blackhole.consume(ewiEvaluator.buildRow(pdh, ewiPatients.get(patient), ewiPickups.get(patient), ewiDays.get(patient)));
+        }
+    }
+}
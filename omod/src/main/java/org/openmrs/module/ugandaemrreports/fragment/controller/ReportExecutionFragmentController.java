@@ -0,0 +1,32 @@
+package org.openmrs.module.ugandaemrreports.fragment.controller;
+
+import org.openmrs.module.reporting.report.ReportRequest;
+import org.openmrs.module.reporting.report.service.ReportService;
+import org.openmrs.module.ugandaemrreports.reporting.execution.ReportExecutor;
+import org.openmrs.ui.framework.SimpleObject;
+import org.openmrs.ui.framework.annotation.SpringBean;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/**
+ * Status of the report requests run by the {@link ReportExecutor}, for pages to poll after submitting one
+ */
+public class ReportExecutionFragmentController {
+
+    /**
+     * @return the state of the request, QUEUED or RUNNING while the module has it and the status of the request
+     * once it has finished, with its position in the queue and the number of reports running and queued
+     */
+    public SimpleObject status(@SpringBean ReportService reportService,
+                               @RequestParam("request") String requestUuid) {
+        ReportRequest request = reportService.getReportRequestByUuid(requestUuid);
+        if (request == null) {
+            throw new IllegalArgumentException("ReportRequest not found");
+        }
+        ReportExecutor.State state = ReportExecutor.getState(requestUuid);
+        return SimpleObject.create("request", requestUuid,
+                "status", state == null ? String.valueOf(request.getStatus()) : state.name(),
+                "position", ReportExecutor.getPosition(requestUuid),
+                "running", ReportExecutor.getRunning(),
+                "queued", ReportExecutor.getQueued());
+    }
+}
@@ -0,0 +1,42 @@
+package org.openmrs.module.ugandaemrreports.fragment.controller;
+
+import org.openmrs.module.ugandaemrreports.common.ConnectionPool;
+import org.openmrs.module.ugandaemrreports.common.NamedQuery;
+import org.openmrs.module.ugandaemrreports.reporting.data.DataEvaluationBatching;
+import org.openmrs.ui.framework.SimpleObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Statistics of the module's report evaluation, for checking how the reports run on a live server
+ */
+public class ReportStatisticsFragmentController {
+
+    /**
+     * @return the totals of the patient data batches evaluated since the module started and the last batches
+     */
+    public SimpleObject batching() {
+        List<SimpleObject> recent = new ArrayList<SimpleObject>();
+        for (DataEvaluationBatching.BatchTiming timing : DataEvaluationBatching.getRecentBatches()) {
+            recent.add(SimpleObject.create("time", timing.getTime(),
+                    "definition", timing.getDefinition(),
+                    "patients", timing.getPatients(),
+                    "millis", timing.getMillis(),
+                    "heapUsed", timing.getHeapUsed()));
+        }
+        return SimpleObject.create("batches", DataEvaluationBatching.getTotalBatches(),
+                "patients", DataEvaluationBatching.getTotalPatients(),
+                "millis", DataEvaluationBatching.getTotalMillis(),
+                "recent", recent);
+    }
+
+    /**
+     * @return the counters of the reports connection pool, statement cache hits and misses included, and the
+     * executions and timings of each named query since the module started
+     */
+    public SimpleObject connections() {
+        return SimpleObject.create("pool", ConnectionPool.getInstanceMetrics(),
+                "queries", NamedQuery.getStatistics());
+    }
+}
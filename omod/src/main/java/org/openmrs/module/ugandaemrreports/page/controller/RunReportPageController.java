@@ -8,6 +8,7 @@ import org.openmrs.module.reporting.report.definition.ReportDefinition;
 import org.openmrs.module.reporting.report.definition.service.ReportDefinitionService;
 import org.openmrs.module.reporting.report.renderer.RenderingMode;
 import org.openmrs.module.reporting.report.service.ReportService;
+import org.openmrs.module.ugandaemrreports.reporting.execution.ReportExecutor;
 import org.openmrs.ui.framework.SimpleObject;
 import org.openmrs.ui.framework.UiUtils;
 import org.openmrs.ui.framework.WebConstants;
@@ -85,10 +86,9 @@ public class RunReportPageController {
         //rr.setBaseCohort(command.getBaseCohort());
 	    //rr.setSchedule(command.getSchedule());
 
-        // TODO: We might want to check here if this exact same report request is already queued and just re-direct if so
-
-        reportRequest = reportService.queueReport(reportRequest);
-        reportService.processNextQueuedReports();
+        // run by the workers of the module, the page polls the queue for the result; an identical request in
+        // flight or completed on unchanged data is returned instead of queueing this one
+        reportRequest = ReportExecutor.submit(reportService, reportRequest);
 
         return "redirect:" + ui.pageLink("reportingui", "runReport", SimpleObject.create("reportDefinition", reportDefinition.getUuid()));
     }